@@ -12,12 +12,14 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.ByteArrayResource;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -29,6 +31,7 @@ import org.springframework.transaction.annotation.Transactional;
 import java.io.IOException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -42,6 +45,12 @@ public class ContentController {
 
     private static final Logger logger = LoggerFactory.getLogger(ContentController.class);
     
+    // Request attributes of Tomcat's sendfile support, as used by its DefaultServlet
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    
     private final ContentService contentService;
     private final AbstractSysObjectService<SysObject, ?> sysObjectService;
     
@@ -160,58 +169,135 @@ public class ContentController {
     }
     
     /**
-     * Download content
+     * Download content. The body is streamed from the file store or the database column rather
+     * than loaded into memory, and a single byte range can be requested with Range, guarded by
+     * If-Range, so clients can resume downloads and seek in media. On Tomcat, file store content
+     * is handed to the connector's sendfile support and never passes through the JVM heap.
      * @param id The content ID
-     * @return The content as a downloadable resource
+     * @param request The request, read for Range and If-Range
+     * @param response The response the content is written to
      */
     @Operation(
         summary = "Download content",
-        description = "Download the actual content bytes of a content item"
+        description = "Download the actual content bytes of a content item. Supports a single byte range " +
+                      "(Range: bytes=start-end) and If-Range with the ETag or Last-Modified value."
     )
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Content downloaded"),
+        @ApiResponse(responseCode = "206", description = "Requested byte range downloaded"),
         @ApiResponse(responseCode = "404", description = "Content not found"),
+        @ApiResponse(responseCode = "416", description = "Requested range not satisfiable"),
         @ApiResponse(responseCode = "500", description = "Error reading content")
     })
     @GetMapping("/{id}/download")
-    public ResponseEntity<ByteArrayResource> downloadContent(
-            @Parameter(description = "Content ID", required = true) @PathVariable Long id) {
+    public void downloadContent(
+            @Parameter(description = "Content ID", required = true) @PathVariable Long id,
+            HttpServletRequest request, HttpServletResponse response) {
+        Content content;
+        long length;
         try {
-            Content content = contentService.findById(id);
-            byte[] data = contentService.getContentBytes(id);
-            
-            ByteArrayResource resource = new ByteArrayResource(data);
-            
-            // Set content disposition header to suggest filename for download
-            String encodedFilename = URLEncoder.encode(content.getName(), StandardCharsets.UTF_8.toString())
-                    .replace("+", "%20");
-            
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentDisposition(
-                    org.springframework.http.ContentDisposition.builder("attachment")
-                            .filename(encodedFilename)
-                            .build());
-            
-            // Set content type if available
-            if (content.getContentType() != null && !content.getContentType().isEmpty()) {
-                headers.setContentType(MediaType.parseMediaType(content.getContentType()));
-            } else {
-                headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
-            }
-            
-            headers.setContentLength(data.length);
-            
-            return ResponseEntity.ok()
-                    .headers(headers)
-                    .body(resource);
+            content = contentService.findById(id);
+            // From the recorded size or file metadata; the content itself is not read
+            length = contentService.getContentLength(content);
         } catch (EntityNotFoundException e) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage(), e);
         } catch (IOException e) {
             logger.error("Error reading content data for ID: {}", id, e);
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error reading content data", e);
-        } catch (Exception e) {
-            logger.error("Error downloading content with ID: {}", id, e);
-            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error downloading content", e);
+        }
+        
+        String etag = content.getSha256() != null ? "\"" + content.getSha256() + "\"" : null;
+        // HTTP dates have second precision, so compare and send whole seconds
+        long lastModified = content.getModifiedAt() != null
+                ? content.getModifiedAt().atZone(ZoneId.systemDefault()).toEpochSecond() * 1000 : -1;
+        
+        // Set content disposition header to suggest filename for download
+        String encodedFilename = URLEncoder.encode(content.getName(), StandardCharsets.UTF_8)
+                .replace("+", "%20");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, 
+                org.springframework.http.ContentDisposition.builder("attachment")
+                        .filename(encodedFilename)
+                        .build()
+                        .toString());
+        
+        // Set content type if available
+        if (content.getContentType() != null && !content.getContentType().isEmpty()) {
+            response.setContentType(MediaType.parseMediaType(content.getContentType()).toString());
+        } else {
+            response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        }
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (etag != null) {
+            response.setHeader(HttpHeaders.ETAG, etag);
+        }
+        if (lastModified >= 0) {
+            response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        }
+        
+        long start = 0;
+        long count = length;
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader != null && ifRangeMatches(request, etag, lastModified)) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(rangeHeader);
+            } catch (IllegalArgumentException e) {
+                // A malformed Range header is ignored and the whole content sent
+                ranges = List.of();
+            }
+            // Several ranges are answered with the whole content, which HTTP permits
+            if (ranges.size() == 1) {
+                long end;
+                try {
+                    start = ranges.get(0).getRangeStart(length);
+                    end = ranges.get(0).getRangeEnd(length);
+                } catch (IllegalArgumentException e) {
+                    response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    return;
+                }
+                count = end - start + 1;
+                response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+        response.setContentLengthLong(count);
+        if ("HEAD".equals(request.getMethod()) || count == 0) {
+            return;
+        }
+        
+        if (content.isStoredInFileStore() && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // Tomcat writes the file region with sendfile once the request completes
+            request.setAttribute(SENDFILE_FILENAME, contentService.getContentPath(content).toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + count);
+            return;
+        }
+        try {
+            contentService.writeContent(content, start, count, response.getOutputStream());
+        } catch (IOException e) {
+            // Headers are already sent, so all that can be done is to stop; usually the client went away
+            logger.warn("Download of content {} stopped: {}", id, e.getMessage());
+        }
+    }
+    
+    /**
+     * Check an If-Range precondition. A range is only served if the content is unchanged since
+     * the client saw the given strong ETag or Last-Modified date; otherwise the whole content is sent.
+     */
+    private boolean ifRangeMatches(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            // Weak validators never match for ranges
+            return etag != null && etag.equals(ifRange);
+        }
+        try {
+            return lastModified >= 0 && request.getDateHeader(HttpHeaders.IF_RANGE) == lastModified;
+        } catch (IllegalArgumentException e) {
+            return false;
         }
     }
     
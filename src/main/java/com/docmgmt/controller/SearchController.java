@@ -1,10 +1,19 @@
 package com.docmgmt.controller;
 
+import com.docmgmt.search.IndexOutboxService;
+import com.docmgmt.search.IndexRebuildService;
+import com.docmgmt.search.IndexRebuildStatus;
+import com.docmgmt.search.IndexReconciliationReport;
+import com.docmgmt.search.IndexReconciliationService;
 import com.docmgmt.search.LuceneIndexService;
+import com.docmgmt.search.SearchFilters;
 import com.docmgmt.search.SearchResult;
 import com.docmgmt.search.SearchResultsWrapper;
+import com.docmgmt.search.VectorIndexService;
 import com.docmgmt.service.DocumentService;
 import com.docmgmt.service.DocumentSimilarityService;
+import com.docmgmt.service.EmbeddingMigrationService;
+import com.docmgmt.service.EmbeddingWorkQueue;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
@@ -15,10 +24,13 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import org.apache.lucene.queryparser.classic.ParseException;
 import org.apache.lucene.search.BooleanClause;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -30,6 +42,24 @@ public class SearchController {
     @Autowired
     private LuceneIndexService searchService;
     
+    @Autowired
+    private IndexRebuildService rebuildService;
+    
+    @Autowired
+    private IndexReconciliationService reconciliationService;
+    
+    @Autowired
+    private IndexOutboxService outboxService;
+    
+    @Autowired
+    private VectorIndexService vectorIndexService;
+    
+    @Autowired
+    private EmbeddingMigrationService embeddingMigrationService;
+    
+    @Autowired
+    private EmbeddingWorkQueue embeddingWorkQueue;
+    
     @Autowired
     private DocumentService documentService;
     
@@ -38,23 +68,45 @@ public class SearchController {
     
     @Operation(
         summary = "Simple text search",
-        description = "Search across all document fields (name, description, keywords, tags, content) and indexable content using Lucene query syntax. Supports wildcards (*), phrase queries (\"exact phrase\"), and boolean operators (AND, OR, NOT)."
+        description = "Search across all document fields (name, description, keywords, tags, content) and indexable content using Lucene query syntax. Supports wildcards (*), phrase queries (\"exact phrase\"), and boolean operators (AND, OR, NOT). Results are ordered by score and paged with the opaque nextCursor returned in each response. Facet counts and drill-downs are computed in the same pass."
     )
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Search completed successfully"),
-        @ApiResponse(responseCode = "400", description = "Invalid query syntax")
+        @ApiResponse(responseCode = "400", description = "Invalid query syntax, cursor or drill-down")
     })
     @GetMapping
     public ResponseEntity<SearchResultsWrapper> search(
             @Parameter(description = "Search query using Lucene syntax", required = true, 
                       example = "spring framework") 
             @RequestParam String q,
-            @Parameter(description = "Maximum number of results to return", example = "50") 
-            @RequestParam(defaultValue = "50") int limit) {
+            @Parameter(description = "Maximum number of results to return (the page size)", example = "50") 
+            @RequestParam(defaultValue = "50") int limit,
+            @Parameter(description = "Return only document IDs and scores, without name, description, keywords and tags") 
+            @RequestParam(defaultValue = "false") boolean idsOnly,
+            @Parameter(description = "nextCursor from the previous page; omit for the first page") 
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Return facet counts for documentType, tags, owner, majorVersion and folder") 
+            @RequestParam(defaultValue = "false") boolean facets,
+            @Parameter(description = "Facet drill-downs as dimension:value, e.g. tags:java; repeat to add more", 
+                      example = "documentType:REPORT") 
+            @RequestParam(required = false) List<String> drill,
+            @Parameter(description = "Number of values to return per facet dimension", example = "10") 
+            @RequestParam(defaultValue = "10") int facetLimit,
+            @Parameter(description = "Only return the latest version of each document") 
+            @RequestParam(defaultValue = "false") boolean latestOnly,
+            @Parameter(description = "Only return documents filed in this folder or its subfolders", example = "1") 
+            @RequestParam(required = false) Long folderId) {
         try {
-            SearchResultsWrapper results = searchService.search(q, limit);
+            SearchFilters filters = SearchFilters.builder().latestOnly(latestOnly).folderId(folderId).build();
+            SearchResultsWrapper results;
+            if (facets || (drill != null && !drill.isEmpty())) {
+                results = searchService.facetedSearch(q, parseDrillDowns(drill), limit, cursor, facetLimit, 
+                    idsOnly, filters);
+            } else {
+                results = searchService.searchAfter(q, limit, cursor, idsOnly, filters);
+            }
             return ResponseEntity.ok(results);
-        } catch (IOException | ParseException e) {
+        } catch (IOException | ParseException | IllegalArgumentException e) {
             return ResponseEntity.badRequest().build();
         }
     }
@@ -97,6 +149,26 @@ public class SearchController {
         }
     }
     
+    @Operation(
+        summary = "Type-ahead suggestions",
+        description = "Suggest document names, tags and keywords for the text typed so far. Every word must match the start of a word in the suggestion; no query syntax is parsed. Suggestions carried by more documents come first."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Suggestions returned (empty for a blank prefix)")
+    })
+    @GetMapping("/suggest")
+    public ResponseEntity<List<String>> suggest(
+            @Parameter(description = "Text typed so far", required = true, example = "spr") 
+            @RequestParam String q,
+            @Parameter(description = "Maximum number of suggestions", example = "10") 
+            @RequestParam(defaultValue = "10") int limit) {
+        try {
+            return ResponseEntity.ok(searchService.suggest(q, limit));
+        } catch (IOException e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+    
     @Operation(
         summary = "Rebuild search index",
         description = "Completely rebuild the Lucene search index from all documents in the database. This indexes all document metadata and indexable content."
@@ -115,6 +187,54 @@ public class SearchController {
         }
     }
     
+    @Operation(
+        summary = "Start a parallel background index rebuild",
+        description = "Stream all documents from the database in pages and index them on a worker pool into a side index, which replaces the live index atomically when finished. The live index stays searchable during the rebuild. Poll /api/search/rebuild/status for progress."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "202", description = "Rebuild started"),
+        @ApiResponse(responseCode = "409", description = "A rebuild is already in progress")
+    })
+    @PostMapping("/rebuild/parallel")
+    public ResponseEntity<IndexRebuildStatus> rebuildIndexInBackground() {
+        try {
+            return ResponseEntity.accepted().body(rebuildService.startRebuild());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(rebuildService.getStatus());
+        }
+    }
+    
+    @Operation(
+        summary = "Get index rebuild progress",
+        description = "Retrieve the state and progress of the current or most recent background index rebuild."
+    )
+    @GetMapping("/rebuild/status")
+    public ResponseEntity<IndexRebuildStatus> getRebuildStatus() {
+        return ResponseEntity.ok(rebuildService.getStatus());
+    }
+    
+    @Operation(
+        summary = "Reconcile the search index with the database",
+        description = "Compare each document's modification time and content fingerprint in the index against the database, then reindex missing, stale or duplicated documents and remove orphaned ones. Much cheaper than a full rebuild when only a few documents have drifted. Use dryRun=true to only report the differences."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Reconciliation completed"),
+        @ApiResponse(responseCode = "409", description = "A reconciliation or rebuild is already in progress"),
+        @ApiResponse(responseCode = "500", description = "Error reading the index")
+    })
+    @PostMapping("/reconcile")
+    public ResponseEntity<IndexReconciliationReport> reconcileIndex(
+            @Parameter(description = "Only report differences without repairing them", example = "false")
+            @RequestParam(defaultValue = "false") boolean dryRun) {
+        try {
+            return ResponseEntity.ok(reconciliationService.reconcile(dryRun));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (IOException e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+    
     @Operation(
         summary = "Get search index statistics",
         description = "Retrieve statistics about the Lucene search index including document count and deleted documents."
@@ -134,15 +254,18 @@ public class SearchController {
     
     @Operation(
         summary = "Similarity search by document",
-        description = "Find documents similar to a given document using vector embeddings and cosine similarity"
+        description = "Find documents similar to a given document using vector embeddings and cosine similarity. Served from the HNSW vector index by default; mode=EXACT forces a brute-force scan, e.g. for recall checks."
     )
     @GetMapping("/similar/{documentId}")
     public ResponseEntity<List<Map<String, Object>>> findSimilar(
             @PathVariable Long documentId,
-            @RequestParam(defaultValue = "10") int limit) {
+            @RequestParam(defaultValue = "10") int limit,
+            @Parameter(description = "HNSW (approximate, default) or EXACT (brute force)")
+            @RequestParam(required = false) DocumentSimilarityService.SearchMode mode) {
         try {
-            List<DocumentSimilarityService.SimilarityResult> results = 
-                similarityService.findSimilar(documentId, limit);
+            List<DocumentSimilarityService.SimilarityResult> results = mode != null
+                ? similarityService.findSimilar(documentId, limit, mode)
+                : similarityService.findSimilar(documentId, limit);
             
             List<Map<String, Object>> response = results.stream()
                 .map(r -> {
@@ -162,18 +285,22 @@ public class SearchController {
     
     @Operation(
         summary = "Similarity search by text query",
-        description = "Find documents similar to the provided text using vector embeddings"
+        description = "Find documents similar to the provided text using vector embeddings. Served from the HNSW vector index by default; mode=EXACT forces a brute-force scan."
     )
     @PostMapping("/similar")
     public ResponseEntity<List<Map<String, Object>>> findSimilarByText(
             @RequestParam String q,
             @RequestParam(defaultValue = "10") int limit,
+            @Parameter(description = "HNSW (approximate, default) or EXACT (brute force)")
+            @RequestParam(required = false) DocumentSimilarityService.SearchMode mode,
             @RequestBody(required = false) Map<String, String> filters) {
         try {
             List<DocumentSimilarityService.SimilarityResult> results;
             
             if (filters != null && !filters.isEmpty()) {
                 results = similarityService.findSimilarByTextWithFilters(q, filters, limit);
+            } else if (mode != null) {
+                results = similarityService.findSimilarByText(q, limit, mode);
             } else {
                 results = similarityService.findSimilarByText(q, limit);
             }
@@ -220,10 +347,103 @@ public class SearchController {
     @PostMapping("/embeddings/rebuild")
     public ResponseEntity<String> rebuildEmbeddings() {
         try {
-            similarityService.rebuildAllEmbeddings();
-            return ResponseEntity.ok("Embeddings rebuilt");
+            DocumentSimilarityService.EmbeddingBatchResult result = similarityService.rebuildAllEmbeddings();
+            return ResponseEntity.ok(String.format("Embeddings rebuilt: %d generated, %d up-to-date, %d skipped, %d failed",
+                result.getGenerated(), result.getUpToDate(), result.getSkipped(), result.getFailed()));
         } catch (Exception e) {
             return ResponseEntity.internalServerError().body("Failed to rebuild embeddings");
         }
     }
+    
+    @Operation(
+        summary = "Migrate legacy embeddings",
+        description = "Convert embeddings still stored as JSON text to the binary float32 vector column. Also runs at startup."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Migration completed"),
+        @ApiResponse(responseCode = "409", description = "A migration is already in progress")
+    })
+    @PostMapping("/embeddings/migrate")
+    public ResponseEntity<Map<String, Object>> migrateEmbeddings() {
+        try {
+            long converted = embeddingMigrationService.migrateLegacyEmbeddings();
+            return ResponseEntity.ok(Map.of(
+                "converted", converted,
+                "remaining", embeddingMigrationService.countLegacyEmbeddings()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+    
+    @Operation(
+        summary = "Rebuild the vector index",
+        description = "Rebuild the HNSW vector index from the embeddings stored in the database. Similarity queries use the exact scan while the rebuild runs."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Vector index rebuilt"),
+        @ApiResponse(responseCode = "409", description = "A vector index rebuild is already in progress")
+    })
+    @PostMapping("/embeddings/index/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildVectorIndex() {
+        try {
+            vectorIndexService.rebuild();
+            return ResponseEntity.ok(vectorIndexService.getStats());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (IOException e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+    
+    @Operation(
+        summary = "Get vector index statistics",
+        description = "Retrieve the number of indexed vectors and the HNSW parameters of the vector index, plus the size and scorer of the in-memory matrix used for exact search."
+    )
+    @GetMapping("/embeddings/index/stats")
+    public ResponseEntity<Map<String, Object>> getVectorIndexStats() {
+        try {
+            Map<String, Object> stats = vectorIndexService.getStats();
+            stats.put("exactMatrix", similarityService.getMatrixStats());
+            return ResponseEntity.ok(stats);
+        } catch (IOException e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+    
+    @Operation(
+        summary = "Get embedding queue statistics",
+        description = "Retrieve the depth, throughput counters and lag of the background queue that generates embeddings for saved documents."
+    )
+    @GetMapping("/embeddings/queue/stats")
+    public ResponseEntity<Map<String, Object>> getEmbeddingQueueStats() {
+        return ResponseEntity.ok(embeddingWorkQueue.getStats());
+    }
+    
+    @Operation(
+        summary = "Get index outbox statistics",
+        description = "Retrieve pending and failed outbox events and the indexing lag: how long the oldest committed change has been waiting to reach the index."
+    )
+    @GetMapping("/outbox/stats")
+    public ResponseEntity<Map<String, Object>> getOutboxStats() {
+        return ResponseEntity.ok(outboxService.getStats());
+    }
+    
+    /**
+     * Group dimension:value drill-down parameters by dimension
+     */
+    private static Map<String, List<String>> parseDrillDowns(List<String> drill) {
+        Map<String, List<String>> drillDowns = new LinkedHashMap<>();
+        if (drill == null) {
+            return drillDowns;
+        }
+        for (String entry : drill) {
+            int separator = entry.indexOf(':');
+            if (separator <= 0 || separator == entry.length() - 1) {
+                throw new IllegalArgumentException("Drill-down must be dimension:value, got " + entry);
+            }
+            drillDowns.computeIfAbsent(entry.substring(0, separator), dimension -> new ArrayList<>())
+                .add(entry.substring(separator + 1));
+        }
+        return drillDowns;
+    }
 }
@@ -6,7 +6,6 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-import java.io.IOException;
 import java.time.LocalDateTime;
 
 /**
@@ -27,6 +26,8 @@ public class ContentDTO {
     private String storagePath;
     private Long size;
     private String formattedSize;
+    private String sha256;
+    private String mimeType;
     private String storageType;
     private LocalDateTime createdAt;
     private LocalDateTime modifiedAt;
@@ -53,49 +54,46 @@ public class ContentDTO {
      * @return the DTO
      */
     public static ContentDTO fromEntity(Content content, boolean includeSecondaryRenditions) {
-        try {
-            ContentDTO dto = ContentDTO.builder()
-                    .id(content.getId())
-                    .name(content.getName())
-                    .contentType(content.getContentType())
-                    .sysObjectId(content.getSysObject().getId())
-                    .createdAt(content.getCreatedAt())
-                    .modifiedAt(content.getModifiedAt())
-                    .size(content.getSize())
-                    .formattedSize(SpaceInfoDTO.formatBytes(content.getSize()))
-                    .isPrimary(content.isPrimary())
-                    .isIndexable(content.isIndexable())
-                    .build();
-            
-            if (content.isStoredInDatabase()) {
-                dto.setStorageType("DATABASE");
-            } else if (content.isStoredInFileStore()) {
-                dto.setStorageType("FILE_STORE");
-                dto.setFileStoreId(content.getFileStore().getId());
-                dto.setFileStoreName(content.getFileStore().getName());
-                dto.setStoragePath(content.getStoragePath());
-            }
-            
-            // Add parent rendition ID if this is a secondary rendition
-            if (content.getParentRendition() != null) {
-                dto.setParentRenditionId(content.getParentRendition().getId());
-            }
-            
-            // Add secondary renditions if requested
-            if (includeSecondaryRenditions && content.isPrimary() && 
-                content.getSecondaryRenditions() != null && !content.getSecondaryRenditions().isEmpty()) {
-                dto.setSecondaryRenditions(
-                    content.getSecondaryRenditions().stream()
-                        .map(sec -> ContentDTO.fromEntity(sec, false))
-                        .collect(java.util.stream.Collectors.toList())
-                );
-            }
-            
-            return dto;
-        } catch (IOException e) {
-            // Handle error getting content size
-            throw new RuntimeException("Error getting content size", e);
+        // Size, checksum and MIME type are recorded when the bytes are written, so no content is read
+        ContentDTO dto = ContentDTO.builder()
+                .id(content.getId())
+                .name(content.getName())
+                .contentType(content.getContentType())
+                .mimeType(content.getMimeType())
+                .sysObjectId(content.getSysObject().getId())
+                .createdAt(content.getCreatedAt())
+                .modifiedAt(content.getModifiedAt())
+                .size(content.getSizeBytes())
+                .formattedSize(content.getSizeBytes() != null ? SpaceInfoDTO.formatBytes(content.getSizeBytes()) : null)
+                .sha256(content.getSha256())
+                .isPrimary(content.isPrimary())
+                .isIndexable(content.isIndexable())
+                .build();
+        
+        if (content.isStoredInDatabase()) {
+            dto.setStorageType("DATABASE");
+        } else if (content.isStoredInFileStore()) {
+            dto.setStorageType("FILE_STORE");
+            dto.setFileStoreId(content.getFileStore().getId());
+            dto.setFileStoreName(content.getFileStore().getName());
+            dto.setStoragePath(content.getStoragePath());
         }
+        
+        // Add parent rendition ID if this is a secondary rendition
+        if (content.getParentRendition() != null) {
+            dto.setParentRenditionId(content.getParentRendition().getId());
+        }
+        
+        // Add secondary renditions if requested
+        if (includeSecondaryRenditions && content.isPrimary() && 
+            content.getSecondaryRenditions() != null && !content.getSecondaryRenditions().isEmpty()) {
+            dto.setSecondaryRenditions(
+                content.getSecondaryRenditions().stream()
+                    .map(sec -> ContentDTO.fromEntity(sec, false))
+                    .collect(java.util.stream.Collectors.toList())
+            );
+        }
+        
+        return dto;
     }
 }
-
@@ -0,0 +1,60 @@
+package com.docmgmt.listener;
+
+import com.docmgmt.model.Content;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA entity listener that removes stored content bytes once no content references them.
+ * Versions of a document share their content_data rows, so a row can only go when the
+ * last content using it is deleted or given new bytes. The check runs on the flushing
+ * connection over JDBC, since the EntityManager cannot be used during a flush.
+ */
+@Component
+public class ContentDataReleaseListener {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ContentDataReleaseListener.class);
+    
+    private static final String DELETE_UNREFERENCED =
+        "DELETE FROM content_data WHERE id = ? " +
+        "AND NOT EXISTS (SELECT 1 FROM content c WHERE c.content_data_id = ?)";
+    
+    private static JdbcTemplate jdbcTemplate;
+    
+    /**
+     * Spring-managed setter for dependency injection
+     * Uses static field to work with JPA entity listeners
+     */
+    @Autowired
+    public void setJdbcTemplate(JdbcTemplate jdbcTemplate) {
+        ContentDataReleaseListener.jdbcTemplate = jdbcTemplate;
+    }
+    
+    @PostUpdate
+    public void onUpdate(Content content) {
+        deleteIfUnreferenced(content.takeReleasedContentDataId());
+    }
+    
+    @PostRemove
+    public void onRemove(Content content) {
+        deleteIfUnreferenced(content.takeReleasedContentDataId());
+        if (content.getContentData() != null) {
+            deleteIfUnreferenced(content.getContentData().getId());
+        }
+    }
+    
+    private void deleteIfUnreferenced(Long contentDataId) {
+        if (jdbcTemplate == null || contentDataId == null) {
+            return;
+        }
+        int deleted = jdbcTemplate.update(DELETE_UNREFERENCED, contentDataId, contentDataId);
+        if (deleted > 0) {
+            logger.debug("Removed unreferenced content bytes (content_data ID: {})", contentDataId);
+        }
+    }
+}
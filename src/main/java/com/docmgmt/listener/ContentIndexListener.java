@@ -0,0 +1,124 @@
+package com.docmgmt.listener;
+
+import com.docmgmt.model.Document;
+import com.docmgmt.search.IndexOutboxService;
+import com.docmgmt.search.LuceneIndexService;
+import com.docmgmt.service.ContentChangedEvent;
+import com.docmgmt.service.DocumentService;
+import com.docmgmt.service.EmbeddingWorkQueue;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reindexes the owning document when its content changes. With the index outbox enabled
+ * the change is written to the outbox inside the changing transaction and the dispatcher
+ * debounces it; otherwise the reindex is scheduled after commit and pushed back by every
+ * further change to the same document within the debounce window.
+ */
+@Component
+public class ContentIndexListener {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ContentIndexListener.class);
+    
+    @Value("${docmgmt.content-events.debounce-ms:500}")
+    private long debounceMs;
+    
+    @Value("${docmgmt.similarity.auto-generate-embeddings:false}")
+    private boolean autoGenerateEmbeddings;
+    
+    @Value("${docmgmt.similarity.async-generation:true}")
+    private boolean asyncGeneration;
+    
+    private final IndexOutboxService outboxService;
+    private final LuceneIndexService indexService;
+    private final DocumentService documentService;
+    private final EmbeddingWorkQueue embeddingWorkQueue;
+    
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "content-reindex");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Latest schedule token per document; a run whose token is no longer current was superseded
+    private final Map<Long, Long> scheduled = new ConcurrentHashMap<>();
+    private final AtomicLong tokens = new AtomicLong();
+    
+    public ContentIndexListener(IndexOutboxService outboxService,
+                                LuceneIndexService indexService,
+                                DocumentService documentService,
+                                EmbeddingWorkQueue embeddingWorkQueue) {
+        this.outboxService = outboxService;
+        this.indexService = indexService;
+        this.documentService = documentService;
+        this.embeddingWorkQueue = embeddingWorkQueue;
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+    
+    /**
+     * Record the change in the outbox as part of the changing transaction
+     */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void recordContentChange(ContentChangedEvent event) {
+        if (outboxService.isEnabled()) {
+            outboxService.record(event.getDocumentId(), IndexOutboxService.EVENT_CONTENT);
+            logger.debug("Recorded outbox event for {}", event);
+        }
+    }
+    
+    /**
+     * Schedule a debounced reindex once the change is committed
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void scheduleReindex(ContentChangedEvent event) {
+        if (outboxService.isEnabled()) {
+            return;
+        }
+        Long documentId = event.getDocumentId();
+        long token = tokens.incrementAndGet();
+        scheduled.put(documentId, token);
+        scheduler.schedule(() -> reindex(documentId, token), debounceMs, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * @return number of documents waiting for a debounced reindex
+     */
+    public int getScheduledCount() {
+        return scheduled.size();
+    }
+    
+    private void reindex(Long documentId, long token) {
+        if (!scheduled.remove(documentId, token)) {
+            // A later change rescheduled this document
+            return;
+        }
+        try {
+            Document document = documentService.findById(documentId);
+            indexService.indexDocument(document);
+            if (autoGenerateEmbeddings && asyncGeneration) {
+                embeddingWorkQueue.enqueue(documentId);
+            }
+            logger.debug("Document reindexed after content change (ID: {})", documentId);
+        } catch (EntityNotFoundException e) {
+            logger.debug("Document {} was deleted before its content reindex", documentId);
+        } catch (Exception e) {
+            logger.error("Failed to reindex document after content change (ID: {})", documentId, e);
+        }
+    }
+}
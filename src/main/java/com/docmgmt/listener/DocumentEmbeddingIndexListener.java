@@ -0,0 +1,105 @@
+package com.docmgmt.listener;
+
+import com.docmgmt.model.DocumentEmbedding;
+import com.docmgmt.search.VectorIndexService;
+import com.docmgmt.service.DocumentSimilarityService;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * JPA entity listener that keeps the HNSW vector index and the exact similarity
+ * matrix in sync with stored document embeddings. Changes are applied after the
+ * transaction commits.
+ */
+@Component
+public class DocumentEmbeddingIndexListener {
+    
+    private static final Logger logger = LoggerFactory.getLogger(DocumentEmbeddingIndexListener.class);
+    
+    private static VectorIndexService vectorIndexService;
+    private static DocumentSimilarityService similarityService;
+    
+    /**
+     * Spring-managed setter for dependency injection
+     * Uses static field to work with JPA entity listeners
+     */
+    @Autowired
+    public void setVectorIndexService(VectorIndexService vectorIndexService) {
+        DocumentEmbeddingIndexListener.vectorIndexService = vectorIndexService;
+    }
+    
+    /**
+     * Spring-managed setter for similarity service dependency injection
+     */
+    @Autowired
+    public void setSimilarityService(DocumentSimilarityService similarityService) {
+        DocumentEmbeddingIndexListener.similarityService = similarityService;
+    }
+    
+    @PostPersist
+    @PostUpdate
+    public void onSave(DocumentEmbedding embedding) {
+        if (vectorIndexService == null || embedding.getDocument() == null) {
+            return;
+        }
+        final float[] vector = embedding.getVectorArray();
+        if (vector == null) {
+            return;
+        }
+        final Long documentId = embedding.getDocument().getId();
+        afterCommit(() -> {
+            if (similarityService != null) {
+                similarityService.onEmbeddingSaved(documentId, vector);
+            }
+            vectorIndexService.indexVector(documentId, vector);
+        }, documentId, "index");
+    }
+    
+    @PostRemove
+    public void onRemove(DocumentEmbedding embedding) {
+        if (vectorIndexService == null || embedding.getDocument() == null) {
+            return;
+        }
+        final Long documentId = embedding.getDocument().getId();
+        afterCommit(() -> {
+            if (similarityService != null) {
+                similarityService.onEmbeddingRemoved(documentId);
+            }
+            vectorIndexService.removeVector(documentId);
+        }, documentId, "remove");
+    }
+    
+    private void afterCommit(VectorIndexAction action, Long documentId, String operation) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    run(action, documentId, operation);
+                }
+            });
+        } else {
+            run(action, documentId, operation);
+        }
+    }
+    
+    private void run(VectorIndexAction action, Long documentId, String operation) {
+        try {
+            action.run();
+            logger.debug("Vector index {} for document {}", operation, documentId);
+        } catch (Exception e) {
+            logger.error("Failed to {} vector for document {}", operation, documentId, e);
+        }
+    }
+    
+    @FunctionalInterface
+    private interface VectorIndexAction {
+        void run() throws Exception;
+    }
+}
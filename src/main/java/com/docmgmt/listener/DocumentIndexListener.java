@@ -1,6 +1,7 @@
 package com.docmgmt.listener;
 
 import com.docmgmt.model.Document;
+import com.docmgmt.search.IndexOutboxService;
 import com.docmgmt.search.LuceneIndexService;
 import com.docmgmt.service.DocumentService;
 import jakarta.persistence.PostPersist;
@@ -19,6 +20,10 @@ import java.io.IOException;
  * JPA entity listener that automatically reindexes documents when they are
  * created, updated, or deleted. This ensures the search index stays synchronized
  * with the database without requiring manual intervention.
+ * When the index outbox is enabled, changes are only recorded in the outbox within
+ * the saving transaction and the outbox dispatcher does the indexing.
+ * Creating a new version marks its parent version as superseded in the index; removing a
+ * version reindexes its parent, which may have become the latest again.
  */
 @Component
 public class DocumentIndexListener {
@@ -27,6 +32,7 @@ public class DocumentIndexListener {
     
     private static LuceneIndexService indexService;
     private static DocumentService documentService;
+    private static IndexOutboxService outboxService;
     
     /**
      * Spring-managed setter for dependency injection
@@ -45,6 +51,14 @@ public class DocumentIndexListener {
         DocumentIndexListener.documentService = documentService;
     }
     
+    /**
+     * Spring-managed setter for index outbox dependency injection
+     */
+    @Autowired
+    public void setOutboxService(IndexOutboxService outboxService) {
+        DocumentIndexListener.outboxService = outboxService;
+    }
+    
     /**
      * Called after a document is persisted (created)
      * Automatically indexes the new document
@@ -52,6 +66,7 @@ public class DocumentIndexListener {
     @PostPersist
     public void onPostPersist(Document document) {
         reindexDocument(document, "created");
+        supersedeParentVersion(document);
     }
     
     /**
@@ -69,6 +84,13 @@ public class DocumentIndexListener {
      */
     @PostRemove
     public void onPostRemove(Document document) {
+        Long parentVersionId = parentVersionId(document);
+        if (parentVersionId != null) {
+            reindexDocument(parentVersionId, "parent version", "newer version removed");
+        }
+        if (recordInOutbox(document.getId(), document.getName(), IndexOutboxService.EVENT_DELETE)) {
+            return;
+        }
         if (indexService != null && document.getId() != null) {
             try {
                 indexService.removeDocument(document.getId());
@@ -80,31 +102,61 @@ public class DocumentIndexListener {
         }
     }
     
+    /**
+     * Flip is_latest off for the version a new document was created from, once the new
+     * version is committed. Only that doc value is rewritten, not the whole parent document.
+     */
+    private void supersedeParentVersion(Document document) {
+        Long parentVersionId = parentVersionId(document);
+        if (parentVersionId == null) {
+            return;
+        }
+        if (recordInOutbox(parentVersionId, "parent version", IndexOutboxService.EVENT_SUPERSEDED)) {
+            return;
+        }
+        if (indexService == null) {
+            return;
+        }
+        runAfterCommit(() -> {
+            try {
+                indexService.markSuperseded(parentVersionId);
+            } catch (Exception e) {
+                logger.error("Failed to mark parent version as superseded (ID: {})", parentVersionId, e);
+            }
+        });
+    }
+    
+    private static Long parentVersionId(Document document) {
+        // Reading the ID does not initialize a lazy proxy
+        return document.getParentVersion() != null ? document.getParentVersion().getId() : null;
+    }
+    
     /**
      * Helper method to reindex a document
      * Defers indexing until after transaction commit to ensure all data is persisted
      * Uses document ID instead of entity to avoid lazy initialization issues
      */
     private void reindexDocument(Document document, String operation) {
-        if (indexService != null && documentService != null && document.getId() != null) {
-            final Long documentId = document.getId();
-            final String documentName = document.getName();
-            
+        reindexDocument(document.getId(), document.getName(), operation);
+    }
+    
+    private void reindexDocument(Long documentId, String documentName, String operation) {
+        if (recordInOutbox(documentId, documentName, IndexOutboxService.EVENT_UPSERT)) {
+            return;
+        }
+        if (indexService != null && documentService != null && documentId != null) {
             // Register a synchronization to index after transaction commit
             if (TransactionSynchronizationManager.isSynchronizationActive()) {
-                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
-                    @Override
-                    public void afterCommit() {
-                        try {
-                            // Reload the document in a new transaction to ensure all lazy relationships are available
-                            Document freshDocument = documentService.findById(documentId);
-                            indexService.indexDocument(freshDocument);
-                            logger.debug("Document automatically reindexed after {}: {} (ID: {})", 
-                                operation, documentName, documentId);
-                        } catch (Exception e) {
-                            logger.error("Failed to reindex document after {}: {} (ID: {})", 
-                                operation, documentName, documentId, e);
-                        }
+                runAfterCommit(() -> {
+                    try {
+                        // Reload the document in a new transaction to ensure all lazy relationships are available
+                        Document freshDocument = documentService.findById(documentId);
+                        indexService.indexDocument(freshDocument);
+                        logger.debug("Document automatically reindexed after {}: {} (ID: {})", 
+                            operation, documentName, documentId);
+                    } catch (Exception e) {
+                        logger.error("Failed to reindex document after {}: {} (ID: {})", 
+                            operation, documentName, documentId, e);
                     }
                 });
             } else {
@@ -121,4 +173,34 @@ public class DocumentIndexListener {
             }
         }
     }
+    
+    /**
+     * Run an action after the current transaction commits, or straight away without one
+     */
+    private static void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+    
+    /**
+     * Write an outbox row in the current transaction if the outbox is enabled
+     * @return true if the change was recorded and needs no further handling here
+     */
+    private boolean recordInOutbox(Long documentId, String documentName, String eventType) {
+        if (outboxService == null || !outboxService.isEnabled() || documentId == null) {
+            return false;
+        }
+        outboxService.record(documentId, eventType);
+        logger.debug("Recorded {} outbox event for document {} (ID: {})", 
+            eventType, documentName, documentId);
+        return true;
+    }
 }
@@ -0,0 +1,104 @@
+package com.docmgmt.listener;
+
+import com.docmgmt.model.Document;
+import com.docmgmt.repository.FolderRepository;
+import com.docmgmt.search.IndexOutboxService;
+import com.docmgmt.search.LuceneIndexService;
+import com.docmgmt.service.DocumentService;
+import com.docmgmt.service.FolderMembershipChangedEvent;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Reindexes the documents whose folder ancestry paths changed: documents filed into or out of
+ * a folder, and every document below a folder subtree that moved. Only those documents are
+ * touched. With the index outbox enabled they are written to the outbox inside the changing
+ * transaction as index-only events; otherwise they are reindexed in the background after commit.
+ */
+@Component
+public class FolderIndexListener {
+    
+    private static final Logger logger = LoggerFactory.getLogger(FolderIndexListener.class);
+    
+    private final IndexOutboxService outboxService;
+    private final LuceneIndexService indexService;
+    private final DocumentService documentService;
+    private final FolderRepository folderRepository;
+    
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "folder-reindex");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    public FolderIndexListener(IndexOutboxService outboxService,
+                               LuceneIndexService indexService,
+                               DocumentService documentService,
+                               FolderRepository folderRepository) {
+        this.outboxService = outboxService;
+        this.indexService = indexService;
+        this.documentService = documentService;
+        this.folderRepository = folderRepository;
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+    
+    /**
+     * Record the affected documents in the outbox as part of the changing transaction
+     */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void recordMembershipChange(FolderMembershipChangedEvent event) {
+        if (!outboxService.isEnabled()) {
+            return;
+        }
+        Set<Long> documentIds = affectedDocumentIds(event);
+        documentIds.forEach(id -> outboxService.record(id, IndexOutboxService.EVENT_REINDEX));
+        logger.debug("Recorded {} outbox events for {}", documentIds.size(), event);
+    }
+    
+    /**
+     * Reindex the affected documents in the background once the change is committed
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void reindexAfterCommit(FolderMembershipChangedEvent event) {
+        if (outboxService.isEnabled()) {
+            return;
+        }
+        executor.execute(() -> reindex(affectedDocumentIds(event)));
+    }
+    
+    private Set<Long> affectedDocumentIds(FolderMembershipChangedEvent event) {
+        Set<Long> documentIds = new LinkedHashSet<>(event.getDocumentIds());
+        if (!event.getFolderIds().isEmpty()) {
+            documentIds.addAll(folderRepository.findDocumentIdsInSubtrees(event.getFolderIds()));
+        }
+        return documentIds;
+    }
+    
+    private void reindex(Set<Long> documentIds) {
+        for (Long documentId : documentIds) {
+            try {
+                Document document = documentService.findById(documentId);
+                indexService.indexDocument(document);
+            } catch (EntityNotFoundException e) {
+                logger.debug("Document {} was deleted before its folder paths were reindexed", documentId);
+            } catch (Exception e) {
+                logger.error("Failed to reindex document after folder change (ID: {})", documentId, e);
+            }
+        }
+        logger.debug("Reindexed {} documents after folder change", documentIds.size());
+    }
+}
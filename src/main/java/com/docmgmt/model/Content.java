@@ -12,16 +12,20 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
+import java.util.HexFormat;
 @Entity
 @Table(name = "content")
+@EntityListeners(com.docmgmt.listener.ContentDataReleaseListener.class)
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder(toBuilder = true)
-@EqualsAndHashCode(exclude = {"sysObject", "fileStore", "parentRendition", "secondaryRenditions"})
-@ToString(exclude = {"sysObject", "fileStore", "parentRendition", "secondaryRenditions"})
+@EqualsAndHashCode(exclude = {"content", "contentData", "releasedContentDataId", "sysObject", "fileStore", "parentRendition", "secondaryRenditions"})
+@ToString(exclude = {"content", "contentData", "releasedContentDataId", "sysObject", "fileStore", "parentRendition", "secondaryRenditions"})
 public class Content {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -34,10 +38,24 @@ public class Content {
     @Column(name = "content_type")
     private String contentType;
 
-    @Lob
-    @Column(name = "content")
+    // Bytes of database-stored content, loaded from contentData on first access
+    @Transient
     private byte[] content;
 
+    // Versions share the row until one of them gets new bytes; unreferenced rows are removed
+    // by ContentDataReleaseListener
+    @ManyToOne(fetch = FetchType.LAZY, cascade = CascadeType.PERSIST)
+    @JoinColumn(name = "content_data_id")
+    @JsonIgnore
+    private ContentData contentData;
+
+    // Stored bytes row this content stopped referencing since it was loaded
+    @Transient
+    @JsonIgnore
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private Long releasedContentDataId;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "file_store_id")
     @JsonIgnore
@@ -46,6 +64,17 @@ public class Content {
     @Column(name = "storage_path")
     private String storagePath;
 
+    // Recorded when the content bytes are written; null for content written before they existed
+    @Column(name = "size_bytes")
+    private Long sizeBytes;
+
+    @Column(name = "sha256", length = 64)
+    private String sha256;
+
+    // Detected from the leading bytes; contentType is what the uploader declared
+    @Column(name = "mime_type", length = 100)
+    private String mimeType;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "sys_object_id")
     @JsonIgnore
@@ -79,6 +108,67 @@ public class Content {
     @Column(name = "modified_at", nullable = false)
     @Builder.Default
     private LocalDateTime modifiedAt = LocalDateTime.now();
+
+    /**
+     * Gets the bytes of database-stored content, reading them on first access. A detached
+     * entity only has the bytes if they were read while it was attached; read detached
+     * content through ContentService.getContentBytes or openContentStream instead.
+     * @return the content bytes, or null if none are stored in the database
+     */
+    public byte[] getContent() {
+        if (content == null && contentData != null) {
+            content = contentData.getData();
+        }
+        return content;
+    }
+
+    /**
+     * Sets the bytes of database-stored content. New bytes get a new row, so the old bytes
+     * never have to be read just to be replaced, and other versions sharing the old row keep
+     * it; the old row is removed once no content references it.
+     * @param content the content bytes, or null to remove them from the database
+     */
+    public void setContent(byte[] content) {
+        if (releasedContentDataId == null && contentData != null && contentData.getId() != null) {
+            releasedContentDataId = contentData.getId();
+        }
+        this.content = content;
+        this.contentData = content != null ? new ContentData(content) : null;
+    }
+
+    /**
+     * Hands over the stored bytes row this content stopped referencing, if any
+     * @return the content_data ID, or null
+     */
+    public Long takeReleasedContentDataId() {
+        Long released = releasedContentDataId;
+        releasedContentDataId = null;
+        return released;
+    }
+
+    /**
+     * Moves bytes given to the builder into their own row when the content is first saved
+     * and records their metadata if it was not set
+     */
+    @PrePersist
+    void prePersistContentData() {
+        if (content == null) {
+            return;
+        }
+        if (contentData == null) {
+            contentData = new ContentData(content);
+        }
+        if (sizeBytes == null) {
+            sizeBytes = (long) content.length;
+        }
+        if (sha256 == null) {
+            sha256 = HexFormat.of().formatHex(newSha256Digest().digest(content));
+        }
+        if (mimeType == null) {
+            mimeType = MimeTypeSniffer.sniff(content, name);
+        }
+    }
+
     /**
      * Checks if this is a secondary rendition
      * @return true if this is a secondary rendition (has a parent), false otherwise
@@ -142,7 +232,7 @@ public class Content {
      */
     public byte[] getContentBytes() throws IOException {
         if (isStoredInDatabase()) {
-            return content;
+            return getContent();
         } else if (isStoredInFileStore()) {
             Path filePath = Paths.get(fileStore.getFullPath(storagePath));
             return Files.readAllBytes(filePath);
@@ -151,13 +241,16 @@ public class Content {
     }
 
     /**
-     * Sets the content bytes. If a file store is configured, writes to the file system
+     * Sets the content bytes and records their size, SHA-256 and MIME type. If a file store is configured, writes to the file system
      * @param bytes the content bytes to store
      * @throws IOException if there's an error writing to the file system
      */
     public void setContentBytes(byte[] bytes) throws IOException {
+        this.sizeBytes = bytes != null ? (long) bytes.length : null;
+        this.sha256 = bytes != null ? HexFormat.of().formatHex(newSha256Digest().digest(bytes)) : null;
+        this.mimeType = bytes != null ? MimeTypeSniffer.sniff(bytes, name) : null;
         if (fileStore == null) {
-            this.content = bytes;
+            setContent(bytes);
         } else {
             if (storagePath == null || storagePath.isEmpty()) {
                 throw new IllegalStateException("Storage path must be set when using a file store");
@@ -171,7 +264,20 @@ public class Content {
             Files.write(filePath, bytes, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
             
             // Set content to null to save database space
-            this.content = null;
+            setContent(null);
+        }
+    }
+    
+    /**
+     * Creates a SHA-256 digest, the hash recorded for content bytes
+     * @return a new digest
+     */
+    public static MessageDigest newSha256Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException("SHA-256 not available", e);
         }
     }
     
@@ -183,51 +289,65 @@ public class Content {
      */
     public void cleanupStorage() throws IOException {
         if (isStoredInFileStore()) {
-            Path filePath = Paths.get(fileStore.getFullPath(storagePath));
-            if (Files.exists(filePath)) {
-                Files.delete(filePath);
-                
-                // Clean up empty parent directories recursively
-                // For hierarchical structure like aa/bb/cc/dd/file.ext
-                // We want to remove dd, cc, bb, aa if they're empty
-                Path rootPath = Paths.get(fileStore.getRootPath());
-                Path currentDir = filePath.getParent();
-                
-                while (currentDir != null && !currentDir.equals(rootPath)) {
-                    try {
-                        // Check if directory is empty
-                        if (Files.exists(currentDir) && Files.isDirectory(currentDir)) {
-                            try (var dirStream = Files.list(currentDir)) {
-                                if (dirStream.findAny().isEmpty()) {
-                                    Files.delete(currentDir);
-                                    // Move up to parent directory
-                                    currentDir = currentDir.getParent();
-                                } else {
-                                    // Directory not empty, stop cleanup
-                                    break;
-                                }
+            deleteStoredFile(fileStore, storagePath);
+        }
+    }
+    
+    /**
+     * Deletes a file from a file store and recursively removes empty parent directories
+     * up to the filestore root. Callers must make sure no other content references the file.
+     * @param fileStore the file store holding the file
+     * @param storagePath the file's path relative to the store root
+     * @throws IOException if there's an error accessing the file system
+     */
+    public static void deleteStoredFile(FileStore fileStore, String storagePath) throws IOException {
+        Path filePath = Paths.get(fileStore.getFullPath(storagePath));
+        if (Files.exists(filePath)) {
+            Files.delete(filePath);
+            
+            // Clean up empty parent directories recursively
+            // For hierarchical structure like aa/bb/cc/dd/file.ext
+            // We want to remove dd, cc, bb, aa if they're empty
+            Path rootPath = Paths.get(fileStore.getRootPath());
+            Path currentDir = filePath.getParent();
+            
+            while (currentDir != null && !currentDir.equals(rootPath)) {
+                try {
+                    // Check if directory is empty
+                    if (Files.exists(currentDir) && Files.isDirectory(currentDir)) {
+                        try (var dirStream = Files.list(currentDir)) {
+                            if (dirStream.findAny().isEmpty()) {
+                                Files.delete(currentDir);
+                                // Move up to parent directory
+                                currentDir = currentDir.getParent();
+                            } else {
+                                // Directory not empty, stop cleanup
+                                break;
                             }
-                        } else {
-                            break;
                         }
-                    } catch (IOException e) {
-                        // If we can't clean up a directory, log and continue
-                        // Don't fail the entire operation
+                    } else {
                         break;
                     }
+                } catch (IOException e) {
+                    // If we can't clean up a directory, log and continue
+                    // Don't fail the entire operation
+                    break;
                 }
             }
         }
     }
 
     /**
-     * Get the size of the content in bytes
+     * Get the size of the content in bytes, the recorded size if there is one
      * @return the size in bytes or 0 if content not available
      * @throws IOException if there's an error accessing the file system
      */
     public long getSize() throws IOException {
-        if (isStoredInDatabase() && content != null) {
-            return content.length;
+        if (sizeBytes != null) {
+            return sizeBytes;
+        }
+        if (isStoredInDatabase() && getContent() != null) {
+            return getContent().length;
         } else if (isStoredInFileStore()) {
             Path filePath = Paths.get(fileStore.getFullPath(storagePath));
             if (Files.exists(filePath)) {
@@ -238,16 +358,21 @@ public class Content {
     }
 
     /**
-     * Creates a clone of this content object
+     * Creates a clone of this content object. Database-stored bytes are shared with the
+     * clone rather than read and copied; replacing them in either gives that one a new row.
      * @return a new content object with the same properties but no ID
      */
     public Content createClone() {
         Content clone = Content.builder()
                 .name(this.name)
                 .contentType(this.contentType)
-                .content(this.content)
+                .content(this.contentData == null ? this.content : null)
+                .contentData(this.contentData)
                 .fileStore(this.fileStore)
                 .storagePath(this.storagePath)
+                .sizeBytes(this.sizeBytes)
+                .sha256(this.sha256)
+                .mimeType(this.mimeType)
                 .isPrimary(this.isPrimary)
                 .isIndexable(this.isIndexable)
                 .build();
@@ -0,0 +1,29 @@
+package com.docmgmt.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Bytes of content stored in the database. They are kept apart from the content row,
+ * which references them lazily, so listing and metadata queries never read blob pages.
+ */
+@Entity
+@Table(name = "content_data")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString(exclude = "data")
+public class ContentData {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Lob
+    @Column(name = "content_bytes")
+    private byte[] data;
+
+    public ContentData(byte[] data) {
+        this.data = data;
+    }
+}
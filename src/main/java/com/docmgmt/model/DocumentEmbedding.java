@@ -1,12 +1,17 @@
 package com.docmgmt.model;
 
 import jakarta.persistence.*;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
 import java.time.LocalDateTime;
 
 /**
  * Stores vector embeddings for document similarity search
  */
 @Entity
+@EntityListeners(com.docmgmt.listener.DocumentEmbeddingIndexListener.class)
 @Table(name = "document_embeddings", indexes = {
     @Index(name = "idx_doc_embedding_doc", columnList = "document_id")
 })
@@ -20,8 +25,18 @@ public class DocumentEmbedding {
     @JoinColumn(name = "document_id", nullable = false, unique = true)
     private Document document;
     
-    @Column(name = "embedding", columnDefinition = "TEXT", nullable = false)
-    private String embedding; // JSON array of floats
+    @Column(name = "embedding", columnDefinition = "TEXT")
+    private String embedding; // Legacy JSON array of doubles, cleared by EmbeddingMigrationService
+    
+    @Lob
+    @Column(name = "vector")
+    private byte[] vector; // float32 components, little-endian
+    
+    @Column(name = "dimension")
+    private Integer dimension;
+    
+    @Column(name = "model_name", length = 100)
+    private String modelName;
     
     @Column(name = "content_hash", length = 64)
     private String contentHash; // SHA-256 hash to detect content changes
@@ -69,6 +84,54 @@ public class DocumentEmbedding {
         this.embedding = embedding;
     }
     
+    public byte[] getVector() {
+        return vector;
+    }
+    
+    public void setVector(byte[] vector) {
+        this.vector = vector;
+    }
+    
+    /**
+     * Store the vector in binary form and record its dimension
+     */
+    public void setVectorValues(float[] values) {
+        this.vector = values != null ? toBytes(values) : null;
+        this.dimension = values != null ? values.length : null;
+    }
+    
+    /**
+     * Get a read-only float view of the stored vector without copying it
+     * @return the vector, or null if only a legacy JSON embedding is stored
+     */
+    public FloatBuffer getVectorBuffer() {
+        return vector != null ? asFloatBuffer(vector) : null;
+    }
+    
+    /**
+     * Get the stored vector as a float array
+     * @return the vector, or null if only a legacy JSON embedding is stored
+     */
+    public float[] getVectorArray() {
+        return vector != null ? toFloats(vector) : null;
+    }
+    
+    public Integer getDimension() {
+        return dimension;
+    }
+    
+    public void setDimension(Integer dimension) {
+        this.dimension = dimension;
+    }
+    
+    public String getModelName() {
+        return modelName;
+    }
+    
+    public void setModelName(String modelName) {
+        this.modelName = modelName;
+    }
+    
     public String getContentHash() {
         return contentHash;
     }
@@ -92,4 +155,32 @@ public class DocumentEmbedding {
     public void setUpdatedAt(LocalDateTime updatedAt) {
         this.updatedAt = updatedAt;
     }
+    
+    // Binary encoding helpers
+    
+    /**
+     * Encode a vector as little-endian float32
+     */
+    public static byte[] toBytes(float[] values) {
+        ByteBuffer buffer = ByteBuffer.allocate(values.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asFloatBuffer().put(values);
+        return buffer.array();
+    }
+    
+    /**
+     * View little-endian float32 bytes as a FloatBuffer (no copy)
+     */
+    public static FloatBuffer asFloatBuffer(byte[] bytes) {
+        return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().asReadOnlyBuffer();
+    }
+    
+    /**
+     * Decode little-endian float32 bytes into a float array
+     */
+    public static float[] toFloats(byte[] bytes) {
+        FloatBuffer buffer = asFloatBuffer(bytes);
+        float[] values = new float[buffer.remaining()];
+        buffer.get(values);
+        return values;
+    }
 }
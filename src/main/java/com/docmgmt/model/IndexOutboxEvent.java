@@ -0,0 +1,44 @@
+package com.docmgmt.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * A document change waiting to be applied to the search index, written in the same
+ * transaction as the change itself
+ */
+@Entity
+@Table(name = "index_outbox", indexes = {
+    @Index(name = "idx_index_outbox_document", columnList = "document_id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+public class IndexOutboxEvent {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "document_id", nullable = false)
+    private Long documentId;
+    
+    /**
+     * One of the IndexOutboxService event types
+     */
+    @Column(name = "event_type", nullable = false, length = 16)
+    private String eventType;
+    
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+    
+    /**
+     * Failed dispatch attempts; rows reaching the maximum are left in place
+     */
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+}
@@ -0,0 +1,160 @@
+package com.docmgmt.model;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Detects the MIME type of content from its leading bytes. Magic numbers identify common
+ * binary formats; ZIP and OLE2 containers are told apart by file extension, since Office
+ * documents share them. Anything that decodes as UTF-8 without NUL bytes is text.
+ */
+public final class MimeTypeSniffer {
+
+    /**
+     * Number of leading bytes inspected
+     */
+    public static final int HEADER_LENGTH = 4096;
+
+    public static final String OCTET_STREAM = "application/octet-stream";
+
+    private static final byte[] PDF = {'%', 'P', 'D', 'F', '-'};
+    private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A};
+    private static final byte[] JPEG = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF};
+    private static final byte[] GIF87 = {'G', 'I', 'F', '8', '7', 'a'};
+    private static final byte[] GIF89 = {'G', 'I', 'F', '8', '9', 'a'};
+    private static final byte[] RIFF = {'R', 'I', 'F', 'F'};
+    private static final byte[] WEBP = {'W', 'E', 'B', 'P'};
+    private static final byte[] ZIP = {'P', 'K', 0x03, 0x04};
+    private static final byte[] OLE2 = {(byte) 0xD0, (byte) 0xCF, 0x11, (byte) 0xE0, (byte) 0xA1, (byte) 0xB1, 0x1A, (byte) 0xE1};
+    private static final byte[] GZIP = {0x1F, (byte) 0x8B};
+    private static final byte[] RTF = {'{', '\\', 'r', 't', 'f'};
+
+    private static final Map<String, String> ZIP_TYPES = Map.of(
+        "docx", "application/vnd.openxmlformats-officedocument.wordprocessingml.document",
+        "xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet",
+        "pptx", "application/vnd.openxmlformats-officedocument.presentationml.presentation",
+        "odt", "application/vnd.oasis.opendocument.text",
+        "ods", "application/vnd.oasis.opendocument.spreadsheet",
+        "odp", "application/vnd.oasis.opendocument.presentation",
+        "jar", "application/java-archive");
+
+    private static final Map<String, String> OLE2_TYPES = Map.of(
+        "doc", "application/msword",
+        "xls", "application/vnd.ms-excel",
+        "ppt", "application/vnd.ms-powerpoint",
+        "msg", "application/vnd.ms-outlook");
+
+    private static final Map<String, String> TEXT_TYPES = Map.of(
+        "md", "text/markdown",
+        "markdown", "text/markdown",
+        "csv", "text/csv",
+        "json", "application/json",
+        "xml", "application/xml",
+        "html", "text/html",
+        "htm", "text/html");
+
+    private MimeTypeSniffer() {
+    }
+
+    /**
+     * @param bytes the content, of which the first HEADER_LENGTH bytes are inspected
+     * @param filename the content's file name, used to tell container and text formats apart; may be null
+     * @return the detected MIME type, OCTET_STREAM if unknown
+     */
+    public static String sniff(byte[] bytes, String filename) {
+        return sniff(bytes, Math.min(bytes.length, HEADER_LENGTH), filename);
+    }
+
+    /**
+     * @param header the leading bytes of the content
+     * @param length number of valid bytes in header
+     * @param filename the content's file name, used to tell container and text formats apart; may be null
+     * @return the detected MIME type, OCTET_STREAM if unknown
+     */
+    public static String sniff(byte[] header, int length, String filename) {
+        if (length == 0) {
+            return OCTET_STREAM;
+        }
+        String extension = extension(filename);
+        if (startsWith(header, length, PDF)) {
+            return "application/pdf";
+        } else if (startsWith(header, length, PNG)) {
+            return "image/png";
+        } else if (startsWith(header, length, JPEG)) {
+            return "image/jpeg";
+        } else if (startsWith(header, length, GIF87) || startsWith(header, length, GIF89)) {
+            return "image/gif";
+        } else if (startsWith(header, length, RIFF) && length >= 12 && regionMatches(header, 8, WEBP)) {
+            return "image/webp";
+        } else if (startsWith(header, length, ZIP)) {
+            return ZIP_TYPES.getOrDefault(extension, "application/zip");
+        } else if (startsWith(header, length, OLE2)) {
+            return OLE2_TYPES.getOrDefault(extension, "application/x-ole-storage");
+        } else if (startsWith(header, length, GZIP)) {
+            return "application/gzip";
+        } else if (startsWith(header, length, RTF)) {
+            return "application/rtf";
+        } else if (isText(header, length)) {
+            return textType(header, length, extension);
+        }
+        return OCTET_STREAM;
+    }
+
+    private static String textType(byte[] header, int length, String extension) {
+        String type = TEXT_TYPES.get(extension);
+        if (type != null) {
+            return type;
+        }
+        String start = new String(header, 0, Math.min(length, 256), StandardCharsets.UTF_8)
+            .stripLeading().toLowerCase(Locale.ROOT);
+        if (start.startsWith("<?xml")) {
+            return "application/xml";
+        } else if (start.startsWith("<!doctype html") || start.startsWith("<html")) {
+            return "text/html";
+        }
+        return "text/plain";
+    }
+
+    /**
+     * Whether the bytes are valid UTF-8 without NUL bytes; a sequence cut off by the end of
+     * the header does not count against it
+     */
+    private static boolean isText(byte[] header, int length) {
+        for (int i = 0; i < length; i++) {
+            if (header[i] == 0) {
+                return false;
+            }
+        }
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPORT)
+            .onUnmappableCharacter(CodingErrorAction.REPORT);
+        CoderResult result = decoder.decode(ByteBuffer.wrap(header, 0, length), CharBuffer.allocate(length), false);
+        return !result.isError();
+    }
+
+    private static boolean startsWith(byte[] header, int length, byte[] magic) {
+        return length >= magic.length && regionMatches(header, 0, magic);
+    }
+
+    private static boolean regionMatches(byte[] header, int offset, byte[] magic) {
+        for (int i = 0; i < magic.length; i++) {
+            if (header[offset + i] != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String extension(String filename) {
+        if (filename == null || filename.lastIndexOf('.') < 0) {
+            return "";
+        }
+        return filename.substring(filename.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+    }
+}
@@ -53,6 +53,32 @@ public interface ContentRepository extends JpaRepository<Content, Long> {
     @Query("SELECT c FROM Content c LEFT JOIN FETCH c.sysObject WHERE c.fileStore = :fileStore")
     List<Content> findByFileStore(@Param("fileStore") FileStore fileStore);
     
+    /**
+     * Get the length of content stored in the database without loading it
+     * @param id The content ID
+     * @return The length in bytes, or null if the content has no database bytes
+     */
+    @Query(value = "SELECT OCTET_LENGTH(d.content_bytes) FROM content c " +
+                   "JOIN content_data d ON d.id = c.content_data_id WHERE c.id = :id", nativeQuery = true)
+    Long findDatabaseContentLength(@Param("id") Long id);
+    
+    /**
+     * Count the content objects that reference a stored file
+     * @param fileStore The FileStore holding the file
+     * @param storagePath The file's storage path
+     * @return Number of referencing content objects
+     */
+    long countByFileStoreAndStoragePath(FileStore fileStore, String storagePath);
+
+    /**
+     * Count the content objects other than one that reference a stored file
+     * @param fileStore The FileStore holding the file
+     * @param storagePath The file's storage path
+     * @param id The ID of the content to leave out
+     * @return Number of other referencing content objects
+     */
+    long countByFileStoreAndStoragePathAndIdNot(FileStore fileStore, String storagePath, Long id);
+
     /**
      * Find content objects with database storage (no FileStore)
      * @return List of Content objects stored in the database
@@ -101,5 +127,13 @@ public interface ContentRepository extends JpaRepository<Content, Long> {
      */
     @Query("SELECT c FROM Content c WHERE c.fileStore IS NOT NULL AND c.storagePath LIKE %:pathPattern%")
     List<Content> findByStoragePathPattern(@Param("pathPattern") String pathPattern);
+    
+    /**
+     * Lightweight projection of all indexable content rows attached to a SysObject,
+     * used to reconcile the search index without loading content bytes
+     * @return rows of [sysObjectId, contentId, modifiedAt]
+     */
+    @Query("SELECT c.sysObject.id, c.id, c.modifiedAt FROM Content c " +
+           "WHERE c.isIndexable = true AND c.sysObject IS NOT NULL")
+    List<Object[]> findIndexableContentVersions();
 }
-
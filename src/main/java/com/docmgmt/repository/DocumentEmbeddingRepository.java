@@ -2,9 +2,14 @@ package com.docmgmt.repository;
 
 import com.docmgmt.model.Document;
 import com.docmgmt.model.DocumentEmbedding;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -15,4 +20,24 @@ public interface DocumentEmbeddingRepository extends JpaRepository<DocumentEmbed
     Optional<DocumentEmbedding> findByDocumentId(Long documentId);
     
     void deleteByDocument(Document document);
+    
+    List<DocumentEmbedding> findByDocumentIdIn(Collection<Long> documentIds);
+    
+    /**
+     * Keyset page of embeddings without loading the owning documents
+     * @param afterId Only embeddings with an ID greater than this are returned
+     * @param pageable Page size (the page number should always be 0)
+     * @return rows of [embeddingId, documentId, vector, legacy JSON embedding]
+     */
+    @Query("SELECT e.id, e.document.id, e.vector, e.embedding FROM DocumentEmbedding e WHERE e.id > :afterId ORDER BY e.id")
+    List<Object[]> findEmbeddingPageAfterId(@Param("afterId") Long afterId, Pageable pageable);
+    
+    /**
+     * Binary vectors of the given documents, used to re-rank quantized search candidates
+     * @param documentIds the document IDs
+     * @return rows of [documentId, vector, legacy JSON embedding]
+     */
+    @Query("SELECT e.document.id, e.vector, e.embedding FROM DocumentEmbedding e WHERE e.document.id IN :documentIds")
+    List<Object[]> findVectorsByDocumentIds(@Param("documentIds") Collection<Long> documentIds);
+
 }
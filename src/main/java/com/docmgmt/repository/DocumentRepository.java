@@ -1,6 +1,7 @@
 package com.docmgmt.repository;
 
 import com.docmgmt.model.Document;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -49,5 +50,43 @@ public interface DocumentRepository extends BaseSysObjectRepository<Document> {
            "ORDER BY d.majorVersion DESC, d.minorVersion DESC")
     Optional<Document> findByDocumentTypeAndNameOrderByMajorVersionDescMinorVersionDesc(
             @Param("documentType") Document.DocumentType documentType, @Param("name") String name);
+    
+    /**
+     * Keyset pagination over documents ordered by ID.
+     * Unlike offset paging, the cost of each page does not grow with its position.
+     * @param afterId Only documents with an ID greater than this are returned
+     * @param pageable Page size (the page number should always be 0)
+     * @return The next page of documents
+     */
+    @Query("SELECT d FROM Document d WHERE d.id > :afterId ORDER BY d.id")
+    List<Document> findPageAfterId(@Param("afterId") Long afterId, Pageable pageable);
+    
+    /**
+     * Lightweight projection of every document's ID and modification time,
+     * used to reconcile the search index without loading entities
+     * @return rows of [id, modifiedAt]
+     */
+    @Query("SELECT d.id, d.modifiedAt FROM Document d")
+    List<Object[]> findAllIdsAndModifiedAt();
+    
+    /**
+     * Check whether a newer version has been created from a document
+     * @param parentVersionId The document ID
+     * @return true if some document names it as its parent version
+     */
+    boolean existsByParentVersionId(Long parentVersionId);
+    
+    /**
+     * Find the first version of the version series a document belongs to, by following
+     * parent versions to the root
+     * @param id The document ID
+     * @return ID of the series root; the document's own ID if it has no parent version
+     */
+    @Query(value = "WITH RECURSIVE chain(id, parent_version_id) AS (" +
+           "SELECT id, parent_version_id FROM sys_object WHERE id = :id " +
+           "UNION ALL " +
+           "SELECT s.id, s.parent_version_id FROM sys_object s JOIN chain c ON s.id = c.parent_version_id) " +
+           "SELECT id FROM chain WHERE parent_version_id IS NULL",
+           nativeQuery = true)
+    Long findVersionSeriesRootId(@Param("id") Long id);
 }
-
@@ -75,4 +75,48 @@ public interface FolderRepository extends BaseSysObjectRepository<Folder> {
         "LEFT JOIN FETCH f.childFolders " +
         "WHERE f.name = :name")
     List<Folder> findByNameWithItemsAndChildren(@org.springframework.data.repository.query.Param("name") String name);
+    
+    /**
+     * Find every folder containing a SysObject together with all folders above them, so ancestry
+     * paths and root folders can be worked out from one walk up the hierarchy
+     * @param itemId The SysObject ID
+     * @return rows of [folderId, parentFolderId (null for a root folder), name, 1 if the folder
+     *         contains the item directly or 0 if it is only an ancestor]; a folder may appear more than once
+     */
+    @org.springframework.data.jpa.repository.Query(value = "WITH RECURSIVE ancestors(id, parent_folder_id, direct) AS (" +
+        "SELECT f.id, f.parent_folder_id, 1 FROM folder f " +
+        "JOIN folder_sysobjects fs ON fs.folder_id = f.id WHERE fs.sysobject_id = :itemId " +
+        "UNION ALL " +
+        "SELECT p.id, p.parent_folder_id, 0 FROM folder p JOIN ancestors a ON p.id = a.parent_folder_id) " +
+        "SELECT a.id, a.parent_folder_id, s.name, a.direct FROM ancestors a JOIN sys_object s ON s.id = a.id",
+        nativeQuery = true)
+    List<Object[]> findFolderAncestryContaining(@org.springframework.data.repository.query.Param("itemId") Long itemId);
+    
+    /**
+     * Find a folder and all folders above it
+     * @param folderId The folder ID
+     * @return rows of [folderId, parentFolderId (null for the root folder)]; empty if the folder does not exist
+     */
+    @org.springframework.data.jpa.repository.Query(value = "WITH RECURSIVE up(id, parent_folder_id) AS (" +
+        "SELECT f.id, f.parent_folder_id FROM folder f WHERE f.id = :folderId " +
+        "UNION ALL " +
+        "SELECT p.id, p.parent_folder_id FROM folder p JOIN up u ON p.id = u.parent_folder_id) " +
+        "SELECT id, parent_folder_id FROM up",
+        nativeQuery = true)
+    List<Object[]> findFolderAncestry(@org.springframework.data.repository.query.Param("folderId") Long folderId);
+    
+    /**
+     * Find the IDs of documents filed in any of the given folders or their subfolders
+     * @param folderIds The folder IDs
+     * @return IDs of the documents in those subtrees
+     */
+    @org.springframework.data.jpa.repository.Query(value = "WITH RECURSIVE subtree(id) AS (" +
+        "SELECT f.id FROM folder f WHERE f.id IN (:folderIds) " +
+        "UNION ALL " +
+        "SELECT c.id FROM folder c JOIN subtree s ON c.parent_folder_id = s.id) " +
+        "SELECT DISTINCT fs.sysobject_id FROM subtree s " +
+        "JOIN folder_sysobjects fs ON fs.folder_id = s.id " +
+        "JOIN document d ON d.id = fs.sysobject_id",
+        nativeQuery = true)
+    List<Long> findDocumentIdsInSubtrees(@org.springframework.data.repository.query.Param("folderIds") java.util.Collection<Long> folderIds);
 }
@@ -0,0 +1,61 @@
+package com.docmgmt.repository;
+
+import com.docmgmt.model.IndexOutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository for IndexOutboxEvent entity
+ */
+@Repository
+public interface IndexOutboxEventRepository extends JpaRepository<IndexOutboxEvent, Long> {
+    
+    /**
+     * Oldest events that have not used up their dispatch attempts
+     * @param maxAttempts Events with this many failed attempts are left out
+     * @param pageable Batch size (the page number should always be 0)
+     * @return events in ID order
+     */
+    @Query("SELECT e FROM IndexOutboxEvent e WHERE e.attempts < :maxAttempts ORDER BY e.id")
+    List<IndexOutboxEvent> findPending(@Param("maxAttempts") int maxAttempts, Pageable pageable);
+    
+    /**
+     * Delete handled events
+     * @param ids The event IDs
+     * @return number of deleted events
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IndexOutboxEvent e WHERE e.id IN :ids")
+    int deleteByIds(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * Count a failed dispatch attempt for events
+     * @param ids The event IDs
+     * @return number of updated events
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE IndexOutboxEvent e SET e.attempts = e.attempts + 1 WHERE e.id IN :ids")
+    int incrementAttempts(@Param("ids") Collection<Long> ids);
+    
+    long countByAttemptsLessThan(int maxAttempts);
+    
+    long countByAttemptsGreaterThanEqual(int maxAttempts);
+    
+    /**
+     * @param maxAttempts Events with this many failed attempts are left out
+     * @return when the oldest pending event was written, or null if none is pending
+     */
+    @Query("SELECT MIN(e.createdAt) FROM IndexOutboxEvent e WHERE e.attempts < :maxAttempts")
+    LocalDateTime findOldestPendingCreatedAt(@Param("maxAttempts") int maxAttempts);
+}
@@ -0,0 +1,95 @@
+package com.docmgmt.search;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.sandbox.search.CombinedFieldQuery;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Query parser that scores unqualified terms across several fields as if they were one
+ * field (BM25F), using Lucene's CombinedFieldQuery with per-field weights. This gives
+ * catch-all search without a duplicated catch-all field.
+ * Syntax CombinedFieldQuery cannot express (phrases, wildcards, fuzzy and range queries)
+ * falls back to a boosted per-field disjunction; field-qualified clauses are parsed as usual.
+ * All fields must be analyzed with the same analyzer and have norms.
+ */
+public class CombinedFieldQueryParser extends MultiFieldQueryParser {
+    
+    private final Map<String, Float> weights;
+    
+    /**
+     * @param weights field name to weight; CombinedFieldQuery requires weights of at least 1,
+     *                so smaller values are raised to 1
+     * @param analyzer analyzer used for all fields
+     */
+    public CombinedFieldQueryParser(Map<String, Float> weights, Analyzer analyzer) {
+        super(weights.keySet().toArray(new String[0]), analyzer, normalize(weights));
+        this.weights = normalize(weights);
+    }
+    
+    private static Map<String, Float> normalize(Map<String, Float> weights) {
+        Map<String, Float> normalized = new LinkedHashMap<>();
+        weights.forEach((field, weight) -> normalized.put(field, Math.max(1.0f, weight)));
+        return normalized;
+    }
+    
+    @Override
+    protected Query getFieldQuery(String field, String queryText, boolean quoted) throws ParseException {
+        if (field != null || quoted) {
+            return super.getFieldQuery(field, queryText, quoted);
+        }
+        
+        List<String> terms = analyze(queryText);
+        if (terms.isEmpty()) {
+            return null;
+        }
+        if (terms.size() == 1) {
+            return combinedQuery(terms.get(0));
+        }
+        
+        // Text that analyzes to several tokens, such as "e-mail", becomes one clause per token
+        BooleanClause.Occur occur = getDefaultOperator() == Operator.AND
+            ? BooleanClause.Occur.MUST : BooleanClause.Occur.SHOULD;
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        for (String term : terms) {
+            builder.add(combinedQuery(term), occur);
+        }
+        return builder.build();
+    }
+    
+    private Query combinedQuery(String term) {
+        CombinedFieldQuery.Builder builder = new CombinedFieldQuery.Builder();
+        weights.forEach(builder::addField);
+        builder.addTerm(new BytesRef(term));
+        return builder.build();
+    }
+    
+    private List<String> analyze(String text) throws ParseException {
+        List<String> terms = new ArrayList<>();
+        // Every field shares the analyzer, so any of them gives the same tokens
+        String field = weights.keySet().iterator().next();
+        try (TokenStream stream = getAnalyzer().tokenStream(field, text)) {
+            CharTermAttribute termAttribute = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                terms.add(termAttribute.toString());
+            }
+            stream.end();
+        } catch (IOException e) {
+            throw new ParseException("Failed to analyze query text: " + e.getMessage());
+        }
+        return terms;
+    }
+}
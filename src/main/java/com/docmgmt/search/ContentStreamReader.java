@@ -0,0 +1,137 @@
+package com.docmgmt.search;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * UTF-8 reader over a content stream that is opened on first read and stops after a
+ * fixed number of bytes. Lucene tokenizes it straight from the stream, so indexed content
+ * is never held on the heap as a whole. Because nothing is opened until the IndexWriter
+ * consumes the field, queued index operations do not hold file handles.
+ * A source that cannot be opened is logged and read as empty.
+ */
+final class ContentStreamReader extends Reader {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ContentStreamReader.class);
+    
+    /**
+     * Opens the underlying content stream
+     */
+    @FunctionalInterface
+    interface StreamSource {
+        InputStream open() throws IOException;
+    }
+    
+    private final StreamSource source;
+    private final long maxBytes;
+    private final String description;
+    private Reader delegate;
+    private boolean closed;
+    
+    /**
+     * @param source opens the content stream
+     * @param maxBytes number of bytes to read at most
+     * @param description identifies the content in log messages
+     */
+    ContentStreamReader(StreamSource source, long maxBytes, String description) {
+        this.source = source;
+        this.maxBytes = maxBytes;
+        this.description = description;
+    }
+    
+    @Override
+    public int read(char[] buffer, int offset, int length) throws IOException {
+        if (closed) {
+            throw new IOException("Reader closed");
+        }
+        if (delegate == null) {
+            delegate = openDelegate();
+        }
+        return delegate.read(buffer, offset, length);
+    }
+    
+    private Reader openDelegate() {
+        try {
+            InputStream stream = new LimitedInputStream(source.open(), maxBytes);
+            return new InputStreamReader(stream, StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE));
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to open content {} for indexing: {}", description, e.getMessage());
+            return Reader.nullReader();
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (delegate != null) {
+            delegate.close();
+        }
+    }
+    
+    /**
+     * Input stream that reports end of stream after a fixed number of bytes
+     */
+    private static final class LimitedInputStream extends FilterInputStream {
+        
+        private long remaining;
+        
+        private LimitedInputStream(InputStream in, long limit) {
+            super(in);
+            this.remaining = limit;
+        }
+        
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int value = super.read();
+            if (value >= 0) {
+                remaining--;
+            }
+            return value;
+        }
+        
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = super.read(buffer, offset, (int) Math.min(length, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+        
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+        
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(super.available(), remaining);
+        }
+        
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+}
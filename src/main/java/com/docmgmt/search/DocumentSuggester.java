@@ -0,0 +1,286 @@
+package com.docmgmt.search;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.suggest.InputIterator;
+import org.apache.lucene.search.suggest.Lookup;
+import org.apache.lucene.search.suggest.analyzing.AnalyzingInfixSuggester;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Type-ahead suggestions over document names, tags and keywords. Each distinct text is one
+ * entry of an in-memory AnalyzingInfixSuggester, so a lookup is a prefix match on a small
+ * index rather than a parsed query against the document index. An entry is weighted by the
+ * number of documents carrying the text, which ranks common tags above one-off names.
+ * The suggester is kept in step with the document index one document at a time and is
+ * rebuilt from the suggest doc values of the document index at startup and after a swap.
+ */
+final class DocumentSuggester implements Closeable {
+    
+    // Entries of texts no document carries any more lose this context and drop out of lookups,
+    // since AnalyzingInfixSuggester cannot delete an entry
+    private static final BytesRef LIVE = new BytesRef("live");
+    private static final Set<BytesRef> LIVE_CONTEXTS = Set.of(LIVE);
+    
+    private final AnalyzingInfixSuggester suggester;
+    private final Map<Long, Set<String>> textsByDocument = new HashMap<>();
+    private final Map<String, Integer> documentCounts = new HashMap<>();
+    private volatile boolean dirty;
+    
+    /**
+     * @param minPrefixChars prefixes shorter than this are matched with precomputed edge n-grams
+     * @throws IOException if the suggester cannot be created
+     */
+    DocumentSuggester(int minPrefixChars) throws IOException {
+        StandardAnalyzer analyzer = new StandardAnalyzer();
+        suggester = new AnalyzingInfixSuggester(new ByteBuffersDirectory(), analyzer, analyzer,
+            minPrefixChars, false, true, false, false);
+        build();
+    }
+    
+    /**
+     * Replace all entries with the suggest values of every live document in an index. The
+     * searcher is refreshed while updates are held off, so a document written concurrently is
+     * either part of the scan or applied as an update afterwards.
+     * @param searcherManager searcher manager of the document index
+     * @param idField numeric doc values field holding the document ID
+     * @param suggestField sorted set doc values field holding the suggestion texts
+     * @throws IOException if the index cannot be read
+     */
+    synchronized void load(SearcherManager searcherManager, String idField, String suggestField) throws IOException {
+        textsByDocument.clear();
+        documentCounts.clear();
+        searcherManager.maybeRefreshBlocking();
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            for (LeafReaderContext leaf : searcher.getIndexReader().leaves()) {
+                loadLeaf(leaf.reader(), idField, suggestField);
+            }
+        } finally {
+            searcherManager.release(searcher);
+        }
+        build();
+    }
+    
+    private void loadLeaf(LeafReader reader, String idField, String suggestField) throws IOException {
+        Bits liveDocs = reader.getLiveDocs();
+        NumericDocValues ids = reader.getNumericDocValues(idField);
+        SortedSetDocValues texts = reader.getSortedSetDocValues(suggestField);
+        if (ids == null || texts == null) {
+            // Documents indexed before suggestions existed contribute once reindexed
+            return;
+        }
+        for (int doc = texts.nextDoc(); doc != SortedSetDocValues.NO_MORE_DOCS; doc = texts.nextDoc()) {
+            if ((liveDocs != null && !liveDocs.get(doc)) || !ids.advanceExact(doc)) {
+                continue;
+            }
+            Set<String> documentTexts = new HashSet<>();
+            for (int i = 0; i < texts.docValueCount(); i++) {
+                documentTexts.add(texts.lookupOrd(texts.nextOrd()).utf8ToString());
+            }
+            setTexts(ids.longValue(), documentTexts);
+        }
+    }
+    
+    /**
+     * Remove all entries
+     * @throws IOException if the suggester cannot be rebuilt
+     */
+    synchronized void clear() throws IOException {
+        textsByDocument.clear();
+        documentCounts.clear();
+        build();
+    }
+    
+    /**
+     * Record the suggestion texts of a document that was added or replaced
+     * @param documentId the document ID
+     * @param texts the document's suggestion texts; empty removes the document
+     * @throws IOException if an entry cannot be updated
+     */
+    synchronized void update(Long documentId, Collection<String> texts) throws IOException {
+        Set<String> current = new HashSet<>(texts);
+        Set<String> previous = setTexts(documentId, current);
+        // Only texts the document gained or lost change count
+        Set<String> changed = new HashSet<>(previous);
+        changed.addAll(current);
+        Set<String> kept = new HashSet<>(previous);
+        kept.retainAll(current);
+        changed.removeAll(kept);
+        for (String text : changed) {
+            int count = documentCounts.getOrDefault(text, 0);
+            suggester.update(new BytesRef(text), count > 0 ? LIVE_CONTEXTS : Set.of(), count, null);
+        }
+        if (!changed.isEmpty()) {
+            dirty = true;
+        }
+    }
+    
+    /**
+     * Record that a document was removed
+     * @param documentId the document ID
+     * @throws IOException if an entry cannot be updated
+     */
+    void remove(Long documentId) throws IOException {
+        update(documentId, Set.of());
+    }
+    
+    /**
+     * Make updates visible to lookups, if there are any
+     * @throws IOException if the suggester cannot be refreshed
+     */
+    void refresh() throws IOException {
+        if (dirty) {
+            dirty = false;
+            suggester.refresh();
+        }
+    }
+    
+    /**
+     * Look up texts matching a prefix. Every word of the input must match a word of the text,
+     * the last one as a prefix, so "spr gui" finds "Spring Framework Guide".
+     * @param prefix the text typed so far
+     * @param limit maximum number of suggestions
+     * @return suggestions, most common first
+     * @throws IOException if the lookup fails
+     */
+    List<String> lookup(String prefix, int limit) throws IOException {
+        List<String> suggestions = new ArrayList<>();
+        if (prefix == null || prefix.isBlank() || limit < 1) {
+            return suggestions;
+        }
+        for (Lookup.LookupResult result : suggester.lookup(prefix, LIVE_CONTEXTS, limit, true, false)) {
+            suggestions.add(result.key.toString());
+        }
+        return suggestions;
+    }
+    
+    /**
+     * @return number of distinct texts that can be suggested
+     */
+    synchronized int size() {
+        return documentCounts.size();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        suggester.close();
+    }
+    
+    /**
+     * Replace the texts of a document and adjust the document counts
+     * @return the document's previous texts
+     */
+    private Set<String> setTexts(Long documentId, Set<String> texts) {
+        Set<String> previous = texts.isEmpty()
+            ? textsByDocument.remove(documentId) : textsByDocument.put(documentId, texts);
+        if (previous == null) {
+            previous = Set.of();
+        }
+        for (String text : previous) {
+            documentCounts.computeIfPresent(text, (key, count) -> count > 1 ? count - 1 : null);
+        }
+        for (String text : texts) {
+            documentCounts.merge(text, 1, Integer::sum);
+        }
+        return previous;
+    }
+    
+    private void build() throws IOException {
+        suggester.build(new CountIterator(documentCounts));
+        dirty = false;
+    }
+    
+    /**
+     * Split a document's name, tags and keywords into suggestion texts. The name and each tag are
+     * suggested whole; keywords are a free-form list and are split on commas, semicolons and spaces.
+     * @return distinct non-blank texts in their original case
+     */
+    static Set<String> suggestionTexts(String name, Collection<String> tags, String keywords) {
+        Set<String> texts = new LinkedHashSet<>();
+        addText(texts, name);
+        if (tags != null) {
+            tags.forEach(tag -> addText(texts, tag));
+        }
+        if (keywords != null) {
+            for (String keyword : keywords.split("[,;\\s]+")) {
+                addText(texts, keyword);
+            }
+        }
+        return texts;
+    }
+    
+    private static void addText(Set<String> texts, String text) {
+        if (text != null && !text.isBlank()) {
+            texts.add(text.trim());
+        }
+    }
+    
+    /**
+     * Feeds the current document counts to a full build, all in the live context
+     */
+    private static final class CountIterator implements InputIterator {
+        
+        private final Iterator<Map.Entry<String, Integer>> entries;
+        private Map.Entry<String, Integer> current;
+        
+        private CountIterator(Map<String, Integer> counts) {
+            // Copied so the build does not depend on the map staying unchanged
+            this.entries = new ArrayList<>(counts.entrySet()).iterator();
+        }
+        
+        @Override
+        public BytesRef next() {
+            if (!entries.hasNext()) {
+                current = null;
+                return null;
+            }
+            current = entries.next();
+            return new BytesRef(current.getKey());
+        }
+        
+        @Override
+        public long weight() {
+            return current.getValue();
+        }
+        
+        @Override
+        public BytesRef payload() {
+            return null;
+        }
+        
+        @Override
+        public boolean hasPayloads() {
+            return false;
+        }
+        
+        @Override
+        public Set<BytesRef> contexts() {
+            return LIVE_CONTEXTS;
+        }
+        
+        @Override
+        public boolean hasContexts() {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,420 @@
+package com.docmgmt.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Resident matrix of L2-normalized embeddings for exact top-k cosine similarity.
+ * Rows are packed contiguously into large float blocks (no per-vector objects), so
+ * a scan is a linear walk through memory. Because rows are normalized on insert,
+ * cosine similarity reduces to a dot product.
+ * <p>
+ * In quantized mode rows are stored as int8 with one scale factor per row, using a
+ * quarter of the memory. Scores are then approximate and callers should re-rank the
+ * best candidates with full-precision vectors.
+ */
+public class EmbeddingMatrix {
+    
+    // 16 MB of floats per block keeps each allocation well below array size limits
+    private static final int TARGET_BLOCK_FLOATS = 1 << 22;
+    
+    private final int dimension;
+    private final int rowsPerBlock;
+    private final VectorScorer scorer;
+    private final boolean quantized;
+    
+    private final List<float[]> blocks = new ArrayList<>();
+    private final List<byte[]> quantizedBlocks = new ArrayList<>();
+    private float[] scales = new float[0];
+    private long[] documentIds = new long[1024];
+    private final Map<Long, Integer> rowByDocument = new HashMap<>();
+    private int size;
+    
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    public EmbeddingMatrix(int dimension, VectorScorer scorer) {
+        this(dimension, scorer, false);
+    }
+    
+    /**
+     * @param dimension number of components per vector
+     * @param scorer dot product kernel
+     * @param quantized store rows as int8 with per-row scales instead of float32
+     */
+    public EmbeddingMatrix(int dimension, VectorScorer scorer, boolean quantized) {
+        if (dimension <= 0) {
+            throw new IllegalArgumentException("Dimension must be positive");
+        }
+        this.dimension = dimension;
+        this.rowsPerBlock = Math.max(1, TARGET_BLOCK_FLOATS / dimension);
+        this.scorer = scorer;
+        this.quantized = quantized;
+        if (quantized) {
+            scales = new float[1024];
+        }
+    }
+    
+    /**
+     * Add or replace the vector of a document
+     * @param documentId the document ID
+     * @param vector the (not necessarily normalized) vector
+     * @throws IllegalArgumentException if the vector has the wrong dimension or zero length
+     */
+    public void put(long documentId, float[] vector) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException("Expected dimension " + dimension + " but got " + vector.length);
+        }
+        float[] normalized = normalize(vector);
+        if (normalized == null) {
+            throw new IllegalArgumentException("Cannot index a zero vector");
+        }
+        
+        lock.writeLock().lock();
+        try {
+            Integer row = rowByDocument.get(documentId);
+            if (row == null) {
+                row = size++;
+                ensureCapacity(size);
+                documentIds[row] = documentId;
+                rowByDocument.put(documentId, row);
+            }
+            int offset = (row % rowsPerBlock) * dimension;
+            if (quantized) {
+                scales[row] = quantize(normalized, quantizedBlocks.get(row / rowsPerBlock), offset);
+            } else {
+                System.arraycopy(normalized, 0, blocks.get(row / rowsPerBlock), offset, dimension);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Remove the vector of a document; the last row is moved into the gap
+     * @param documentId the document ID
+     * @return true if the document was present
+     */
+    public boolean remove(long documentId) {
+        lock.writeLock().lock();
+        try {
+            Integer row = rowByDocument.remove(documentId);
+            if (row == null) {
+                return false;
+            }
+            int last = --size;
+            if (row != last) {
+                if (quantized) {
+                    System.arraycopy(quantizedBlocks.get(last / rowsPerBlock), (last % rowsPerBlock) * dimension,
+                        quantizedBlocks.get(row / rowsPerBlock), (row % rowsPerBlock) * dimension, dimension);
+                    scales[row] = scales[last];
+                } else {
+                    System.arraycopy(blocks.get(last / rowsPerBlock), (last % rowsPerBlock) * dimension,
+                        blocks.get(row / rowsPerBlock), (row % rowsPerBlock) * dimension, dimension);
+                }
+                documentIds[row] = documentIds[last];
+                rowByDocument.put(documentIds[row], row);
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Find the k rows most similar to a query
+     * @param query the query vector (normalized internally)
+     * @param k number of results
+     * @param excludeId document to leave out (may be null)
+     * @param executor pool for a parallel scan, or null to scan on the calling thread
+     * @param parallelism number of slices for a parallel scan
+     * @return results ordered by descending cosine similarity
+     */
+    public List<ScoredDocument> topK(float[] query, int k, Long excludeId, ExecutorService executor, int parallelism) {
+        if (query.length != dimension) {
+            throw new IllegalArgumentException("Expected dimension " + dimension + " but got " + query.length);
+        }
+        float[] normalized = normalize(query);
+        if (normalized == null || k <= 0) {
+            return List.of();
+        }
+        long exclude = excludeId != null ? excludeId : Long.MIN_VALUE;
+        QueryVector prepared = new QueryVector(normalized, quantized);
+        
+        lock.readLock().lock();
+        try {
+            int slices = executor != null ? Math.min(parallelism, size / rowsPerSliceMinimum()) : 1;
+            if (slices <= 1) {
+                TopK top = new TopK(k);
+                scan(prepared, 0, size, exclude, top);
+                return top.toSortedList();
+            }
+            
+            // Each slice keeps its own heap; the read lock held here keeps writers out
+            List<Future<TopK>> futures = new ArrayList<>(slices);
+            int sliceSize = (size + slices - 1) / slices;
+            for (int start = 0; start < size; start += sliceSize) {
+                final int from = start;
+                final int to = Math.min(size, start + sliceSize);
+                futures.add(executor.submit(() -> {
+                    TopK top = new TopK(k);
+                    scan(prepared, from, to, exclude, top);
+                    return top;
+                }));
+            }
+            TopK merged = new TopK(k);
+            for (Future<TopK> future : futures) {
+                merged.addAll(future.get());
+            }
+            return merged.toSortedList();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Similarity scan interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Similarity scan failed", e.getCause());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public int getDimension() {
+        return dimension;
+    }
+    
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public boolean contains(long documentId) {
+        lock.readLock().lock();
+        try {
+            return rowByDocument.containsKey(documentId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public boolean isQuantized() {
+        return quantized;
+    }
+    
+    /**
+     * Approximate memory held by the vector blocks
+     */
+    public long getMemoryBytes() {
+        lock.readLock().lock();
+        try {
+            return quantized
+                ? (long) quantizedBlocks.size() * rowsPerBlock * dimension + (long) scales.length * Float.BYTES
+                : (long) blocks.size() * rowsPerBlock * dimension * Float.BYTES;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public String getScorerName() {
+        return scorer.getName();
+    }
+    
+    /**
+     * L2-normalize a vector into a new array
+     * @return the normalized copy, or null for a zero vector
+     */
+    public static float[] normalize(float[] vector) {
+        double sumSquares = 0.0;
+        for (float v : vector) {
+            sumSquares += (double) v * v;
+        }
+        if (sumSquares == 0.0) {
+            return null;
+        }
+        float scale = (float) (1.0 / Math.sqrt(sumSquares));
+        float[] normalized = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = vector[i] * scale;
+        }
+        return normalized;
+    }
+    
+    /**
+     * Quantize a normalized vector into int8 at the given offset
+     * @return the scale factor that maps the int8 values back to floats
+     */
+    static float quantize(float[] normalized, byte[] target, int offset) {
+        float maxAbs = 0f;
+        for (float v : normalized) {
+            maxAbs = Math.max(maxAbs, Math.abs(v));
+        }
+        float scale = maxAbs / 127f;
+        float inverse = scale > 0f ? 1f / scale : 0f;
+        for (int i = 0; i < normalized.length; i++) {
+            target[offset + i] = (byte) Math.max(-127, Math.min(127, Math.round(normalized[i] * inverse)));
+        }
+        return scale;
+    }
+    
+    private void scan(QueryVector query, int from, int to, long exclude, TopK top) {
+        for (int row = from; row < to; row++) {
+            long documentId = documentIds[row];
+            if (documentId == exclude) {
+                continue;
+            }
+            int offset = (row % rowsPerBlock) * dimension;
+            float score = quantized
+                ? scales[row] * query.scale * scorer.dotProduct(query.bytes, quantizedBlocks.get(row / rowsPerBlock), offset, dimension)
+                : scorer.dotProduct(query.floats, blocks.get(row / rowsPerBlock), offset, dimension);
+            top.offer(documentId, score);
+        }
+    }
+    
+    private int rowsPerSliceMinimum() {
+        // Not worth handing fewer rows than this to another thread
+        return Math.max(1, 65536 / dimension);
+    }
+    
+    private void ensureCapacity(int rows) {
+        if (quantized) {
+            while ((long) quantizedBlocks.size() * rowsPerBlock < rows) {
+                quantizedBlocks.add(new byte[rowsPerBlock * dimension]);
+            }
+            if (scales.length < rows) {
+                scales = Arrays.copyOf(scales, Math.max(rows, scales.length * 2));
+            }
+        } else {
+            while ((long) blocks.size() * rowsPerBlock < rows) {
+                blocks.add(new float[rowsPerBlock * dimension]);
+            }
+        }
+        if (documentIds.length < rows) {
+            documentIds = Arrays.copyOf(documentIds, Math.max(rows, documentIds.length * 2));
+        }
+    }
+    
+    /**
+     * A normalized query in the representation the matrix is scanned with
+     */
+    private static final class QueryVector {
+        private final float[] floats;
+        private final byte[] bytes;
+        private final float scale;
+        
+        private QueryVector(float[] normalized, boolean quantized) {
+            this.floats = normalized;
+            if (quantized) {
+                this.bytes = new byte[normalized.length];
+                this.scale = quantize(normalized, bytes, 0);
+            } else {
+                this.bytes = null;
+                this.scale = 1f;
+            }
+        }
+    }
+    
+    /**
+     * A document and its cosine similarity to the query
+     */
+    public static class ScoredDocument {
+        private final long documentId;
+        private final double similarity;
+        
+        public ScoredDocument(long documentId, double similarity) {
+            this.documentId = documentId;
+            this.similarity = similarity;
+        }
+        
+        public long getDocumentId() {
+            return documentId;
+        }
+        
+        public double getSimilarity() {
+            return similarity;
+        }
+    }
+    
+    /**
+     * Bounded min-heap keeping the k best scores seen, with the weakest at the root
+     */
+    private static final class TopK {
+        private final long[] ids;
+        private final float[] scores;
+        private int count;
+        
+        private TopK(int k) {
+            this.ids = new long[k];
+            this.scores = new float[k];
+        }
+        
+        private void offer(long id, float score) {
+            if (count < ids.length) {
+                ids[count] = id;
+                scores[count] = score;
+                siftUp(count++);
+            } else if (score > scores[0]) {
+                ids[0] = id;
+                scores[0] = score;
+                siftDown(0);
+            }
+        }
+        
+        private void addAll(TopK other) {
+            for (int i = 0; i < other.count; i++) {
+                offer(other.ids[i], other.scores[i]);
+            }
+        }
+        
+        private List<ScoredDocument> toSortedList() {
+            List<ScoredDocument> results = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                results.add(new ScoredDocument(ids[i], scores[i]));
+            }
+            results.sort((a, b) -> Double.compare(b.getSimilarity(), a.getSimilarity()));
+            return results;
+        }
+        
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (scores[parent] <= scores[i]) {
+                    break;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+        
+        private void siftDown(int i) {
+            while (true) {
+                int left = 2 * i + 1;
+                if (left >= count) {
+                    break;
+                }
+                int smallest = left + 1 < count && scores[left + 1] < scores[left] ? left + 1 : left;
+                if (scores[i] <= scores[smallest]) {
+                    break;
+                }
+                swap(i, smallest);
+                i = smallest;
+            }
+        }
+        
+        private void swap(int a, int b) {
+            long id = ids[a];
+            ids[a] = ids[b];
+            ids[b] = id;
+            float score = scores[a];
+            scores[a] = scores[b];
+            scores[b] = score;
+        }
+    }
+}
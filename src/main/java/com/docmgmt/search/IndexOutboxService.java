@@ -0,0 +1,327 @@
+package com.docmgmt.search;
+
+import com.docmgmt.model.Document;
+import com.docmgmt.model.IndexOutboxEvent;
+import com.docmgmt.repository.IndexOutboxEventRepository;
+import com.docmgmt.service.DocumentService;
+import com.docmgmt.service.EmbeddingWorkQueue;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Transactional outbox for search index and embedding synchronization.
+ * Document changes are recorded as IndexOutboxEvent rows on the same connection and in
+ * the same transaction as the change itself, so a committed change is never lost even
+ * if the process stops before the index is updated. A background dispatcher reads the
+ * rows in ID order, coalesces them per document (the latest event wins), reindexes or
+ * removes each document once, queues its embedding, commits the index, and only then deletes
+ * the handled rows.
+ * Content events are debounced: a document whose latest event is a content change younger
+ * than the debounce window waits for a later pass, so bursts of rendition writes reindex once.
+ * A superseded event only flips the document's is_latest doc value, and a reindex event
+ * refreshes the index without queueing a new embedding (for changes such as folder moves that
+ * leave the document's text alone). Both give way to a fuller event in the same batch.
+ * Rows that keep failing are retried up to max-attempts and then left in place.
+ */
+@Service
+@DependsOn("entityManagerFactory")
+public class IndexOutboxService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(IndexOutboxService.class);
+    
+    public static final String EVENT_UPSERT = "UPSERT";
+    public static final String EVENT_DELETE = "DELETE";
+    public static final String EVENT_CONTENT = "CONTENT";
+    public static final String EVENT_SUPERSEDED = "SUPERSEDED";
+    public static final String EVENT_REINDEX = "REINDEX";
+    
+    @Value("${docmgmt.outbox.enabled:false}")
+    private boolean enabled;
+    
+    @Value("${docmgmt.outbox.poll-interval-ms:1000}")
+    private long pollIntervalMs;
+    
+    @Value("${docmgmt.outbox.batch-size:500}")
+    private int batchSize;
+    
+    @Value("${docmgmt.outbox.max-attempts:5}")
+    private int maxAttempts;
+    
+    @Value("${docmgmt.content-events.debounce-ms:500}")
+    private long contentDebounceMs;
+    
+    @Value("${docmgmt.similarity.auto-generate-embeddings:false}")
+    private boolean autoGenerateEmbeddings;
+    
+    @Value("${docmgmt.similarity.async-generation:true}")
+    private boolean asyncGeneration;
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final IndexOutboxEventRepository outboxRepository;
+    private final LuceneIndexService indexService;
+    private final DocumentService documentService;
+    private final EmbeddingWorkQueue embeddingWorkQueue;
+    
+    // Released after each commit that wrote outbox rows so the dispatcher does not wait a full poll interval
+    private final Semaphore wakeup = new Semaphore(0);
+    private Thread dispatcherThread;
+    private volatile boolean running;
+    
+    private final AtomicLong recorded = new AtomicLong();
+    private final AtomicLong dispatchedEvents = new AtomicLong();
+    private final AtomicLong dispatchedDocuments = new AtomicLong();
+    private final AtomicLong failedDocuments = new AtomicLong();
+    private volatile long lastLagMs;
+    
+    public IndexOutboxService(JdbcTemplate jdbcTemplate,
+                              IndexOutboxEventRepository outboxRepository,
+                              LuceneIndexService indexService,
+                              DocumentService documentService,
+                              EmbeddingWorkQueue embeddingWorkQueue) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.outboxRepository = outboxRepository;
+        this.indexService = indexService;
+        this.documentService = documentService;
+        this.embeddingWorkQueue = embeddingWorkQueue;
+    }
+    
+    /**
+     * Start the dispatcher. Rows left over from a previous run are dispatched straight away.
+     */
+    @PostConstruct
+    public void initialize() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        dispatcherThread = new Thread(this::runDispatcher, "index-outbox-dispatcher");
+        dispatcherThread.setDaemon(true);
+        dispatcherThread.start();
+        logger.info("Index outbox dispatcher started (poll interval {} ms, batch size {})", pollIntervalMs, batchSize);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (dispatcherThread != null) {
+            dispatcherThread.interrupt();
+            try {
+                dispatcherThread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    /**
+     * @return true if document changes go through the outbox
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    /**
+     * Record a document change. Must be called inside the transaction making the change;
+     * the row commits or rolls back with it.
+     * @param documentId the changed document
+     * @param eventType EVENT_UPSERT, EVENT_CONTENT, EVENT_REINDEX, EVENT_SUPERSEDED or EVENT_DELETE
+     */
+    public void record(Long documentId, String eventType) {
+        // Called from entity listeners while Hibernate flushes, where the EntityManager must not
+        // be used, so the row is inserted over JDBC on the transaction's connection
+        jdbcTemplate.update(
+            "INSERT INTO index_outbox (document_id, event_type, created_at, attempts) VALUES (?, ?, ?, 0)",
+            documentId, eventType, new Timestamp(System.currentTimeMillis()));
+        recorded.incrementAndGet();
+        
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    wakeup.release();
+                }
+            });
+        } else {
+            wakeup.release();
+        }
+    }
+    
+    private void runDispatcher() {
+        while (running) {
+            try {
+                wakeup.tryAcquire(pollIntervalMs, TimeUnit.MILLISECONDS);
+                wakeup.drainPermits();
+                // Keep going while full batches come back
+                int read;
+                do {
+                    read = dispatchPending();
+                } while (running && read >= batchSize);
+            } catch (InterruptedException e) {
+                break;
+            } catch (Exception e) {
+                logger.error("Index outbox dispatch failed", e);
+            }
+        }
+    }
+    
+    /**
+     * Dispatch one batch of outbox rows: each document is reindexed or removed once, however
+     * many rows it has in the batch
+     * @return number of rows handled; rows held back by the content debounce are not counted
+     */
+    public synchronized int dispatchPending() {
+        List<IndexOutboxEvent> events = outboxRepository.findPending(maxAttempts, PageRequest.of(0, batchSize));
+        if (events.isEmpty()) {
+            return 0;
+        }
+        
+        // Latest event per document and when it was written, plus every event ID it covers
+        Map<Long, String> latestEvent = new LinkedHashMap<>();
+        Map<Long, Long> latestAt = new LinkedHashMap<>();
+        Map<Long, List<Long>> eventIds = new LinkedHashMap<>();
+        long oldestCreatedAt = Long.MAX_VALUE;
+        for (IndexOutboxEvent event : events) {
+            Long documentId = event.getDocumentId();
+            long createdAt = toMillis(event.getCreatedAt());
+            latestEvent.put(documentId, coalesce(latestEvent.get(documentId), event.getEventType()));
+            latestAt.put(documentId, createdAt);
+            eventIds.computeIfAbsent(documentId, id -> new ArrayList<>()).add(event.getId());
+            oldestCreatedAt = Math.min(oldestCreatedAt, createdAt);
+        }
+        
+        long now = System.currentTimeMillis();
+        List<Long> done = new ArrayList<>();
+        List<Long> retry = new ArrayList<>();
+        for (Map.Entry<Long, String> entry : latestEvent.entrySet()) {
+            Long documentId = entry.getKey();
+            if (EVENT_CONTENT.equals(entry.getValue()) && now - latestAt.get(documentId) < contentDebounceMs) {
+                // More content writes may follow; pick the document up on a later pass
+                continue;
+            }
+            (apply(documentId, entry.getValue()) ? done : retry).addAll(eventIds.get(documentId));
+        }
+        
+        if (!done.isEmpty()) {
+            // Handled rows only go once their index writes are committed, or a crash would lose them
+            try {
+                indexService.flush();
+                outboxRepository.deleteByIds(done);
+            } catch (Exception e) {
+                logger.warn("Failed to commit index writes; keeping {} outbox events for the next pass", done.size(), e);
+                done.clear();
+            }
+        }
+        if (!retry.isEmpty()) {
+            outboxRepository.incrementAttempts(retry);
+        }
+        
+        dispatchedEvents.addAndGet(done.size());
+        lastLagMs = System.currentTimeMillis() - oldestCreatedAt;
+        logger.debug("Dispatched {} outbox events for {} documents ({} failed, {} deferred)",
+            done.size() + retry.size(), latestEvent.size(), retry.size(),
+            events.size() - done.size() - retry.size());
+        return done.size() + retry.size();
+    }
+    
+    /**
+     * Combine two events for the same document: the later one wins unless it does less than
+     * the earlier one. A superseded flip is covered by any reindex, and an index-only reindex
+     * by an upsert, content change or delete.
+     */
+    private static String coalesce(String earlier, String later) {
+        if (earlier != null && weight(later) < weight(earlier)) {
+            return earlier;
+        }
+        return later;
+    }
+    
+    private static int weight(String eventType) {
+        if (EVENT_SUPERSEDED.equals(eventType)) {
+            return 0;
+        }
+        return EVENT_REINDEX.equals(eventType) ? 1 : 2;
+    }
+    
+    /**
+     * Bring the index in line with one document
+     * @return true if handled, false to retry later
+     */
+    private boolean apply(Long documentId, String eventType) {
+        try {
+            if (EVENT_SUPERSEDED.equals(eventType)) {
+                indexService.markSuperseded(documentId);
+                dispatchedDocuments.incrementAndGet();
+                return true;
+            }
+            Document document = null;
+            if (!EVENT_DELETE.equals(eventType)) {
+                try {
+                    document = documentService.findById(documentId);
+                } catch (EntityNotFoundException e) {
+                    // Deleted after the event was written
+                }
+            }
+            if (document == null) {
+                indexService.removeDocument(documentId);
+            } else {
+                indexService.indexDocument(document);
+                if (autoGenerateEmbeddings && asyncGeneration && !EVENT_REINDEX.equals(eventType)) {
+                    embeddingWorkQueue.enqueue(documentId);
+                }
+            }
+            dispatchedDocuments.incrementAndGet();
+            return true;
+        } catch (Exception e) {
+            failedDocuments.incrementAndGet();
+            logger.warn("Failed to dispatch outbox event {} for document {}", eventType, documentId, e);
+            return false;
+        }
+    }
+    
+    /**
+     * Get outbox statistics, including how far indexing lags behind committed changes
+     * @return map of statistics
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("recorded", recorded.get());
+        stats.put("dispatchedEvents", dispatchedEvents.get());
+        stats.put("dispatchedDocuments", dispatchedDocuments.get());
+        stats.put("failedDocuments", failedDocuments.get());
+        stats.put("lastLagMs", lastLagMs);
+        if (!enabled) {
+            return stats;
+        }
+        
+        LocalDateTime oldest = outboxRepository.findOldestPendingCreatedAt(maxAttempts);
+        stats.put("pending", outboxRepository.countByAttemptsLessThan(maxAttempts));
+        stats.put("oldestPendingMs", oldest != null ? System.currentTimeMillis() - toMillis(oldest) : 0L);
+        stats.put("deadLetters", outboxRepository.countByAttemptsGreaterThanEqual(maxAttempts));
+        return stats;
+    }
+    
+    private static long toMillis(LocalDateTime timestamp) {
+        return Timestamp.valueOf(timestamp).getTime();
+    }
+}
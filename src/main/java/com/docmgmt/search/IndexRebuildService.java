@@ -0,0 +1,205 @@
+package com.docmgmt.search;
+
+import com.docmgmt.model.Document;
+import com.docmgmt.service.DocumentService;
+import jakarta.persistence.EntityNotFoundException;
+import org.apache.lucene.index.IndexWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rebuilds the full-text index in the background without loading every document at once.
+ * Documents are streamed from the database in keyset pages, converted and indexed on a
+ * worker pool into a side index, which is swapped in atomically when complete. The live
+ * index keeps serving searches (and receiving writes) for the whole rebuild.
+ */
+@Service
+public class IndexRebuildService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(IndexRebuildService.class);
+    
+    @Value("${lucene.rebuild.page-size:500}")
+    private int pageSize;
+    
+    @Value("${lucene.rebuild.threads:0}")
+    private int configuredThreads;
+    
+    private final LuceneIndexService indexService;
+    private final DocumentService documentService;
+    
+    private final Object stateLock = new Object();
+    private volatile IndexRebuildStatus.State state = IndexRebuildStatus.State.IDLE;
+    private final AtomicLong totalDocuments = new AtomicLong();
+    private final AtomicLong processedDocuments = new AtomicLong();
+    private final AtomicLong failedDocuments = new AtomicLong();
+    private final AtomicLong replayedDocuments = new AtomicLong();
+    private volatile int workerThreads;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile String message;
+    
+    public IndexRebuildService(LuceneIndexService indexService, DocumentService documentService) {
+        this.indexService = indexService;
+        this.documentService = documentService;
+    }
+    
+    /**
+     * Start a background rebuild
+     * @return the status at the time the rebuild was started
+     * @throws IllegalStateException if a rebuild is already running
+     */
+    public IndexRebuildStatus startRebuild() {
+        synchronized (stateLock) {
+            if (state == IndexRebuildStatus.State.RUNNING || state == IndexRebuildStatus.State.SWAPPING) {
+                throw new IllegalStateException("An index rebuild is already in progress");
+            }
+            state = IndexRebuildStatus.State.RUNNING;
+            totalDocuments.set(documentService.count());
+            processedDocuments.set(0);
+            failedDocuments.set(0);
+            replayedDocuments.set(0);
+            workerThreads = configuredThreads > 0 ? configuredThreads : Runtime.getRuntime().availableProcessors();
+            startedAt = LocalDateTime.now();
+            finishedAt = null;
+            message = "Indexing documents";
+        }
+        
+        Thread coordinator = new Thread(this::runRebuild, "lucene-rebuild");
+        coordinator.setDaemon(true);
+        coordinator.start();
+        
+        return getStatus();
+    }
+    
+    /**
+     * Get the progress of the current or most recent rebuild
+     * @return status snapshot
+     */
+    public IndexRebuildStatus getStatus() {
+        return IndexRebuildStatus.builder()
+                .state(state)
+                .totalDocuments(totalDocuments.get())
+                .processedDocuments(processedDocuments.get())
+                .failedDocuments(failedDocuments.get())
+                .replayedDocuments(replayedDocuments.get())
+                .workerThreads(workerThreads)
+                .startedAt(startedAt)
+                .finishedAt(finishedAt)
+                .message(message)
+                .build();
+    }
+    
+    private void runRebuild() {
+        IndexWriter rebuildWriter = null;
+        ExecutorService workers = Executors.newFixedThreadPool(workerThreads, workerThreadFactory());
+        // Bounds the number of converted documents waiting for a worker
+        Semaphore inFlight = new Semaphore(workerThreads * 4);
+        
+        try {
+            rebuildWriter = indexService.openRebuildWriter();
+            final IndexWriter writer = rebuildWriter;
+            // Missing from the side index; retried against the live index after the swap
+            Set<Long> failedIds = ConcurrentHashMap.newKeySet();
+            
+            long afterId = 0L;
+            List<Document> page;
+            while (!(page = documentService.findPageAfterId(afterId, pageSize)).isEmpty()) {
+                for (Document document : page) {
+                    inFlight.acquire();
+                    workers.execute(() -> {
+                        org.apache.lucene.document.Document luceneDoc = null;
+                        try {
+                            luceneDoc = indexService.buildLuceneDocument(document);
+                            writer.addDocument(luceneDoc);
+                            processedDocuments.incrementAndGet();
+                        } catch (Exception e) {
+                            failedDocuments.incrementAndGet();
+                            failedIds.add(document.getId());
+                            logger.error("Failed to index document {} during rebuild: {}", 
+                                document.getId(), e.getMessage());
+                        } finally {
+                            LuceneIndexService.closeReaders(luceneDoc);
+                            inFlight.release();
+                        }
+                    });
+                }
+                afterId = page.get(page.size() - 1).getId();
+            }
+            
+            workers.shutdown();
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            
+            state = IndexRebuildStatus.State.SWAPPING;
+            message = "Swapping in rebuilt index";
+            Set<Long> touchedIds = indexService.swapInRebuiltIndex(rebuildWriter);
+            rebuildWriter = null;
+            
+            // Documents written while the side index was built may be stale in it, and documents
+            // that failed to index are missing from it though the old index had them
+            Set<Long> replayIds = new LinkedHashSet<>(touchedIds);
+            replayIds.addAll(failedIds);
+            message = "Replaying " + touchedIds.size() + " concurrent change(s) and " 
+                + failedIds.size() + " failed document(s)";
+            replayChanges(replayIds);
+            
+            state = IndexRebuildStatus.State.COMPLETED;
+            message = String.format("Index rebuilt with %d documents (%d failed)", 
+                processedDocuments.get(), failedDocuments.get());
+            logger.info(message);
+        } catch (Exception e) {
+            state = IndexRebuildStatus.State.FAILED;
+            message = "Rebuild failed: " + e.getMessage();
+            logger.error("Index rebuild failed", e);
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+        } finally {
+            workers.shutdownNow();
+            if (rebuildWriter != null) {
+                indexService.abortRebuild(rebuildWriter);
+            }
+            finishedAt = LocalDateTime.now();
+        }
+    }
+    
+    private void replayChanges(Set<Long> documentIds) {
+        for (Long documentId : documentIds) {
+            try {
+                indexService.indexDocument(documentService.findById(documentId));
+            } catch (EntityNotFoundException e) {
+                try {
+                    indexService.removeDocument(documentId);
+                } catch (Exception removeError) {
+                    logger.warn("Failed to remove deleted document {} after rebuild", documentId, removeError);
+                }
+            } catch (Exception e) {
+                logger.warn("Failed to replay change for document {} after rebuild", documentId, e);
+            }
+            replayedDocuments.incrementAndGet();
+        }
+    }
+    
+    private static ThreadFactory workerThreadFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "lucene-rebuild-worker-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,42 @@
+package com.docmgmt.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Snapshot of the progress of a background index rebuild
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IndexRebuildStatus {
+    
+    public enum State {
+        IDLE, RUNNING, SWAPPING, COMPLETED, FAILED
+    }
+    
+    private State state;
+    private long totalDocuments;
+    private long processedDocuments;
+    private long failedDocuments;
+    private long replayedDocuments;
+    private int workerThreads;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String message;
+    
+    /**
+     * Get the completion percentage of the indexing phase
+     */
+    public double getPercentComplete() {
+        if (totalDocuments <= 0) {
+            return state == State.COMPLETED ? 100.0 : 0.0;
+        }
+        return Math.min(100.0, (processedDocuments + failedDocuments) * 100.0 / totalDocuments);
+    }
+}
@@ -0,0 +1,57 @@
+package com.docmgmt.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of comparing the search index against the database.
+ * ID lists are capped; the counts are always complete.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IndexReconciliationReport {
+    
+    private boolean dryRun;
+    private long databaseDocuments;
+    private long indexedDocuments;
+    
+    /** In the database but not in the index */
+    private long missingCount;
+    /** Indexed with an older modification time or content fingerprint */
+    private long staleCount;
+    /** In the index but no longer in the database */
+    private long orphanedCount;
+    /** Indexed more than once */
+    private long duplicateCount;
+    
+    private long repairedCount;
+    private long failedCount;
+    
+    @Builder.Default
+    private List<Long> missingIds = new ArrayList<>();
+    @Builder.Default
+    private List<Long> staleIds = new ArrayList<>();
+    @Builder.Default
+    private List<Long> orphanedIds = new ArrayList<>();
+    @Builder.Default
+    private List<Long> duplicateIds = new ArrayList<>();
+    
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String message;
+    
+    /**
+     * Whether the index matched the database when the check ran
+     */
+    public boolean isConsistent() {
+        return missingCount == 0 && staleCount == 0 && orphanedCount == 0 && duplicateCount == 0;
+    }
+}
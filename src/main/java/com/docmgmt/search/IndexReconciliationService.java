@@ -0,0 +1,231 @@
+package com.docmgmt.search;
+
+import com.docmgmt.model.Document;
+import com.docmgmt.repository.ContentRepository;
+import com.docmgmt.repository.DocumentRepository;
+import com.docmgmt.service.DocumentService;
+import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Brings the search index back in line with the database after the two have drifted,
+ * e.g. when the application stopped with index writes still queued. Instead of a full
+ * rebuild, it compares each document's modification time and content fingerprint (read
+ * in bulk from both sides) and only reindexes or removes the documents that differ.
+ */
+@Service
+public class IndexReconciliationService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(IndexReconciliationService.class);
+    
+    @Value("${lucene.index.reconcile-on-startup:true}")
+    private boolean reconcileOnStartup;
+    
+    @Value("${lucene.index.reconcile.report-id-limit:100}")
+    private int reportIdLimit;
+    
+    private final LuceneIndexService indexService;
+    private final IndexRebuildService rebuildService;
+    private final DocumentService documentService;
+    private final DocumentRepository documentRepository;
+    private final ContentRepository contentRepository;
+    
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private volatile IndexReconciliationReport lastReport;
+    
+    public IndexReconciliationService(LuceneIndexService indexService,
+                                      IndexRebuildService rebuildService,
+                                      DocumentService documentService,
+                                      DocumentRepository documentRepository,
+                                      ContentRepository contentRepository) {
+        this.indexService = indexService;
+        this.rebuildService = rebuildService;
+        this.documentService = documentService;
+        this.documentRepository = documentRepository;
+        this.contentRepository = contentRepository;
+    }
+    
+    /**
+     * Reconcile in the background once the application has started
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileOnStartup() {
+        if (!reconcileOnStartup) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                IndexReconciliationReport report = reconcile(false);
+                logger.info("Startup index reconciliation: {} missing, {} stale, {} orphaned, {} duplicate, {} repaired",
+                    report.getMissingCount(), report.getStaleCount(), report.getOrphanedCount(),
+                    report.getDuplicateCount(), report.getRepairedCount());
+            } catch (Exception e) {
+                logger.error("Startup index reconciliation failed", e);
+            }
+        }, "lucene-reconcile");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    /**
+     * Compare the index against the database and repair any differences
+     * @param dryRun if true, only report the differences
+     * @return the reconciliation report
+     * @throws IOException if the index cannot be read
+     * @throws IllegalStateException if a reconciliation or rebuild is already running
+     */
+    public IndexReconciliationReport reconcile(boolean dryRun) throws IOException {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("An index reconciliation is already in progress");
+        }
+        try {
+            IndexRebuildStatus.State rebuildState = rebuildService.getStatus().getState();
+            if (rebuildState == IndexRebuildStatus.State.RUNNING || rebuildState == IndexRebuildStatus.State.SWAPPING) {
+                throw new IllegalStateException("An index rebuild is in progress");
+            }
+            IndexReconciliationReport report = IndexReconciliationReport.builder()
+                .dryRun(dryRun)
+                .startedAt(LocalDateTime.now())
+                .build();
+            Drift drift = compare(report);
+            if (!dryRun) {
+                repair(drift, report);
+            }
+            report.setFinishedAt(LocalDateTime.now());
+            report.setMessage(report.isConsistent() ? "Index is consistent with the database"
+                : dryRun ? "Differences found (dry run, nothing repaired)"
+                : "Repaired " + report.getRepairedCount() + " document(s), " + report.getFailedCount() + " failed");
+            lastReport = report;
+            return report;
+        } finally {
+            running.set(false);
+        }
+    }
+    
+    /**
+     * Get the report of the most recent reconciliation, or null if none has run
+     */
+    public IndexReconciliationReport getLastReport() {
+        return lastReport;
+    }
+    
+    private Drift compare(IndexReconciliationReport report) throws IOException {
+        // Apply any queued writes first so they are not reported as drift
+        indexService.flush();
+        indexService.refreshSearcher();
+        
+        Map<Long, LuceneIndexService.IndexedDocumentState> indexed = indexService.readIndexedDocumentStates();
+        
+        Map<Long, Long> databaseModified = new HashMap<>();
+        for (Object[] row : documentRepository.findAllIdsAndModifiedAt()) {
+            LocalDateTime modifiedAt = (LocalDateTime) row[1];
+            databaseModified.put((Long) row[0], modifiedAt != null ? LuceneIndexService.toEpochMillis(modifiedAt) : null);
+        }
+        
+        Map<Long, SortedMap<Long, Long>> contentVersions = new HashMap<>();
+        for (Object[] row : contentRepository.findIndexableContentVersions()) {
+            LocalDateTime modifiedAt = (LocalDateTime) row[2];
+            contentVersions.computeIfAbsent((Long) row[0], id -> new TreeMap<>())
+                .put((Long) row[1], modifiedAt != null ? LuceneIndexService.toEpochMillis(modifiedAt) : 0L);
+        }
+        
+        report.setDatabaseDocuments(databaseModified.size());
+        report.setIndexedDocuments(indexed.size());
+        
+        Drift drift = new Drift();
+        SortedMap<Long, Long> noContent = new TreeMap<>();
+        for (Map.Entry<Long, Long> entry : databaseModified.entrySet()) {
+            Long id = entry.getKey();
+            LuceneIndexService.IndexedDocumentState state = indexed.get(id);
+            if (state == null) {
+                report.setMissingCount(report.getMissingCount() + 1);
+                addCapped(report.getMissingIds(), id);
+                drift.reindex.add(id);
+            } else if (state.getCopies() > 1) {
+                report.setDuplicateCount(report.getDuplicateCount() + 1);
+                addCapped(report.getDuplicateIds(), id);
+                drift.reindex.add(id);
+            } else {
+                String fingerprint = LuceneIndexService.contentFingerprint(contentVersions.getOrDefault(id, noContent));
+                boolean modifiedMatches = entry.getValue() == null || entry.getValue().equals(state.getModifiedAt());
+                if (!modifiedMatches || !fingerprint.equals(state.getContentFingerprint())) {
+                    report.setStaleCount(report.getStaleCount() + 1);
+                    addCapped(report.getStaleIds(), id);
+                    drift.reindex.add(id);
+                }
+            }
+        }
+        
+        for (Long id : indexed.keySet()) {
+            if (!databaseModified.containsKey(id)) {
+                report.setOrphanedCount(report.getOrphanedCount() + 1);
+                addCapped(report.getOrphanedIds(), id);
+                drift.remove.add(id);
+            }
+        }
+        return drift;
+    }
+    
+    private void repair(Drift drift, IndexReconciliationReport report) throws IOException {
+        if (drift.reindex.isEmpty() && drift.remove.isEmpty()) {
+            return;
+        }
+        long repaired = 0;
+        long failed = 0;
+        for (Long id : drift.reindex) {
+            try {
+                Document document = documentService.findById(id);
+                indexService.indexDocument(document);
+                repaired++;
+            } catch (EntityNotFoundException e) {
+                // Deleted since the comparison ran
+                indexService.removeDocument(id);
+                repaired++;
+            } catch (Exception e) {
+                logger.warn("Failed to reindex document {} during reconciliation: {}", id, e.getMessage());
+                failed++;
+            }
+        }
+        for (Long id : drift.remove) {
+            try {
+                indexService.removeDocument(id);
+                repaired++;
+            } catch (IOException e) {
+                logger.warn("Failed to remove orphaned document {} from index: {}", id, e.getMessage());
+                failed++;
+            }
+        }
+        indexService.flush();
+        report.setRepairedCount(repaired);
+        report.setFailedCount(failed);
+    }
+    
+    private void addCapped(List<Long> ids, Long id) {
+        if (ids.size() < reportIdLimit) {
+            ids.add(id);
+        }
+    }
+    
+    /**
+     * Full (uncapped) lists of documents that need repair
+     */
+    private static final class Drift {
+        private final List<Long> reindex = new ArrayList<>();
+        private final List<Long> remove = new ArrayList<>();
+    }
+}
@@ -2,15 +2,31 @@ package com.docmgmt.search;
 
 import com.docmgmt.model.Content;
 import com.docmgmt.model.Document;
+import com.docmgmt.repository.DocumentRepository;
+import com.docmgmt.repository.FolderRepository;
 import com.docmgmt.service.ContentService;
 import com.docmgmt.service.DocumentSimilarityService;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.BinaryDocValuesField;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.SortedSetDocValuesField;
 import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
+import org.apache.lucene.facet.DrillDownQuery;
+import org.apache.lucene.facet.DrillSideways;
+import org.apache.lucene.facet.FacetResult;
+import org.apache.lucene.facet.Facets;
+import org.apache.lucene.facet.FacetsConfig;
+import org.apache.lucene.facet.LabelAndValue;
+import org.apache.lucene.facet.sortedset.DefaultSortedSetDocValuesReaderState;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetField;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesReaderState;
 import org.apache.lucene.index.*;
 import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
 import org.apache.lucene.queryparser.classic.ParseException;
@@ -18,22 +34,51 @@ import org.apache.lucene.queryparser.classic.QueryParser;
 import org.apache.lucene.search.*;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.hibernate.LazyInitializationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.io.Reader;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Lucene-based full-text search service for documents
@@ -51,7 +96,68 @@ public class LuceneIndexService {
     public static final String FIELD_KEYWORDS = "keywords";
     public static final String FIELD_TAGS = "tags";
     public static final String FIELD_CONTENT = "content";
-    public static final String FIELD_ALL = "all";  // Combined field for cross-field search
+    public static final String FIELD_ALL = "all";  // Combined field for cross-field search (optional)
+    
+    // Doc-values-only bookkeeping fields used by reconciliation (new names: Lucene
+    // does not allow adding doc values to the existing "id" field)
+    public static final String FIELD_DOC_ID = "doc_id";
+    public static final String FIELD_MODIFIED_AT = "modified_at";
+    public static final String FIELD_CONTENT_FINGERPRINT = "content_fingerprint";
+    
+    // Binary doc values copies of the display fields, so result pages are built column-wise
+    // without loading stored fields. Always present (empty when the value is null) in documents
+    // indexed since they were introduced; older documents fall back to stored fields.
+    public static final String FIELD_NAME_DV = "name_dv";
+    public static final String FIELD_DESCRIPTION_DV = "description_dv";
+    public static final String FIELD_KEYWORDS_DV = "keywords_dv";
+    public static final String FIELD_TAGS_DV = "tags_dv";
+    
+    // Version tracking: the ID as an indexed term so single doc values can be updated in place,
+    // the ID of the first version in the series, and 1/0 for whether no newer version exists
+    public static final String FIELD_ID_KEY = "id_key";
+    public static final String FIELD_VERSION_SERIES = "version_series";
+    public static final String FIELD_IS_LATEST = "is_latest";
+    
+    // Ancestry path tokens of every folder the document is filed in: "/1/5/9" is indexed as
+    // "/1", "/1/5" and "/1/5/9", so one term matches a folder and everything below it
+    public static final String FIELD_FOLDER_PATH = "folder_path";
+    
+    // Exact type-ahead texts (name, tags, keywords) so suggestions can be reloaded from the index
+    public static final String FIELD_SUGGEST = "suggest";
+    
+    // Facet dimensions, counted from SortedSet doc values in the default $facets field
+    public static final String FACET_DOCUMENT_TYPE = "documentType";
+    public static final String FACET_TAGS = "tags";
+    public static final String FACET_OWNER = "owner";
+    public static final String FACET_MAJOR_VERSION = "majorVersion";
+    public static final String FACET_FOLDER = "folder";
+    public static final List<String> FACET_DIMENSIONS = List.of(
+        FACET_DOCUMENT_TYPE, FACET_TAGS, FACET_OWNER, FACET_MAJOR_VERSION, FACET_FOLDER);
+    
+    // Commit user data key recording whether every document in the index carries FIELD_ALL
+    public static final String COMMIT_KEY_ALL_FIELD = "docmgmt.all_field";
+    
+    /**
+     * How unqualified search terms are matched
+     */
+    public enum QueryMode {
+        /** Query the catch-all FIELD_ALL */
+        ALL_FIELD,
+        /** Score the per-field postings together with CombinedFieldQuery (BM25F) */
+        COMBINED
+    }
+    
+    private static final String REBUILD_SUFFIX = ".rebuild";
+    private static final String RETIRED_SUFFIX = ".old";
+    
+    // Documents that are not known to be superseded; those indexed before is_latest existed count as latest
+    private static final Query LATEST_ONLY_FILTER = new ConstantScoreQuery(new BooleanQuery.Builder()
+        .add(new MatchAllDocsQuery(), BooleanClause.Occur.FILTER)
+        .add(NumericDocValuesField.newSlowExactQuery(FIELD_IS_LATEST, 0), BooleanClause.Occur.MUST_NOT)
+        .build());
+    
+    // Search-after order: score, then the stable document ID so equal scores page deterministically
+    private static final Sort PAGING_SORT = new Sort(SortField.FIELD_SCORE, new SortField(FIELD_DOC_ID, SortField.Type.LONG));
     
     @Value("${lucene.index.directory:./lucene_index}")
     private String indexDirectoryPath;
@@ -59,61 +165,293 @@ public class LuceneIndexService {
     @Value("${docmgmt.similarity.auto-generate-embeddings:false}")
     private boolean autoGenerateEmbeddings;
     
+    @Value("${lucene.searcher.refresh-interval-ms:1000}")
+    private long refreshIntervalMs;
+    
+    @Value("${lucene.searcher.refresh-after-write:true}")
+    private boolean refreshAfterWrite;
+    
+    @Value("${lucene.index.async-writes:false}")
+    private boolean asyncWrites;
+    
+    @Value("${lucene.index.write-queue.capacity:10000}")
+    private int writeQueueCapacity;
+    
+    @Value("${lucene.index.write-queue.batch-size:500}")
+    private int writeBatchSize;
+    
+    @Value("${lucene.index.flush-timeout-ms:60000}")
+    private long flushTimeoutMs;
+    
+    @Value("${lucene.index.commit.interval-ms:5000}")
+    private long commitIntervalMs;
+    
+    @Value("${lucene.index.commit.max-pending:1000}")
+    private int commitMaxPending;
+    
+    @Value("${lucene.rebuild.ram-buffer-mb:256}")
+    private double rebuildRamBufferMb;
+    
+    @Value("${lucene.index.content.max-bytes-per-document:52428800}")
+    private long maxContentBytesPerDocument;
+    
+    @Value("${lucene.suggest.min-prefix-chars:4}")
+    private int suggestMinPrefixChars;
+    
+    @Value("${lucene.index.all-field:true}")
+    private boolean writeAllField;
+    
+    @Value("${lucene.search.query-mode:ALL_FIELD}")
+    private QueryMode queryMode;
+    
+    @Value("${lucene.search.boost.name:3.0}")
+    private float nameBoost;
+    
+    @Value("${lucene.search.boost.description:1.5}")
+    private float descriptionBoost;
+    
+    @Value("${lucene.search.boost.keywords:2.0}")
+    private float keywordsBoost;
+    
+    @Value("${lucene.search.boost.tags:2.0}")
+    private float tagsBoost;
+    
+    @Value("${lucene.search.boost.content:1.0}")
+    private float contentBoost;
+    
     private final ContentService contentService;
     private final DocumentSimilarityService similarityService;
+    private final FolderRepository folderRepository;
+    private final DocumentRepository documentRepository;
+    private final FacetsConfig facetsConfig = createFacetsConfig();
+    
+    // Facet ordinals for the reader they were built from; rebuilt when the searcher is refreshed
+    private IndexReader facetStateReader;
+    private SortedSetDocValuesReaderState facetState;
+    
+    // Type-ahead suggestions, updated with every write applied to the live index
+    private DocumentSuggester suggester;
     
     private Directory directory;
     private StandardAnalyzer analyzer;
     private IndexWriter indexWriter;
     
+    // Near-real-time searcher shared by all queries, refreshed from the writer
+    private SearcherManager searcherManager;
+    private ControlledRealTimeReopenThread<IndexSearcher> reopenThread;
+    
+    // Write pipeline: bounded queue drained by a single writer thread, commits coalesced
+    private BlockingQueue<IndexOperation> writeQueue;
+    private Thread writerThread;
+    private volatile boolean writerRunning;
+    private volatile boolean acceptingWrites = true;
+    // Queued and applied operation counts; flush waits for the applied count to catch up
+    private final AtomicLong queuedWrites = new AtomicLong();
+    private final AtomicLong appliedWrites = new AtomicLong();
+    private final Object writesApplied = new Object();
+    private final AtomicLong uncommittedOperations = new AtomicLong();
+    private final Object commitLock = new Object();
+    private volatile long lastCommitMillis;
+    
+    // Guards swapping the live index; everything touching writer/searcher takes the read lock
+    private final ReentrantReadWriteLock indexLock = new ReentrantReadWriteLock();
+    private volatile Set<Long> rebuildTrackedIds;
+    
+    // True while every document in the live index has FIELD_ALL, so ALL_FIELD queries see them all
+    private volatile boolean indexHasAllField;
+    
     @Autowired
     public LuceneIndexService(ContentService contentService, 
-                              DocumentSimilarityService similarityService) {
+                              DocumentSimilarityService similarityService,
+                              FolderRepository folderRepository,
+                              DocumentRepository documentRepository) {
         this.contentService = contentService;
         this.similarityService = similarityService;
+        this.folderRepository = folderRepository;
+        this.documentRepository = documentRepository;
+    }
+    
+    private static FacetsConfig createFacetsConfig() {
+        FacetsConfig config = new FacetsConfig();
+        config.setMultiValued(FACET_TAGS, true);
+        config.setMultiValued(FACET_FOLDER, true);
+        return config;
     }
     
     @PostConstruct
     public void initialize() throws IOException {
-        Path indexPath = Paths.get(indexDirectoryPath);
+        analyzer = new StandardAnalyzer();
+        openLiveIndex();
+        suggester = new DocumentSuggester(suggestMinPrefixChars);
+        loadSuggestions();
+        
+        // Background writer applying queued operations in batches
+        writeQueue = new ArrayBlockingQueue<>(Math.max(writeQueueCapacity, 1));
+        lastCommitMillis = System.currentTimeMillis();
+        if (asyncWrites) {
+            writerRunning = true;
+            writerThread = new Thread(this::drainWriteQueue, "lucene-index-writer");
+            writerThread.setDaemon(true);
+            writerThread.start();
+        }
+        
+        logger.info("Lucene index initialized at: {} (searcher refresh interval {} ms, async writes {})", 
+            liveIndexPath(), refreshIntervalMs, asyncWrites);
+    }
+    
+    /**
+     * Open the directory, writer and NRT searcher for the live index location
+     */
+    private void openLiveIndex() throws IOException {
+        Path indexPath = liveIndexPath();
         Files.createDirectories(indexPath);
         
         directory = FSDirectory.open(indexPath);
-        analyzer = new StandardAnalyzer();
         
         IndexWriterConfig config = new IndexWriterConfig(analyzer);
         config.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
         
         indexWriter = new IndexWriter(directory, config);
+        initializeIndexFormat();
         
-        logger.info("Lucene index initialized at: {}", indexPath.toAbsolutePath());
+        // Searchers are opened from the writer (NRT), never from disk per query
+        searcherManager = new SearcherManager(indexWriter, null);
+        double maxStaleSec = Math.max(refreshIntervalMs, 1) / 1000.0;
+        reopenThread = new ControlledRealTimeReopenThread<>(indexWriter, searcherManager, maxStaleSec, 0.0);
+        reopenThread.setName("lucene-nrt-reopen");
+        reopenThread.setDaemon(true);
+        reopenThread.start();
     }
     
-    @PreDestroy
-    public void shutdown() throws IOException {
+    /**
+     * Work out from the last commit whether the live index has FIELD_ALL in every document.
+     * Indexes written before the flag existed always did. When the configuration differs from
+     * the index, searches use COMBINED mode until a rebuild brings the index in line.
+     */
+    private void initializeIndexFormat() {
+        String recorded = null;
+        for (Map.Entry<String, String> entry : indexWriter.getLiveCommitData()) {
+            if (COMMIT_KEY_ALL_FIELD.equals(entry.getKey())) {
+                recorded = entry.getValue();
+            }
+        }
+        boolean emptyIndex = indexWriter.getDocStats().numDocs == 0;
+        boolean hasAllField = emptyIndex ? writeAllField : recorded == null || Boolean.parseBoolean(recorded);
+        
+        if (hasAllField != writeAllField && !emptyIndex) {
+            logger.warn("Index {} FIELD_ALL but lucene.index.all-field={}; searching in COMBINED mode " +
+                "until the index is rebuilt (POST /api/search/rebuild)",
+                hasAllField ? "contains" : "does not contain", writeAllField);
+        }
+        // New writes follow the configuration, so the flag only stays true if both agree
+        setIndexHasAllField(indexWriter, hasAllField && writeAllField);
+    }
+    
+    private void setIndexHasAllField(IndexWriter writer, boolean hasAllField) {
+        if (writer == indexWriter) {
+            indexHasAllField = hasAllField;
+        }
+        writer.setLiveCommitData(Map.of(COMMIT_KEY_ALL_FIELD, String.valueOf(hasAllField)).entrySet());
+    }
+    
+    /**
+     * Commit and close the live index. Searchers already handed out stay usable
+     * until released because they hold their own reader references.
+     */
+    private void closeLiveIndex() throws IOException {
+        if (reopenThread != null) {
+            reopenThread.close();
+        }
+        if (searcherManager != null) {
+            searcherManager.close();
+        }
         if (indexWriter != null) {
+            commit();
             indexWriter.close();
         }
         if (directory != null) {
             directory.close();
         }
+    }
+    
+    /**
+     * Flush all queued operations, commit, and close the index.
+     * Every write accepted before shutdown is durable once this returns.
+     */
+    @PreDestroy
+    public void shutdown() throws IOException {
+        acceptingWrites = false;
+        if (writerThread != null) {
+            writerRunning = false;
+            try {
+                writerThread.join(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // Apply anything the writer thread did not get to before the final commit
+        if (indexWriter != null && writeQueue != null) {
+            List<IndexOperation> remaining = new ArrayList<>();
+            writeQueue.drainTo(remaining);
+            for (IndexOperation operation : remaining) {
+                applyOperation(operation);
+            }
+        }
+        closeLiveIndex();
+        if (suggester != null) {
+            suggester.close();
+        }
         logger.info("Lucene index closed");
     }
     
     /**
-     * Index a document with all its fields and indexable content
+     * Index a document with all its fields and indexable content.
+     * The Lucene document is built on the calling thread; applying it to the index
+     * is either done inline or handed to the background writer (lucene.index.async-writes).
      * @param document the document to index
      * @throws IOException if indexing fails
      */
     public void indexDocument(Document document) throws IOException {
+        org.apache.lucene.document.Document luceneDoc = buildLuceneDocument(document);
+        submit(new IndexOperation(document.getId(), luceneDoc));
+        
+        logger.debug("Indexed document: {} (ID: {})", document.getName(), document.getId());
+    }
+    
+    /**
+     * Build the Lucene representation of a document without touching the index
+     * @param document the document to convert
+     * @return the Lucene document
+     */
+    public org.apache.lucene.document.Document buildLuceneDocument(Document document) {
         org.apache.lucene.document.Document luceneDoc = new org.apache.lucene.document.Document();
         
         // Store document ID (not analyzed, just stored)
         luceneDoc.add(new LongPoint(FIELD_ID, document.getId()));
         luceneDoc.add(new StoredField(FIELD_ID, document.getId()));
+        luceneDoc.add(new NumericDocValuesField(FIELD_DOC_ID, document.getId()));
+        if (document.getModifiedAt() != null) {
+            luceneDoc.add(new NumericDocValuesField(FIELD_MODIFIED_AT, toEpochMillis(document.getModifiedAt())));
+        }
+        luceneDoc.add(new StringField(FIELD_ID_KEY, document.getId().toString(), Field.Store.NO));
+        Long seriesId = documentRepository.findVersionSeriesRootId(document.getId());
+        luceneDoc.add(new StringField(FIELD_VERSION_SERIES, 
+            (seriesId != null ? seriesId : document.getId()).toString(), Field.Store.NO));
+        boolean latest = !documentRepository.existsByParentVersionId(document.getId());
+        luceneDoc.add(new NumericDocValuesField(FIELD_IS_LATEST, latest ? 1L : 0L));
         
-        // Index and store all document fields
+        // Index and store all document fields; metadata is small and goes into FIELD_ALL as one value
         StringBuilder allText = new StringBuilder();
+        String tagsValue = document.getTags() != null && !document.getTags().isEmpty()
+            ? String.join(" ", document.getTags()) : null;
+        luceneDoc.add(new BinaryDocValuesField(FIELD_NAME_DV, displayValue(document.getName())));
+        luceneDoc.add(new BinaryDocValuesField(FIELD_DESCRIPTION_DV, displayValue(document.getDescription())));
+        luceneDoc.add(new BinaryDocValuesField(FIELD_KEYWORDS_DV, displayValue(document.getKeywords())));
+        luceneDoc.add(new BinaryDocValuesField(FIELD_TAGS_DV, displayValue(tagsValue)));
+        for (String text : DocumentSuggester.suggestionTexts(document.getName(), document.getTags(), 
+                document.getKeywords())) {
+            luceneDoc.add(new SortedSetDocValuesField(FIELD_SUGGEST, new BytesRef(text)));
+        }
         
         // Name field
         if (document.getName() != null) {
@@ -134,35 +472,177 @@ public class LuceneIndexService {
         }
         
         // Tags field (concatenated)
-        if (document.getTags() != null && !document.getTags().isEmpty()) {
-            String tagsText = String.join(" ", document.getTags());
-            luceneDoc.add(new TextField(FIELD_TAGS, tagsText, Field.Store.YES));
-            allText.append(tagsText).append(" ");
+        if (tagsValue != null) {
+            luceneDoc.add(new TextField(FIELD_TAGS, tagsValue, Field.Store.YES));
+            allText.append(tagsValue).append(" ");
         }
         
         // Index all indexable content
         List<Content> indexableContent = contentService.getIndexableContent(document);
+        
+        // Fingerprint of the content rows, so reconciliation can detect content changes
+        SortedMap<Long, Long> contentVersions = new TreeMap<>();
         for (Content content : indexableContent) {
+            contentVersions.put(content.getId(), 
+                content.getModifiedAt() != null ? toEpochMillis(content.getModifiedAt()) : 0L);
+        }
+        luceneDoc.add(new SortedDocValuesField(FIELD_CONTENT_FINGERPRINT, 
+            new BytesRef(contentFingerprint(contentVersions))));
+        
+        // Add combined "all" field for cross-field search, unless COMBINED queries replace it
+        if (writeAllField) {
+            luceneDoc.add(new TextField(FIELD_ALL, allText.toString(), Field.Store.NO));
+        }
+        
+        // Content is streamed into FIELD_CONTENT (and FIELD_ALL as extra values) when the
+        // writer consumes the document, up to the per-document byte budget. A reader can only
+        // feed one field, so FIELD_ALL opens a second stream and each content is read twice.
+        long remainingBytes = maxContentBytesPerDocument;
+        for (Content content : indexableContent) {
+            if (remainingBytes <= 0) {
+                logger.info("Content byte limit of {} reached for document {}; skipping remaining content", 
+                    maxContentBytesPerDocument, document.getId());
+                break;
+            }
             try {
-                byte[] contentBytes = content.getContentBytes();
-                String contentText = new String(contentBytes, StandardCharsets.UTF_8);
-                luceneDoc.add(new TextField(FIELD_CONTENT, contentText, Field.Store.NO));
-                allText.append(contentText).append(" ");
+                ContentStreamReader.StreamSource source = () -> contentService.openContentStream(content);
+                long size = contentService.getContentLength(content);
+                long limit = Math.min(size, remainingBytes);
+                if (limit < size) {
+                    logger.info("Indexing first {} of {} bytes of content {} for document {}", 
+                        limit, size, content.getName(), document.getId());
+                }
+                remainingBytes -= limit;
+                String description = content.getName() + " (document " + document.getId() + ")";
+                luceneDoc.add(new TextField(FIELD_CONTENT, new ContentStreamReader(source, limit, description)));
+                if (writeAllField) {
+                    luceneDoc.add(new TextField(FIELD_ALL, new ContentStreamReader(source, limit, description)));
+                }
             } catch (Exception e) {
                 logger.warn("Failed to index content {} for document {}: {}", 
                     content.getName(), document.getId(), e.getMessage());
             }
         }
         
-        // Add combined "all" field for cross-field search
-        luceneDoc.add(new TextField(FIELD_ALL, allText.toString(), Field.Store.NO));
-        
-        // Delete any existing document with this ID and add the new one
-        indexWriter.deleteDocuments(LongPoint.newExactQuery(FIELD_ID, document.getId()));
-        indexWriter.addDocument(luceneDoc);
-        indexWriter.commit();
+        addFacetFields(luceneDoc, document);
+        addFolderFields(luceneDoc, document);
+        try {
+            return facetsConfig.build(luceneDoc);
+        } catch (IOException e) {
+            // Only taxonomy facets write during build; SortedSet facets never do
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    /**
+     * Add the facet values of a document. Blank values are left out, since facet labels must not be empty.
+     */
+    private void addFacetFields(org.apache.lucene.document.Document luceneDoc, Document document) {
+        if (document.getDocumentType() != null) {
+            addFacetValue(luceneDoc, FACET_DOCUMENT_TYPE, document.getDocumentType().name());
+        }
+        if (document.getTags() != null) {
+            document.getTags().forEach(tag -> addFacetValue(luceneDoc, FACET_TAGS, tag));
+        }
+        try {
+            if (document.getOwner() != null) {
+                addFacetValue(luceneDoc, FACET_OWNER, document.getOwner().getName());
+            }
+        } catch (LazyInitializationException e) {
+            logger.debug("Owner of document {} not loaded; indexing without owner facet", document.getId());
+        }
+        if (document.getMajorVersion() != null) {
+            addFacetValue(luceneDoc, FACET_MAJOR_VERSION, document.getMajorVersion().toString());
+        }
+    }
+    
+    /**
+     * Add the ancestry path tokens of every folder the document is filed in, and the names of the
+     * root folders above them as folder facet values. Both come from one walk up the hierarchy;
+     * paths are put together here rather than in SQL, where string concatenation is not portable.
+     */
+    private void addFolderFields(org.apache.lucene.document.Document luceneDoc, Document document) {
+        if (document.getId() == null) {
+            return;
+        }
+        List<Object[]> ancestry = folderRepository.findFolderAncestryContaining(document.getId());
+        Map<Long, Long> parentIds = parentFolderIds(ancestry);
+        Map<Long, String> names = new HashMap<>();
+        Set<Long> containingFolderIds = new TreeSet<>();
+        for (Object[] row : ancestry) {
+            Long folderId = ((Number) row[0]).longValue();
+            names.put(folderId, (String) row[2]);
+            if (((Number) row[3]).intValue() == 1) {
+                containingFolderIds.add(folderId);
+            }
+        }
         
-        logger.debug("Indexed document: {} (ID: {})", document.getName(), document.getId());
+        Set<String> tokens = new TreeSet<>();
+        Set<String> rootNames = new LinkedHashSet<>();
+        for (Long folderId : containingFolderIds) {
+            List<Long> path = folderIdPath(folderId, parentIds);
+            StringBuilder token = new StringBuilder();
+            for (Long id : path) {
+                token.append('/').append(id);
+                tokens.add(token.toString());
+            }
+            rootNames.add(names.get(path.get(0)));
+        }
+        tokens.forEach(token -> luceneDoc.add(new StringField(FIELD_FOLDER_PATH, token, Field.Store.NO)));
+        rootNames.forEach(name -> addFacetValue(luceneDoc, FACET_FOLDER, name));
+    }
+    
+    /**
+     * Map each folder of an ancestry query to its parent folder, null for a root folder
+     */
+    private static Map<Long, Long> parentFolderIds(List<Object[]> ancestry) {
+        Map<Long, Long> parentIds = new HashMap<>();
+        for (Object[] row : ancestry) {
+            parentIds.put(((Number) row[0]).longValue(), row[1] != null ? ((Number) row[1]).longValue() : null);
+        }
+        return parentIds;
+    }
+    
+    /**
+     * IDs of the folders from the root folder down to a folder
+     */
+    private static List<Long> folderIdPath(Long folderId, Map<Long, Long> parentIds) {
+        LinkedList<Long> path = new LinkedList<>();
+        for (Long id = folderId; id != null; id = parentIds.get(id)) {
+            path.addFirst(id);
+        }
+        return path;
+    }
+    
+    private static void addFacetValue(org.apache.lucene.document.Document luceneDoc, String dimension, String value) {
+        if (value != null && !value.isBlank()) {
+            luceneDoc.add(new SortedSetDocValuesFacetField(dimension, value.trim()));
+        }
+    }
+    
+    private static BytesRef displayValue(String value) {
+        return value != null ? new BytesRef(value) : new BytesRef();
+    }
+    
+    /**
+     * Close the streaming content readers of a Lucene document. The IndexWriter closes readers
+     * it consumes, but not those of a document that failed or was never applied.
+     * @param luceneDoc the document whose reader-valued fields should be closed
+     */
+    public static void closeReaders(org.apache.lucene.document.Document luceneDoc) {
+        if (luceneDoc == null) {
+            return;
+        }
+        for (IndexableField field : luceneDoc.getFields()) {
+            Reader reader = field.readerValue();
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    logger.debug("Failed to close content reader for field {}", field.name(), e);
+                }
+            }
+        }
     }
     
     /**
@@ -171,12 +651,259 @@ public class LuceneIndexService {
      * @throws IOException if deletion fails
      */
     public void removeDocument(Long documentId) throws IOException {
-        indexWriter.deleteDocuments(LongPoint.newExactQuery(FIELD_ID, documentId));
-        indexWriter.commit();
+        submit(new IndexOperation(documentId, null));
         
         logger.debug("Removed document from index: ID {}", documentId);
     }
     
+    /**
+     * Mark a document as no longer the latest of its version series. Only the is_latest doc value
+     * is rewritten; the document is not re-analyzed. Queued behind earlier writes for the document.
+     * @param documentId the document a newer version was created from
+     * @throws IOException if indexing fails
+     */
+    public void markSuperseded(Long documentId) throws IOException {
+        submit(IndexOperation.superseded(documentId));
+        
+        logger.debug("Marked document as superseded in index: ID {}", documentId);
+    }
+    
+    /**
+     * Wait until every write queued before this call has been applied, then commit.
+     * Writes queued while waiting do not hold the flush up.
+     * @throws IOException if the commit fails, or the writer thread does not catch up
+     * within lucene.index.flush-timeout-ms
+     */
+    public void flush() throws IOException {
+        long target = queuedWrites.get();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushTimeoutMs);
+        synchronized (writesApplied) {
+            while (appliedWrites.get() < target) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new IOException("Timed out after " + flushTimeoutMs + " ms waiting for "
+                        + (target - appliedWrites.get()) + " queued index operations");
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(writesApplied, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while flushing queued index operations");
+                }
+            }
+        }
+        commit();
+    }
+    
+    /**
+     * Periodic commit so queued and inline writes become durable without
+     * an fsync per document
+     */
+    @Scheduled(fixedDelayString = "${lucene.index.commit.interval-ms:5000}")
+    public void commitIfPending() {
+        if (uncommittedOperations.get() == 0) {
+            return;
+        }
+        try {
+            commit();
+        } catch (IOException | RuntimeException e) {
+            logger.error("Periodic index commit failed", e);
+        }
+    }
+    
+    /**
+     * Hand an operation to the writer thread, or apply it inline when async writes are disabled
+     */
+    private void submit(IndexOperation operation) throws IOException {
+        if (!acceptingWrites) {
+            throw new IllegalStateException("Index is shutting down");
+        }
+        if (!asyncWrites) {
+            // Held across the wait so the generation belongs to the writer we wait on
+            indexLock.readLock().lock();
+            try {
+                long generation = applyOperation(operation);
+                commitIfThresholdReached();
+                awaitSearchable(generation);
+                suggester.refresh();
+            } finally {
+                indexLock.readLock().unlock();
+            }
+            return;
+        }
+        // Counted before the put, so the writer can never have applied more than was counted
+        queuedWrites.incrementAndGet();
+        try {
+            // Blocks when the queue is full, pushing back on producers
+            writeQueue.put(operation);
+        } catch (InterruptedException e) {
+            queuedWrites.decrementAndGet();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while queueing index operation", e);
+        }
+    }
+    
+    /**
+     * Writer thread loop: take operations off the queue in batches and apply them
+     */
+    private void drainWriteQueue() {
+        List<IndexOperation> batch = new ArrayList<>(writeBatchSize);
+        while (writerRunning || !writeQueue.isEmpty()) {
+            try {
+                IndexOperation first = writeQueue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                writeQueue.drainTo(batch, Math.max(writeBatchSize - 1, 0));
+                
+                for (IndexOperation operation : batch) {
+                    try {
+                        applyOperation(operation);
+                    } catch (IOException | RuntimeException e) {
+                        logger.error("Failed to apply queued index operation for document {}", 
+                            operation.documentId, e);
+                    }
+                }
+                commitIfThresholdReached();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (IOException | RuntimeException e) {
+                logger.error("Index writer thread failed to commit batch", e);
+            } finally {
+                if (!batch.isEmpty()) {
+                    appliedWrites.addAndGet(batch.size());
+                    batch.clear();
+                    synchronized (writesApplied) {
+                        writesApplied.notifyAll();
+                    }
+                }
+            }
+        }
+    }
+    
+    /**
+     * Apply a single operation to the IndexWriter without committing
+     * @return the writer sequence number of the operation
+     */
+    private long applyOperation(IndexOperation operation) throws IOException {
+        indexLock.readLock().lock();
+        try {
+            long generation;
+            if (operation.superseded) {
+                if (indexWriter.getFieldNames().contains(FIELD_IS_LATEST)) {
+                    generation = indexWriter.updateNumericDocValue(
+                        new Term(FIELD_ID_KEY, operation.documentId.toString()), FIELD_IS_LATEST, 0L);
+                } else {
+                    // Nothing indexed with version fields yet, so there is no value to update
+                    generation = indexWriter.getMaxCompletedSequenceNumber();
+                }
+            } else if (operation.luceneDoc == null) {
+                generation = indexWriter.deleteDocuments(LongPoint.newExactQuery(FIELD_ID, operation.documentId));
+                updateSuggestions(operation.documentId, List.of());
+            } else {
+                // Delete any existing document with this ID and add the new one
+                indexWriter.deleteDocuments(LongPoint.newExactQuery(FIELD_ID, operation.documentId));
+                try {
+                    generation = indexWriter.addDocument(operation.luceneDoc);
+                } finally {
+                    closeReaders(operation.luceneDoc);
+                }
+                updateSuggestions(operation.documentId, Arrays.stream(operation.luceneDoc.getFields(FIELD_SUGGEST))
+                    .map(field -> field.binaryValue().utf8ToString())
+                    .collect(Collectors.toList()));
+            }
+            uncommittedOperations.incrementAndGet();
+            
+            // Remember writes that land in the live index while a side rebuild runs
+            Set<Long> tracked = rebuildTrackedIds;
+            if (tracked != null) {
+                tracked.add(operation.documentId);
+            }
+            return generation;
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Bring the suggestions of one document in line with a write to the live index. A failure
+     * only leaves suggestions stale, so it is logged rather than failing the write.
+     */
+    private void updateSuggestions(Long documentId, List<String> texts) {
+        try {
+            suggester.update(documentId, texts);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to update suggestions for document {}: {}", documentId, e.getMessage());
+        }
+    }
+    
+    /**
+     * Reload all suggestions from the live index
+     */
+    private void loadSuggestions() throws IOException {
+        indexLock.readLock().lock();
+        try {
+            suggester.load(searcherManager, FIELD_DOC_ID, FIELD_SUGGEST);
+        } finally {
+            indexLock.readLock().unlock();
+        }
+        logger.info("Loaded {} type-ahead suggestions", suggester.size());
+    }
+    
+    /**
+     * Suggest document names, tags and keywords matching what has been typed so far. Every word
+     * must match the start of a word in the suggestion, so "spr gui" finds "Spring Framework Guide".
+     * Suggestions are looked up in a small dedicated index without query parsing, and are ordered
+     * by the number of documents that carry them.
+     * @param prefix the text typed so far
+     * @param limit maximum number of suggestions
+     * @return matching suggestions, most common first; empty for a blank prefix
+     * @throws IOException if the lookup fails
+     */
+    public List<String> suggest(String prefix, int limit) throws IOException {
+        return suggester.lookup(prefix, limit);
+    }
+    
+    /**
+     * Make suggestion updates from queued writes visible; inline writes refresh as they go
+     */
+    @Scheduled(fixedDelayString = "${lucene.searcher.refresh-interval-ms:1000}")
+    public void refreshSuggestions() {
+        if (suggester == null) {
+            return;
+        }
+        try {
+            suggester.refresh();
+        } catch (IOException | RuntimeException e) {
+            logger.error("Suggestion refresh failed", e);
+        }
+    }
+    
+    private void commitIfThresholdReached() throws IOException {
+        if (uncommittedOperations.get() >= commitMaxPending
+                || System.currentTimeMillis() - lastCommitMillis >= commitIntervalMs) {
+            commit();
+        }
+    }
+    
+    private void commit() throws IOException {
+        indexLock.readLock().lock();
+        try {
+            synchronized (commitLock) {
+                long pending = uncommittedOperations.getAndSet(0);
+                indexWriter.commit();
+                lastCommitMillis = System.currentTimeMillis();
+                if (pending > 0) {
+                    logger.debug("Committed {} index operation(s)", pending);
+                }
+            }
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+    
     /**
      * Search across all fields
      * @param queryText the search query
@@ -186,10 +913,221 @@ public class LuceneIndexService {
      * @throws ParseException if query parsing fails
      */
     public SearchResultsWrapper search(String queryText, int maxResults) throws IOException, ParseException {
-        QueryParser parser = new QueryParser(FIELD_ALL, analyzer);
-        Query query = parser.parse(queryText);
+        return search(queryText, maxResults, false);
+    }
+    
+    /**
+     * Search across all fields
+     * @param queryText the search query
+     * @param maxResults maximum number of results to return
+     * @param idsOnly return only document IDs and scores, for callers that load documents themselves
+     * @return wrapper containing results and total hit count
+     * @throws IOException if search fails
+     * @throws ParseException if query parsing fails
+     */
+    public SearchResultsWrapper search(String queryText, int maxResults, boolean idsOnly) 
+            throws IOException, ParseException {
+        return executeSearch(parseQuery(queryText), maxResults, idsOnly);
+    }
+    
+    /**
+     * Search across all fields one page at a time. Hits are ordered by score and then document
+     * ID, and each page continues after the cursor of the previous one, so deep pages cost the
+     * same as the first instead of collecting and discarding every earlier page.
+     * @param queryText the search query
+     * @param pageSize number of results per page
+     * @param cursor nextCursor of the previous page, or null for the first page
+     * @param idsOnly return only document IDs and scores
+     * @return wrapper containing the page, the total hit count and the cursor for the next page
+     * @throws IOException if search fails
+     * @throws ParseException if query parsing fails
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public SearchResultsWrapper searchAfter(String queryText, int pageSize, String cursor, boolean idsOnly) 
+            throws IOException, ParseException {
+        return searchAfter(queryText, pageSize, cursor, idsOnly, SearchFilters.none());
+    }
+    
+    /**
+     * Search across all fields one page at a time; see searchAfter
+     * @param filters latest-version and folder restrictions
+     */
+    public SearchResultsWrapper searchAfter(String queryText, int pageSize, String cursor, boolean idsOnly, 
+                                            SearchFilters filters) throws IOException, ParseException {
+        return executeSearchAfter(applyFilters(parseQuery(queryText), filters), pageSize, cursor, idsOnly);
+    }
+    
+    /**
+     * Add the filters to a query as non-scoring clauses. They are checked only for documents the
+     * query already matches, need no database round trip and do not change scores:
+     * latest-only reads the is_latest doc values, and a folder scope matches the folder's
+     * ancestry path token, which every document filed anywhere below the folder carries.
+     * @param query the query to restrict
+     * @param filters the restrictions; null restricts nothing
+     * @return the restricted query
+     * @throws IllegalArgumentException if the scope folder does not exist
+     */
+    public Query applyFilters(Query query, SearchFilters filters) {
+        if (filters == null || (!filters.isLatestOnly() && filters.getFolderId() == null)) {
+            return query;
+        }
+        BooleanQuery.Builder builder = new BooleanQuery.Builder().add(query, BooleanClause.Occur.MUST);
+        if (filters.isLatestOnly()) {
+            builder.add(LATEST_ONLY_FILTER, BooleanClause.Occur.FILTER);
+        }
+        if (filters.getFolderId() != null) {
+            List<Object[]> ancestry = folderRepository.findFolderAncestry(filters.getFolderId());
+            if (ancestry.isEmpty()) {
+                throw new IllegalArgumentException("Folder not found: " + filters.getFolderId());
+            }
+            String folderPath = folderIdPath(filters.getFolderId(), parentFolderIds(ancestry)).stream()
+                .map(id -> "/" + id)
+                .collect(Collectors.joining());
+            builder.add(new TermQuery(new Term(FIELD_FOLDER_PATH, folderPath)), BooleanClause.Occur.FILTER);
+        }
+        return builder.build();
+    }
+    
+    /**
+     * Search across all fields and count facet values in the same pass. Drill-downs restrict the
+     * hits to documents with one of the given values per dimension; DrillSideways counts each
+     * drilled dimension as if its own restriction were absent, so the base query is evaluated once
+     * rather than once per facet.
+     * @param queryText the search query
+     * @param drillDowns facet dimension to the values to restrict it to; values of one dimension are ORed
+     * @param pageSize number of results per page
+     * @param cursor nextCursor of the previous page, or null for the first page
+     * @param topValues number of values to return per facet dimension
+     * @param idsOnly return only document IDs and scores
+     * @return wrapper containing the page, the total hit count, the next cursor and the facet counts
+     * @throws IOException if search fails
+     * @throws ParseException if query parsing fails
+     * @throws IllegalArgumentException if the cursor is malformed or a dimension is unknown
+     */
+    public SearchResultsWrapper facetedSearch(String queryText, Map<String, List<String>> drillDowns, 
+                                              int pageSize, String cursor, int topValues, boolean idsOnly) 
+            throws IOException, ParseException {
+        return facetedSearch(queryText, drillDowns, pageSize, cursor, topValues, idsOnly, SearchFilters.none());
+    }
+    
+    /**
+     * Search across all fields with facet counts; see facetedSearch
+     * @param filters latest-version and folder restrictions, applied to hits and counts
+     */
+    public SearchResultsWrapper facetedSearch(String queryText, Map<String, List<String>> drillDowns, 
+                                              int pageSize, String cursor, int topValues, boolean idsOnly,
+                                              SearchFilters filters) throws IOException, ParseException {
+        if (pageSize < 1 || topValues < 1) {
+            throw new IllegalArgumentException("Page size and facet value count must be at least 1");
+        }
+        Query baseQuery = applyFilters(parseQuery(queryText), filters);
+        FieldDoc after = cursor != null && !cursor.isBlank() ? SearchCursor.decode(cursor) : null;
         
-        return executeSearch(query, maxResults);
+        DrillDownQuery drillDownQuery = new DrillDownQuery(facetsConfig, baseQuery);
+        if (drillDowns != null) {
+            drillDowns.forEach((dimension, values) -> {
+                if (!FACET_DIMENSIONS.contains(dimension)) {
+                    throw new IllegalArgumentException("Unknown facet dimension: " + dimension);
+                }
+                values.stream()
+                    .filter(value -> value != null && !value.isBlank())
+                    .forEach(value -> drillDownQuery.add(dimension, value.trim()));
+            });
+        }
+        
+        return withSearcher(searcher -> {
+            SortedSetDocValuesReaderState state = facetState(searcher.getIndexReader());
+            TopDocs hits;
+            Map<String, List<FacetCount>> facets;
+            if (state != null) {
+                DrillSideways drillSideways = new DrillSideways(searcher, facetsConfig, state);
+                DrillSideways.DrillSidewaysResult result = 
+                    drillSideways.search(drillDownQuery, null, after, pageSize, PAGING_SORT, true);
+                hits = result.hits;
+                facets = facetCounts(result.facets, topValues);
+            } else {
+                // No document carries facet fields yet
+                hits = searcher.searchAfter(after, drillDownQuery, pageSize, PAGING_SORT, true);
+                facets = new LinkedHashMap<>();
+            }
+            
+            String nextCursor = hits.scoreDocs.length == pageSize 
+                ? SearchCursor.encode((FieldDoc) hits.scoreDocs[pageSize - 1]) : null;
+            List<SearchResult> results = loadResults(searcher, hits.scoreDocs, idsOnly);
+            logger.debug("Faceted search '{}' returned {} results out of {} total hits", 
+                drillDownQuery, results.size(), hits.totalHits.value);
+            return new SearchResultsWrapper(results, hits.totalHits.value, nextCursor, facets);
+        });
+    }
+    
+    private static Map<String, List<FacetCount>> facetCounts(Facets facets, int topValues) throws IOException {
+        Map<String, List<FacetCount>> counts = new LinkedHashMap<>();
+        for (String dimension : FACET_DIMENSIONS) {
+            List<FacetCount> values = new ArrayList<>();
+            FacetResult result;
+            try {
+                result = facets.getTopChildren(topValues, dimension);
+            } catch (IllegalArgumentException e) {
+                // Dimension not present in this index
+                result = null;
+            }
+            if (result != null) {
+                for (LabelAndValue labelAndValue : result.labelValues) {
+                    values.add(new FacetCount(labelAndValue.label, labelAndValue.value.longValue()));
+                }
+            }
+            counts.put(dimension, values);
+        }
+        return counts;
+    }
+    
+    /**
+     * Facet reader state for the given reader, built once per searcher generation
+     * @return the state, or null if the index has no facet fields
+     */
+    private synchronized SortedSetDocValuesReaderState facetState(IndexReader reader) throws IOException {
+        if (reader != facetStateReader) {
+            SortedSetDocValuesReaderState state;
+            try {
+                state = new DefaultSortedSetDocValuesReaderState(reader, facetsConfig);
+            } catch (IllegalArgumentException e) {
+                state = null;
+            }
+            facetState = state;
+            facetStateReader = reader;
+        }
+        return facetState;
+    }
+    
+    /**
+     * Parse a query against all fields: through FIELD_ALL in ALL_FIELD mode, or as a combined
+     * BM25F query over the per-field postings in COMBINED mode or when the index lacks FIELD_ALL
+     * @param queryText the search query
+     * @return the parsed query
+     * @throws ParseException if query parsing fails
+     */
+    public Query parseQuery(String queryText) throws ParseException {
+        if (getEffectiveQueryMode() == QueryMode.ALL_FIELD) {
+            return new QueryParser(FIELD_ALL, analyzer).parse(queryText);
+        }
+        return new CombinedFieldQueryParser(fieldWeights(), analyzer).parse(queryText);
+    }
+    
+    /**
+     * @return the query mode searches actually use, given the configuration and the index format
+     */
+    public QueryMode getEffectiveQueryMode() {
+        return queryMode == QueryMode.ALL_FIELD && indexHasAllField ? QueryMode.ALL_FIELD : QueryMode.COMBINED;
+    }
+    
+    private Map<String, Float> fieldWeights() {
+        Map<String, Float> weights = new LinkedHashMap<>();
+        weights.put(FIELD_NAME, nameBoost);
+        weights.put(FIELD_DESCRIPTION, descriptionBoost);
+        weights.put(FIELD_KEYWORDS, keywordsBoost);
+        weights.put(FIELD_TAGS, tagsBoost);
+        weights.put(FIELD_CONTENT, contentBoost);
+        return weights;
     }
     
     /**
@@ -231,7 +1169,31 @@ public class LuceneIndexService {
     public SearchResultsWrapper searchFieldsWithOperator(Map<String, String> fieldQueries, 
                                                         BooleanClause.Occur operator,
                                                         int maxResults) throws IOException, ParseException {
-        
+        return executeSearch(buildFieldQuery(fieldQueries, operator), maxResults);
+    }
+    
+    /**
+     * Field-specific search one page at a time; see searchAfter
+     * @param fieldQueries map of field name to query text
+     * @param operator AND or OR logic between fields
+     * @param pageSize number of results per page
+     * @param cursor nextCursor of the previous page, or null for the first page
+     * @param filters latest-version and folder restrictions
+     * @return wrapper containing the page, the total hit count and the cursor for the next page
+     * @throws IOException if search fails
+     * @throws ParseException if query parsing fails
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public SearchResultsWrapper searchFieldsAfter(Map<String, String> fieldQueries,
+                                                  BooleanClause.Occur operator,
+                                                  int pageSize, String cursor, SearchFilters filters) 
+            throws IOException, ParseException {
+        Query query = buildFieldQuery(fieldQueries, operator);
+        return executeSearchAfter(applyFilters(query, filters), pageSize, cursor, false);
+    }
+    
+    private Query buildFieldQuery(Map<String, String> fieldQueries, BooleanClause.Occur operator) 
+            throws ParseException {
         BooleanQuery.Builder queryBuilder = new BooleanQuery.Builder();
         
         for (Map.Entry<String, String> entry : fieldQueries.entrySet()) {
@@ -245,7 +1207,7 @@ public class LuceneIndexService {
             }
         }
         
-        return executeSearch(queryBuilder.build(), maxResults);
+        return queryBuilder.build();
     }
     
     /**
@@ -270,55 +1232,79 @@ public class LuceneIndexService {
      * Execute a Lucene query and return results with total hit count
      */
     private SearchResultsWrapper executeSearch(Query query, int maxResults) throws IOException {
+        return executeSearch(query, maxResults, false);
+    }
+    
+    private SearchResultsWrapper executeSearch(Query query, int maxResults, boolean idsOnly) throws IOException {
         List<SearchResult> results = new ArrayList<>();
-        long totalHits = 0;
         
-        try (IndexReader reader = DirectoryReader.open(directory)) {
-            IndexSearcher searcher = new IndexSearcher(reader);
-            
+        long totalHits = withSearcher(searcher -> {
             TopDocs topDocs = searcher.search(query, maxResults);
-            totalHits = topDocs.totalHits.value;
-            
-            for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
-                org.apache.lucene.document.Document doc = searcher.doc(scoreDoc.doc);
-                
-                Long documentId = doc.getField(FIELD_ID).numericValue().longValue();
-                float score = scoreDoc.score;
-                
-                // Extract stored fields for preview
-                String name = doc.get(FIELD_NAME);
-                String description = doc.get(FIELD_DESCRIPTION);
-                String keywords = doc.get(FIELD_KEYWORDS);
-                String tags = doc.get(FIELD_TAGS);
-                
-                SearchResult result = new SearchResult(documentId, score, name, description, keywords, tags);
-                results.add(result);
-            }
-        }
+            results.addAll(loadResults(searcher, topDocs.scoreDocs, idsOnly));
+            return topDocs.totalHits.value;
+        });
         
         logger.debug("Search query '{}' returned {} results out of {} total hits", query, results.size(), totalHits);
         
         return new SearchResultsWrapper(results, totalHits);
     }
     
+    /**
+     * Execute a Lucene query sorted by score and document ID, starting after the cursor
+     */
+    private SearchResultsWrapper executeSearchAfter(Query query, int pageSize, String cursor, boolean idsOnly) 
+            throws IOException {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be at least 1");
+        }
+        FieldDoc after = cursor != null && !cursor.isBlank() ? SearchCursor.decode(cursor) : null;
+        List<SearchResult> results = new ArrayList<>();
+        String[] nextCursor = new String[1];
+        
+        long totalHits = withSearcher(searcher -> {
+            TopDocs topDocs = searcher.searchAfter(after, query, pageSize, PAGING_SORT, true);
+            results.addAll(loadResults(searcher, topDocs.scoreDocs, idsOnly));
+            if (topDocs.scoreDocs.length == pageSize) {
+                nextCursor[0] = SearchCursor.encode((FieldDoc) topDocs.scoreDocs[pageSize - 1]);
+            }
+            return topDocs.totalHits.value;
+        });
+        
+        logger.debug("Search query '{}' returned page of {} results out of {} total hits", query, results.size(), totalHits);
+        
+        return new SearchResultsWrapper(results, totalHits, nextCursor[0], null);
+    }
+    
     /**
      * Rebuild the entire index by reindexing all documents
      * @param documents list of all documents to index
      * @throws IOException if indexing fails
      */
     public void rebuildIndex(List<Document> documents) throws IOException {
-        // Clear the index
-        indexWriter.deleteAll();
-        indexWriter.commit();
+        // Let queued writes land first so they cannot resurrect cleared entries
+        flush();
         
-        // Index all documents
-        for (Document document : documents) {
-            try {
-                indexDocument(document);
-            } catch (Exception e) {
-                logger.error("Failed to index document {} during rebuild: {}", 
-                    document.getId(), e.getMessage());
+        indexLock.readLock().lock();
+        try {
+            // Clear the index; every document is rewritten in the configured format
+            long generation = indexWriter.deleteAll();
+            setIndexHasAllField(indexWriter, writeAllField);
+            suggester.clear();
+            
+            // Index all documents, bypassing the queue, with a single commit at the end
+            for (Document document : documents) {
+                try {
+                    generation = applyOperation(new IndexOperation(document.getId(), buildLuceneDocument(document)));
+                } catch (Exception e) {
+                    logger.error("Failed to index document {} during rebuild: {}", 
+                        document.getId(), e.getMessage());
+                }
             }
+            commit();
+            awaitSearchable(generation);
+            suggester.refresh();
+        } finally {
+            indexLock.readLock().unlock();
         }
         
         logger.info("Index rebuilt with {} documents", documents.size());
@@ -334,6 +1320,91 @@ public class LuceneIndexService {
         }
     }
     
+    /**
+     * Build results for a page of hits from doc values. Hits are visited in index order so each
+     * segment's doc values are read forward once; documents indexed before the display doc
+     * values existed are read from stored fields instead.
+     */
+    private List<SearchResult> loadResults(IndexSearcher searcher, ScoreDoc[] hits, boolean idsOnly) 
+            throws IOException {
+        SearchResult[] results = new SearchResult[hits.length];
+        Integer[] order = new Integer[hits.length];
+        for (int i = 0; i < hits.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingInt(i -> hits[i].doc));
+        
+        List<LeafReaderContext> leaves = searcher.getIndexReader().leaves();
+        int currentLeaf = -1;
+        LeafReaderContext leaf = null;
+        NumericDocValues ids = null;
+        BinaryDocValues names = null;
+        BinaryDocValues descriptions = null;
+        BinaryDocValues keywords = null;
+        BinaryDocValues tags = null;
+        
+        for (int i : order) {
+            ScoreDoc hit = hits[i];
+            int leafIndex = ReaderUtil.subIndex(hit.doc, leaves);
+            if (leafIndex != currentLeaf) {
+                currentLeaf = leafIndex;
+                leaf = leaves.get(leafIndex);
+                LeafReader reader = leaf.reader();
+                ids = reader.getNumericDocValues(FIELD_DOC_ID);
+                if (!idsOnly) {
+                    names = reader.getBinaryDocValues(FIELD_NAME_DV);
+                    descriptions = reader.getBinaryDocValues(FIELD_DESCRIPTION_DV);
+                    keywords = reader.getBinaryDocValues(FIELD_KEYWORDS_DV);
+                    tags = reader.getBinaryDocValues(FIELD_TAGS_DV);
+                }
+            }
+            int doc = hit.doc - leaf.docBase;
+            
+            boolean hasId = ids != null && ids.advanceExact(doc);
+            boolean hasDisplay = idsOnly || (names != null && names.advanceExact(doc));
+            if (!hasId || !hasDisplay) {
+                results[i] = loadStoredResult(searcher, hit, idsOnly);
+                continue;
+            }
+            
+            SearchResult result = new SearchResult();
+            result.setDocumentId(ids.longValue());
+            result.setScore(hit.score);
+            if (!idsOnly) {
+                result.setName(stringValue(names));
+                result.setDescription(advanceAndRead(descriptions, doc));
+                result.setKeywords(advanceAndRead(keywords, doc));
+                result.setTags(advanceAndRead(tags, doc));
+            }
+            results[i] = result;
+        }
+        return Arrays.asList(results);
+    }
+    
+    private static SearchResult loadStoredResult(IndexSearcher searcher, ScoreDoc hit, boolean idsOnly) 
+            throws IOException {
+        org.apache.lucene.document.Document doc = searcher.storedFields().document(hit.doc);
+        SearchResult result = new SearchResult();
+        result.setDocumentId(doc.getField(FIELD_ID).numericValue().longValue());
+        result.setScore(hit.score);
+        if (!idsOnly) {
+            result.setName(doc.get(FIELD_NAME));
+            result.setDescription(doc.get(FIELD_DESCRIPTION));
+            result.setKeywords(doc.get(FIELD_KEYWORDS));
+            result.setTags(doc.get(FIELD_TAGS));
+        }
+        return result;
+    }
+    
+    private static String advanceAndRead(BinaryDocValues values, int doc) throws IOException {
+        return values != null && values.advanceExact(doc) ? stringValue(values) : null;
+    }
+    
+    private static String stringValue(BinaryDocValues values) throws IOException {
+        BytesRef bytes = values.binaryValue();
+        return bytes.length > 0 ? bytes.utf8ToString() : null;
+    }
+    
     /**
      * Get index statistics
      * @return map of statistics
@@ -342,12 +1413,303 @@ public class LuceneIndexService {
     public Map<String, Object> getIndexStats() throws IOException {
         Map<String, Object> stats = new HashMap<>();
         
-        try (IndexReader reader = DirectoryReader.open(directory)) {
+        withSearcher(searcher -> {
+            IndexReader reader = searcher.getIndexReader();
             stats.put("documentCount", reader.numDocs());
             stats.put("maxDoc", reader.maxDoc());
             stats.put("deletedDocs", reader.numDeletedDocs());
-        }
+            return null;
+        });
+        stats.put("queuedWrites", writeQueue.size());
+        stats.put("uncommittedOperations", uncommittedOperations.get());
+        stats.put("lastCommitAt", java.time.Instant.ofEpochMilli(lastCommitMillis).toString());
+        stats.put("rebuildInProgress", rebuildTrackedIds != null);
+        stats.put("allFieldIndexed", indexHasAllField);
+        stats.put("queryMode", getEffectiveQueryMode().name());
+        stats.put("suggestionCount", suggester.size());
         
         return stats;
     }
+    
+    /**
+     * Force the shared searcher to reflect all changes made so far
+     * @throws IOException if the refresh fails
+     */
+    public void refreshSearcher() throws IOException {
+        indexLock.readLock().lock();
+        try {
+            searcherManager.maybeRefreshBlocking();
+            suggester.refresh();
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Open a writer on an empty side directory next to the live index.
+     * Writes to the live index are tracked from now on so they can be replayed
+     * after {@link #swapInRebuiltIndex(IndexWriter)}.
+     * @return writer for the side index
+     * @throws IOException if the side directory cannot be created
+     */
+    public IndexWriter openRebuildWriter() throws IOException {
+        Path rebuildPath = siblingPath(REBUILD_SUFFIX);
+        deleteRecursively(rebuildPath);
+        Files.createDirectories(rebuildPath);
+        
+        IndexWriterConfig config = new IndexWriterConfig(analyzer);
+        config.setOpenMode(IndexWriterConfig.OpenMode.CREATE);
+        config.setRAMBufferSizeMB(rebuildRamBufferMb);
+        
+        rebuildTrackedIds = ConcurrentHashMap.newKeySet();
+        IndexWriter rebuildWriter = new IndexWriter(FSDirectory.open(rebuildPath), config);
+        setIndexHasAllField(rebuildWriter, writeAllField);
+        return rebuildWriter;
+    }
+    
+    /**
+     * Replace the live index with a fully built side index. Searches are only
+     * blocked for the duration of the directory rename and writer reopen.
+     * @param rebuildWriter writer returned by {@link #openRebuildWriter()}
+     * @return IDs of documents written to the old live index while the rebuild ran
+     * @throws IOException if the swap fails; the previous live index is restored
+     */
+    public Set<Long> swapInRebuiltIndex(IndexWriter rebuildWriter) throws IOException {
+        // Drain queued writes into the old index; their IDs are tracked for replay
+        flush();
+        
+        Directory rebuildDirectory = rebuildWriter.getDirectory();
+        rebuildWriter.commit();
+        rebuildWriter.close();
+        rebuildDirectory.close();
+        
+        Path livePath = liveIndexPath();
+        Path rebuildPath = siblingPath(REBUILD_SUFFIX);
+        Path retiredPath = siblingPath(RETIRED_SUFFIX);
+        
+        indexLock.writeLock().lock();
+        try {
+            closeLiveIndex();
+            deleteRecursively(retiredPath);
+            try {
+                Files.move(livePath, retiredPath, StandardCopyOption.ATOMIC_MOVE);
+                Files.move(rebuildPath, livePath, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                // Put the previous index back before reopening
+                if (!Files.exists(livePath) && Files.exists(retiredPath)) {
+                    Files.move(retiredPath, livePath, StandardCopyOption.ATOMIC_MOVE);
+                }
+                openLiveIndex();
+                throw e;
+            }
+            openLiveIndex();
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+        
+        deleteRecursively(retiredPath);
+        loadSuggestions();
+        Set<Long> tracked = rebuildTrackedIds;
+        rebuildTrackedIds = null;
+        logger.info("Swapped rebuilt index into {}", livePath);
+        return tracked != null ? tracked : Set.of();
+    }
+    
+    /**
+     * Discard a side index after a failed rebuild and stop tracking live writes
+     * @param rebuildWriter writer returned by {@link #openRebuildWriter()}
+     */
+    public void abortRebuild(IndexWriter rebuildWriter) {
+        rebuildTrackedIds = null;
+        try {
+            Directory rebuildDirectory = rebuildWriter.getDirectory();
+            rebuildWriter.rollback();
+            rebuildDirectory.close();
+            deleteRecursively(siblingPath(REBUILD_SUFFIX));
+        } catch (IOException e) {
+            logger.warn("Failed to clean up side index after aborted rebuild", e);
+        }
+    }
+    
+    /**
+     * Read the bookkeeping values of every live document in the index.
+     * Documents indexed before these fields existed are reported with null
+     * modifiedAt/fingerprint so they are treated as stale.
+     * @return map of document ID to its indexed state
+     * @throws IOException if the index cannot be read
+     */
+    public Map<Long, IndexedDocumentState> readIndexedDocumentStates() throws IOException {
+        return withSearcher(searcher -> {
+            Map<Long, IndexedDocumentState> states = new HashMap<>();
+            for (LeafReaderContext leaf : searcher.getIndexReader().leaves()) {
+                LeafReader reader = leaf.reader();
+                Bits liveDocs = reader.getLiveDocs();
+                NumericDocValues ids = reader.getNumericDocValues(FIELD_DOC_ID);
+                NumericDocValues modified = reader.getNumericDocValues(FIELD_MODIFIED_AT);
+                SortedDocValues fingerprints = reader.getSortedDocValues(FIELD_CONTENT_FINGERPRINT);
+                StoredFields storedFields = reader.storedFields();
+                
+                for (int doc = 0; doc < reader.maxDoc(); doc++) {
+                    if (liveDocs != null && !liveDocs.get(doc)) {
+                        continue;
+                    }
+                    Long documentId;
+                    if (ids != null && ids.advanceExact(doc)) {
+                        documentId = ids.longValue();
+                    } else {
+                        IndexableField idField = storedFields.document(doc, Set.of(FIELD_ID)).getField(FIELD_ID);
+                        if (idField == null) {
+                            continue;
+                        }
+                        documentId = idField.numericValue().longValue();
+                    }
+                    Long modifiedAt = modified != null && modified.advanceExact(doc) ? modified.longValue() : null;
+                    String fingerprint = fingerprints != null && fingerprints.advanceExact(doc)
+                        ? fingerprints.lookupOrd(fingerprints.ordValue()).utf8ToString() : null;
+                    
+                    IndexedDocumentState previous = states.get(documentId);
+                    states.put(documentId, new IndexedDocumentState(modifiedAt, fingerprint, 
+                        previous != null ? previous.getCopies() + 1 : 1));
+                }
+            }
+            return states;
+        });
+    }
+    
+    /**
+     * Fingerprint of a document's indexable content rows (content ID and modification time)
+     * @param contentVersions map of content ID to modification time in epoch millis
+     * @return hex-encoded SHA-256 fingerprint
+     */
+    public static String contentFingerprint(SortedMap<Long, Long> contentVersions) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Map.Entry<Long, Long> entry : contentVersions.entrySet()) {
+                digest.update((entry.getKey() + ":" + entry.getValue() + ";").getBytes(StandardCharsets.UTF_8));
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
+    /**
+     * Convert a timestamp to the millisecond precision stored in the index
+     */
+    public static long toEpochMillis(LocalDateTime timestamp) {
+        return timestamp.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+    
+    /**
+     * Run a callback against the current shared searcher, releasing it afterwards
+     */
+    private <T> T withSearcher(SearcherCallback<T> callback) throws IOException {
+        SearcherManager manager;
+        IndexSearcher searcher;
+        indexLock.readLock().lock();
+        try {
+            manager = searcherManager;
+            searcher = manager.acquire();
+        } finally {
+            indexLock.readLock().unlock();
+        }
+        try {
+            return callback.apply(searcher);
+        } finally {
+            manager.release(searcher);
+        }
+    }
+    
+    private Path liveIndexPath() {
+        return Paths.get(indexDirectoryPath).toAbsolutePath().normalize();
+    }
+    
+    private Path siblingPath(String suffix) {
+        Path livePath = liveIndexPath();
+        return livePath.resolveSibling(livePath.getFileName() + suffix);
+    }
+    
+    private static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(path)) {
+            for (Path p : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.deleteIfExists(p);
+            }
+        }
+    }
+    
+    /**
+     * Block until the shared searcher reflects the given writer generation.
+     * Only waits when refresh-after-write is enabled; otherwise the background
+     * reopen thread picks the change up within the configured interval.
+     */
+    private void awaitSearchable(long generation) {
+        if (!refreshAfterWrite) {
+            return;
+        }
+        try {
+            reopenThread.waitForGeneration(generation);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Interrupted while waiting for searcher refresh (generation {})", generation);
+        }
+    }
+    
+    /**
+     * Bookkeeping values stored in the index for one document
+     */
+    public static class IndexedDocumentState {
+        private final Long modifiedAt;
+        private final String contentFingerprint;
+        private final int copies;
+        
+        public IndexedDocumentState(Long modifiedAt, String contentFingerprint, int copies) {
+            this.modifiedAt = modifiedAt;
+            this.contentFingerprint = contentFingerprint;
+            this.copies = copies;
+        }
+        
+        public Long getModifiedAt() {
+            return modifiedAt;
+        }
+        
+        public String getContentFingerprint() {
+            return contentFingerprint;
+        }
+        
+        public int getCopies() {
+            return copies;
+        }
+    }
+    
+    @FunctionalInterface
+    private interface SearcherCallback<T> {
+        T apply(IndexSearcher searcher) throws IOException;
+    }
+    
+    /**
+     * A queued index mutation: add/replace when luceneDoc is set, delete otherwise
+     */
+    private static final class IndexOperation {
+        private final Long documentId;
+        private final org.apache.lucene.document.Document luceneDoc;
+        // Set for an in-place is_latest update instead of an add or delete
+        private final boolean superseded;
+        
+        private IndexOperation(Long documentId, org.apache.lucene.document.Document luceneDoc) {
+            this(documentId, luceneDoc, false);
+        }
+        
+        private IndexOperation(Long documentId, org.apache.lucene.document.Document luceneDoc, boolean superseded) {
+            this.documentId = documentId;
+            this.luceneDoc = luceneDoc;
+            this.superseded = superseded;
+        }
+        
+        private static IndexOperation superseded(Long documentId) {
+            return new IndexOperation(documentId, null, true);
+        }
+    }
 }
@@ -0,0 +1,64 @@
+package com.docmgmt.search;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.Vector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD dot product using the JDK Vector API. Only instantiated by
+ * {@link VectorScorer#create(boolean)} when jdk.incubator.vector is available.
+ */
+class PanamaVectorScorer implements VectorScorer {
+    
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+    
+    // int8 products are widened to short (no overflow for |x| <= 128) then summed as int
+    private static final VectorSpecies<Byte> BYTE_SPECIES = ByteVector.SPECIES_64;
+    private static final VectorSpecies<Short> SHORT_SPECIES = ShortVector.SPECIES_128;
+    private static final VectorSpecies<Integer> INT_SPECIES = IntVector.SPECIES_256;
+    
+    @Override
+    public float dotProduct(float[] query, float[] block, int offset, int length) {
+        FloatVector acc = FloatVector.zero(SPECIES);
+        int i = 0;
+        int bound = SPECIES.loopBound(length);
+        for (; i < bound; i += SPECIES.length()) {
+            FloatVector q = FloatVector.fromArray(SPECIES, query, i);
+            FloatVector m = FloatVector.fromArray(SPECIES, block, offset + i);
+            acc = q.fma(m, acc);
+        }
+        float sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            sum += query[i] * block[offset + i];
+        }
+        return sum;
+    }
+    
+    @Override
+    public int dotProduct(byte[] query, byte[] block, int offset, int length) {
+        IntVector acc = IntVector.zero(INT_SPECIES);
+        int i = 0;
+        int bound = BYTE_SPECIES.loopBound(length);
+        for (; i < bound; i += BYTE_SPECIES.length()) {
+            ByteVector q = ByteVector.fromArray(BYTE_SPECIES, query, i);
+            ByteVector m = ByteVector.fromArray(BYTE_SPECIES, block, offset + i);
+            Vector<Short> product = q.convertShape(VectorOperators.B2S, SHORT_SPECIES, 0)
+                .mul(m.convertShape(VectorOperators.B2S, SHORT_SPECIES, 0));
+            acc = acc.add(product.convertShape(VectorOperators.S2I, INT_SPECIES, 0));
+        }
+        int sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            sum += query[i] * block[offset + i];
+        }
+        return sum;
+    }
+    
+    @Override
+    public String getName() {
+        return "vector-api-" + SPECIES.vectorBitSize() + "bit";
+    }
+}
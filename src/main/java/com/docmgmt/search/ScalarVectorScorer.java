@@ -0,0 +1,41 @@
+package com.docmgmt.search;
+
+/**
+ * Portable scalar dot product, unrolled so the JIT can keep several accumulators busy
+ */
+public class ScalarVectorScorer implements VectorScorer {
+    
+    @Override
+    public float dotProduct(float[] query, float[] block, int offset, int length) {
+        float s0 = 0f;
+        float s1 = 0f;
+        float s2 = 0f;
+        float s3 = 0f;
+        int i = 0;
+        int bound = length & ~3;
+        for (; i < bound; i += 4) {
+            s0 += query[i] * block[offset + i];
+            s1 += query[i + 1] * block[offset + i + 1];
+            s2 += query[i + 2] * block[offset + i + 2];
+            s3 += query[i + 3] * block[offset + i + 3];
+        }
+        for (; i < length; i++) {
+            s0 += query[i] * block[offset + i];
+        }
+        return s0 + s1 + s2 + s3;
+    }
+    
+    @Override
+    public int dotProduct(byte[] query, byte[] block, int offset, int length) {
+        int sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum += query[i] * block[offset + i];
+        }
+        return sum;
+    }
+    
+    @Override
+    public String getName() {
+        return "scalar";
+    }
+}
@@ -0,0 +1,61 @@
+package com.docmgmt.search;
+
+import org.apache.lucene.search.FieldDoc;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+/**
+ * Opaque cursor for search-after pagination. It encodes the sort values of the last hit on a
+ * page, the score and the document ID, rather than a Lucene doc number, so a cursor stays valid
+ * after the searcher is refreshed or segments are merged.
+ */
+final class SearchCursor {
+    
+    private static final byte VERSION = 1;
+    private static final int LENGTH = 1 + Float.BYTES + Long.BYTES;
+    
+    private SearchCursor() {
+    }
+    
+    /**
+     * @param score score of the last hit on the page
+     * @param documentId document ID of the last hit on the page
+     * @return URL-safe cursor string
+     */
+    static String encode(float score, long documentId) {
+        ByteBuffer buffer = ByteBuffer.allocate(LENGTH);
+        buffer.put(VERSION).putFloat(score).putLong(documentId);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+    
+    /**
+     * Encode the position after a hit sorted by score and document ID
+     */
+    static String encode(FieldDoc hit) {
+        return encode((Float) hit.fields[0], (Long) hit.fields[1]);
+    }
+    
+    /**
+     * Decode a cursor into the hit to search after
+     * @param cursor cursor produced by encode
+     * @return hit with the cursor's sort values
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    static FieldDoc decode(String cursor) {
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid search cursor", e);
+        }
+        if (bytes.length != LENGTH || bytes[0] != VERSION) {
+            throw new IllegalArgumentException("Invalid search cursor");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 1, LENGTH - 1);
+        float score = buffer.getFloat();
+        long documentId = buffer.getLong();
+        // The document ID sort value is unique, so the doc number tiebreak is never reached
+        return new FieldDoc(Integer.MAX_VALUE, score, new Object[] {score, documentId});
+    }
+}
@@ -0,0 +1,27 @@
+package com.docmgmt.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Non-scoring restrictions applied to a search on top of its query
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchFilters {
+    /** Leave out documents that have a newer version */
+    private boolean latestOnly;
+    /** Only documents filed in this folder or any of its subfolders */
+    private Long folderId;
+    
+    /**
+     * @return filters that restrict nothing
+     */
+    public static SearchFilters none() {
+        return new SearchFilters();
+    }
+}
@@ -5,6 +5,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * Wrapper class that contains search results and metadata about the search
@@ -15,12 +16,20 @@ import java.util.List;
 public class SearchResultsWrapper {
     private List<SearchResult> results;
     private long totalHits;
+    // Cursor for the next page of a search-after query; null when there are no more results
+    private String nextCursor;
+    // Facet dimension to its top values and counts; null unless facets were requested
+    private Map<String, List<FacetCount>> facets;
+    
+    public SearchResultsWrapper(List<SearchResult> results, long totalHits) {
+        this(results, totalHits, null, null);
+    }
     
     /**
      * Check if there are more results than what was returned
      */
     public boolean hasMoreResults() {
-        return totalHits > results.size();
+        return nextCursor != null || totalHits > results.size();
     }
     
     /**
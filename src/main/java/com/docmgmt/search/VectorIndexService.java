@@ -0,0 +1,454 @@
+package com.docmgmt.search;
+
+import com.docmgmt.model.DocumentEmbedding;
+import com.docmgmt.repository.DocumentEmbeddingRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.lucene.codecs.KnnVectorsFormat;
+import org.apache.lucene.codecs.KnnVectorsReader;
+import org.apache.lucene.codecs.KnnVectorsWriter;
+import org.apache.lucene.codecs.lucene99.Lucene99Codec;
+import org.apache.lucene.codecs.lucene99.Lucene99HnswScalarQuantizedVectorsFormat;
+import org.apache.lucene.codecs.lucene99.Lucene99HnswVectorsFormat;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.KnnFloatVectorField;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.SegmentReadState;
+import org.apache.lucene.index.SegmentWriteState;
+import org.apache.lucene.index.VectorSimilarityFunction;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.KnnFloatVectorQuery;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Approximate nearest-neighbour index of document embeddings, backed by Lucene HNSW
+ * vector fields in a directory of its own. Kept in sync with DocumentEmbedding writes
+ * by DocumentEmbeddingIndexListener, and rebuilt from the database at startup when the
+ * two disagree. Writes become searchable at the next periodic searcher refresh.
+ */
+@Service
+public class VectorIndexService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(VectorIndexService.class);
+    
+    public static final String FIELD_DOC_ID = "doc_id";
+    public static final String FIELD_VECTOR = "embedding";
+    
+    // Lucene's default limit is 1024 dimensions; llama3.2 embeddings are larger
+    private static final int MAX_DIMENSIONS = 8192;
+    
+    @Value("${lucene.vector.directory:${lucene.index.directory:./lucene_index}-vectors}")
+    private String vectorDirectoryPath;
+    
+    @Value("${docmgmt.similarity.hnsw.max-conn:16}")
+    private int maxConn;
+    
+    @Value("${docmgmt.similarity.hnsw.beam-width:100}")
+    private int beamWidth;
+    
+    @Value("${docmgmt.similarity.hnsw.num-candidates:100}")
+    private int numCandidates;
+    
+    @Value("${docmgmt.similarity.hnsw.quantized:false}")
+    private boolean quantized;
+    
+    @Value("${docmgmt.similarity.hnsw.sync-on-startup:true}")
+    private boolean syncOnStartup;
+    
+    @Value("${lucene.rebuild.page-size:500}")
+    private int pageSize;
+    
+    private final DocumentEmbeddingRepository embeddingRepository;
+    private final ObjectMapper objectMapper;
+    
+    private Directory directory;
+    private IndexWriter indexWriter;
+    private SearcherManager searcherManager;
+    
+    private final AtomicBoolean uncommitted = new AtomicBoolean(false);
+    private final AtomicBoolean unrefreshed = new AtomicBoolean(false);
+    private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+    private volatile boolean ready = false;
+    
+    // Documents written by indexVector/removeVector during a rebuild; the rebuild skips their
+    // database rows, which may be older. Guarded by rebuildLock, null when no rebuild runs.
+    private final Object rebuildLock = new Object();
+    private Set<Long> changedDuringRebuild;
+    
+    public VectorIndexService(DocumentEmbeddingRepository embeddingRepository, ObjectMapper objectMapper) {
+        this.embeddingRepository = embeddingRepository;
+        this.objectMapper = objectMapper;
+    }
+    
+    @PostConstruct
+    public void initialize() throws IOException {
+        Path path = Paths.get(vectorDirectoryPath);
+        Files.createDirectories(path);
+        directory = FSDirectory.open(path);
+        
+        // The quantized format keeps int8 copies for graph search next to the float vectors;
+        // existing segments keep the format they were written with until merged
+        KnnVectorsFormat baseFormat = quantized
+            ? new Lucene99HnswScalarQuantizedVectorsFormat(maxConn, beamWidth)
+            : new Lucene99HnswVectorsFormat(maxConn, beamWidth);
+        KnnVectorsFormat vectorsFormat = new HighDimensionVectorsFormat(baseFormat, MAX_DIMENSIONS);
+        IndexWriterConfig config = new IndexWriterConfig();
+        config.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+        config.setCodec(new Lucene99Codec() {
+            @Override
+            public KnnVectorsFormat getKnnVectorsFormatForField(String field) {
+                return vectorsFormat;
+            }
+        });
+        indexWriter = new IndexWriter(directory, config);
+        searcherManager = new SearcherManager(indexWriter, null);
+        
+        logger.info("Vector index initialized at: {} (maxConn {}, beamWidth {}, quantized {})",
+            path, maxConn, beamWidth, quantized);
+    }
+    
+    @PreDestroy
+    public void shutdown() throws IOException {
+        if (searcherManager != null) {
+            searcherManager.close();
+        }
+        if (indexWriter != null) {
+            indexWriter.commit();
+            indexWriter.close();
+        }
+        if (directory != null) {
+            directory.close();
+        }
+    }
+    
+    /**
+     * Rebuild the index in the background if it does not match the stored embeddings
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void syncOnStartup() {
+        if (!syncOnStartup) {
+            ready = true;
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                long stored = embeddingRepository.count();
+                if (getIndexedCount() != stored) {
+                    logger.info("Vector index has {} vectors but {} embeddings are stored; rebuilding",
+                        getIndexedCount(), stored);
+                    rebuild();
+                } else {
+                    ready = true;
+                }
+            } catch (Exception e) {
+                logger.error("Failed to synchronize vector index", e);
+            }
+        }, "lucene-vector-sync");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    /**
+     * Add or replace the vector of a document
+     * @param documentId the document ID
+     * @param vector the embedding vector
+     * @throws IOException if the index cannot be written
+     */
+    public void indexVector(Long documentId, float[] vector) throws IOException {
+        synchronized (rebuildLock) {
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.add(documentId);
+            }
+            addVector(documentId, vector);
+        }
+        unrefreshed.set(true);
+    }
+    
+    private void addVector(Long documentId, float[] vector) throws IOException {
+        Document doc = new Document();
+        doc.add(new LongPoint(FIELD_DOC_ID, documentId));
+        doc.add(new StoredField(FIELD_DOC_ID, documentId));
+        doc.add(new KnnFloatVectorField(FIELD_VECTOR, vector, VectorSimilarityFunction.COSINE));
+        
+        indexWriter.deleteDocuments(LongPoint.newExactQuery(FIELD_DOC_ID, documentId));
+        indexWriter.addDocument(doc);
+        uncommitted.set(true);
+    }
+    
+    /**
+     * Remove the vector of a document
+     * @param documentId the document ID
+     * @throws IOException if the index cannot be written
+     */
+    public void removeVector(Long documentId) throws IOException {
+        synchronized (rebuildLock) {
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.add(documentId);
+            }
+            indexWriter.deleteDocuments(LongPoint.newExactQuery(FIELD_DOC_ID, documentId));
+        }
+        uncommitted.set(true);
+        unrefreshed.set(true);
+    }
+    
+    /**
+     * Find the nearest neighbours of a vector by cosine similarity
+     * @param vector the query vector
+     * @param limit maximum number of results
+     * @param excludeId document to leave out of the results (may be null)
+     * @return hits ordered by descending similarity
+     * @throws IOException if the index cannot be read
+     */
+    public List<VectorHit> search(float[] vector, int limit, Long excludeId) throws IOException {
+        int k = excludeId != null ? limit + 1 : limit;
+        KnnFloatVectorQuery query = new KnnFloatVectorQuery(FIELD_VECTOR, vector, Math.max(k, numCandidates));
+        
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            TopDocs topDocs = searcher.search(query, k);
+            List<VectorHit> hits = new ArrayList<>(topDocs.scoreDocs.length);
+            for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+                Long documentId = searcher.storedFields().document(scoreDoc.doc, Set.of(FIELD_DOC_ID))
+                    .getField(FIELD_DOC_ID).numericValue().longValue();
+                if (documentId.equals(excludeId)) {
+                    continue;
+                }
+                // Lucene scores cosine as (1 + cos) / 2
+                hits.add(new VectorHit(documentId, 2.0 * scoreDoc.score - 1.0));
+                if (hits.size() == limit) {
+                    break;
+                }
+            }
+            return hits;
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+    
+    /**
+     * Replace the index contents with every embedding stored in the database. Vectors
+     * written or removed while the rebuild runs are kept as written, not replaced by the
+     * rows the rebuild reads.
+     * @throws IOException if the index cannot be written
+     */
+    public void rebuild() throws IOException {
+        if (!rebuilding.compareAndSet(false, true)) {
+            throw new IllegalStateException("A vector index rebuild is already in progress");
+        }
+        ready = false;
+        try {
+            synchronized (rebuildLock) {
+                changedDuringRebuild = new HashSet<>();
+                // deleteAll also resets the field schema, so a change of embedding dimension is allowed
+                indexWriter.deleteAll();
+            }
+            long afterId = 0L;
+            int indexed = 0;
+            while (true) {
+                List<Object[]> page = embeddingRepository.findEmbeddingPageAfterId(afterId, PageRequest.of(0, pageSize));
+                if (page.isEmpty()) {
+                    break;
+                }
+                for (Object[] row : page) {
+                    afterId = (Long) row[0];
+                    Long documentId = (Long) row[1];
+                    try {
+                        float[] vector = row[2] != null
+                            ? DocumentEmbedding.toFloats((byte[]) row[2])
+                            : parseVector((String) row[3]);
+                        synchronized (rebuildLock) {
+                            if (changedDuringRebuild.contains(documentId)) {
+                                continue;
+                            }
+                            addVector(documentId, vector);
+                        }
+                        indexed++;
+                    } catch (Exception e) {
+                        logger.warn("Skipping embedding of document {}: {}", documentId, e.getMessage());
+                    }
+                }
+            }
+            commit();
+            searcherManager.maybeRefreshBlocking();
+            logger.info("Vector index rebuilt with {} vectors", indexed);
+        } finally {
+            synchronized (rebuildLock) {
+                changedDuringRebuild = null;
+            }
+            rebuilding.set(false);
+            ready = true;
+        }
+    }
+    
+    /**
+     * Periodically commit vector writes
+     */
+    @Scheduled(fixedDelayString = "${lucene.index.commit.interval-ms:5000}")
+    public void commitIfPending() {
+        if (uncommitted.get() && !rebuilding.get()) {
+            try {
+                commit();
+            } catch (IOException e) {
+                logger.error("Failed to commit vector index", e);
+            }
+        }
+    }
+    
+    /**
+     * Periodically make vector writes searchable, so a burst of embedding saves costs one reopen
+     */
+    @Scheduled(fixedDelayString = "${lucene.searcher.refresh-interval-ms:1000}")
+    public void refreshIfPending() {
+        if (unrefreshed.getAndSet(false)) {
+            try {
+                searcherManager.maybeRefresh();
+            } catch (IOException e) {
+                unrefreshed.set(true);
+                logger.error("Failed to refresh vector index searcher", e);
+            }
+        }
+    }
+    
+    /**
+     * Force the searcher to reflect all vector writes made so far
+     * @throws IOException if the refresh fails
+     */
+    public void refreshSearcher() throws IOException {
+        unrefreshed.set(false);
+        searcherManager.maybeRefreshBlocking();
+    }
+    
+    /**
+     * Whether the index has been synchronized with the database and can serve queries
+     */
+    public boolean isReady() {
+        return ready;
+    }
+    
+    /**
+     * Whether graph search uses int8-quantized vectors (scores are approximate)
+     */
+    public boolean isQuantized() {
+        return quantized;
+    }
+    
+    /**
+     * Number of vectors in the index
+     * @throws IOException if the index cannot be read
+     */
+    public int getIndexedCount() throws IOException {
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            return searcher.getIndexReader().numDocs();
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+    
+    /**
+     * Get vector index statistics
+     * @throws IOException if the index cannot be read
+     */
+    public Map<String, Object> getStats() throws IOException {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("vectorCount", getIndexedCount());
+        stats.put("ready", ready);
+        stats.put("rebuilding", rebuilding.get());
+        stats.put("maxConn", maxConn);
+        stats.put("beamWidth", beamWidth);
+        stats.put("numCandidates", numCandidates);
+        stats.put("quantized", quantized);
+        return stats;
+    }
+    
+    private void commit() throws IOException {
+        uncommitted.set(false);
+        indexWriter.commit();
+    }
+    
+    /**
+     * Parse a legacy JSON embedding that has not been migrated to binary yet
+     */
+    private float[] parseVector(String embeddingJson) throws IOException {
+        return objectMapper.readValue(embeddingJson, float[].class);
+    }
+    
+    /**
+     * A nearest-neighbour hit
+     */
+    public static class VectorHit {
+        private final Long documentId;
+        private final double similarity;
+        
+        public VectorHit(Long documentId, double similarity) {
+            this.documentId = documentId;
+            this.similarity = similarity;
+        }
+        
+        public Long getDocumentId() {
+            return documentId;
+        }
+        
+        public double getSimilarity() {
+            return similarity;
+        }
+    }
+    
+    /**
+     * Delegates to a vectors format but raises its dimension limit. It keeps the delegate's
+     * name, so segments remain readable by the standard codec.
+     */
+    private static final class HighDimensionVectorsFormat extends KnnVectorsFormat {
+        private final KnnVectorsFormat delegate;
+        private final int maxDimensions;
+        
+        private HighDimensionVectorsFormat(KnnVectorsFormat delegate, int maxDimensions) {
+            super(delegate.getName());
+            this.delegate = delegate;
+            this.maxDimensions = maxDimensions;
+        }
+        
+        @Override
+        public KnnVectorsWriter fieldsWriter(SegmentWriteState state) throws IOException {
+            return delegate.fieldsWriter(state);
+        }
+        
+        @Override
+        public KnnVectorsReader fieldsReader(SegmentReadState state) throws IOException {
+            return delegate.fieldsReader(state);
+        }
+        
+        @Override
+        public int getMaxDimensions(String fieldName) {
+            return maxDimensions;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.docmgmt.search;
+
+/**
+ * Dot product kernel used by the in-memory embedding matrix.
+ * Implementations must be stateless and thread-safe.
+ */
+public interface VectorScorer {
+    
+    /**
+     * Dot product of a query vector with one row of a matrix block
+     * @param query the query vector
+     * @param block the matrix block holding the row
+     * @param offset start of the row within the block
+     * @param length number of components
+     * @return the dot product
+     */
+    float dotProduct(float[] query, float[] block, int offset, int length);
+    
+    /**
+     * Dot product of an int8 query vector with one int8 row of a matrix block
+     * @param query the quantized query vector
+     * @param block the quantized matrix block holding the row
+     * @param offset start of the row within the block
+     * @param length number of components
+     * @return the integer dot product
+     */
+    int dotProduct(byte[] query, byte[] block, int offset, int length);
+    
+    /**
+     * Name of the implementation, for statistics
+     */
+    String getName();
+    
+    /**
+     * Get the fastest scorer available in this JVM: the JDK Vector API when the
+     * jdk.incubator.vector module is present (--add-modules jdk.incubator.vector),
+     * otherwise a plain scalar loop.
+     * @param allowVectorApi false to force the scalar implementation
+     */
+    static VectorScorer create(boolean allowVectorApi) {
+        if (allowVectorApi && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                // Loaded reflectively so the class is never resolved without the module
+                return (VectorScorer) Class.forName("com.docmgmt.search.PanamaVectorScorer")
+                    .getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // Fall through to the scalar implementation
+            }
+        }
+        return new ScalarVectorScorer();
+    }
+}
@@ -0,0 +1,49 @@
+package com.docmgmt.service;
+
+/**
+ * Published by ContentService when content belonging to a document is created, saved, replaced,
+ * moved between stores, deleted, or gains a rendition, so the owning document's indexed
+ * content can be refreshed.
+ */
+public class ContentChangedEvent {
+    
+    /**
+     * Kind of content change
+     */
+    public enum ChangeType {
+        CREATED,
+        UPDATED,
+        RENDITION_ADDED,
+        PRIMARY_UPDATED,
+        MOVED,
+        DELETED
+    }
+    
+    private final Long documentId;
+    private final Long contentId;
+    private final ChangeType changeType;
+    
+    public ContentChangedEvent(Long documentId, Long contentId, ChangeType changeType) {
+        this.documentId = documentId;
+        this.contentId = contentId;
+        this.changeType = changeType;
+    }
+    
+    public Long getDocumentId() {
+        return documentId;
+    }
+    
+    public Long getContentId() {
+        return contentId;
+    }
+    
+    public ChangeType getChangeType() {
+        return changeType;
+    }
+    
+    @Override
+    public String toString() {
+        return "ContentChangedEvent{documentId=" + documentId + ", contentId=" + contentId
+            + ", changeType=" + changeType + "}";
+    }
+}
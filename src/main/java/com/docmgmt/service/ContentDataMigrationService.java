@@ -0,0 +1,179 @@
+package com.docmgmt.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Moves database-stored content bytes from the legacy content.content column into the
+ * content_data table. Rows are moved in keyset pages with plain JDBC, one transaction per
+ * page, and the bytes are copied inside the database rather than read into memory.
+ * Unmoved rows read as empty, so the job runs before the application serves requests.
+ * The emptied column is kept: dropping it cannot be undone, so it is a separate step that
+ * is only taken when enabled and after checking that no row still depends on it.
+ */
+@Service
+@DependsOn("entityManagerFactory")
+public class ContentDataMigrationService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ContentDataMigrationService.class);
+    
+    @Value("${docmgmt.content.migrate-database-bytes-on-startup:true}")
+    private boolean migrateOnStartup;
+    
+    @Value("${docmgmt.content.migration.page-size:100}")
+    private int pageSize;
+    
+    @Value("${docmgmt.content.drop-legacy-column-on-startup:false}")
+    private boolean dropLegacyColumnOnStartup;
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    
+    public ContentDataMigrationService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+    
+    /**
+     * Move remaining legacy bytes after Hibernate has updated the schema, then drop the
+     * emptied column if that is enabled. A failure stops startup, since the application
+     * would otherwise serve and index unmoved content as empty.
+     * @throws IllegalStateException if the migration or the enabled column drop fails
+     */
+    @PostConstruct
+    public void migrateOnStartup() {
+        if (!migrateOnStartup) {
+            return;
+        }
+        try {
+            migrateLegacyContent();
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("Content data migration failed; unmoved content would read as empty", e);
+        }
+        if (dropLegacyColumnOnStartup) {
+            dropLegacyColumn();
+        }
+    }
+    
+    /**
+     * Move all bytes in the legacy column to content_data, leaving the column empty
+     * @return number of rows moved
+     * @throws IllegalStateException if a migration is already running
+     */
+    public long migrateLegacyContent() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("A content data migration is already in progress");
+        }
+        try {
+            if (!hasLegacyColumn()) {
+                return 0;
+            }
+            long moved = 0;
+            long afterId = 0L;
+            while (true) {
+                List<Long> page = jdbcTemplate.queryForList(
+                    "SELECT id FROM content WHERE content IS NOT NULL AND id > ? ORDER BY id LIMIT ?",
+                    Long.class, afterId, pageSize);
+                if (page.isEmpty()) {
+                    break;
+                }
+                transactionTemplate.executeWithoutResult(status -> page.forEach(this::moveRow));
+                moved += page.size();
+                afterId = page.get(page.size() - 1);
+            }
+            if (moved > 0) {
+                logger.info("Content data migration complete. Moved: {}", moved);
+            }
+            return moved;
+        } finally {
+            running.set(false);
+        }
+    }
+    
+    private void moveRow(Long contentId) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO content_data (content_bytes) SELECT content FROM content WHERE id = ?",
+                new String[] {"id"});
+            statement.setLong(1, contentId);
+            return statement;
+        }, keyHolder);
+        // Recorded sizes let grids show the size without reading the bytes
+        jdbcTemplate.update(
+            "UPDATE content SET content_data_id = ?, size_bytes = COALESCE(size_bytes, OCTET_LENGTH(content)), " +
+            "content = NULL WHERE id = ?",
+            keyHolder.getKey().longValue(), contentId);
+    }
+    
+    /**
+     * Drop the legacy column once no row depends on it: none may still hold bytes there, and
+     * every content_data reference must resolve
+     * @return true if the column was dropped, false if there was none
+     * @throws IllegalStateException if rows still depend on the column, or a migration is running
+     */
+    public boolean dropLegacyColumn() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("A content data migration is already in progress");
+        }
+        try {
+            if (!hasLegacyColumn()) {
+                return false;
+            }
+            long unmoved = count("SELECT COUNT(*) FROM content WHERE content IS NOT NULL");
+            long dangling = count("SELECT COUNT(*) FROM content c LEFT JOIN content_data d ON d.id = c.content_data_id " +
+                "WHERE c.content_data_id IS NOT NULL AND d.id IS NULL");
+            if (unmoved > 0 || dangling > 0) {
+                throw new IllegalStateException(String.format("Not dropping legacy column content.content: " +
+                    "%d rows still hold bytes in it and %d reference missing content_data rows", unmoved, dangling));
+            }
+            jdbcTemplate.execute("ALTER TABLE content DROP COLUMN content");
+            logger.info("Dropped legacy column content.content");
+            return true;
+        } finally {
+            running.set(false);
+        }
+    }
+    
+    private long count(String sql) {
+        Long count = jdbcTemplate.queryForObject(sql, Long.class);
+        return count != null ? count : 0;
+    }
+    
+    /**
+     * Whether the content table still has the column bytes were stored in before content_data
+     */
+    public boolean hasLegacyColumn() {
+        Boolean exists = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            String table = "content";
+            String column = "content";
+            if (metaData.storesUpperCaseIdentifiers()) {
+                table = table.toUpperCase(Locale.ROOT);
+                column = column.toUpperCase(Locale.ROOT);
+            }
+            try (ResultSet columns = metaData.getColumns(connection.getCatalog(), connection.getSchema(), table, column)) {
+                return columns.next();
+            }
+        });
+        return Boolean.TRUE.equals(exists);
+    }
+}
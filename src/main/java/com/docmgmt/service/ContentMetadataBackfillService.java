@@ -0,0 +1,160 @@
+package com.docmgmt.service;
+
+import com.docmgmt.model.Content;
+import com.docmgmt.model.MimeTypeSniffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Records size, SHA-256 and MIME type for content written before they were recorded at
+ * write time. Rows are processed in keyset pages; each content is streamed once through
+ * a digest, never held in memory, and its metadata written with plain JDBC so the
+ * modification time, and with it the search index, is left alone.
+ */
+@Service
+public class ContentMetadataBackfillService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ContentMetadataBackfillService.class);
+    
+    private static final String MISSING_METADATA = "(size_bytes IS NULL OR sha256 IS NULL OR mime_type IS NULL)";
+    
+    @Value("${docmgmt.content.backfill-metadata-on-startup:true}")
+    private boolean backfillOnStartup;
+    
+    @Value("${docmgmt.content.backfill.page-size:100}")
+    private int pageSize;
+    
+    private final ContentService contentService;
+    private final JdbcTemplate jdbcTemplate;
+    
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    
+    public ContentMetadataBackfillService(ContentService contentService, JdbcTemplate jdbcTemplate) {
+        this.contentService = contentService;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+    
+    /**
+     * Backfill remaining rows in the background once the application has started
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        if (!backfillOnStartup) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                backfillMetadata();
+            } catch (Exception e) {
+                logger.error("Content metadata backfill failed", e);
+            }
+        }, "content-metadata-backfill");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    /**
+     * Record missing metadata of all content
+     * @return number of rows updated
+     * @throws IllegalStateException if a backfill is already running
+     */
+    public long backfillMetadata() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("A content metadata backfill is already in progress");
+        }
+        try {
+            long updated = 0;
+            long failed = 0;
+            long afterId = 0L;
+            while (true) {
+                List<Long> page = jdbcTemplate.queryForList(
+                    "SELECT id FROM content WHERE " + MISSING_METADATA + " AND id > ? ORDER BY id LIMIT ?",
+                    Long.class, afterId, pageSize);
+                if (page.isEmpty()) {
+                    break;
+                }
+                for (Long id : page) {
+                    afterId = id;
+                    try {
+                        backfill(id);
+                        updated++;
+                    } catch (Exception e) {
+                        logger.warn("Could not record metadata of content {}: {}", id, e.getMessage());
+                        failed++;
+                    }
+                }
+            }
+            if (updated > 0 || failed > 0) {
+                logger.info("Content metadata backfill complete. Updated: {}, Failed: {}", updated, failed);
+            }
+            return updated;
+        } finally {
+            running.set(false);
+        }
+    }
+    
+    private void backfill(Long contentId) throws IOException {
+        Content content = contentService.findById(contentId);
+        MetadataOutputStream metadata = new MetadataOutputStream();
+        contentService.writeContent(content, 0, contentService.getContentLength(content), metadata);
+        // Values recorded by a concurrent write are newer than what was read here
+        jdbcTemplate.update(
+            "UPDATE content SET size_bytes = COALESCE(size_bytes, ?), sha256 = COALESCE(sha256, ?), " +
+            "mime_type = COALESCE(mime_type, ?) WHERE id = ?",
+            metadata.size, metadata.sha256(), metadata.mimeType(content.getName()), contentId);
+    }
+    
+    /**
+     * Count content still missing size, checksum or MIME type
+     */
+    public long countMissingMetadata() {
+        Long count = jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM content WHERE " + MISSING_METADATA, Long.class);
+        return count != null ? count : 0;
+    }
+    
+    /**
+     * Discards content while measuring it, hashing it and keeping its leading bytes
+     */
+    private static final class MetadataOutputStream extends OutputStream {
+        
+        private final MessageDigest digest = Content.newSha256Digest();
+        private final byte[] header = new byte[MimeTypeSniffer.HEADER_LENGTH];
+        private int headerLength;
+        private long size;
+        
+        @Override
+        public void write(int b) {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+        
+        @Override
+        public void write(byte[] buffer, int offset, int length) {
+            int headerBytes = Math.min(length, header.length - headerLength);
+            System.arraycopy(buffer, offset, header, headerLength, headerBytes);
+            headerLength += headerBytes;
+            digest.update(buffer, offset, length);
+            size += length;
+        }
+        
+        private String sha256() {
+            return HexFormat.of().formatHex(digest.digest());
+        }
+        
+        private String mimeType(String filename) {
+            return MimeTypeSniffer.sniff(header, headerLength, filename);
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package com.docmgmt.service;
 
 import com.docmgmt.model.Content;
+import com.docmgmt.model.Document;
 import com.docmgmt.model.FileStore;
+import com.docmgmt.model.MimeTypeSniffer;
 import com.docmgmt.model.SysObject;
 import com.docmgmt.repository.ContentRepository;
 import com.docmgmt.transformer.TransformerRegistry;
@@ -10,19 +12,48 @@ import com.docmgmt.transformer.TransformationException;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.persistence.PersistenceContext;
+import org.hibernate.Hibernate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.support.JdbcUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.UUID;
+import javax.sql.DataSource;
 
 /**
  * Service for Content management
@@ -31,20 +62,46 @@ import java.util.UUID;
 public class ContentService {
     
     private static final Logger logger = LoggerFactory.getLogger(ContentService.class);
+    
+    // Directory under a file store root where uploads are written before the rename into place
+    private static final String UPLOAD_TEMP_DIRECTORY = ".uploads";
+    
+    // Directory under a file store root holding files named by the SHA-256 of their bytes
+    private static final String CONTENT_ADDRESSED_DIRECTORY = "cas";
+    
+    // Bytes of database-stored content; no row means no such content, a null column no bytes
+    private static final String DATABASE_CONTENT_QUERY = "SELECT d.content_bytes FROM content c " +
+        "LEFT JOIN content_data d ON d.id = c.content_data_id WHERE c.id = ?";
 
     private final ContentRepository contentRepository;
     private final FileStoreService fileStoreService;
     private final TransformerRegistry transformerRegistry;
+    private final JdbcTemplate jdbcTemplate;
     
     @PersistenceContext
     private EntityManager entityManager;
+    
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Value("${docmgmt.storage.content-addressable:false}")
+    private boolean contentAddressable;
+    
+    // Held while deciding whether a stored file is still referenced and acting on it, so a file
+    // is never reclaimed while an upload of the same bytes is making it referenced again
+    private final Object storedFileLock = new Object();
 
     @Autowired
     public ContentService(ContentRepository contentRepository, FileStoreService fileStoreService,
-                         TransformerRegistry transformerRegistry) {
+                         TransformerRegistry transformerRegistry, JdbcTemplate jdbcTemplate) {
         this.contentRepository = contentRepository;
         this.fileStoreService = fileStoreService;
         this.transformerRegistry = transformerRegistry;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+    
+    @Autowired(required = false)
+    public void setEventPublisher(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
     }
 
     /**
@@ -108,7 +165,11 @@ public class ContentService {
      */
     @Transactional
     public Content save(Content content) {
-        return contentRepository.save(content);
+        boolean created = content.getId() == null;
+        Content saved = contentRepository.save(content);
+        publishContentChanged(saved, created ? ContentChangedEvent.ChangeType.CREATED 
+                : ContentChangedEvent.ChangeType.UPDATED);
+        return saved;
     }
 
     /**
@@ -123,19 +184,19 @@ public class ContentService {
         try {
             // If content is stored in file system, delete the file and cleanup directories
             if (content.isStoredInFileStore()) {
-                // This will delete the file and recursively remove empty parent directories
-                content.cleanupStorage();
+                // Other versions and identical uploads may share the file; it goes with the last of them,
+                // once the row deletion has committed so a rollback still finds its file
+                FileStore fileStore = content.getFileStore();
+                deleteIfUnreferencedAfterCommit(fileStore, content.getStoragePath(), content.getId());
                 
                 // Remove content from FileStore's collection to avoid orphan removal issues
-                FileStore fileStore = content.getFileStore();
-                if (fileStore != null) {
-                    fileStore.getContents().remove(content);
-                }
+                fileStore.getContents().remove(content);
             }
         } catch (IOException e) {
             throw new RuntimeException("Failed to delete content file", e);
         }
         
+        publishContentChanged(content, ContentChangedEvent.ChangeType.DELETED);
         contentRepository.delete(content);
         entityManager.flush(); // Ensure deletion is flushed to the database
     }
@@ -152,13 +213,17 @@ public class ContentService {
         content.setName(file.getOriginalFilename());
         content.setContentType(file.getContentType());
         content.setSysObject(sysObject);
-        content.setContent(file.getBytes());
+        content.setContentBytes(file.getBytes());
         
-        return contentRepository.save(content);
+        content = contentRepository.save(content);
+        
+        publishContentChanged(content, ContentChangedEvent.ChangeType.CREATED);
+        return content;
     }
 
     /**
-     * Create content from a MultipartFile and store in the specified FileStore
+     * Create content from a MultipartFile and store in the specified FileStore.
+     * The upload is streamed from the request, never read into memory as a whole.
      * @param file The uploaded file
      * @param sysObject The parent SysObject
      * @param fileStoreId The ID of the FileStore to use
@@ -167,30 +232,228 @@ public class ContentService {
      */
     @Transactional
     public Content createContentInFileStore(MultipartFile file, SysObject sysObject, Long fileStoreId) throws IOException {
-        FileStore fileStore = fileStoreService.findById(fileStoreId);
-        
-        if (!fileStore.isActive()) {
-            throw new IllegalStateException("FileStore is not active: " + fileStore.getName());
+        try (InputStream in = file.getInputStream()) {
+            return createContentInFileStore(in, file.getOriginalFilename(), file.getContentType(), sysObject, fileStoreId);
         }
-        
-        // Generate a unique path for the file to avoid collisions
-        String storagePath = generateStoragePath(file.getOriginalFilename());
+    }
+    
+    /**
+     * Create content from a stream and store it in the specified FileStore. The stream is copied
+     * to a temp file inside the store while its size and SHA-256 are computed, then renamed into
+     * its storage path, so heap use stays constant regardless of the size of the content.
+     * In content-addressable mode the storage path is derived from the SHA-256, and bytes that
+     * are already stored are not stored again.
+     * @param in The content stream; read to the end but not closed
+     * @param filename The original filename
+     * @param contentType The MIME type
+     * @param sysObject The parent SysObject
+     * @param fileStoreId The ID of the FileStore to use
+     * @return The created content
+     * @throws IOException if file storage fails
+     */
+    @Transactional
+    public Content createContentInFileStore(InputStream in, String filename, String contentType,
+                                            SysObject sysObject, Long fileStoreId) throws IOException {
+        FileStore fileStore = fileStoreService.findById(fileStoreId);
         
         Content content = new Content();
-        content.setName(file.getOriginalFilename());
-        content.setContentType(file.getContentType());
+        content.setName(filename);
+        content.setContentType(contentType);
         content.setSysObject(sysObject);
         content.setFileStore(fileStore);
-        content.setStoragePath(storagePath);
+        return createContent(content, in);
+    }
+    
+    /**
+     * Create new content with bytes read from a stream. If the content has a FileStore the
+     * stream is stored as in createContentInFileStore, in the content-addressed layout when
+     * that is enabled; otherwise the bytes are stored in the database. Either way the size,
+     * SHA-256 and MIME type are recorded before the content is saved.
+     * @param content The unsaved content, with its name, flags and optional FileStore set
+     * @param in The content stream; read to the end but not closed
+     * @return The created content
+     * @throws IOException if file storage fails
+     */
+    @Transactional
+    public Content createContent(Content content, InputStream in) throws IOException {
+        FileStore fileStore = content.getFileStore();
+        if (fileStore == null) {
+            content.setContentBytes(in.readAllBytes());
+        } else {
+            if (!fileStore.isActive()) {
+                throw new IllegalStateException("FileStore is not active: " + fileStore.getName());
+            }
+            // Generate a unique path for the file to avoid collisions
+            content.setStoragePath(generateStoragePath(content.getName()));
         
-        // Create the content entity first
-        content = contentRepository.save(content);
+            // Store the file before the entity so the row never points at a missing file
+            streamToFileStore(content, in);
+            deleteFileOnRollback(content);
+        }
         
-        // Then store the file
-        content.setContentBytes(file.getBytes());
+        content = contentRepository.save(content);
         
+        publishContentChanged(content, ContentChangedEvent.ChangeType.CREATED);
         return content;
     }
+    
+    /**
+     * Copy a stream into the content's storage path. The copy goes to a temp file in the same
+     * store, so the final atomic rename never exposes a partially written file at the storage
+     * path, and the size, SHA-256 and sniffed MIME type of the content are recorded on the way through.
+     * In content-addressable mode the storage path is replaced by the path for the SHA-256,
+     * and if that file already exists the copy is dropped instead of renamed.
+     */
+    private void streamToFileStore(Content content, InputStream in) throws IOException {
+        FileStore fileStore = content.getFileStore();
+        Path tempDirectory = Paths.get(fileStore.getFullPath(UPLOAD_TEMP_DIRECTORY));
+        Files.createDirectories(tempDirectory);
+        Path temp = Files.createTempFile(tempDirectory, "upload-", ".part");
+        boolean tempHandedOver = false;
+        try {
+            MessageDigest digest = Content.newSha256Digest();
+            byte[] header = in.readNBytes(MimeTypeSniffer.HEADER_LENGTH);
+            long size;
+            try (OutputStream out = new DigestOutputStream(Files.newOutputStream(temp), digest)) {
+                out.write(header);
+                size = header.length + in.transferTo(out);
+            }
+            content.setSizeBytes(size);
+            content.setSha256(HexFormat.of().formatHex(digest.digest()));
+            content.setMimeType(MimeTypeSniffer.sniff(header, header.length, content.getName()));
+            if (contentAddressable) {
+                content.setStoragePath(contentAddressedPath(content.getSha256()));
+            }
+            Path target = Paths.get(fileStore.getFullPath(content.getStoragePath()));
+            if (contentAddressable && Files.exists(target)) {
+                logger.debug("Content {} is already stored at {}", content.getSha256(), content.getStoragePath());
+                tempHandedOver = restoreOnCommit(temp, target);
+            } else {
+                moveIntoPlace(temp, target);
+            }
+        } finally {
+            if (!tempHandedOver) {
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+    
+    /**
+     * Path of the file holding bytes with a SHA-256, spread over two directory levels
+     * like generated paths: cas/ab/cd/abcd...
+     */
+    private static String contentAddressedPath(String sha256) {
+        return String.format("%s/%s/%s/%s", CONTENT_ADDRESSED_DIRECTORY,
+            sha256.substring(0, 2), sha256.substring(2, 4), sha256);
+    }
+    
+    private static void moveIntoPlace(Path temp, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            // Identical bytes may have been stored concurrently under a content-addressed path
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+    
+    /**
+     * Keep an upload whose bytes are already stored until the transaction completes. The stored
+     * file was unreferenced by this content until then and may have been reclaimed meanwhile,
+     * in which case the upload is renamed into its place after commit.
+     * @return whether the temp file is now deleted after completion instead of by the caller
+     */
+    private boolean restoreOnCommit(Path temp, Path target) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return false;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                try {
+                    synchronized (storedFileLock) {
+                        if (status == STATUS_COMMITTED && !Files.exists(target)) {
+                            moveIntoPlace(temp, target);
+                        }
+                    }
+                    Files.deleteIfExists(temp);
+                } catch (IOException e) {
+                    logger.warn("Failed to restore stored file {}", target, e);
+                }
+            }
+        });
+        return true;
+    }
+    
+    /**
+     * Delete the stored file of new content if the creating transaction rolls back, unless
+     * other content references it
+     */
+    private void deleteFileOnRollback(Content content) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        FileStore fileStore = content.getFileStore();
+        String storagePath = content.getStoragePath();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_ROLLED_BACK) {
+                    return;
+                }
+                try {
+                    deleteIfUnreferenced(fileStore, storagePath, null);
+                } catch (IOException | RuntimeException e) {
+                    logger.warn("Failed to delete file {} of rolled back content", storagePath, e);
+                }
+            }
+        });
+    }
+    
+    /**
+     * Delete a stored file unless content still references it. Versions share the file of the
+     * content they were created from and content-addressed files are shared by identical
+     * uploads, so a file is only reclaimed together with its last reference.
+     * @param fileStore The FileStore holding the file
+     * @param storagePath The file's storage path
+     * @param releasingContentId The content that no longer references the file, or null
+     * @throws IOException if the file cannot be deleted
+     */
+    private void deleteIfUnreferenced(FileStore fileStore, String storagePath, Long releasingContentId) throws IOException {
+        synchronized (storedFileLock) {
+            long references = releasingContentId == null
+                ? contentRepository.countByFileStoreAndStoragePath(fileStore, storagePath)
+                : contentRepository.countByFileStoreAndStoragePathAndIdNot(fileStore, storagePath, releasingContentId);
+            if (references > 0) {
+                logger.debug("Keeping {} in file store {}, still referenced by {} content(s)",
+                    storagePath, fileStore.getName(), references);
+                return;
+            }
+            Content.deleteStoredFile(fileStore, storagePath);
+        }
+    }
+    
+    /**
+     * Delete a stored file that content stopped referencing once the change is committed, so a
+     * rollback leaves the content with its file. Without a transaction it is deleted right away.
+     */
+    private void deleteIfUnreferencedAfterCommit(FileStore fileStore, String storagePath, Long releasingContentId)
+            throws IOException {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            deleteIfUnreferenced(fileStore, storagePath, releasingContentId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    deleteIfUnreferenced(fileStore, storagePath, releasingContentId);
+                } catch (IOException | RuntimeException e) {
+                    logger.warn("Failed to delete unreferenced file {}", storagePath, e);
+                }
+            }
+        });
+    }
 
     /**
      * Get content bytes
@@ -204,6 +467,180 @@ public class ContentService {
         return content.getContentBytes();
     }
 
+    /**
+     * Get the size of content without reading it: the recorded size, or else the size of the
+     * file or the length of the database column
+     * @param content The content
+     * @return The size in bytes
+     * @throws IOException if the file cannot be accessed
+     */
+    @Transactional(readOnly = true)
+    public long getContentLength(Content content) throws IOException {
+        if (content.getSizeBytes() != null) {
+            return content.getSizeBytes();
+        }
+        if (content.isStoredInFileStore()) {
+            return Files.size(getContentPath(content));
+        }
+        Long length = content.getId() != null ? contentRepository.findDatabaseContentLength(content.getId()) : null;
+        return length != null ? length : 0;
+    }
+    
+    /**
+     * Get the file of content stored in a file store
+     * @param content The content
+     * @return The absolute file path
+     * @throws IllegalStateException if the content is not stored in a file store
+     */
+    public Path getContentPath(Content content) {
+        if (!content.isStoredInFileStore()) {
+            throw new IllegalStateException("Content is not stored in a file store: " + content.getId());
+        }
+        return Paths.get(content.getFileStore().getFullPath(content.getStoragePath()));
+    }
+    
+    /**
+     * Write a byte range of content to a stream without holding it in memory. File store content
+     * is copied with FileChannel.transferTo; database content is read from the column's binary
+     * stream over JDBC.
+     * @param content The content
+     * @param offset The first byte to write
+     * @param length The number of bytes to write
+     * @param out The stream to write to; not closed
+     * @throws IOException if reading or writing fails, or the content is shorter than requested
+     */
+    @Transactional(readOnly = true)
+    public void writeContent(Content content, long offset, long length, OutputStream out) throws IOException {
+        if (content.isStoredInFileStore()) {
+            try (FileChannel channel = FileChannel.open(getContentPath(content), StandardOpenOption.READ)) {
+                WritableByteChannel target = Channels.newChannel(out);
+                long position = offset;
+                long remaining = length;
+                while (remaining > 0) {
+                    long sent = channel.transferTo(position, remaining, target);
+                    if (sent <= 0 && position >= channel.size()) {
+                        throw new EOFException("Content " + content.getId() + " ended at byte " + position);
+                    }
+                    position += sent;
+                    remaining -= sent;
+                }
+            }
+        } else {
+            writeDatabaseContent(content.getId(), offset, length, out);
+        }
+    }
+    
+    private void writeDatabaseContent(Long contentId, long offset, long length, OutputStream out) throws IOException {
+        try {
+            jdbcTemplate.query(DATABASE_CONTENT_QUERY, (ResultSetExtractor<Void>) rs -> {
+                if (!rs.next()) {
+                    throw new EntityNotFoundException("Content not found with ID: " + contentId);
+                }
+                try (InputStream in = rs.getBinaryStream(1)) {
+                    if (in == null) {
+                        if (length > 0) {
+                            throw new EOFException("Content " + contentId + " has no data");
+                        }
+                        return null;
+                    }
+                    in.skipNBytes(offset);
+                    byte[] buffer = new byte[8192];
+                    long remaining = length;
+                    while (remaining > 0) {
+                        int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                        if (read < 0) {
+                            throw new EOFException("Content " + contentId + " ended before " + (offset + length) + " bytes");
+                        }
+                        out.write(buffer, 0, read);
+                        remaining -= read;
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return null;
+            }, contentId);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+    
+    /**
+     * Open a stream over the bytes of content. Database content is read from the column's
+     * binary stream, which keeps its own JDBC result set open until the stream is closed, so
+     * detached content can be read outside a transaction without loading it into memory.
+     * @param content The content
+     * @return The content stream; empty if database content has no bytes
+     * @throws IOException if the content cannot be opened
+     */
+    public InputStream openContentStream(Content content) throws IOException {
+        if (content.isStoredInFileStore()) {
+            return Files.newInputStream(getContentPath(content));
+        }
+        return openDatabaseContentStream(content.getId());
+    }
+    
+    private InputStream openDatabaseContentStream(Long contentId) throws IOException {
+        DataSource dataSource = jdbcTemplate.getDataSource();
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        PreparedStatement statement = null;
+        ResultSet rs = null;
+        boolean streamHandedOver = false;
+        try {
+            statement = connection.prepareStatement(DATABASE_CONTENT_QUERY);
+            statement.setLong(1, contentId);
+            rs = statement.executeQuery();
+            if (!rs.next()) {
+                throw new EntityNotFoundException("Content not found with ID: " + contentId);
+            }
+            InputStream in = rs.getBinaryStream(1);
+            if (in == null) {
+                return InputStream.nullInputStream();
+            }
+            streamHandedOver = true;
+            return new DatabaseContentStream(in, rs, statement, connection, dataSource);
+        } catch (SQLException e) {
+            throw new IOException("Failed to read content " + contentId, e);
+        } finally {
+            if (!streamHandedOver) {
+                JdbcUtils.closeResultSet(rs);
+                JdbcUtils.closeStatement(statement);
+                DataSourceUtils.releaseConnection(connection, dataSource);
+            }
+        }
+    }
+    
+    /**
+     * Binary stream of a database column that releases its result set, statement and
+     * connection when closed
+     */
+    private static final class DatabaseContentStream extends FilterInputStream {
+        
+        private final ResultSet resultSet;
+        private final PreparedStatement statement;
+        private final Connection connection;
+        private final DataSource dataSource;
+        
+        private DatabaseContentStream(InputStream in, ResultSet resultSet, PreparedStatement statement,
+                                      Connection connection, DataSource dataSource) {
+            super(in);
+            this.resultSet = resultSet;
+            this.statement = statement;
+            this.connection = connection;
+            this.dataSource = dataSource;
+        }
+        
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                JdbcUtils.closeResultSet(resultSet);
+                JdbcUtils.closeStatement(statement);
+                DataSourceUtils.releaseConnection(connection, dataSource);
+            }
+        }
+    }
+    
     /**
      * Generate a unique hierarchical storage path for a file
      * Uses a UUID split into directory levels to avoid having too many files in one directory.
@@ -267,18 +704,17 @@ public class ContentService {
             throw new IllegalStateException("No content bytes found in database");
         }
         
-        // Set up file store storage
-        String storagePath = generateStoragePath(content.getName());
+        // Set up file store storage and write the bytes before the row references them
         content.setFileStore(fileStore);
-        content.setStoragePath(storagePath);
+        content.setStoragePath(generateStoragePath(content.getName()));
+        streamToFileStore(content, new ByteArrayInputStream(bytes));
+        deleteFileOnRollback(content);
+        content.setContent(null);
         
         // Save the content entity with the new file store reference
-        content = contentRepository.save(content);
-        
-        // Write the bytes to file store
-        content.setContentBytes(bytes);
-        
-        return content;
+        Content saved = contentRepository.save(content);
+        publishContentChanged(saved, ContentChangedEvent.ChangeType.MOVED);
+        return saved;
     }
 
     /**
@@ -297,13 +733,18 @@ public class ContentService {
         
         // Read bytes from file store
         byte[] bytes = content.getContentBytes();
+        FileStore fileStore = content.getFileStore();
+        String storagePath = content.getStoragePath();
         
         // Update content entity to use database storage
         content.setContent(bytes);
         content.setFileStore(null);
         content.setStoragePath(null);
         
-        return contentRepository.save(content);
+        Content saved = contentRepository.save(content);
+        deleteIfUnreferencedAfterCommit(fileStore, storagePath, saved.getId());
+        publishContentChanged(saved, ContentChangedEvent.ChangeType.MOVED);
+        return saved;
     }
 
     /**
@@ -336,6 +777,7 @@ public class ContentService {
         primaryContent.addSecondaryRendition(rendition);
         contentRepository.save(rendition);
         
+        publishContentChanged(rendition, ContentChangedEvent.ChangeType.RENDITION_ADDED);
         return rendition;
     }
 
@@ -435,10 +877,23 @@ public class ContentService {
         // Remove all secondary renditions when primary changes
         content.removeAllSecondaryRenditions();
         
-        // Update the content
-        content.setContentBytes(newBytes);
+        // Update the content; a stored file may be shared with other versions or identical
+        // uploads, so new bytes go to a new file rather than over the old one
+        if (content.isStoredInFileStore()) {
+            String previousPath = content.getStoragePath();
+            content.setStoragePath(generateStoragePath(content.getName()));
+            streamToFileStore(content, new ByteArrayInputStream(newBytes));
+            deleteFileOnRollback(content);
+            if (!previousPath.equals(content.getStoragePath())) {
+                deleteIfUnreferencedAfterCommit(content.getFileStore(), previousPath, content.getId());
+            }
+        } else {
+            content.setContentBytes(newBytes);
+        }
         
-        return contentRepository.save(content);
+        Content saved = contentRepository.save(content);
+        publishContentChanged(saved, ContentChangedEvent.ChangeType.PRIMARY_UPDATED);
+        return saved;
     }
 
     /**
@@ -460,5 +915,21 @@ public class ContentService {
         
         return renditions;
     }
+    
+    /**
+     * Tell listeners that content of a document changed. Listeners run as part of the
+     * current transaction, so the owning document is only reindexed for committed changes.
+     * @param content The changed content
+     * @param changeType The kind of change
+     */
+    private void publishContentChanged(Content content, ContentChangedEvent.ChangeType changeType) {
+        if (eventPublisher == null || content.getSysObject() == null) {
+            return;
+        }
+        if (!Document.class.isAssignableFrom(Hibernate.getClass(content.getSysObject()))) {
+            return;
+        }
+        eventPublisher.publishEvent(new ContentChangedEvent(
+                content.getSysObject().getId(), content.getId(), changeType));
+    }
 }
-
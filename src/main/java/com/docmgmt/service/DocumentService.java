@@ -7,8 +7,8 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -29,8 +29,13 @@ public class DocumentService extends AbstractSysObjectService<Document, Document
     @Value("${docmgmt.similarity.async-generation:true}")
     private boolean asyncGeneration;
     
+    @Value("${docmgmt.outbox.enabled:false}")
+    private boolean outboxEnabled;
+    
     private DocumentSimilarityService similarityService;
     
+    private EmbeddingWorkQueue embeddingWorkQueue;
+    
     @Autowired
     public DocumentService(DocumentRepository repository) {
         super(repository);
@@ -41,14 +46,19 @@ public class DocumentService extends AbstractSysObjectService<Document, Document
         this.similarityService = similarityService;
     }
     
+    @Autowired(required = false)
+    public void setEmbeddingWorkQueue(EmbeddingWorkQueue embeddingWorkQueue) {
+        this.embeddingWorkQueue = embeddingWorkQueue;
+    }
+    
     @Override
     @Transactional
     public Document save(Document document) {
         Document saved = super.save(document);
         
-        // Auto-generate embedding if enabled
-        if (autoGenerateEmbeddings && similarityService != null) {
-            if (asyncGeneration) {
+        // Auto-generate embedding if enabled; with the index outbox the dispatcher queues it after commit
+        if (autoGenerateEmbeddings && similarityService != null && !(asyncGeneration && outboxEnabled)) {
+            if (asyncGeneration && embeddingWorkQueue != null) {
                 generateEmbeddingAsync(saved.getId());
             } else {
                 try {
@@ -62,15 +72,14 @@ public class DocumentService extends AbstractSysObjectService<Document, Document
         return saved;
     }
     
-    @Async
+    /**
+     * Queue embedding generation for a document; it runs on the embedding work queue
+     * once the current transaction commits
+     * @param documentId the document ID
+     */
     public void generateEmbeddingAsync(Long documentId) {
-        try {
-            Document doc = findById(documentId);
-            if (doc != null && similarityService != null) {
-                similarityService.generateEmbedding(doc);
-            }
-        } catch (Exception e) {
-            logger.warn("Async embedding generation failed for document {}", documentId, e);
+        if (embeddingWorkQueue != null) {
+            embeddingWorkQueue.enqueue(documentId);
         }
     }
     
@@ -114,6 +123,19 @@ public class DocumentService extends AbstractSysObjectService<Document, Document
         return documents;
     }
     
+    /**
+     * Load the next keyset page of documents, ordered by ID, with collections initialized
+     * @param afterId Only documents with an ID greater than this are returned (use 0 for the first page)
+     * @param pageSize Maximum number of documents to return
+     * @return The next page of documents, empty when there are no more
+     */
+    @Transactional(readOnly = true)
+    public List<Document> findPageAfterId(Long afterId, int pageSize) {
+        List<Document> documents = repository.findPageAfterId(afterId, PageRequest.of(0, pageSize));
+        documents.forEach(this::initializeDocument);
+        return documents;
+    }
+    
     /**
      * Find documents by document type
      * @param documentType The document type
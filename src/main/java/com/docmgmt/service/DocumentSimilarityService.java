@@ -4,22 +4,44 @@ import com.docmgmt.model.Document;
 import com.docmgmt.model.DocumentEmbedding;
 import com.docmgmt.repository.DocumentEmbeddingRepository;
 import com.docmgmt.repository.DocumentRepository;
+import com.docmgmt.search.EmbeddingMatrix;
+import com.docmgmt.search.VectorIndexService;
+import com.docmgmt.search.VectorScorer;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.ai.embedding.Embedding;
 import org.springframework.ai.embedding.EmbeddingModel;
 import org.springframework.ai.embedding.EmbeddingRequest;
 import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
- * Service for document similarity search using vector embeddings
+ * Service for document similarity search using vector embeddings.
+ * Queries are answered from the HNSW vector index; exact search (fallback and recall
+ * checks) scans a resident matrix of normalized embeddings kept up to date incrementally.
  */
 @Service
 public class DocumentSimilarityService {
@@ -32,17 +54,190 @@ public class DocumentSimilarityService {
     private final DocumentRepository documentRepository;
     private final ContentService contentService;
     private final ObjectMapper objectMapper;
+    private final VectorIndexService vectorIndexService;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    
+    @Value("${docmgmt.similarity.search-mode:HNSW}")
+    private SearchMode defaultSearchMode;
+    
+    @Value("${spring.ai.ollama.embedding.options.model:unknown}")
+    private String embeddingModelName;
+    
+    @Value("${docmgmt.similarity.exact.vector-api:true}")
+    private boolean allowVectorApi;
+    
+    @Value("${docmgmt.similarity.exact.parallel:false}")
+    private boolean parallelScan;
+    
+    @Value("${docmgmt.similarity.exact.threads:0}")
+    private int scanThreads;
+    
+    @Value("${docmgmt.similarity.exact.preload:true}")
+    private boolean preloadMatrix;
+    
+    @Value("${docmgmt.similarity.exact.quantized:false}")
+    private boolean quantizedMatrix;
+    
+    @Value("${docmgmt.similarity.rerank-factor:4}")
+    private int rerankFactor;
+    
+    @Value("${docmgmt.similarity.batch.size:16}")
+    private int batchSize;
+    
+    @Value("${docmgmt.similarity.batch.concurrency:2}")
+    private int batchConcurrency;
+    
+    @Value("${docmgmt.similarity.batch.page-size:200}")
+    private int batchPageSize;
+    
+    @Value("${lucene.rebuild.page-size:500}")
+    private int loadPageSize;
+    
+    // Marks a removal in pendingMatrixUpdates
+    private static final float[] REMOVED = new float[0];
+    
+    private VectorScorer vectorScorer;
+    private ExecutorService scanExecutor;
+    private volatile EmbeddingMatrix matrix;
+    private final Object matrixLoadLock = new Object();
+    // Changes made while the matrix is being loaded, replayed on top of it. Guarded by
+    // pendingUpdatesLock, under which the loaded matrix is also published, so every change
+    // lands either here or in the published matrix.
+    private final Object pendingUpdatesLock = new Object();
+    private volatile Map<Long, float[]> pendingMatrixUpdates;
     
     public DocumentSimilarityService(EmbeddingModel embeddingModel,
                                     DocumentEmbeddingRepository embeddingRepository,
                                     DocumentRepository documentRepository,
                                     ContentService contentService,
-                                    ObjectMapper objectMapper) {
+                                    ObjectMapper objectMapper,
+                                    VectorIndexService vectorIndexService,
+                                    PlatformTransactionManager transactionManager) {
         this.embeddingModel = embeddingModel;
         this.embeddingRepository = embeddingRepository;
         this.documentRepository = documentRepository;
         this.contentService = contentService;
         this.objectMapper = objectMapper;
+        this.vectorIndexService = vectorIndexService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+    
+    @PostConstruct
+    public void initialize() {
+        vectorScorer = VectorScorer.create(allowVectorApi);
+        int threads = scanThreads > 0 ? scanThreads : Runtime.getRuntime().availableProcessors();
+        if (parallelScan && threads > 1) {
+            AtomicInteger counter = new AtomicInteger();
+            scanExecutor = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "similarity-scan-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        logger.info("Exact similarity scorer: {} (parallel scan: {})", vectorScorer.getName(), scanExecutor != null);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        if (scanExecutor != null) {
+            scanExecutor.shutdownNow();
+        }
+    }
+    
+    /**
+     * Load the similarity matrix in the background once the application has started
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void preloadMatrix() {
+        if (!preloadMatrix) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                getMatrix();
+            } catch (Exception e) {
+                logger.error("Failed to load similarity matrix", e);
+            }
+        }, "similarity-matrix-load");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    /**
+     * Apply a stored embedding to the in-memory matrix
+     */
+    public void onEmbeddingSaved(Long documentId, float[] vector) {
+        if (deferWhileLoading(documentId, vector)) {
+            return;
+        }
+        EmbeddingMatrix current = matrix;
+        if (current == null) {
+            return;
+        }
+        if (current.getDimension() != vector.length) {
+            // The embedding model changed; reload lazily with the new dimension
+            logger.info("Embedding dimension changed from {} to {}; similarity matrix will be reloaded",
+                current.getDimension(), vector.length);
+            matrix = null;
+            return;
+        }
+        try {
+            current.put(documentId, vector);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Embedding of document {} not added to similarity matrix: {}", documentId, e.getMessage());
+        }
+    }
+    
+    /**
+     * Remove a deleted embedding from the in-memory matrix
+     */
+    public void onEmbeddingRemoved(Long documentId) {
+        if (deferWhileLoading(documentId, REMOVED)) {
+            return;
+        }
+        EmbeddingMatrix current = matrix;
+        if (current != null) {
+            current.remove(documentId);
+        }
+    }
+    
+    /**
+     * Record a change for replay if the matrix is being loaded
+     * @return true if recorded; the loader applies it before publishing the matrix
+     */
+    private boolean deferWhileLoading(Long documentId, float[] vector) {
+        // The loader publishes the matrix before clearing the pending map, so seeing no pending
+        // map here means the matrix read next is either not being loaded or already published
+        if (pendingMatrixUpdates == null) {
+            return false;
+        }
+        synchronized (pendingUpdatesLock) {
+            if (pendingMatrixUpdates == null) {
+                return false;
+            }
+            pendingMatrixUpdates.put(documentId, vector);
+            return true;
+        }
+    }
+    
+    /**
+     * Get statistics of the in-memory similarity matrix
+     */
+    public Map<String, Object> getMatrixStats() {
+        EmbeddingMatrix current = matrix;
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("loaded", current != null);
+        stats.put("vectors", current != null ? current.size() : 0);
+        stats.put("dimension", current != null ? current.getDimension() : 0);
+        stats.put("memoryBytes", current != null ? current.getMemoryBytes() : 0L);
+        stats.put("quantized", quantizedMatrix);
+        stats.put("rerankFactor", rerankFactor);
+        stats.put("scorer", vectorScorer.getName());
+        stats.put("parallelScan", scanExecutor != null);
+        return stats;
     }
     
     /**
@@ -63,43 +258,81 @@ public class DocumentSimilarityService {
             
             // Check if embedding already exists and is up-to-date
             Optional<DocumentEmbedding> existing = embeddingRepository.findByDocumentId(document.getId());
-            if (existing.isPresent() && contentHash.equals(existing.get().getContentHash())) {
+            if (existing.isPresent() && contentHash.equals(existing.get().getContentHash())
+                    && existing.get().getVector() != null
+                    && embeddingModelName.equals(existing.get().getModelName())) {
                 logger.debug("Embedding for document {} is up-to-date", document.getId());
                 return existing.get();
             }
             
             // Generate embedding
             logger.info("Generating embedding for document {}", document.getId());
-            List<Double> embedding = generateEmbeddingVector(content);
+            float[] embedding = generateEmbeddingVector(content);
             
             // Store embedding
             DocumentEmbedding docEmbedding = existing.orElse(new DocumentEmbedding());
             docEmbedding.setDocument(document);
-            docEmbedding.setEmbedding(serializeEmbedding(embedding));
+            docEmbedding.setVectorValues(embedding);
+            docEmbedding.setEmbedding(null);
+            docEmbedding.setModelName(embeddingModelName);
             docEmbedding.setContentHash(contentHash);
             
             return embeddingRepository.save(docEmbedding);
-            
+        
         } catch (Exception e) {
             logger.error("Failed to generate embedding for document {}", document.getId(), e);
             return null;
         }
     }
     
+    /**
+     * Generate and store the embedding for a document without holding a transaction across
+     * the model call: the text is read in a short read-only transaction and the result is
+     * stored in a second one, as in the batched rebuild.
+     * @param documentId the document ID
+     * @return counts for the document; nothing is counted if it no longer exists
+     */
+    public EmbeddingBatchResult refreshEmbedding(Long documentId) {
+        EmbeddingBatchResult result = new EmbeddingBatchResult();
+        List<PendingEmbedding> pending = readOnlyTransaction.execute(status ->
+            documentRepository.findById(documentId)
+                .map(document -> collectPendingEmbeddings(List.of(document), result))
+                .orElseGet(List::of));
+        if (pending != null && !pending.isEmpty()) {
+            logger.info("Generating embedding for document {}", documentId);
+            processEmbeddingBatch(pending, result);
+        }
+        return result;
+    }
+    
     /**
      * Find similar documents using cosine similarity
      */
     public List<SimilarityResult> findSimilar(Long documentId, int limit) {
+        return findSimilar(documentId, limit, defaultSearchMode);
+    }
+    
+    /**
+     * Find similar documents using cosine similarity with an explicit search mode
+     */
+    public List<SimilarityResult> findSimilar(Long documentId, int limit, SearchMode mode) {
         Document document = documentRepository.findById(documentId)
             .orElseThrow(() -> new IllegalArgumentException("Document not found: " + documentId));
         
-        return findSimilar(document, limit);
+        return findSimilar(document, limit, mode);
     }
     
     /**
      * Find similar documents using cosine similarity
      */
     public List<SimilarityResult> findSimilar(Document document, int limit) {
+        return findSimilar(document, limit, defaultSearchMode);
+    }
+    
+    /**
+     * Find similar documents using cosine similarity with an explicit search mode
+     */
+    public List<SimilarityResult> findSimilar(Document document, int limit, SearchMode mode) {
         // Use document ID for more reliable lookup
         Optional<DocumentEmbedding> docEmbedding = embeddingRepository.findByDocumentId(document.getId());
         if (docEmbedding.isEmpty()) {
@@ -108,8 +341,8 @@ public class DocumentSimilarityService {
         }
         
         try {
-            List<Double> targetVector = deserializeEmbedding(docEmbedding.get().getEmbedding());
-            return findSimilarByVector(targetVector, document.getId(), limit);
+            float[] targetVector = vectorOf(docEmbedding.get());
+            return findSimilarByVector(targetVector, document.getId(), limit, mode);
         } catch (Exception e) {
             logger.error("Error finding similar documents", e);
             return Collections.emptyList();
@@ -120,9 +353,16 @@ public class DocumentSimilarityService {
      * Find similar documents by query text
      */
     public List<SimilarityResult> findSimilarByText(String queryText, int limit) {
+        return findSimilarByText(queryText, limit, defaultSearchMode);
+    }
+    
+    /**
+     * Find similar documents by query text with an explicit search mode
+     */
+    public List<SimilarityResult> findSimilarByText(String queryText, int limit, SearchMode mode) {
         try {
-            List<Double> queryVector = generateEmbeddingVector(queryText);
-            return findSimilarByVector(queryVector, null, limit);
+            float[] queryVector = generateEmbeddingVector(queryText);
+            return findSimilarByVector(queryVector, null, limit, mode);
         } catch (Exception e) {
             logger.error("Error finding similar documents by text", e);
             return Collections.emptyList();
@@ -134,8 +374,8 @@ public class DocumentSimilarityService {
      */
     public List<SimilarityResult> findSimilarByTextWithFilters(String queryText, Map<String, String> filters, int limit) {
         try {
-            List<Double> queryVector = generateEmbeddingVector(queryText);
-            List<SimilarityResult> results = findSimilarByVector(queryVector, null, limit * 2); // Get more to filter
+            float[] queryVector = generateEmbeddingVector(queryText);
+            List<SimilarityResult> results = findSimilarByVector(queryVector, null, limit * 2, defaultSearchMode); // Get more to filter
             
             // Apply filters
             if (filters != null && !filters.isEmpty()) {
@@ -153,65 +393,354 @@ public class DocumentSimilarityService {
     }
     
     /**
-     * Rebuild all embeddings
+     * Rebuild all embeddings, streaming documents from the database in pages
      */
-    @Transactional
-    public void rebuildAllEmbeddings() {
+    public EmbeddingBatchResult rebuildAllEmbeddings() {
         logger.info("Rebuilding all document embeddings...");
-        List<Document> documents = documentRepository.findAll();
-        rebuildEmbeddings(documents);
+        return runEmbeddingPipeline(afterId -> {
+            List<Document> page = documentRepository.findPageAfterId(afterId, PageRequest.of(0, batchPageSize));
+            return new DocumentPage(page, page.isEmpty() ? null : page.get(page.size() - 1).getId());
+        });
     }
     
     /**
      * Rebuild embeddings for specific documents
      */
-    @Transactional
-    public void rebuildEmbeddings(List<Document> documents) {
+    public EmbeddingBatchResult rebuildEmbeddings(List<Document> documents) {
         logger.info("Rebuilding embeddings for {} documents...", documents.size());
-        int success = 0;
-        int failed = 0;
+        List<Long> ids = documents.stream().map(Document::getId).distinct().sorted().collect(Collectors.toList());
+        return runEmbeddingPipeline(afterId -> {
+            int from = Collections.binarySearch(ids, afterId);
+            from = from >= 0 ? from + 1 : -from - 1;
+            List<Long> pageIds = ids.subList(from, Math.min(ids.size(), from + batchPageSize));
+            if (pageIds.isEmpty()) {
+                return new DocumentPage(List.of(), null);
+            }
+            // Documents deleted since the list was built are missing from the page, so the
+            // next page starts after the last requested ID rather than the last one found
+            List<Document> page = new ArrayList<>(documentRepository.findAllById(pageIds));
+            page.sort(Comparator.comparing(Document::getId));
+            return new DocumentPage(page, pageIds.get(pageIds.size() - 1));
+        });
+    }
+    
+    /**
+     * Generate embeddings for pages of documents: texts are extracted per page in a read-only
+     * transaction, sent to the embedding model batchSize texts per request with up to
+     * batchConcurrency requests in flight, and each batch is stored in one transaction.
+     * @param nextPage returns the documents with IDs greater than the given one, in ID order
+     */
+    private EmbeddingBatchResult runEmbeddingPipeline(Function<Long, DocumentPage> nextPage) {
+        EmbeddingBatchResult result = new EmbeddingBatchResult();
+        int size = Math.max(1, batchSize);
+        int concurrency = Math.max(1, batchConcurrency);
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "embedding-batch");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Bounds the texts held in memory while pages are read ahead of the model
+        Semaphore inFlight = new Semaphore(concurrency * 2);
+        List<Future<?>> futures = new ArrayList<>();
         
-        for (Document doc : documents) {
-            try {
-                // Reload document with contents to avoid LazyInitializationException
-                Document reloadedDoc = documentRepository.findById(doc.getId())
-                    .orElseThrow(() -> new IllegalArgumentException("Document not found: " + doc.getId()));
-                generateEmbedding(reloadedDoc);
-                success++;
-            } catch (Exception e) {
-                logger.error("Failed to generate embedding for document {}", doc.getId(), e);
-                failed++;
+        try {
+            long afterId = 0L;
+            while (true) {
+                final long pageAfterId = afterId;
+                List<PendingEmbedding> pending = new ArrayList<>();
+                Long lastId = readOnlyTransaction.execute(status -> {
+                    DocumentPage page = nextPage.apply(pageAfterId);
+                    if (page.lastId == null) {
+                        return null;
+                    }
+                    pending.addAll(collectPendingEmbeddings(page.documents, result));
+                    return page.lastId;
+                });
+                if (lastId == null) {
+                    break;
+                }
+                afterId = lastId;
+                
+                for (int i = 0; i < pending.size(); i += size) {
+                    List<PendingEmbedding> batch = pending.subList(i, Math.min(pending.size(), i + size));
+                    inFlight.acquire();
+                    futures.add(executor.submit(() -> {
+                        try {
+                            processEmbeddingBatch(batch, result);
+                        } finally {
+                            inFlight.release();
+                        }
+                    }));
+                }
+            }
+            for (Future<?> future : futures) {
+                future.get();
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Embedding rebuild interrupted");
+        } catch (ExecutionException e) {
+            logger.error("Embedding batch failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
         }
         
-        logger.info("Embedding rebuild complete. Success: {}, Failed: {}", success, failed);
+        logger.info("Embedding rebuild complete. Generated: {}, Up-to-date: {}, Skipped: {}, Failed: {}",
+            result.getGenerated(), result.getUpToDate(), result.getSkipped(), result.getFailed());
+        return result;
     }
     
-    // Private helper methods
-    
-    private List<SimilarityResult> findSimilarByVector(List<Double> targetVector, Long excludeId, int limit) {
-        List<DocumentEmbedding> allEmbeddings = embeddingRepository.findAll();
+    /**
+     * Extract the text of a page of documents and keep those whose embedding is missing or stale
+     */
+    private List<PendingEmbedding> collectPendingEmbeddings(List<Document> page, EmbeddingBatchResult result) {
+        Map<Long, DocumentEmbedding> existing = embeddingRepository.findByDocumentIdIn(
+                page.stream().map(Document::getId).collect(Collectors.toList()))
+            .stream()
+            .collect(Collectors.toMap(e -> e.getDocument().getId(), e -> e));
         
-        List<SimilarityResult> results = new ArrayList<>();
-        for (DocumentEmbedding embedding : allEmbeddings) {
-            // Skip the query document itself
-            if (excludeId != null && embedding.getDocument().getId().equals(excludeId)) {
+        List<PendingEmbedding> pending = new ArrayList<>();
+        for (Document document : page) {
+            String content = extractDocumentContent(document);
+            if (content == null || content.trim().isEmpty()) {
+                result.skipped.incrementAndGet();
                 continue;
             }
-            
+            String contentHash = calculateHash(content);
+            DocumentEmbedding current = existing.get(document.getId());
+            if (current != null && contentHash.equals(current.getContentHash())
+                    && current.getVector() != null && embeddingModelName.equals(current.getModelName())) {
+                result.upToDate.incrementAndGet();
+                continue;
+            }
+            pending.add(new PendingEmbedding(document.getId(), content, contentHash));
+        }
+        return pending;
+    }
+    
+    /**
+     * Embed one batch of texts with a single model request and store the results in one transaction.
+     * If the batch request fails, its texts are retried one by one so a single bad text
+     * does not fail the whole batch.
+     */
+    private void processEmbeddingBatch(List<PendingEmbedding> batch, EmbeddingBatchResult result) {
+        List<float[]> vectors;
+        try {
+            vectors = generateEmbeddingVectors(batch.stream().map(p -> p.text).collect(Collectors.toList()));
+        } catch (Exception e) {
+            if (batch.size() == 1) {
+                logger.error("Failed to generate embedding for document {}", batch.get(0).documentId, e);
+                result.failed.incrementAndGet();
+                return;
+            }
+            logger.warn("Embedding batch of {} failed ({}); retrying individually", batch.size(), e.getMessage());
+            for (PendingEmbedding single : batch) {
+                processEmbeddingBatch(List.of(single), result);
+            }
+            return;
+        }
+        
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Map<Long, DocumentEmbedding> existing = embeddingRepository.findByDocumentIdIn(
+                        batch.stream().map(p -> p.documentId).collect(Collectors.toList()))
+                    .stream()
+                    .collect(Collectors.toMap(e -> e.getDocument().getId(), e -> e));
+                List<DocumentEmbedding> toSave = new ArrayList<>(batch.size());
+                for (int i = 0; i < batch.size(); i++) {
+                    PendingEmbedding item = batch.get(i);
+                    DocumentEmbedding embedding = existing.get(item.documentId);
+                    if (embedding == null) {
+                        embedding = new DocumentEmbedding();
+                        embedding.setDocument(documentRepository.getReferenceById(item.documentId));
+                    }
+                    embedding.setVectorValues(vectors.get(i));
+                    embedding.setEmbedding(null);
+                    embedding.setModelName(embeddingModelName);
+                    embedding.setContentHash(item.contentHash);
+                    toSave.add(embedding);
+                }
+                embeddingRepository.saveAll(toSave);
+            });
+            result.generated.addAndGet(batch.size());
+        } catch (Exception e) {
+            logger.error("Failed to store embedding batch of {} documents", batch.size(), e);
+            result.failed.addAndGet(batch.size());
+        }
+    }
+    
+    // Private helper methods
+    
+    private List<SimilarityResult> findSimilarByVector(float[] targetVector, Long excludeId, int limit, SearchMode mode) {
+        if (mode == SearchMode.HNSW && vectorIndexService.isReady()) {
+            try {
+                return findSimilarByVectorIndex(targetVector, excludeId, limit);
+            } catch (Exception e) {
+                logger.warn("Vector index search failed, falling back to exact search: {}", e.getMessage());
+            }
+        }
+        return findSimilarByExactScan(targetVector, excludeId, limit);
+    }
+    
+    private List<SimilarityResult> findSimilarByVectorIndex(float[] targetVector, Long excludeId, int limit) throws IOException {
+        boolean rerank = vectorIndexService.isQuantized();
+        int candidates = rerank ? limit * Math.max(1, rerankFactor) : limit;
+        List<VectorIndexService.VectorHit> hits = vectorIndexService.search(targetVector, candidates, excludeId);
+        Map<Long, Double> scores = new LinkedHashMap<>();
+        for (VectorIndexService.VectorHit hit : hits) {
+            scores.put(hit.getDocumentId(), hit.getSimilarity());
+        }
+        return toResults(rerank ? rerank(targetVector, scores, limit) : scores);
+    }
+    
+    /**
+     * Re-score candidates from a quantized search with their full-precision vectors. Legacy
+     * JSON embeddings are parsed; a candidate whose vector cannot be read keeps its quantized score.
+     * @param candidates candidate IDs and their quantized scores
+     * @return the best candidates by exact cosine similarity, in descending order
+     */
+    private Map<Long, Double> rerank(float[] targetVector, Map<Long, Double> candidates, int limit) {
+        if (candidates.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        float[] target = EmbeddingMatrix.normalize(targetVector);
+        if (target == null) {
+            return Collections.emptyMap();
+        }
+        Map<Long, Double> exact = new HashMap<>(candidates);
+        for (Object[] row : embeddingRepository.findVectorsByDocumentIds(candidates.keySet())) {
+            float[] vector;
             try {
-                List<Double> vector = deserializeEmbedding(embedding.getEmbedding());
-                double similarity = cosineSimilarity(targetVector, vector);
-                results.add(new SimilarityResult(embedding.getDocument(), similarity));
+                vector = EmbeddingMatrix.normalize(row[1] != null
+                    ? DocumentEmbedding.toFloats((byte[]) row[1])
+                    : objectMapper.readValue((String) row[2], float[].class));
             } catch (Exception e) {
-                logger.error("Error calculating similarity for document {}", embedding.getDocument().getId(), e);
+                logger.debug("Keeping quantized score of document {}: {}", row[0], e.getMessage());
+                continue;
             }
+            if (vector == null || vector.length != target.length) {
+                continue;
+            }
+            double dot = 0.0;
+            for (int i = 0; i < target.length; i++) {
+                dot += target[i] * vector[i];
+            }
+            exact.put((Long) row[0], dot);
         }
+        List<Map.Entry<Long, Double>> scored = new ArrayList<>(exact.entrySet());
+        scored.sort((a, b) -> Double.compare(b.getValue(), a.getValue()));
         
-        // Sort by similarity descending
-        results.sort((a, b) -> Double.compare(b.getSimilarity(), a.getSimilarity()));
+        Map<Long, Double> top = new LinkedHashMap<>();
+        for (Map.Entry<Long, Double> entry : scored.subList(0, Math.min(limit, scored.size()))) {
+            top.put(entry.getKey(), entry.getValue());
+        }
+        return top;
+    }
+    
+    /**
+     * Load the documents of scored IDs, keeping the order of the map
+     */
+    private List<SimilarityResult> toResults(Map<Long, Double> scores) {
+        Map<Long, Document> documents = documentRepository.findAllById(scores.keySet()).stream()
+            .collect(Collectors.toMap(Document::getId, d -> d));
         
-        return results.stream().limit(limit).collect(Collectors.toList());
+        List<SimilarityResult> results = new ArrayList<>(scores.size());
+        for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+            Document document = documents.get(entry.getKey());
+            if (document != null) {
+                results.add(new SimilarityResult(document, entry.getValue()));
+            }
+        }
+        return results;
+    }
+    
+    private List<SimilarityResult> findSimilarByExactScan(float[] targetVector, Long excludeId, int limit) {
+        EmbeddingMatrix current = getMatrix();
+        if (current == null || current.getDimension() != targetVector.length) {
+            return Collections.emptyList();
+        }
+        int parallelism = scanThreads > 0 ? scanThreads : Runtime.getRuntime().availableProcessors();
+        // Quantized scores are approximate: scan for extra candidates and re-rank them exactly
+        int candidates = current.isQuantized() ? limit * Math.max(1, rerankFactor) : limit;
+        Map<Long, Double> top = new LinkedHashMap<>();
+        for (EmbeddingMatrix.ScoredDocument scored : current.topK(targetVector, candidates, excludeId, scanExecutor, parallelism)) {
+            top.put(scored.getDocumentId(), scored.getSimilarity());
+        }
+        return toResults(current.isQuantized() ? rerank(targetVector, top, limit) : top);
+    }
+    
+    /**
+     * Get the similarity matrix, loading it from the database on first use
+     * @return the matrix, or null if no embeddings are stored
+     */
+    private EmbeddingMatrix getMatrix() {
+        EmbeddingMatrix current = matrix;
+        if (current != null) {
+            return current;
+        }
+        synchronized (matrixLoadLock) {
+            if (matrix == null) {
+                loadMatrix();
+            }
+            return matrix;
+        }
+    }
+    
+    /**
+     * Read all embeddings page by page, then replay the changes made meanwhile and publish the
+     * matrix in one step under pendingUpdatesLock
+     */
+    private void loadMatrix() {
+        synchronized (pendingUpdatesLock) {
+            pendingMatrixUpdates = new HashMap<>();
+        }
+        EmbeddingMatrix loaded = null;
+        int skipped = 0;
+        boolean complete = false;
+        try {
+            long afterId = 0L;
+            while (true) {
+                List<Object[]> page = embeddingRepository.findEmbeddingPageAfterId(afterId, PageRequest.of(0, loadPageSize));
+                if (page.isEmpty()) {
+                    break;
+                }
+                for (Object[] row : page) {
+                    afterId = (Long) row[0];
+                    try {
+                        float[] vector = row[2] != null
+                            ? DocumentEmbedding.toFloats((byte[]) row[2])
+                            : objectMapper.readValue((String) row[3], float[].class);
+                        if (loaded == null) {
+                            loaded = new EmbeddingMatrix(vector.length, vectorScorer, quantizedMatrix);
+                        }
+                        loaded.put((Long) row[1], vector);
+                    } catch (Exception e) {
+                        skipped++;
+                    }
+                }
+            }
+            complete = true;
+        } finally {
+            synchronized (pendingUpdatesLock) {
+                // A failed load publishes nothing; the next caller loads again
+                if (complete && loaded != null) {
+                    // Replay changes committed while the pages were read
+                    for (Map.Entry<Long, float[]> update : pendingMatrixUpdates.entrySet()) {
+                        if (update.getValue() == REMOVED) {
+                            loaded.remove(update.getKey());
+                        } else if (update.getValue().length == loaded.getDimension()) {
+                            loaded.put(update.getKey(), update.getValue());
+                        }
+                    }
+                    matrix = loaded;
+                }
+                pendingMatrixUpdates = null;
+            }
+        }
+        if (loaded != null) {
+            logger.info("Similarity matrix loaded: {} vectors of dimension {} ({} skipped, scorer {}, {})",
+                loaded.size(), loaded.getDimension(), skipped, vectorScorer.getName(), quantizedMatrix ? "int8" : "float32");
+        }
     }
     
     private String extractDocumentContent(Document document) {
@@ -254,34 +783,33 @@ public class DocumentSimilarityService {
         return result;
     }
     
-    private List<Double> generateEmbeddingVector(String text) {
-        EmbeddingRequest request = new EmbeddingRequest(List.of(text), null);
-        EmbeddingResponse response = embeddingModel.call(request);
-        
-        float[] floatArray = response.getResults().get(0).getOutput();
-        List<Double> doubleList = new ArrayList<>(floatArray.length);
-        for (float f : floatArray) {
-            doubleList.add((double) f);
-        }
-        return doubleList;
+    private float[] generateEmbeddingVector(String text) {
+        return generateEmbeddingVectors(List.of(text)).get(0);
     }
     
-    private double cosineSimilarity(List<Double> a, List<Double> b) {
-        if (a.size() != b.size()) {
-            throw new IllegalArgumentException("Vectors must be same length");
-        }
-        
-        double dotProduct = 0.0;
-        double normA = 0.0;
-        double normB = 0.0;
+    /**
+     * Embed several texts with one model request
+     * @return vectors in the order of the texts
+     */
+    private List<float[]> generateEmbeddingVectors(List<String> texts) {
+        EmbeddingRequest request = new EmbeddingRequest(texts, null);
+        EmbeddingResponse response = embeddingModel.call(request);
         
-        for (int i = 0; i < a.size(); i++) {
-            dotProduct += a.get(i) * b.get(i);
-            normA += a.get(i) * a.get(i);
-            normB += b.get(i) * b.get(i);
+        float[][] vectors = new float[texts.size()][];
+        List<Embedding> results = response.getResults();
+        for (int i = 0; i < results.size(); i++) {
+            Embedding embedding = results.get(i);
+            int index = embedding.getIndex() != null ? embedding.getIndex() : i;
+            if (index >= 0 && index < vectors.length) {
+                vectors[index] = embedding.getOutput();
+            }
         }
-        
-        return dotProduct / (Math.sqrt(normA) * Math.sqrt(normB));
+        for (int i = 0; i < vectors.length; i++) {
+            if (vectors[i] == null) {
+                throw new IllegalStateException("Embedding model returned no vector for input " + i);
+            }
+        }
+        return Arrays.asList(vectors);
     }
     
     private String calculateHash(String content) {
@@ -302,18 +830,15 @@ public class DocumentSimilarityService {
         return sb.toString();
     }
     
-    private String serializeEmbedding(List<Double> embedding) {
-        try {
-            return objectMapper.writeValueAsString(embedding);
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to serialize embedding", e);
+    /**
+     * Get the vector of a stored embedding, parsing legacy JSON rows not yet migrated
+     */
+    private float[] vectorOf(DocumentEmbedding embedding) {
+        if (embedding.getVector() != null) {
+            return embedding.getVectorArray();
         }
-    }
-    
-    private List<Double> deserializeEmbedding(String json) {
         try {
-            return objectMapper.readValue(json, 
-                objectMapper.getTypeFactory().constructCollectionType(List.class, Double.class));
+            return objectMapper.readValue(embedding.getEmbedding(), float[].class);
         } catch (Exception e) {
             throw new RuntimeException("Failed to deserialize embedding", e);
         }
@@ -345,6 +870,71 @@ public class DocumentSimilarityService {
         return true;
     }
     
+    /**
+     * Counts from a batched embedding rebuild
+     */
+    public static class EmbeddingBatchResult {
+        private final AtomicInteger generated = new AtomicInteger();
+        private final AtomicInteger upToDate = new AtomicInteger();
+        private final AtomicInteger skipped = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        
+        public int getGenerated() {
+            return generated.get();
+        }
+        
+        public int getUpToDate() {
+            return upToDate.get();
+        }
+        
+        public int getSkipped() {
+            return skipped.get();
+        }
+        
+        public int getFailed() {
+            return failed.get();
+        }
+    }
+    
+    /**
+     * A page of documents for the embedding pipeline, and the ID the next page starts after
+     * (null once there are no more IDs to read)
+     */
+    private static final class DocumentPage {
+        private final List<Document> documents;
+        private final Long lastId;
+        
+        private DocumentPage(List<Document> documents, Long lastId) {
+            this.documents = documents;
+            this.lastId = lastId;
+        }
+    }
+    
+    /**
+     * A document whose embedding needs to be generated
+     */
+    private static final class PendingEmbedding {
+        private final Long documentId;
+        private final String text;
+        private final String contentHash;
+        
+        private PendingEmbedding(Long documentId, String text, String contentHash) {
+            this.documentId = documentId;
+            this.text = text;
+            this.contentHash = contentHash;
+        }
+    }
+    
+    /**
+     * How similarity queries are answered
+     */
+    public enum SearchMode {
+        /** Approximate nearest neighbours from the HNSW vector index */
+        HNSW,
+        /** Exact brute-force scan of all stored embeddings */
+        EXACT
+    }
+    
     /**
      * Result object for similarity search
      */
@@ -0,0 +1,181 @@
+package com.docmgmt.service;
+
+import com.docmgmt.model.DocumentEmbedding;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Converts embeddings stored in the legacy JSON text column to the binary
+ * float32 vector column. Rows are converted in keyset pages with plain JDBC,
+ * one transaction per page, so the job can be interrupted and resumed.
+ */
+@Service
+@DependsOn("entityManagerFactory")
+public class EmbeddingMigrationService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddingMigrationService.class);
+    
+    @Value("${docmgmt.similarity.migrate-embeddings-on-startup:true}")
+    private boolean migrateOnStartup;
+    
+    @Value("${docmgmt.similarity.migration.page-size:200}")
+    private int pageSize;
+    
+    @Value("${spring.ai.ollama.embedding.options.model:unknown}")
+    private String embeddingModelName;
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    
+    public EmbeddingMigrationService(JdbcTemplate jdbcTemplate,
+                                     TransactionTemplate transactionTemplate,
+                                     ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+    }
+    
+    /**
+     * Convert remaining legacy rows in the background once the application has started
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateOnStartup() {
+        if (!migrateOnStartup) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                migrateLegacyEmbeddings();
+            } catch (Exception e) {
+                logger.error("Embedding migration failed", e);
+            }
+        }, "embedding-migration");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    /**
+     * Convert all JSON embeddings to binary vectors
+     * @return number of rows converted
+     * @throws IllegalStateException if a migration is already running
+     */
+    public long migrateLegacyEmbeddings() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("An embedding migration is already in progress");
+        }
+        try {
+            long converted = 0;
+            long failed = 0;
+            long afterId = 0L;
+            while (true) {
+                List<Map<String, Object>> page = jdbcTemplate.queryForList(
+                    "SELECT id, embedding FROM document_embeddings " +
+                    "WHERE vector IS NULL AND embedding IS NOT NULL AND id > ? ORDER BY id LIMIT ?",
+                    afterId, pageSize);
+                if (page.isEmpty()) {
+                    break;
+                }
+                
+                List<Object[]> updates = new ArrayList<>(page.size());
+                for (Map<String, Object> row : page) {
+                    Long id = ((Number) row.get("ID")).longValue();
+                    afterId = id;
+                    try {
+                        float[] vector = objectMapper.readValue((String) row.get("EMBEDDING"), float[].class);
+                        updates.add(new Object[] {DocumentEmbedding.toBytes(vector), vector.length, embeddingModelName, id});
+                    } catch (Exception e) {
+                        logger.warn("Could not convert embedding {}: {}", id, e.getMessage());
+                        failed++;
+                    }
+                }
+                
+                transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(
+                    "UPDATE document_embeddings SET vector = ?, dimension = ?, model_name = ?, embedding = NULL WHERE id = ?",
+                    updates));
+                converted += updates.size();
+            }
+            if (converted > 0 || failed > 0) {
+                logger.info("Embedding migration complete. Converted: {}, Failed: {}", converted, failed);
+            }
+            return converted;
+        } finally {
+            running.set(false);
+        }
+    }
+    
+    /**
+     * Count embeddings still stored only as JSON
+     */
+    public long countLegacyEmbeddings() {
+        Long count = jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM document_embeddings WHERE vector IS NULL AND embedding IS NOT NULL", Long.class);
+        return count != null ? count : 0;
+    }
+    
+    /**
+     * Schema update does not drop NOT NULL from the legacy column, which new rows leave empty.
+     * Runs after Hibernate has updated the schema and before anything can save an embedding.
+     * @throws IllegalStateException if the column is NOT NULL and cannot be relaxed on this
+     *         database, since saving any new embedding would fail
+     */
+    @PostConstruct
+    public void relaxLegacyColumn() {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            if (!isNotNull(connection, metaData, "document_embeddings", "embedding")) {
+                return null;
+            }
+            String product = metaData.getDatabaseProductName();
+            String ddl = switch (product) {
+                case "H2" -> "ALTER TABLE document_embeddings ALTER COLUMN embedding SET NULL";
+                case "MySQL", "MariaDB" -> "ALTER TABLE document_embeddings MODIFY COLUMN embedding TEXT NULL";
+                case "PostgreSQL" -> "ALTER TABLE document_embeddings ALTER COLUMN embedding DROP NOT NULL";
+                default -> throw new IllegalStateException("Legacy column document_embeddings.embedding is NOT NULL " +
+                    "and cannot be relaxed automatically on " + product + "; drop the constraint before starting");
+            };
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(ddl);
+            }
+            logger.info("Dropped NOT NULL from legacy column document_embeddings.embedding");
+            return null;
+        });
+    }
+    
+    /**
+     * Whether a column exists and is declared NOT NULL
+     */
+    private static boolean isNotNull(Connection connection, DatabaseMetaData metaData, String table, String column)
+            throws SQLException {
+        if (metaData.storesUpperCaseIdentifiers()) {
+            table = table.toUpperCase(Locale.ROOT);
+            column = column.toUpperCase(Locale.ROOT);
+        }
+        try (ResultSet columns = metaData.getColumns(connection.getCatalog(), connection.getSchema(), table, column)) {
+            return columns.next() && columns.getInt("NULLABLE") == DatabaseMetaData.columnNoNulls;
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.docmgmt.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background queue for embedding generation. Saving a document enqueues its ID after the
+ * transaction commits; a fixed number of workers call the embedding model outside of any
+ * request. Repeated requests for a document that is still waiting are coalesced, and when
+ * the model falls behind the bounded queue applies the configured overflow policy; the
+ * default blocks the saving thread briefly so bulk imports are slowed rather than losing
+ * embeddings. Dropped documents are picked up again by the next embedding rebuild.
+ */
+@Service
+public class EmbeddingWorkQueue {
+    
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddingWorkQueue.class);
+    
+    /**
+     * What to do with a new request when the queue is full
+     */
+    public enum OverflowPolicy {
+        /** Discard the new request */
+        DROP_NEWEST,
+        /** Discard the request that has waited longest and queue the new one */
+        DROP_OLDEST,
+        /** Wait up to the offer timeout for space, then discard the new request */
+        BLOCK
+    }
+    
+    @Value("${docmgmt.similarity.queue.capacity:1000}")
+    private int capacity;
+    
+    @Value("${docmgmt.similarity.queue.workers:2}")
+    private int workerCount;
+    
+    @Value("${docmgmt.similarity.queue.virtual-threads:true}")
+    private boolean virtualThreads;
+    
+    @Value("${docmgmt.similarity.queue.overflow-policy:BLOCK}")
+    private OverflowPolicy overflowPolicy;
+    
+    @Value("${docmgmt.similarity.queue.offer-timeout-ms:200}")
+    private long offerTimeoutMs;
+    
+    private final DocumentSimilarityService similarityService;
+    
+    // Waiting document IDs in arrival order; pending maps each to the time it was first queued
+    private LinkedBlockingDeque<Long> queue;
+    private final Map<Long, Long> pending = new ConcurrentHashMap<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+    
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong totalLagMs = new AtomicLong();
+    private final AtomicLong maxLagMs = new AtomicLong();
+    private volatile long lastLagMs;
+    
+    public EmbeddingWorkQueue(DocumentSimilarityService similarityService) {
+        this.similarityService = similarityService;
+    }
+    
+    @PostConstruct
+    public void start() {
+        queue = new LinkedBlockingDeque<>(Math.max(capacity, 1));
+        running = true;
+        ThreadFactory factory = virtualThreads
+            ? Thread.ofVirtual().name("embedding-worker-", 0).factory()
+            : Thread.ofPlatform().name("embedding-worker-", 0).daemon(true).factory();
+        for (int i = 0; i < Math.max(workerCount, 1); i++) {
+            Thread worker = factory.newThread(this::work);
+            workers.add(worker);
+            worker.start();
+        }
+        logger.info("Embedding work queue started with {} {} workers (capacity {}, overflow policy {})",
+            workers.size(), virtualThreads ? "virtual" : "platform", capacity, overflowPolicy);
+    }
+    
+    @PreDestroy
+    public void stop() {
+        running = false;
+        workers.forEach(Thread::interrupt);
+        for (Thread worker : workers) {
+            try {
+                worker.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (!queue.isEmpty()) {
+            logger.info("Embedding work queue stopped with {} documents still waiting", queue.size());
+        }
+    }
+    
+    /**
+     * Queue a document for embedding generation. Inside a transaction the document is
+     * queued only once the transaction commits, so workers never see uncommitted data.
+     * @param documentId the document ID
+     */
+    public void enqueue(Long documentId) {
+        if (documentId == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    offer(documentId);
+                }
+            });
+        } else {
+            offer(documentId);
+        }
+    }
+    
+    /**
+     * Add a document ID to the queue unless it is already waiting
+     * @return true if the document is waiting for a worker afterwards
+     */
+    boolean offer(Long documentId) {
+        submitted.incrementAndGet();
+        if (pending.putIfAbsent(documentId, System.currentTimeMillis()) != null) {
+            coalesced.incrementAndGet();
+            return true;
+        }
+        
+        boolean queued = queue.offerLast(documentId);
+        if (!queued) {
+            queued = handleOverflow(documentId);
+        }
+        if (!queued) {
+            pending.remove(documentId);
+            dropped.incrementAndGet();
+            logger.warn("Embedding queue full ({} waiting); dropped document {}", queue.size(), documentId);
+        }
+        return queued;
+    }
+    
+    private boolean handleOverflow(Long documentId) {
+        switch (overflowPolicy) {
+            case DROP_OLDEST:
+                Long oldest;
+                while ((oldest = queue.pollFirst()) != null) {
+                    pending.remove(oldest);
+                    dropped.incrementAndGet();
+                    logger.warn("Embedding queue full; dropped oldest waiting document {}", oldest);
+                    if (queue.offerLast(documentId)) {
+                        return true;
+                    }
+                }
+                return queue.offerLast(documentId);
+            case BLOCK:
+                try {
+                    return queue.offerLast(documentId, offerTimeoutMs, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            case DROP_NEWEST:
+            default:
+                return false;
+        }
+    }
+    
+    /**
+     * Worker loop: take a document, regenerate its embedding, record how long it waited
+     */
+    private void work() {
+        while (running) {
+            Long documentId;
+            try {
+                documentId = queue.pollFirst(500, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (documentId == null) {
+                continue;
+            }
+            // Removing before the work starts lets a save during generation queue the document again
+            Long queuedAt = pending.remove(documentId);
+            inFlight.incrementAndGet();
+            try {
+                if (similarityService.refreshEmbedding(documentId).getFailed() > 0) {
+                    failed.incrementAndGet();
+                } else {
+                    completed.incrementAndGet();
+                }
+            } catch (Exception e) {
+                failed.incrementAndGet();
+                logger.warn("Embedding generation failed for document {}", documentId, e);
+            } finally {
+                inFlight.decrementAndGet();
+                if (queuedAt != null) {
+                    recordLag(System.currentTimeMillis() - queuedAt);
+                }
+            }
+        }
+    }
+    
+    private void recordLag(long lagMs) {
+        lastLagMs = lagMs;
+        totalLagMs.addAndGet(lagMs);
+        maxLagMs.accumulateAndGet(lagMs, Math::max);
+    }
+    
+    /**
+     * Get queue statistics
+     * @return map of statistics
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queueDepth", queue.size());
+        stats.put("capacity", capacity);
+        stats.put("inFlight", inFlight.get());
+        stats.put("workers", workers.size());
+        stats.put("virtualThreads", virtualThreads);
+        stats.put("overflowPolicy", overflowPolicy.name());
+        stats.put("submitted", submitted.get());
+        stats.put("coalesced", coalesced.get());
+        stats.put("dropped", dropped.get());
+        stats.put("completed", completed.get());
+        stats.put("failed", failed.get());
+        
+        Long oldest = queue.peekFirst();
+        Long oldestQueuedAt = oldest != null ? pending.get(oldest) : null;
+        stats.put("oldestWaitingMs", oldestQueuedAt != null ? System.currentTimeMillis() - oldestQueuedAt : 0L);
+        long finished = completed.get() + failed.get();
+        stats.put("lastLagMs", lastLagMs);
+        stats.put("averageLagMs", finished > 0 ? totalLagMs.get() / finished : 0L);
+        stats.put("maxLagMs", maxLagMs.get());
+        return stats;
+    }
+    
+    /**
+     * @return number of documents waiting for a worker
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+}
@@ -0,0 +1,36 @@
+package com.docmgmt.service;
+
+import java.util.Set;
+
+/**
+ * Published by FolderService when documents are filed into or out of a folder, a folder
+ * subtree moves or is deleted, or a root folder is renamed, so the folder ancestry paths
+ * indexed for the affected documents can be refreshed.
+ */
+public class FolderMembershipChangedEvent {
+    
+    private final Set<Long> documentIds;
+    private final Set<Long> folderIds;
+    
+    /**
+     * @param documentIds documents added to or removed from a folder directly, or filed below a deleted one
+     * @param folderIds folders whose whole subtree changed position or root name
+     */
+    public FolderMembershipChangedEvent(Set<Long> documentIds, Set<Long> folderIds) {
+        this.documentIds = documentIds;
+        this.folderIds = folderIds;
+    }
+    
+    public Set<Long> getDocumentIds() {
+        return documentIds;
+    }
+    
+    public Set<Long> getFolderIds() {
+        return folderIds;
+    }
+    
+    @Override
+    public String toString() {
+        return "FolderMembershipChangedEvent{documentIds=" + documentIds + ", folderIds=" + folderIds + "}";
+    }
+}
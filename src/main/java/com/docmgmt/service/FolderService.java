@@ -1,14 +1,19 @@
 package com.docmgmt.service;
 
+import com.docmgmt.model.Document;
 import com.docmgmt.model.Folder;
 import com.docmgmt.model.SysObject;
 import com.docmgmt.repository.FolderRepository;
+import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Service for Folder entity operations
@@ -18,9 +23,12 @@ public class FolderService extends AbstractSysObjectService<Folder, FolderReposi
     
     private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(FolderService.class);
     
+    private final ApplicationEventPublisher eventPublisher;
+    
     @Autowired
-    public FolderService(FolderRepository repository) {
+    public FolderService(FolderRepository repository, ApplicationEventPublisher eventPublisher) {
         super(repository);
+        this.eventPublisher = eventPublisher;
     }
     
     /**
@@ -112,7 +120,9 @@ public class FolderService extends AbstractSysObjectService<Folder, FolderReposi
     public Folder addItemToFolder(Long folderId, SysObject item) {
         Folder folder = findById(folderId);
         folder.addItem(item);
-        return repository.save(folder);
+        Folder saved = repository.save(folder);
+        publishItemMoved(item);
+        return saved;
     }
     
     /**
@@ -125,7 +135,9 @@ public class FolderService extends AbstractSysObjectService<Folder, FolderReposi
     public Folder removeItemFromFolder(Long folderId, SysObject item) {
         Folder folder = findById(folderId);
         folder.removeItem(item);
-        return repository.save(folder);
+        Folder saved = repository.save(folder);
+        publishItemMoved(item);
+        return saved;
     }
     
     /**
@@ -138,7 +150,11 @@ public class FolderService extends AbstractSysObjectService<Folder, FolderReposi
     public Folder addChildFolder(Long parentId, Folder child) {
         Folder parent = findById(parentId);
         parent.addChildFolder(child);
-        return repository.save(parent);
+        Folder saved = repository.save(parent);
+        if (child.getId() != null) {
+            publishFoldersMoved(List.of(child.getId()));
+        }
+        return saved;
     }
     
     /**
@@ -176,7 +192,9 @@ public class FolderService extends AbstractSysObjectService<Folder, FolderReposi
             repository.save(folder);
         }
         
-        return parent != null ? repository.save(parent) : null;
+        Folder saved = parent != null ? repository.save(parent) : null;
+        publishFoldersMoved(folderIds);
+        return saved;
     }
     
     /**
@@ -197,6 +215,7 @@ public class FolderService extends AbstractSysObjectService<Folder, FolderReposi
             folder.setParentFolder(null);
             repository.save(folder);
         }
+        publishFoldersMoved(folderIds);
     }
     
     /**
@@ -425,6 +444,8 @@ public class FolderService extends AbstractSysObjectService<Folder, FolderReposi
     public Folder updateFolder(Long folderId, String name, String path, String description, String url, String color,
                               com.docmgmt.model.User owner, java.util.Set<com.docmgmt.model.User> authors) {
         Folder folder = findById(folderId);
+        // Documents below a root folder are faceted by its name
+        boolean rootRenamed = folder.isRootFolder() && !java.util.Objects.equals(folder.getName(), name);
         
         folder.setName(name);
         folder.setPath(path);
@@ -449,6 +470,51 @@ public class FolderService extends AbstractSysObjectService<Folder, FolderReposi
             logger.info("No authors to add to folder {}", folder.getName());
         }
         
-        return save(folder);
+        Folder saved = save(folder);
+        if (rootRenamed) {
+            publishFoldersMoved(List.of(folderId));
+        }
+        return saved;
+    }
+    
+    /**
+     * Delete a folder. The documents filed below it are collected first, since the
+     * folders leave their indexed ancestry together with the subtree.
+     * @param id The folder ID
+     * @throws jakarta.persistence.EntityNotFoundException if the folder is not found
+     */
+    @Override
+    @Transactional
+    public void delete(Long id) {
+        Set<Long> documentIds = new LinkedHashSet<>(repository.findDocumentIdsInSubtrees(List.of(id)));
+        super.delete(id);
+        if (!documentIds.isEmpty()) {
+            eventPublisher.publishEvent(new FolderMembershipChangedEvent(documentIds, Set.of()));
+        }
+    }
+    
+    /**
+     * Announce that an item was filed into or out of a folder; a folder item takes its subtree along
+     */
+    private void publishItemMoved(SysObject item) {
+        if (item == null || item.getId() == null) {
+            return;
+        }
+        Class<?> type = Hibernate.getClass(item);
+        if (Document.class.isAssignableFrom(type)) {
+            eventPublisher.publishEvent(new FolderMembershipChangedEvent(Set.of(item.getId()), Set.of()));
+        } else if (Folder.class.isAssignableFrom(type)) {
+            eventPublisher.publishEvent(new FolderMembershipChangedEvent(Set.of(), Set.of(item.getId())));
+        }
+    }
+    
+    /**
+     * Announce that folders moved or a root folder was renamed, changing the ancestry of everything below them
+     */
+    private void publishFoldersMoved(List<Long> folderIds) {
+        if (folderIds == null || folderIds.isEmpty()) {
+            return;
+        }
+        eventPublisher.publishEvent(new FolderMembershipChangedEvent(Set.of(), new LinkedHashSet<>(folderIds)));
     }
 }
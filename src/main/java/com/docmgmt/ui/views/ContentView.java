@@ -37,7 +37,6 @@ import com.vaadin.flow.data.renderer.ComponentRenderer;
 import com.vaadin.flow.router.PageTitle;
 import com.vaadin.flow.router.Route;
 import com.vaadin.flow.server.StreamResource;
-import org.apache.commons.io.IOUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.io.ByteArrayInputStream;
@@ -100,14 +99,10 @@ public class ContentView extends VerticalLayout {
             ? content.getFileStore().getName() : "Database")
             .setHeader("Storage Location").setSortable(true);
         
-        // Size column with formatter
-        grid.addColumn(content -> {
-            try {
-                return formatFileSize(content.getSize());
-            } catch (IOException e) {
-                return "Error";
-            }
-        }).setHeader("Size").setSortable(true);
+        // Size column with formatter, from the size recorded when the bytes were written
+        grid.addColumn(content -> content.getSizeBytes() != null
+            ? formatFileSize(content.getSizeBytes()) : "Unknown")
+            .setHeader("Size").setSortable(true);
         
         // Creation/modification dates
         grid.addColumn(content -> content.getCreatedAt().format(DATE_FORMATTER))
@@ -168,20 +163,16 @@ public class ContentView extends VerticalLayout {
                 content.setName(event.getFileName());
                 content.setContentType(event.getMIMEType());
                 
-                // Read file content
-                InputStream inputStream = buffer.getInputStream();
-                byte[] fileData = IOUtils.toByteArray(inputStream);
-                
                 // Set the file store if selected
                 FileStore selectedFileStore = fileStoreSelect.getValue();
                 if (selectedFileStore != null) {
                     content.setFileStore(selectedFileStore);
-                    content.setStoragePath(generateStoragePath(event.getFileName()));
                 }
                 
-                // Save the content
-                content.setContentBytes(fileData);
-                contentService.save(content);
+                // Store the bytes and save the content through the service, which picks the storage path
+                try (InputStream inputStream = buffer.getInputStream()) {
+                    contentService.createContent(content, inputStream);
+                }
                 
                 updateList();
                 Notification.show("Upload successful: " + event.getFileName(), 
@@ -399,7 +390,7 @@ public class ContentView extends VerticalLayout {
                 content.getName(),
                 () -> {
                     try {
-                        byte[] bytes = content.getContentBytes();
+                        byte[] bytes = contentService.getContentBytes(content.getId());
                         return new ByteArrayInputStream(bytes);
                     } catch (IOException e) {
                         Notification.show("Failed to download content: " + e.getMessage(), 
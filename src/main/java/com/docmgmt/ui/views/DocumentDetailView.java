@@ -32,7 +32,6 @@ import com.vaadin.flow.router.*;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.io.ByteArrayInputStream;
-import java.io.IOException;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -432,18 +431,9 @@ public class DocumentDetailView extends VerticalLayout implements HasUrlParamete
             return "Unknown";
         }).setHeader("Storage").setAutoWidth(true);
         
-        contentGrid.addColumn(content -> {
-            if (content.getContent() != null) {
-                return formatBytes(content.getContent().length);
-            } else if (content.getStoragePath() != null) {
-                try {
-                    return formatBytes(contentService.getContentBytes(content.getId()).length);
-                } catch (IOException e) {
-                    return "Error";
-                }
-            }
-            return "0 bytes";
-        }).setHeader("Size").setAutoWidth(true);
+        // Recorded when the bytes were written, so no content is read to render the grid
+        contentGrid.addColumn(content -> content.getSizeBytes() != null
+            ? formatBytes(content.getSizeBytes()) : "Unknown").setHeader("Size").setAutoWidth(true);
         
         // Add actions column
         contentGrid.addComponentColumn(content -> {
@@ -2,6 +2,7 @@ package com.docmgmt.ui.views;
 
 import com.docmgmt.model.*;
 import com.docmgmt.model.Document.DocumentType;
+import com.docmgmt.search.LuceneIndexService;
 import com.docmgmt.service.ContentService;
 import com.docmgmt.service.DocumentService;
 import com.docmgmt.service.FileStoreService;
@@ -51,13 +52,13 @@ import com.vaadin.flow.data.provider.CallbackDataProvider;
 import com.vaadin.flow.data.provider.DataProvider;
 import com.vaadin.flow.data.provider.Query;
 import com.vaadin.flow.data.renderer.ComponentRenderer;
-import com.vaadin.flow.data.value.ValueChangeMode;
 import com.vaadin.flow.component.select.Select;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import com.vaadin.flow.router.PageTitle;
+import com.vaadin.flow.router.QueryParameters;
 import com.vaadin.flow.router.Route;
 import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -72,6 +73,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Route(value = "", layout = MainLayout.class)
 @PageTitle("Documents | Document Management System")
@@ -82,9 +84,10 @@ public class DocumentView extends VerticalLayout {
     private final FileStoreService fileStoreService;
     private final UserService userService;
     private final TransformerRegistry transformerRegistry;
+    private final LuceneIndexService searchService;
     
     private Grid<Document> grid;
-    private TextField filterText;
+    private ComboBox<String> filterText;
     private Button addButton;
     private Button editButton;
     private Button deleteButton;
@@ -107,12 +110,13 @@ public class DocumentView extends VerticalLayout {
     @Autowired
     public DocumentView(DocumentService documentService, ContentService contentService, 
                        FileStoreService fileStoreService, UserService userService,
-                       TransformerRegistry transformerRegistry) {
+                       TransformerRegistry transformerRegistry, LuceneIndexService searchService) {
         this.documentService = documentService;
         this.contentService = contentService;
         this.fileStoreService = fileStoreService;
         this.userService = userService;
         this.transformerRegistry = transformerRegistry;
+        this.searchService = searchService;
         
         addClassName("document-view");
         setSizeFull();
@@ -213,24 +217,30 @@ public class DocumentView extends VerticalLayout {
     }
     
     private void configureFilter() {
-        filterText = new TextField();
-        filterText.setPlaceholder("Filter by name, description, or author...");
+        // Type-ahead over document names, tags and keywords; picking a suggestion or entering
+        // other text opens the search page with it
+        filterText = new ComboBox<>();
+        filterText.setPlaceholder("Search by name, tag, or keyword...");
         filterText.setClearButtonVisible(true);
-        filterText.setValueChangeMode(ValueChangeMode.LAZY);
+        filterText.setAllowCustomValue(true);
+        filterText.setItems(query -> suggestions(query.getFilter().orElse(""), query.getOffset(), query.getLimit()));
+        filterText.addCustomValueSetListener(e -> filterText.setValue(e.getDetail()));
         filterText.addValueChangeListener(e -> filterGrid());
     }
     
+    private Stream<String> suggestions(String prefix, int offset, int limit) {
+        try {
+            return searchService.suggest(prefix, offset + limit).stream().skip(offset);
+        } catch (IOException e) {
+            return Stream.empty();
+        }
+    }
+    
     private void filterGrid() {
-        // For lazy loading, filter needs to be implemented server-side
-        // For now, refresh the data when filter changes
-        // A full implementation would pass the filter to the backend query
-        if (dataProvider != null && filterText != null) {
-            String filter = filterText.getValue();
-            if (filter != null && !filter.trim().isEmpty()) {
-                Notification.show("Client-side filtering not supported with lazy loading. Use search page for filtering.", 
-                    3000, Notification.Position.BOTTOM_START)
-                    .addThemeVariants(NotificationVariant.LUMO_CONTRAST);
-            }
+        // The grid loads lazily from the database, so filtering is done by the search page
+        String filter = filterText.getValue();
+        if (filter != null && !filter.trim().isEmpty()) {
+            getUI().ifPresent(ui -> ui.navigate(SearchView.class, QueryParameters.of("q", filter.trim())));
         }
     }
     
@@ -869,18 +879,9 @@ public class DocumentView extends VerticalLayout {
             }
             return "Unknown";
         }).setHeader("Storage").setAutoWidth(true);
-        contentGrid.addColumn(content -> {
-            if (content.getContent() != null) {
-                return content.getContent().length + " bytes";
-            } else if (content.getStoragePath() != null) {
-                try {
-                    return contentService.getContentBytes(content.getId()).length + " bytes";
-                } catch (IOException e) {
-                    return "Error";
-                }
-            }
-            return "0 bytes";
-        }).setHeader("Size").setAutoWidth(true);
+        // Recorded when the bytes were written, so no content is read to render the grid
+        contentGrid.addColumn(content -> content.getSizeBytes() != null
+            ? content.getSizeBytes() + " bytes" : "Unknown").setHeader("Size").setAutoWidth(true);
         
         // Add actions column with view/download/transform buttons
         contentGrid.addComponentColumn(content -> {
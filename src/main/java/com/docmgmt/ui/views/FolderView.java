@@ -2210,31 +2210,6 @@ public class FolderView extends VerticalLayout {
         return stats;
     }
     
-    /**
-     * Generate a unique hierarchical storage path for a file
-     */
-    private String generateStoragePath(String originalFilename) {
-        String uuid = java.util.UUID.randomUUID().toString();
-        String extension = "";
-        
-        if (originalFilename != null && originalFilename.contains(".")) {
-            extension = originalFilename.substring(originalFilename.lastIndexOf('.'));
-        }
-        
-        // Remove hyphens from UUID for easier splitting
-        String uuidNoDashes = uuid.replace("-", "");
-        
-        // Create hierarchical path: split into 4 levels of 2 characters each
-        String level1 = uuidNoDashes.substring(0, 2);
-        String level2 = uuidNoDashes.substring(2, 4);
-        String level3 = uuidNoDashes.substring(4, 6);
-        String level4 = uuidNoDashes.substring(6, 8);
-        
-        // Construct path: dir1/dir2/dir3/dir4/originalUUID.ext
-        return String.format("%s/%s/%s/%s/%s%s", 
-            level1, level2, level3, level4, uuid, extension);
-    }
-    
     /**
      * Import a single file as a document
      */
@@ -2243,9 +2218,6 @@ public class FolderView extends VerticalLayout {
                            boolean indexDocuments, 
                            boolean extractFields,
                            FileStore fileStore) throws Exception {
-        // Read file bytes
-        byte[] fileBytes = java.nio.file.Files.readAllBytes(file.toPath());
-        
         // Determine content type
         String contentType = java.nio.file.Files.probeContentType(file.toPath());
         if (contentType == null) {
@@ -2259,38 +2231,26 @@ public class FolderView extends VerticalLayout {
         document.setDocumentType(DocumentType.OTHER);
         document = documentService.save(document);
         
-        // Create primary content
+        // Create primary content in the file store if one is given, otherwise in the database.
+        // The service stores the bytes before saving, so size, hash and MIME type are persisted.
         Content content;
         Content.ContentBuilder contentBuilder = Content.builder()
             .name(file.getName())
             .contentType(contentType)
             .isPrimary(true)
             .isIndexable(true)
-            .sysObject(document);
-        
-        // Set storage location based on fileStore parameter
-        if (fileStore != null) {
-            // Generate unique storage path for file store
-            String storagePath = generateStoragePath(file.getName());
-            contentBuilder.fileStore(fileStore).storagePath(storagePath);
-            
-            // Save content entity first
-            content = contentService.save(contentBuilder.build());
-            
-            // Then store the file bytes
-            content.setContentBytes(fileBytes);
-        } else {
-            // Store in database
-            contentBuilder.content(fileBytes);
-            content = contentService.save(contentBuilder.build());
+            .sysObject(document)
+            .fileStore(fileStore);
+        try (InputStream in = java.nio.file.Files.newInputStream(file.toPath())) {
+            content = contentService.createContent(contentBuilder.build(), in);
         }
         
         // Add document to folder - reload both entities to ensure clean managed state
         Document managedDocument = documentService.findById(document.getId());
         Folder managedFolder = folderService.findById(parentFolder.getId());
         if (!managedFolder.getItems().contains(managedDocument)) {
-            managedFolder.addItem(managedDocument);
-            folderService.save(managedFolder);
+            // Through the service so the document's folder paths get indexed
+            folderService.addItemToFolder(managedFolder.getId(), managedDocument);
         }
         
         // Generate text rendition if requested and it's a PDF
@@ -1,7 +1,12 @@
 package com.docmgmt.ui.views;
 
 import com.docmgmt.model.Document;
+import com.docmgmt.model.Folder;
+import com.docmgmt.search.FacetCount;
+import com.docmgmt.search.IndexRebuildService;
+import com.docmgmt.search.IndexRebuildStatus;
 import com.docmgmt.search.LuceneIndexService;
+import com.docmgmt.search.SearchFilters;
 import com.docmgmt.search.SearchResult;
 import com.docmgmt.search.SearchResultsWrapper;
 import com.docmgmt.service.DocumentService;
@@ -11,6 +16,8 @@ import com.vaadin.flow.data.provider.ListDataProvider;
 import com.docmgmt.ui.MainLayout;
 import com.vaadin.flow.component.button.Button;
 import com.vaadin.flow.component.button.ButtonVariant;
+import com.vaadin.flow.component.checkbox.Checkbox;
+import com.vaadin.flow.component.combobox.ComboBox;
 import com.vaadin.flow.component.checkbox.CheckboxGroup;
 import com.vaadin.flow.component.grid.Grid;
 import com.vaadin.flow.component.grid.GridVariant;
@@ -27,17 +34,22 @@ import com.vaadin.flow.component.orderedlayout.VerticalLayout;
 import com.vaadin.flow.component.radiobutton.RadioButtonGroup;
 import com.vaadin.flow.component.textfield.TextField;
 import com.vaadin.flow.component.select.Select;
+import com.vaadin.flow.router.BeforeEnterEvent;
+import com.vaadin.flow.router.BeforeEnterObserver;
 import com.vaadin.flow.router.PageTitle;
 import com.vaadin.flow.router.Route;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.io.IOException;
 import java.util.*;
+import java.util.stream.Stream;
 
 @Route(value = "search", layout = MainLayout.class)
 @PageTitle("Search | Document Management System")
-public class SearchView extends VerticalLayout {
+public class SearchView extends VerticalLayout implements BeforeEnterObserver {
     
     private final LuceneIndexService searchService;
+    private final IndexRebuildService rebuildService;
     private final DocumentService documentService;
     private final com.docmgmt.service.UserService userService;
     private final com.docmgmt.service.ContentService contentService;
@@ -45,8 +57,9 @@ public class SearchView extends VerticalLayout {
     private final com.docmgmt.service.DocumentSimilarityService similarityService;
     private final com.docmgmt.service.DocumentFieldExtractionService fieldExtractionService;
     private final com.docmgmt.service.FileStoreService fileStoreService;
+    private final com.docmgmt.service.FolderService folderService;
     
-    private TextField searchField;
+    private ComboBox<String> searchField;
     private TextField nameField;
     private TextField descriptionField;
     private TextField keywordsField;
@@ -54,25 +67,39 @@ public class SearchView extends VerticalLayout {
     private TextField contentField;
     private RadioButtonGroup<String> searchMode;
     private RadioButtonGroup<String> operatorGroup;
+    private Checkbox latestOnlyCheckbox;
+    private ComboBox<Folder> folderScope;
     private CheckboxGroup<String> fieldSelection;
     private Grid<SearchResult> resultsGrid;
     private Span resultsCount;
     private Select<Integer> maxResultsSelect;
     private Select<Integer> pageSizeSelect;
     private ListDataProvider<SearchResult> dataProvider;
+    private Button loadMoreButton;
+    // Fetches one page of the current search; the cursor is null for the first page
+    private PageLoader pageLoader;
+    private String nextCursor;
+    private final List<SearchResult> loadedResults = new ArrayList<>();
+    // Facet counts of the current simple search, and the facet values it is drilled down to
+    private HorizontalLayout facetsLayout;
+    private final Map<String, List<String>> drillDowns = new LinkedHashMap<>();
+    private static final int FACET_VALUES = 10;
     private static final int DEFAULT_MAX_RESULTS = 100;
     private static final int DEFAULT_PAGE_SIZE = 20;
     
     @Autowired
     public SearchView(LuceneIndexService searchService, 
+                     IndexRebuildService rebuildService,
                      DocumentService documentService,
                      com.docmgmt.service.UserService userService,
                      com.docmgmt.service.ContentService contentService,
                      com.docmgmt.plugin.PluginService pluginService,
                      com.docmgmt.service.DocumentSimilarityService similarityService,
                      com.docmgmt.service.DocumentFieldExtractionService fieldExtractionService,
-                     com.docmgmt.service.FileStoreService fileStoreService) {
+                     com.docmgmt.service.FileStoreService fileStoreService,
+                     com.docmgmt.service.FolderService folderService) {
         this.searchService = searchService;
+        this.rebuildService = rebuildService;
         this.documentService = documentService;
         this.userService = userService;
         this.contentService = contentService;
@@ -80,6 +107,7 @@ public class SearchView extends VerticalLayout {
         this.similarityService = similarityService;
         this.fieldExtractionService = fieldExtractionService;
         this.fileStoreService = fileStoreService;
+        this.folderService = folderService;
         
         addClassName("search-view");
         setSizeFull();
@@ -106,10 +134,14 @@ public class SearchView extends VerticalLayout {
         searchMode.setValue("Simple Search");
         
         // Simple search field
-        searchField = new TextField("Search Query");
+        // Simple search field; suggestions come from the type-ahead index, any other text is kept as typed
+        searchField = new ComboBox<>("Search Query");
         searchField.setPlaceholder("Enter search terms...");
         searchField.setWidthFull();
         searchField.setClearButtonVisible(true);
+        searchField.setAllowCustomValue(true);
+        searchField.setItems(query -> suggestions(query.getFilter().orElse(""), query.getOffset(), query.getLimit()));
+        searchField.addCustomValueSetListener(e -> searchField.setValue(e.getDetail()));
         
         // Field-specific search fields
         VerticalLayout fieldSearchLayout = new VerticalLayout();
@@ -158,7 +190,10 @@ public class SearchView extends VerticalLayout {
         // Search and index buttons
         Button searchButton = new Button("Search", new Icon(VaadinIcon.SEARCH));
         searchButton.addThemeVariants(ButtonVariant.LUMO_PRIMARY);
-        searchButton.addClickListener(e -> performSearch());
+        searchButton.addClickListener(e -> {
+            drillDowns.clear();
+            performSearch();
+        });
         
         Button rebuildIndexButton = new Button("Rebuild Index", new Icon(VaadinIcon.REFRESH));
         rebuildIndexButton.addThemeVariants(ButtonVariant.LUMO_CONTRAST);
@@ -170,7 +205,19 @@ public class SearchView extends VerticalLayout {
         HorizontalLayout buttonLayout = new HorizontalLayout(searchButton, rebuildIndexButton, clearButton);
         buttonLayout.setSpacing(true);
         
-        formLayout.add(searchMode, searchField, fieldSearchLayout, buttonLayout);
+        latestOnlyCheckbox = new Checkbox("Latest versions only", true);
+        
+        folderScope = new ComboBox<>("Within Folder");
+        folderScope.setPlaceholder("All folders");
+        folderScope.setItems(folderService.findAll());
+        folderScope.setItemLabelGenerator(Folder::getName);
+        folderScope.setClearButtonVisible(true);
+        folderScope.setHelperText("Includes subfolders");
+        
+        HorizontalLayout filterLayout = new HorizontalLayout(folderScope, latestOnlyCheckbox);
+        filterLayout.setDefaultVerticalComponentAlignment(FlexComponent.Alignment.CENTER);
+        
+        formLayout.add(searchMode, searchField, fieldSearchLayout, filterLayout, buttonLayout);
         
         return formLayout;
     }
@@ -182,7 +229,7 @@ public class SearchView extends VerticalLayout {
         
         // Max results selector
         maxResultsSelect = new Select<>();
-        maxResultsSelect.setLabel("Max Results");
+        maxResultsSelect.setLabel("Results per Load");
         maxResultsSelect.setItems(100, 500, 1000, 5000, 10000);
         maxResultsSelect.setValue(DEFAULT_MAX_RESULTS);
         maxResultsSelect.setWidth("150px");
@@ -251,15 +298,45 @@ public class SearchView extends VerticalLayout {
             }
         });
         
-        panel.add(controlsLayout, resultsGrid);
+        loadMoreButton = new Button("Load More", new Icon(VaadinIcon.ANGLE_DOUBLE_DOWN));
+        loadMoreButton.setVisible(false);
+        loadMoreButton.addClickListener(e -> loadNextPage());
+        
+        facetsLayout = new HorizontalLayout();
+        facetsLayout.setSpacing(true);
+        facetsLayout.setVisible(false);
+        
+        panel.add(controlsLayout, facetsLayout, resultsGrid, loadMoreButton);
         panel.expand(resultsGrid);
         
         return panel;
     }
     
+    /**
+     * Run a simple search for the q query parameter, e.g. a suggestion picked in the documents view
+     */
+    @Override
+    public void beforeEnter(BeforeEnterEvent event) {
+        List<String> query = event.getLocation().getQueryParameters().getParameters().get("q");
+        if (query != null && !query.isEmpty() && !query.get(0).isBlank()) {
+            searchMode.setValue("Simple Search");
+            searchField.setValue(query.get(0));
+            drillDowns.clear();
+            performSearch();
+        }
+    }
+    
+    private Stream<String> suggestions(String prefix, int offset, int limit) {
+        try {
+            return searchService.suggest(prefix, offset + limit).stream().skip(offset);
+        } catch (IOException e) {
+            return Stream.empty();
+        }
+    }
+    
     private void performSearch() {
         try {
-            SearchResultsWrapper wrapper;
+            PageLoader loader;
             
             if ("Simple Search".equals(searchMode.getValue())) {
                 String query = searchField.getValue();
@@ -270,8 +347,10 @@ public class SearchView extends VerticalLayout {
                     return;
                 }
                 
-                int maxResults = maxResultsSelect.getValue() != null ? maxResultsSelect.getValue() : DEFAULT_MAX_RESULTS;
-                wrapper = searchService.search(query, maxResults);
+                Map<String, List<String>> drilledTo = new LinkedHashMap<>(drillDowns);
+                SearchFilters filters = currentFilters();
+                loader = cursor -> searchService.facetedSearch(query, drilledTo, fetchSize(), cursor, FACET_VALUES, 
+                    false, filters);
                 
             } else {
                 // Field-specific search
@@ -305,27 +384,28 @@ public class SearchView extends VerticalLayout {
                         org.apache.lucene.search.BooleanClause.Occur.SHOULD : 
                         org.apache.lucene.search.BooleanClause.Occur.MUST;
                 
-                int maxResults = maxResultsSelect.getValue() != null ? maxResultsSelect.getValue() : DEFAULT_MAX_RESULTS;
-                wrapper = searchService.searchFieldsWithOperator(fieldQueries, operator, maxResults);
+                SearchFilters filters = currentFilters();
+                loader = cursor -> searchService.searchFieldsAfter(fieldQueries, operator, fetchSize(), cursor, filters);
             }
             
+            SearchResultsWrapper wrapper = loader.load(null);
+            pageLoader = loader;
+            loadedResults.clear();
+            loadedResults.addAll(wrapper.getResults());
+            nextCursor = wrapper.getNextCursor();
+            
             // Setup data provider with pagination
-            List<SearchResult> results = wrapper.getResults();
-            dataProvider = DataProvider.ofCollection(results);
+            dataProvider = DataProvider.ofCollection(loadedResults);
             resultsGrid.setDataProvider(dataProvider);
             
             // Set page size
             int pageSize = pageSizeSelect.getValue() != null ? pageSizeSelect.getValue() : DEFAULT_PAGE_SIZE;
             resultsGrid.setPageSize(pageSize);
             
-            // Update count with total hits
-            String countText = String.format("%,d result(s) found", wrapper.getTotalHits());
-            if (wrapper.hasMoreResults()) {
-                countText += String.format(" (showing first %,d)", results.size());
-            }
-            resultsCount.setText(countText);
+            updateResultsCount(wrapper.getTotalHits());
+            showFacets(wrapper.getFacets());
             
-            if (results.isEmpty()) {
+            if (loadedResults.isEmpty()) {
                 Notification.show("No results found", 
                     3000, Notification.Position.BOTTOM_START)
                     .addThemeVariants(NotificationVariant.LUMO_CONTRAST);
@@ -338,15 +418,96 @@ public class SearchView extends VerticalLayout {
         }
     }
     
+    /**
+     * Append the next page of the current search, continuing from the last cursor
+     */
+    private void loadNextPage() {
+        if (pageLoader == null || nextCursor == null) {
+            return;
+        }
+        try {
+            SearchResultsWrapper wrapper = pageLoader.load(nextCursor);
+            loadedResults.addAll(wrapper.getResults());
+            nextCursor = wrapper.getNextCursor();
+            dataProvider.refreshAll();
+            updateResultsCount(wrapper.getTotalHits());
+        } catch (Exception e) {
+            Notification.show("Failed to load more results: " + e.getMessage(), 
+                3000, Notification.Position.BOTTOM_START)
+                .addThemeVariants(NotificationVariant.LUMO_ERROR);
+        }
+    }
+    
+    /**
+     * Show one checkbox group per facet dimension; ticking values drills the search down to them
+     */
+    private void showFacets(Map<String, List<FacetCount>> facets) {
+        facetsLayout.removeAll();
+        if (facets == null) {
+            facetsLayout.setVisible(false);
+            return;
+        }
+        facets.forEach((dimension, counts) -> {
+            if (counts.isEmpty()) {
+                return;
+            }
+            Map<String, Long> countByValue = new LinkedHashMap<>();
+            counts.forEach(count -> countByValue.put(count.getValue(), count.getCount()));
+            
+            CheckboxGroup<String> group = new CheckboxGroup<>();
+            group.setLabel(dimension);
+            group.setItems(countByValue.keySet());
+            group.setItemLabelGenerator(value -> value + " (" + countByValue.get(value) + ")");
+            group.setValue(new LinkedHashSet<>(drillDowns.getOrDefault(dimension, List.of())));
+            group.addValueChangeListener(e -> {
+                if (!e.isFromClient()) {
+                    return;
+                }
+                if (e.getValue().isEmpty()) {
+                    drillDowns.remove(dimension);
+                } else {
+                    drillDowns.put(dimension, new ArrayList<>(e.getValue()));
+                }
+                performSearch();
+            });
+            facetsLayout.add(group);
+        });
+        facetsLayout.setVisible(facetsLayout.getComponentCount() > 0);
+    }
+    
+    private void updateResultsCount(long totalHits) {
+        String countText = String.format("%,d result(s) found", totalHits);
+        if (nextCursor != null) {
+            countText += String.format(" (showing first %,d)", loadedResults.size());
+        }
+        resultsCount.setText(countText);
+        loadMoreButton.setVisible(nextCursor != null);
+    }
+    
+    private SearchFilters currentFilters() {
+        return SearchFilters.builder()
+            .latestOnly(latestOnlyCheckbox.getValue())
+            .folderId(folderScope.getValue() != null ? folderScope.getValue().getId() : null)
+            .build();
+    }
+    
+    private int fetchSize() {
+        return maxResultsSelect.getValue() != null ? maxResultsSelect.getValue() : DEFAULT_MAX_RESULTS;
+    }
+    
     private void rebuildIndex() {
         try {
-            List<Document> allDocuments = documentService.findAll();
-            searchService.rebuildIndex(allDocuments);
+            IndexRebuildStatus status = rebuildService.startRebuild();
             
-            Notification.show("Index rebuilt successfully with " + allDocuments.size() + " documents", 
+            Notification.show("Index rebuild started for " + status.getTotalDocuments() + 
+                " documents; search stays available while it runs", 
                 3000, Notification.Position.BOTTOM_START)
                 .addThemeVariants(NotificationVariant.LUMO_SUCCESS);
                 
+        } catch (IllegalStateException e) {
+            Notification.show("An index rebuild is already in progress", 
+                3000, Notification.Position.BOTTOM_START)
+                .addThemeVariants(NotificationVariant.LUMO_CONTRAST);
         } catch (Exception e) {
             Notification.show("Failed to rebuild index: " + e.getMessage(), 
                 3000, Notification.Position.BOTTOM_START)
@@ -363,6 +524,13 @@ public class SearchView extends VerticalLayout {
         contentField.clear();
         resultsGrid.setItems();
         resultsCount.setText("No search performed");
+        pageLoader = null;
+        nextCursor = null;
+        loadedResults.clear();
+        loadMoreButton.setVisible(false);
+        drillDowns.clear();
+        showFacets(null);
+        folderScope.clear();
     }
     
     private void openDocument(Long documentId) {
@@ -468,4 +636,9 @@ public class SearchView extends VerticalLayout {
             return null;
         });
     }
+    
+    @FunctionalInterface
+    private interface PageLoader {
+        SearchResultsWrapper load(String cursor) throws Exception;
+    }
 }
@@ -1,5 +1,6 @@
 package com.docmgmt.ui.views;
 
+import com.docmgmt.dto.SpaceInfoDTO;
 import com.docmgmt.dto.TileDTO;
 import com.docmgmt.model.Document;
 import com.docmgmt.model.Folder;
@@ -533,7 +534,8 @@ public class TileView extends VerticalLayout implements HasUrlParameter<String>
                 
                 Span contentInfo = new Span(
                     (content.isPrimary() ? "Primary" : "Secondary") + " • " + 
-                    (content.getContentType() != null ? content.getContentType() : "unknown")
+                    (content.getContentType() != null ? content.getContentType() : "unknown") +
+                    (content.getSizeBytes() != null ? " • " + SpaceInfoDTO.formatBytes(content.getSizeBytes()) : "")
                 );
                 contentInfo.getStyle()
                     .set("font-size", "0.875rem")
@@ -552,7 +554,8 @@ public class TileView extends VerticalLayout implements HasUrlParameter<String>
                 // Click to view
                 contentItem.addClickListener(e -> {
                     try {
-                        byte[] bytes = contentService.getContentBytes(content.getId());
+                        // Content that cannot be displayed is described from its metadata without reading it
+                        byte[] bytes = isDisplayable(content) ? contentService.getContentBytes(content.getId()) : new byte[0];
                         viewerContainer.removeAll();
                         viewerTitle.setText("Viewing: " + content.getName());
                         
@@ -621,7 +624,9 @@ public class TileView extends VerticalLayout implements HasUrlParameter<String>
                                     "<h4 style='margin-top: 0;'>Binary Content Information</h4>" +
                                     "<p><strong>Name:</strong> " + content.getName() + "</p>" +
                                     "<p><strong>Type:</strong> " + contentType + "</p>" +
-                                    "<p><strong>Size:</strong> " + bytes.length + " bytes</p>" +
+                                    (content.getMimeType() != null ? "<p><strong>Detected Type:</strong> " + content.getMimeType() + "</p>" : "") +
+                                    "<p><strong>Size:</strong> " + (content.getSizeBytes() != null ? content.getSizeBytes() + " bytes" : "Unknown") + "</p>" +
+                                    (content.getSha256() != null ? "<p><strong>SHA-256:</strong> " + content.getSha256() + "</p>" : "") +
                                     "<p><strong>Rendition:</strong> " + (content.isPrimary() ? "Primary" : "Secondary") + "</p>" +
                                     "<p style='color: var(--lumo-secondary-text-color);'>[This is binary content and cannot be displayed]</p>" +
                                     "</div>"
@@ -668,6 +673,19 @@ public class TileView extends VerticalLayout implements HasUrlParameter<String>
         dialog.open();
     }
     
+    /**
+     * Whether the viewer can display content, which decides if its bytes are read
+     */
+    private boolean isDisplayable(com.docmgmt.model.Content content) {
+        String contentType = content.getContentType();
+        if (contentType == null) {
+            return false;
+        }
+        return contentType.equals("application/pdf") || contentType.equals("text/markdown")
+            || content.getName().toLowerCase().endsWith(".md")
+            || contentType.startsWith("text/") || contentType.equals("application/json");
+    }
+    
     /**
      * Minimal Markdown to HTML converter for headings, bold/italic, code blocks, and links.
      * This avoids adding heavy dependencies; adjust as needed for richer features.
@@ -9,6 +9,7 @@ import com.docmgmt.model.FileStore;
 import com.docmgmt.repository.ContentRepository;
 import com.docmgmt.repository.DocumentRepository;
 import com.docmgmt.repository.FileStoreRepository;
+import com.docmgmt.service.ContentService;
 import com.docmgmt.service.FileStoreService;
 import com.docmgmt.util.TestDataBuilder;
 import jakarta.persistence.EntityManager;
@@ -65,6 +66,9 @@ public class ContentControllerIntegrationTest {
     @Autowired
     private FileStoreService fileStoreService;
     
+    @Autowired
+    private ContentService contentService;
+    
     @PersistenceContext
     private EntityManager entityManager;
     
@@ -134,7 +138,7 @@ public class ContentControllerIntegrationTest {
         
         Content savedContent = contentRepository.findById(contentDTO.getId()).orElseThrow();
         assertThat(savedContent.isStoredInDatabase()).isTrue();
-        assertThat(savedContent.getContent()).isEqualTo(testFileContent);
+        assertThat(contentService.getContentBytes(savedContent.getId())).isEqualTo(testFileContent);
     }
     
     @Test
@@ -253,6 +257,81 @@ public class ContentControllerIntegrationTest {
                 .andExpect(content().bytes(testFileContent));
     }
     
+    @Test
+    void downloadContentFromFileStore_withRange_shouldReturnPartialContent() throws Exception {
+        // Arrange - Create content in file store
+        Content content = TestDataBuilder.createFileStoreContent(null, "range-file.txt", "text/plain", testDocument, testFileStore);
+        content = contentRepository.save(content);
+        Path filePath = Paths.get(testFileStore.getFullPath(content.getStoragePath()));
+        Files.createDirectories(filePath.getParent());
+        Files.write(filePath, testFileContent);
+        
+        // Act & Assert
+        mockMvc.perform(get("/api/content/{id}/download", content.getId())
+                .header(HttpHeaders.RANGE, "bytes=5-11"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 5-11/" + testFileContent.length))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 7))
+                .andExpect(content().bytes(Arrays.copyOfRange(testFileContent, 5, 12)));
+        
+        // Suffix range: the last 8 bytes
+        mockMvc.perform(get("/api/content/{id}/download", content.getId())
+                .header(HttpHeaders.RANGE, "bytes=-8"))
+                .andExpect(status().isPartialContent())
+                .andExpect(content().bytes(Arrays.copyOfRange(testFileContent, testFileContent.length - 8, testFileContent.length)));
+    }
+    
+    @Test
+    void downloadContentFromDatabase_withRange_shouldStreamPartialContent() throws Exception {
+        // Arrange - Create content in database
+        Content content = TestDataBuilder.createDatabaseContent(null, "range-db-file.txt", "text/plain", testDocument);
+        content.setContent(testFileContent);
+        content = contentRepository.save(content);
+        
+        // Act & Assert
+        mockMvc.perform(get("/api/content/{id}/download", content.getId())
+                .header(HttpHeaders.RANGE, "bytes=0-3"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 0-3/" + testFileContent.length))
+                .andExpect(content().bytes("This".getBytes()));
+    }
+    
+    @Test
+    void downloadContent_withStaleIfRange_shouldReturnWholeContent() throws Exception {
+        // Arrange - Create content in database
+        Content content = TestDataBuilder.createDatabaseContent(null, "if-range-file.txt", "text/plain", testDocument);
+        content.setContentBytes(testFileContent);
+        content = contentRepository.save(content);
+        String etag = "\"" + content.getSha256() + "\"";
+        
+        // Act & Assert - a matching ETag honours the range, a stale one gets the whole content
+        mockMvc.perform(get("/api/content/{id}/download", content.getId())
+                .header(HttpHeaders.RANGE, "bytes=0-3")
+                .header(HttpHeaders.IF_RANGE, etag))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.ETAG, etag));
+        mockMvc.perform(get("/api/content/{id}/download", content.getId())
+                .header(HttpHeaders.RANGE, "bytes=0-3")
+                .header(HttpHeaders.IF_RANGE, "\"stale\""))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(testFileContent));
+    }
+    
+    @Test
+    void downloadContent_withUnsatisfiableRange_shouldReturn416() throws Exception {
+        // Arrange - Create content in database
+        Content content = TestDataBuilder.createDatabaseContent(null, "short-file.txt", "text/plain", testDocument);
+        content.setContent(testFileContent);
+        content = contentRepository.save(content);
+        
+        // Act & Assert
+        mockMvc.perform(get("/api/content/{id}/download", content.getId())
+                .header(HttpHeaders.RANGE, "bytes=1000-2000"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */" + testFileContent.length));
+    }
+    
     @Test
     void downloadNonExistentContent_shouldReturnNotFound() throws Exception {
         // Act & Assert
@@ -312,7 +391,7 @@ public class ContentControllerIntegrationTest {
         // Verify content was moved to database
         Content movedContent = contentRepository.findById(content.getId()).orElseThrow();
         assertThat(movedContent.isStoredInDatabase()).isTrue();
-        assertThat(movedContent.getContent()).isEqualTo(testFileContent);
+        assertThat(contentService.getContentBytes(movedContent.getId())).isEqualTo(testFileContent);
         
         // File might still exist depending on implementation, but it's no longer referenced
         assertThat(movedContent.getFileStore()).isNull();
@@ -0,0 +1,104 @@
+package com.docmgmt.listener;
+
+import com.docmgmt.model.Content;
+import com.docmgmt.model.Report;
+import com.docmgmt.search.LuceneIndexService;
+import com.docmgmt.service.ContentService;
+import com.docmgmt.service.DocumentService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Verifies that content changes reindex the owning document once the writes settle
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+    "docmgmt.content-events.debounce-ms=200"
+})
+class ContentIndexListenerTest {
+    
+    @Autowired
+    private ContentIndexListener contentIndexListener;
+    
+    @Autowired
+    private ContentService contentService;
+    
+    @Autowired
+    private DocumentService documentService;
+    
+    @Autowired
+    private LuceneIndexService indexService;
+    
+    @Test
+    void testPrimaryContentUpdateReindexesDocument() throws Exception {
+        Report doc = (Report) documentService.save(Report.builder()
+                .name("Content Event Report")
+                .build());
+        Content content = contentService.save(Content.builder()
+                .name("notes.txt")
+                .contentType("text/plain")
+                .content("placeholder".getBytes(StandardCharsets.UTF_8))
+                .sysObject(doc)
+                .isPrimary(true)
+                .isIndexable(true)
+                .build());
+        
+        // Rapid successive writes collapse into one pending reindex
+        contentService.updatePrimaryContent(content.getId(), "firstdraft".getBytes(StandardCharsets.UTF_8));
+        contentService.updatePrimaryContent(content.getId(), "seconddraft".getBytes(StandardCharsets.UTF_8));
+        contentService.updatePrimaryContent(content.getId(), "zephyrfinal".getBytes(StandardCharsets.UTF_8));
+        assertTrue(contentIndexListener.getScheduledCount() <= 1);
+        
+        long deadline = System.currentTimeMillis() + 5000;
+        while (indexService.search("zephyrfinal", 10).getTotalHits() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            indexService.refreshSearcher();
+        }
+        
+        assertEquals(0, contentIndexListener.getScheduledCount());
+        assertEquals(1, indexService.search("zephyrfinal", 10).getTotalHits());
+        assertEquals(0, indexService.search("firstdraft", 10).getTotalHits());
+    }
+    
+    @Test
+    void testContentDeleteReindexesDocument() throws Exception {
+        Report doc = (Report) documentService.save(Report.builder()
+                .name("Content Delete Report")
+                .build());
+        Content content = contentService.save(Content.builder()
+                .name("notes.txt")
+                .contentType("text/plain")
+                .content("placeholder".getBytes(StandardCharsets.UTF_8))
+                .sysObject(doc)
+                .isPrimary(true)
+                .isIndexable(true)
+                .build());
+        contentService.updatePrimaryContent(content.getId(), "quokkadraft".getBytes(StandardCharsets.UTF_8));
+        
+        long deadline = System.currentTimeMillis() + 5000;
+        while (indexService.search("quokkadraft", 10).getTotalHits() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            indexService.refreshSearcher();
+        }
+        assertEquals(1, indexService.search("quokkadraft", 10).getTotalHits());
+        
+        // Deleting the content drops its text from the owning document's index entry
+        contentService.delete(content.getId());
+        
+        deadline = System.currentTimeMillis() + 5000;
+        while (indexService.search("quokkadraft", 10).getTotalHits() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            indexService.refreshSearcher();
+        }
+        
+        assertEquals(0, indexService.search("quokkadraft", 10).getTotalHits());
+    }
+}
@@ -23,7 +23,10 @@ import static org.junit.jupiter.api.Assertions.*;
 @SpringBootTest
 @TestPropertySource(properties = {
     "spring.datasource.url=jdbc:h2:mem:testdb",
-    "lucene.index.directory=./test_lucene_index"
+    "lucene.index.directory=./test_lucene_index",
+    "lucene.index.async-writes=false",
+    "lucene.index.reconcile-on-startup=false",
+    "docmgmt.outbox.enabled=false"
 })
 class DocumentIndexListenerTest {
     
@@ -41,6 +41,15 @@ public class ContentUnitTest {
         assertTrue(content.isPrimary());
     }
     
+    @Test
+    void testSetContentBytesRecordsSizeAndHash() throws Exception {
+        Content content = Content.builder().name("test.txt").build();
+        content.setContentBytes("abc".getBytes(StandardCharsets.UTF_8));
+        
+        assertEquals(3L, content.getSizeBytes());
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", content.getSha256());
+    }
+    
     @Test
     void testDefaultIndexableFlag() {
         Content content = Content.builder()
@@ -181,4 +190,34 @@ public class ContentUnitTest {
         assertTrue(indexable.isPrimary());
         assertTrue(nonIndexable.isPrimary());
     }
+    
+    @Test
+    void testDatabaseBytesAreKeptInContentData() {
+        byte[] bytes = "database bytes".getBytes();
+        Content built = Content.builder()
+                .name("built.txt")
+                .content(bytes)
+                .build();
+        
+        // Bytes given to the builder move to their own row on first save
+        assertNull(built.getContentData());
+        built.prePersistContentData();
+        assertArrayEquals(bytes, built.getContentData().getData());
+        assertEquals((long) bytes.length, built.getSizeBytes());
+        
+        Content set = new Content();
+        set.setContent(bytes);
+        assertArrayEquals(bytes, set.getContentData().getData());
+        
+        // Bytes are read from the row when the entity was loaded without them
+        Content loaded = Content.builder()
+                .name("loaded.txt")
+                .contentData(new ContentData(bytes))
+                .build();
+        assertArrayEquals(bytes, loaded.getContent());
+        
+        loaded.setContent(null);
+        assertNull(loaded.getContentData());
+        assertNull(loaded.getContent());
+    }
 }
@@ -0,0 +1,57 @@
+package com.docmgmt.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.FloatBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the binary vector encoding of DocumentEmbedding
+ */
+public class DocumentEmbeddingUnitTest {
+    
+    @Test
+    void testVectorRoundTrip() {
+        float[] values = {0.5f, -1.25f, 3.0e-7f, Float.MAX_VALUE};
+        
+        DocumentEmbedding embedding = new DocumentEmbedding();
+        embedding.setVectorValues(values);
+        
+        assertEquals(values.length * Float.BYTES, embedding.getVector().length);
+        assertEquals(values.length, embedding.getDimension());
+        assertArrayEquals(values, embedding.getVectorArray());
+    }
+    
+    @Test
+    void testEncodingIsLittleEndianFloat32() {
+        byte[] bytes = DocumentEmbedding.toBytes(new float[] {1.0f});
+        
+        // 1.0f is 0x3F800000
+        assertArrayEquals(new byte[] {0x00, 0x00, (byte) 0x80, 0x3F}, bytes);
+    }
+    
+    @Test
+    void testFloatBufferViewSharesBytes() {
+        DocumentEmbedding embedding = new DocumentEmbedding();
+        embedding.setVectorValues(new float[] {1.0f, 2.0f});
+        
+        FloatBuffer buffer = embedding.getVectorBuffer();
+        assertEquals(2, buffer.remaining());
+        assertEquals(2.0f, buffer.get(1));
+        assertTrue(buffer.isReadOnly());
+        
+        // A view over the same bytes, not a copy: 0x3F000000 is 0.5f
+        embedding.getVector()[Float.BYTES + 3] = 0x3F;
+        assertEquals(0.5f, buffer.get(1));
+    }
+    
+    @Test
+    void testLegacyRowHasNoVector() {
+        DocumentEmbedding embedding = new DocumentEmbedding();
+        embedding.setEmbedding("[0.1,0.2]");
+        
+        assertNull(embedding.getVectorBuffer());
+        assertNull(embedding.getVectorArray());
+    }
+}
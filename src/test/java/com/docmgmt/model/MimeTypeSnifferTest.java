@@ -0,0 +1,51 @@
+package com.docmgmt.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for MIME type detection from leading content bytes
+ */
+public class MimeTypeSnifferTest {
+    
+    @Test
+    void testMagicNumbersWinOverFileName() {
+        assertEquals("application/pdf", MimeTypeSniffer.sniff("%PDF-1.7\n".getBytes(StandardCharsets.US_ASCII), "report.txt"));
+        assertEquals("image/png", MimeTypeSniffer.sniff(
+            new byte[] {(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A, 0, 0}, "image.bin"));
+        assertEquals("image/jpeg", MimeTypeSniffer.sniff(new byte[] {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, 0}, null));
+    }
+    
+    @Test
+    void testContainersAreToldApartByExtension() {
+        byte[] zip = {'P', 'K', 0x03, 0x04, 0x14, 0};
+        assertEquals("application/vnd.openxmlformats-officedocument.wordprocessingml.document",
+            MimeTypeSniffer.sniff(zip, "Letter.DOCX"));
+        assertEquals("application/zip", MimeTypeSniffer.sniff(zip, "archive"));
+    }
+    
+    @Test
+    void testTextTypes() {
+        byte[] text = "# Heading\nSome text".getBytes(StandardCharsets.UTF_8);
+        assertEquals("text/markdown", MimeTypeSniffer.sniff(text, "notes.md"));
+        assertEquals("text/plain", MimeTypeSniffer.sniff(text, "notes"));
+        assertEquals("application/xml", MimeTypeSniffer.sniff("  <?xml version=\"1.0\"?><a/>".getBytes(StandardCharsets.UTF_8), null));
+        assertEquals("text/plain", MimeTypeSniffer.sniff("café".getBytes(StandardCharsets.UTF_8), null));
+    }
+    
+    @Test
+    void testTextCutOffInsideACharacterIsStillText() {
+        byte[] bytes = "café".getBytes(StandardCharsets.UTF_8);
+        // The header ends after the first byte of the two-byte é
+        assertEquals("text/plain", MimeTypeSniffer.sniff(bytes, bytes.length - 1, null));
+    }
+    
+    @Test
+    void testBinaryAndEmptyContent() {
+        assertEquals(MimeTypeSniffer.OCTET_STREAM, MimeTypeSniffer.sniff(new byte[] {1, 0, 2, 3}, "data.txt"));
+        assertEquals(MimeTypeSniffer.OCTET_STREAM, MimeTypeSniffer.sniff(new byte[0], "empty.txt"));
+    }
+}
@@ -0,0 +1,145 @@
+package com.docmgmt.search;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares index size, indexing time and query latency with and without the catch-all
+ * FIELD_ALL. Run with: mvn test -Dtest=AllFieldBenchmarkTest -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class AllFieldBenchmarkTest {
+    
+    private static final int DOCUMENTS = 20_000;
+    private static final int QUERIES = 2_000;
+    private static final int VOCABULARY = 5_000;
+    
+    @Test
+    void benchmarkAllFieldAgainstCombinedFieldQuery() throws Exception {
+        StandardAnalyzer analyzer = new StandardAnalyzer();
+        List<String> queries = new ArrayList<>();
+        Random random = new Random(42);
+        for (int i = 0; i < QUERIES; i++) {
+            queries.add(word(random) + " " + word(random));
+        }
+        
+        Map<String, Float> weights = new LinkedHashMap<>();
+        weights.put(LuceneIndexService.FIELD_NAME, 3.0f);
+        weights.put(LuceneIndexService.FIELD_DESCRIPTION, 1.5f);
+        weights.put(LuceneIndexService.FIELD_KEYWORDS, 2.0f);
+        weights.put(LuceneIndexService.FIELD_TAGS, 2.0f);
+        weights.put(LuceneIndexService.FIELD_CONTENT, 1.0f);
+        
+        try (Directory withAll = new ByteBuffersDirectory(); Directory withoutAll = new ByteBuffersDirectory()) {
+            long allIndexNanos = buildIndex(withAll, analyzer, true);
+            long perFieldIndexNanos = buildIndex(withoutAll, analyzer, false);
+            
+            try (DirectoryReader allReader = DirectoryReader.open(withAll);
+                 DirectoryReader perFieldReader = DirectoryReader.open(withoutAll)) {
+                IndexSearcher allSearcher = new IndexSearcher(allReader);
+                IndexSearcher perFieldSearcher = new IndexSearcher(perFieldReader);
+                
+                QueryParser allParser = new QueryParser(LuceneIndexService.FIELD_ALL, analyzer);
+                CombinedFieldQueryParser combinedParser = new CombinedFieldQueryParser(weights, analyzer);
+                
+                long allQueryNanos = 0;
+                long combinedQueryNanos = 0;
+                for (int round = 0; round < 2; round++) {
+                    // First round warms up; only the second is reported
+                    allQueryNanos = 0;
+                    combinedQueryNanos = 0;
+                    for (String text : queries) {
+                        Query allQuery = allParser.parse(text);
+                        long start = System.nanoTime();
+                        long allHits = allSearcher.search(allQuery, 10).totalHits.value;
+                        allQueryNanos += System.nanoTime() - start;
+                        
+                        Query combinedQuery = combinedParser.parse(text);
+                        start = System.nanoTime();
+                        long combinedHits = perFieldSearcher.search(combinedQuery, 10).totalHits.value;
+                        combinedQueryNanos += System.nanoTime() - start;
+                        
+                        assertEquals(allHits, combinedHits, "Both modes should match the same documents for " + text);
+                    }
+                }
+                
+                System.out.printf("Documents: %d, queries: %d%n", DOCUMENTS, QUERIES);
+                System.out.printf("With FIELD_ALL:    index %,d bytes, indexing %d ms, %.1f us/query%n",
+                    sizeOf(withAll), allIndexNanos / 1_000_000, allQueryNanos / 1000.0 / QUERIES);
+                System.out.printf("CombinedFieldQuery: index %,d bytes, indexing %d ms, %.1f us/query%n",
+                    sizeOf(withoutAll), perFieldIndexNanos / 1_000_000, combinedQueryNanos / 1000.0 / QUERIES);
+            }
+        }
+    }
+    
+    private static long buildIndex(Directory directory, StandardAnalyzer analyzer, boolean allField) throws IOException {
+        Random random = new Random(7);
+        long start = System.nanoTime();
+        try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(analyzer))) {
+            for (int i = 0; i < DOCUMENTS; i++) {
+                String name = words(random, 4);
+                String description = words(random, 20);
+                String keywords = words(random, 5);
+                String tags = words(random, 3);
+                String content = words(random, 400);
+                
+                Document doc = new Document();
+                doc.add(new TextField(LuceneIndexService.FIELD_NAME, name, Field.Store.YES));
+                doc.add(new TextField(LuceneIndexService.FIELD_DESCRIPTION, description, Field.Store.YES));
+                doc.add(new TextField(LuceneIndexService.FIELD_KEYWORDS, keywords, Field.Store.YES));
+                doc.add(new TextField(LuceneIndexService.FIELD_TAGS, tags, Field.Store.YES));
+                doc.add(new TextField(LuceneIndexService.FIELD_CONTENT, content, Field.Store.NO));
+                if (allField) {
+                    doc.add(new TextField(LuceneIndexService.FIELD_ALL,
+                        String.join(" ", name, description, keywords, tags, content), Field.Store.NO));
+                }
+                writer.addDocument(doc);
+            }
+            writer.forceMerge(1);
+        }
+        return System.nanoTime() - start;
+    }
+    
+    private static long sizeOf(Directory directory) throws IOException {
+        long size = 0;
+        for (String file : directory.listAll()) {
+            size += directory.fileLength(file);
+        }
+        return size;
+    }
+    
+    private static String words(Random random, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            text.append(word(random)).append(' ');
+        }
+        return text.toString();
+    }
+    
+    private static String word(Random random) {
+        // Skewed towards frequent words, roughly like natural text
+        int rank = (int) Math.min(VOCABULARY - 1, Math.abs(random.nextGaussian()) * VOCABULARY / 3);
+        return "w" + Integer.toString(rank, 36);
+    }
+}
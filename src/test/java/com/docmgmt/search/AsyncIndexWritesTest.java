@@ -0,0 +1,175 @@
+package com.docmgmt.search;
+
+import com.docmgmt.model.Document;
+import com.docmgmt.model.Report;
+import com.docmgmt.repository.DocumentRepository;
+import com.docmgmt.repository.FolderRepository;
+import com.docmgmt.service.ContentService;
+import com.docmgmt.service.DocumentService;
+import com.docmgmt.service.DocumentSimilarityService;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.store.FSDirectory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+/**
+ * Index writes through the background writer thread, as configured in production
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+    "lucene.index.async-writes=true",
+    "lucene.index.write-queue.batch-size=4"
+})
+public class AsyncIndexWritesTest {
+    
+    @Autowired
+    private LuceneIndexService searchService;
+    
+    @Autowired
+    private DocumentService documentService;
+    
+    @Autowired
+    private ContentService contentService;
+    
+    @Autowired
+    private DocumentSimilarityService similarityService;
+    
+    @Autowired
+    private FolderRepository folderRepository;
+    
+    @Autowired
+    private DocumentRepository documentRepository;
+    
+    @Autowired
+    private ApplicationContext applicationContext;
+    
+    @TempDir
+    Path indexDirectory;
+    
+    @Test
+    void testFlushAppliesQueuedWritesAndCommits() throws Exception {
+        List<Document> documents = saveDocuments("asyncflushtoken", 20);
+        for (Document document : documents) {
+            searchService.indexDocument(document);
+        }
+        
+        searchService.flush();
+        
+        assertEquals(0, searchService.getIndexStats().get("queuedWrites"));
+        searchService.refreshSearcher();
+        assertEquals(documents.size(), searchService.search("asyncflushtoken", 100).getTotalHits());
+        
+        for (Document document : documents) {
+            searchService.removeDocument(document.getId());
+        }
+        searchService.flush();
+        searchService.refreshSearcher();
+        assertEquals(0, searchService.search("asyncflushtoken", 100).getTotalHits());
+        
+        documents.forEach(document -> documentService.delete(document.getId()));
+    }
+    
+    @Test
+    void testShutdownDrainsQueuedWritesIntoFinalCommit() throws Exception {
+        List<Document> documents = saveDocuments("asyncshutdowntoken", 50);
+        
+        // A second service over its own directory, so shutting it down leaves the shared one alone
+        LuceneIndexService indexService = new LuceneIndexService(
+            contentService, similarityService, folderRepository, documentRepository);
+        applicationContext.getAutowireCapableBeanFactory().autowireBean(indexService);
+        ReflectionTestUtils.setField(indexService, "indexDirectoryPath", indexDirectory.resolve("index").toString());
+        indexService.initialize();
+        
+        for (Document document : documents) {
+            indexService.indexDocument(document);
+        }
+        indexService.shutdown();
+        
+        assertThrows(IllegalStateException.class, () -> indexService.indexDocument(documents.get(0)));
+        try (DirectoryReader reader = DirectoryReader.open(FSDirectory.open(indexDirectory.resolve("index")))) {
+            assertEquals(documents.size(), reader.numDocs());
+        }
+        
+        documents.forEach(document -> documentService.delete(document.getId()));
+    }
+    
+    @Test
+    void testRebuildKeepsWritesMadeWhileItRuns() throws Exception {
+        List<Document> documents = saveDocuments("asyncrebuildtoken", 3);
+        Document renamed = documents.get(0);
+        Document deleted = documents.get(1);
+        Document unchanged = documents.get(2);
+        
+        // The rebuild reads its first page, then the documents change before it is indexed
+        DocumentService rebuildDocuments = mock(DocumentService.class);
+        AtomicBoolean changed = new AtomicBoolean();
+        when(rebuildDocuments.count()).thenAnswer(invocation -> documentService.count());
+        when(rebuildDocuments.findById(anyLong())).thenAnswer(invocation ->
+            documentService.findById(invocation.getArgument(0)));
+        when(rebuildDocuments.findPageAfterId(anyLong(), anyInt())).thenAnswer(invocation -> {
+            List<Document> page = documentService.findPageAfterId(invocation.getArgument(0), invocation.getArgument(1));
+            if (changed.compareAndSet(false, true)) {
+                Document current = documentService.findById(renamed.getId());
+                current.setName("asyncrebuildrenamed");
+                searchService.indexDocument(documentService.save(current));
+                documentService.delete(deleted.getId());
+                searchService.removeDocument(deleted.getId());
+            }
+            return page;
+        });
+        
+        IndexRebuildService rebuildService = new IndexRebuildService(searchService, rebuildDocuments);
+        ReflectionTestUtils.setField(rebuildService, "pageSize", 500);
+        ReflectionTestUtils.setField(rebuildService, "configuredThreads", 2);
+        rebuildService.startRebuild();
+        
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (System.currentTimeMillis() < deadline) {
+            IndexRebuildStatus.State state = rebuildService.getStatus().getState();
+            if (state == IndexRebuildStatus.State.COMPLETED || state == IndexRebuildStatus.State.FAILED) {
+                break;
+            }
+            Thread.sleep(20);
+        }
+        IndexRebuildStatus status = rebuildService.getStatus();
+        assertEquals(IndexRebuildStatus.State.COMPLETED, status.getState(), status.getMessage());
+        assertTrue(status.getReplayedDocuments() >= 2);
+        
+        searchService.flush();
+        searchService.refreshSearcher();
+        List<Long> hits = new ArrayList<>();
+        searchService.search("asyncrebuildtoken", 100).getResults().forEach(hit -> hits.add(hit.getDocumentId()));
+        assertEquals(List.of(unchanged.getId()), hits);
+        assertEquals(1, searchService.search("asyncrebuildrenamed", 100).getTotalHits());
+        
+        documentService.delete(renamed.getId());
+        documentService.delete(unchanged.getId());
+    }
+    
+    private List<Document> saveDocuments(String token, int count) {
+        List<Document> documents = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            documents.add(documentService.save(Report.builder()
+                    .name(token + " " + i)
+                    .build()));
+        }
+        return documents;
+    }
+}
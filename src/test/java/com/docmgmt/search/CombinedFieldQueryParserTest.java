@@ -0,0 +1,94 @@
+package com.docmgmt.search;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.sandbox.search.CombinedFieldQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CombinedFieldQueryParserTest {
+    
+    private StandardAnalyzer analyzer;
+    private Directory directory;
+    private DirectoryReader reader;
+    private IndexSearcher searcher;
+    private CombinedFieldQueryParser parser;
+    
+    @BeforeEach
+    void setUp() throws IOException {
+        analyzer = new StandardAnalyzer();
+        directory = new ByteBuffersDirectory();
+        try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(analyzer))) {
+            writer.addDocument(doc("1", "Quarterly budget", "Finance figures for the quarter"));
+            writer.addDocument(doc("2", "Travel notes", "The budget was discussed briefly"));
+            writer.addDocument(doc("3", "Meeting minutes", "Agenda and attendees"));
+        }
+        reader = DirectoryReader.open(directory);
+        searcher = new IndexSearcher(reader);
+        
+        Map<String, Float> weights = new LinkedHashMap<>();
+        weights.put(LuceneIndexService.FIELD_NAME, 3.0f);
+        weights.put(LuceneIndexService.FIELD_CONTENT, 0.5f);
+        parser = new CombinedFieldQueryParser(weights, analyzer);
+    }
+    
+    @AfterEach
+    void tearDown() throws IOException {
+        reader.close();
+        directory.close();
+    }
+    
+    @Test
+    void testUnqualifiedTermScoresAcrossFieldsWithWeights() throws Exception {
+        Query query = parser.parse("budget");
+        assertInstanceOf(CombinedFieldQuery.class, query);
+        
+        TopDocs hits = searcher.search(query, 10);
+        assertEquals(2, hits.totalHits.value);
+        // The name match outranks the content match
+        assertEquals("1", searcher.storedFields().document(hits.scoreDocs[0].doc).get("key"));
+    }
+    
+    @Test
+    void testPhraseFallsBackToPerFieldQuery() throws Exception {
+        Query query = parser.parse("\"budget was discussed\"");
+        assertFalse(query instanceof CombinedFieldQuery);
+        
+        TopDocs hits = searcher.search(query, 10);
+        assertEquals(1, hits.totalHits.value);
+        assertEquals("2", searcher.storedFields().document(hits.scoreDocs[0].doc).get("key"));
+    }
+    
+    @Test
+    void testFieldQualifiedAndWildcardClausesStillWork() throws Exception {
+        assertEquals(1, searcher.search(parser.parse("name:meeting"), 10).totalHits.value);
+        assertEquals(2, searcher.search(parser.parse("budg*"), 10).totalHits.value);
+        assertEquals(1, searcher.search(parser.parse("budget AND finance"), 10).totalHits.value);
+    }
+    
+    private static Document doc(String key, String name, String content) {
+        Document doc = new Document();
+        doc.add(new StringField("key", key, Field.Store.YES));
+        doc.add(new TextField(LuceneIndexService.FIELD_NAME, name, Field.Store.YES));
+        doc.add(new TextField(LuceneIndexService.FIELD_CONTENT, content, Field.Store.NO));
+        return doc;
+    }
+}
@@ -0,0 +1,62 @@
+package com.docmgmt.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ContentStreamReaderTest {
+    
+    @Test
+    void testStreamIsOpenedLazilyAndCappedAtByteLimit() throws IOException {
+        byte[] bytes = "alpha beta gamma delta".getBytes(StandardCharsets.UTF_8);
+        AtomicInteger opened = new AtomicInteger();
+        Reader reader = new ContentStreamReader(() -> {
+            opened.incrementAndGet();
+            return new ByteArrayInputStream(bytes);
+        }, 10, "test");
+        
+        assertEquals(0, opened.get());
+        assertEquals("alpha beta", readAll(reader));
+        assertEquals(1, opened.get());
+        reader.close();
+    }
+    
+    @Test
+    void testUnopenableSourceReadsAsEmpty() throws IOException {
+        Reader reader = new ContentStreamReader(() -> {
+            throw new IOException("missing file");
+        }, 100, "test");
+        
+        assertEquals("", readAll(reader));
+        reader.close();
+    }
+    
+    @Test
+    void testClosingUnreadReaderNeverOpensStream() throws IOException {
+        AtomicInteger opened = new AtomicInteger();
+        Reader reader = new ContentStreamReader(() -> {
+            opened.incrementAndGet();
+            return new ByteArrayInputStream(new byte[0]);
+        }, 100, "test");
+        
+        reader.close();
+        assertEquals(0, opened.get());
+        assertThrows(IOException.class, () -> reader.read(new char[1], 0, 1));
+    }
+    
+    private static String readAll(Reader reader) throws IOException {
+        StringBuilder text = new StringBuilder();
+        char[] buffer = new char[4];
+        int read;
+        while ((read = reader.read(buffer, 0, buffer.length)) > 0) {
+            text.append(buffer, 0, read);
+        }
+        return text.toString();
+    }
+}
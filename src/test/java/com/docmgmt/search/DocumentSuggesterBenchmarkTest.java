@@ -0,0 +1,114 @@
+package com.docmgmt.search;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Measures suggestion lookup latency over a corpus of realistic size.
+ * Run with: mvn test -Dtest=DocumentSuggesterBenchmarkTest -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class DocumentSuggesterBenchmarkTest {
+    
+    private static final int DOCUMENTS = 50_000;
+    private static final int QUERIES = 5_000;
+    private static final int VOCABULARY = 20_000;
+    private static final int LIMIT = 10;
+    
+    @Test
+    void benchmarkLookupLatency() throws Exception {
+        Random random = new Random(42);
+        String[] vocabulary = vocabulary(random);
+        
+        try (DocumentSuggester suggester = new DocumentSuggester(4)) {
+            List<String> texts = new ArrayList<>();
+            long start = System.nanoTime();
+            for (long id = 1; id <= DOCUMENTS; id++) {
+                // A title plus a few keywords and tags, as indexed for real documents
+                List<String> documentTexts = List.of(
+                    words(random, vocabulary, 3 + random.nextInt(4)),
+                    word(random, vocabulary),
+                    word(random, vocabulary),
+                    words(random, vocabulary, 2));
+                suggester.update(id, documentTexts);
+                texts.add(documentTexts.get(0));
+            }
+            long updateNanos = System.nanoTime() - start;
+            
+            start = System.nanoTime();
+            suggester.refresh();
+            long refreshNanos = System.nanoTime() - start;
+            
+            // Prefixes of words that occur in the corpus: one word, or two as a user keeps typing
+            List<String> queries = new ArrayList<>();
+            for (int i = 0; i < QUERIES; i++) {
+                String[] words = texts.get(random.nextInt(texts.size())).split(" ");
+                String first = prefix(random, words[0]);
+                queries.add(i % 2 == 0 || words.length < 2 ? first : first + " " + prefix(random, words[1]));
+            }
+            
+            long[] latencies = new long[QUERIES];
+            for (int round = 0; round < 2; round++) {
+                // First round warms up; only the second is reported
+                for (int i = 0; i < QUERIES; i++) {
+                    long queryStart = System.nanoTime();
+                    List<String> suggestions = suggester.lookup(queries.get(i), LIMIT);
+                    latencies[i] = System.nanoTime() - queryStart;
+                    
+                    assertFalse(suggestions.isEmpty(), "Expected suggestions for " + queries.get(i));
+                    assertTrue(suggestions.size() <= LIMIT);
+                }
+            }
+            Arrays.sort(latencies);
+            
+            System.out.printf("Documents: %d, suggestion texts: %d, queries: %d%n",
+                DOCUMENTS, suggester.size(), QUERIES);
+            System.out.printf("Updates %d ms, refresh %d ms%n", updateNanos / 1_000_000, refreshNanos / 1_000_000);
+            System.out.printf("Lookup: p50 %.1f us, p95 %.1f us, p99 %.1f us, max %.1f us%n",
+                percentile(latencies, 50), percentile(latencies, 95), percentile(latencies, 99),
+                latencies[QUERIES - 1] / 1000.0);
+        }
+    }
+    
+    private static double percentile(long[] sorted, int percentile) {
+        return sorted[Math.min(sorted.length - 1, sorted.length * percentile / 100)] / 1000.0;
+    }
+    
+    private static String[] vocabulary(Random random) {
+        String[] vocabulary = new String[VOCABULARY];
+        for (int i = 0; i < VOCABULARY; i++) {
+            StringBuilder word = new StringBuilder();
+            int length = 4 + random.nextInt(7);
+            for (int c = 0; c < length; c++) {
+                word.append((char) ('a' + random.nextInt(26)));
+            }
+            vocabulary[i] = word.toString();
+        }
+        return vocabulary;
+    }
+    
+    private static String words(Random random, String[] vocabulary, int count) {
+        StringBuilder text = new StringBuilder(word(random, vocabulary));
+        for (int i = 1; i < count; i++) {
+            text.append(' ').append(word(random, vocabulary));
+        }
+        return text.toString();
+    }
+    
+    private static String word(Random random, String[] vocabulary) {
+        // Skewed towards frequent words, roughly like natural text
+        int rank = (int) Math.min(VOCABULARY - 1, Math.abs(random.nextGaussian()) * VOCABULARY / 3);
+        return vocabulary[rank];
+    }
+    
+    private static String prefix(Random random, String word) {
+        return word.substring(0, Math.min(word.length(), 4 + random.nextInt(3)));
+    }
+}
@@ -0,0 +1,91 @@
+package com.docmgmt.search;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DocumentSuggesterTest {
+    
+    private DocumentSuggester suggester;
+    
+    @BeforeEach
+    void setUp() throws IOException {
+        suggester = new DocumentSuggester(4);
+    }
+    
+    @AfterEach
+    void tearDown() throws IOException {
+        suggester.close();
+    }
+    
+    @Test
+    void testEveryWordMatchesAsPrefix() throws IOException {
+        suggester.update(1L, List.of("Spring Framework Guide", "java"));
+        suggester.refresh();
+        
+        assertEquals(List.of("Spring Framework Guide"), suggester.lookup("spr gui", 10));
+        assertEquals(List.of("Spring Framework Guide"), suggester.lookup("frame", 10));
+        assertTrue(suggester.lookup("guide spx", 10).isEmpty());
+    }
+    
+    @Test
+    void testTextsCarriedByMoreDocumentsComeFirst() throws IOException {
+        suggester.update(1L, List.of("javascript"));
+        suggester.update(2L, List.of("java"));
+        suggester.update(3L, List.of("java"));
+        suggester.refresh();
+        
+        assertEquals(List.of("java", "javascript"), suggester.lookup("jav", 10));
+        assertEquals(2, suggester.size());
+    }
+    
+    @Test
+    void testTextDisappearsWithTheLastDocumentCarryingIt() throws IOException {
+        suggester.update(1L, List.of("java", "spring"));
+        suggester.update(2L, List.of("java"));
+        suggester.remove(1L);
+        suggester.refresh();
+        
+        assertEquals(List.of("java"), suggester.lookup("ja", 10));
+        assertTrue(suggester.lookup("spr", 10).isEmpty());
+        
+        // Replacing a document's texts drops the ones it no longer carries
+        suggester.update(2L, List.of("kotlin"));
+        suggester.refresh();
+        assertTrue(suggester.lookup("ja", 10).isEmpty());
+        assertEquals(List.of("kotlin"), suggester.lookup("kot", 10));
+    }
+    
+    @Test
+    void testUpdatesAreVisibleAfterRefresh() throws IOException {
+        suggester.update(1L, List.of("python"));
+        assertTrue(suggester.lookup("pyt", 10).isEmpty());
+        
+        suggester.refresh();
+        assertEquals(List.of("python"), suggester.lookup("pyt", 10));
+    }
+    
+    @Test
+    void testBlankPrefixSuggestsNothing() throws IOException {
+        suggester.update(1L, List.of("python"));
+        suggester.refresh();
+        
+        assertTrue(suggester.lookup("", 10).isEmpty());
+        assertTrue(suggester.lookup("  ", 10).isEmpty());
+        assertTrue(suggester.lookup(null, 10).isEmpty());
+    }
+    
+    @Test
+    void testSuggestionTextsSplitKeywords() {
+        Set<String> texts = DocumentSuggester.suggestionTexts(" Spring Guide ", Set.of("java"), 
+            "spring, boot;java  framework");
+        
+        assertEquals(Set.of("Spring Guide", "java", "spring", "boot", "framework"), texts);
+    }
+}
@@ -0,0 +1,188 @@
+package com.docmgmt.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the in-memory similarity matrix
+ */
+public class EmbeddingMatrixTest {
+    
+    private static final int DIMENSION = 67; // Not a multiple of any SIMD width
+    
+    @Test
+    void testTopKMatchesBruteForce() {
+        Random random = new Random(42);
+        EmbeddingMatrix matrix = new EmbeddingMatrix(DIMENSION, VectorScorer.create(true));
+        List<float[]> vectors = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            float[] vector = randomVector(random);
+            vectors.add(vector);
+            matrix.put(i, vector);
+        }
+        float[] query = randomVector(random);
+        
+        List<EmbeddingMatrix.ScoredDocument> top = matrix.topK(query, 10, null, null, 1);
+        
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < vectors.size(); i++) {
+            expected.add(i);
+        }
+        expected.sort(Comparator.comparingDouble((Integer i) -> cosine(query, vectors.get(i))).reversed());
+        
+        assertEquals(10, top.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals((long) expected.get(i), top.get(i).getDocumentId());
+            assertEquals(cosine(query, vectors.get(expected.get(i))), top.get(i).getSimilarity(), 1e-4);
+        }
+    }
+    
+    @Test
+    void testParallelScanMatchesSequentialScan() throws Exception {
+        Random random = new Random(7);
+        EmbeddingMatrix matrix = new EmbeddingMatrix(DIMENSION, new ScalarVectorScorer());
+        for (int i = 0; i < 5000; i++) {
+            matrix.put(i, randomVector(random));
+        }
+        float[] query = randomVector(random);
+        
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<EmbeddingMatrix.ScoredDocument> sequential = matrix.topK(query, 20, null, null, 1);
+            List<EmbeddingMatrix.ScoredDocument> parallel = matrix.topK(query, 20, null, executor, 4);
+            for (int i = 0; i < 20; i++) {
+                assertEquals(sequential.get(i).getDocumentId(), parallel.get(i).getDocumentId());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    @Test
+    void testUpdateRemoveAndExclude() {
+        EmbeddingMatrix matrix = new EmbeddingMatrix(2, new ScalarVectorScorer());
+        matrix.put(1, new float[] {1f, 0f});
+        matrix.put(2, new float[] {0f, 1f});
+        matrix.put(3, new float[] {1f, 1f});
+        
+        assertEquals(1L, matrix.topK(new float[] {1f, 0f}, 1, null, null, 1).get(0).getDocumentId());
+        assertEquals(3L, matrix.topK(new float[] {1f, 0f}, 1, 1L, null, 1).get(0).getDocumentId());
+        
+        // Replacing a vector keeps a single row
+        matrix.put(2, new float[] {2f, 0.1f});
+        assertEquals(3, matrix.size());
+        
+        // Removing a middle row moves the last one into its place
+        assertTrue(matrix.remove(1));
+        assertFalse(matrix.contains(1));
+        assertEquals(2, matrix.size());
+        List<EmbeddingMatrix.ScoredDocument> top = matrix.topK(new float[] {0f, 1f}, 5, null, null, 1);
+        assertEquals(3L, top.get(0).getDocumentId());
+        assertEquals(2L, top.get(1).getDocumentId());
+    }
+    
+    @Test
+    void testQuantizedCandidatesContainExactTopK() {
+        Random random = new Random(11);
+        EmbeddingMatrix exact = new EmbeddingMatrix(DIMENSION, VectorScorer.create(true));
+        EmbeddingMatrix quantized = new EmbeddingMatrix(DIMENSION, VectorScorer.create(true), true);
+        for (int i = 0; i < 2000; i++) {
+            float[] vector = randomVector(random);
+            exact.put(i, vector);
+            quantized.put(i, vector);
+        }
+        float[] query = randomVector(random);
+        
+        // Over-fetch from the int8 matrix, as the service does before re-ranking
+        List<EmbeddingMatrix.ScoredDocument> candidates = quantized.topK(query, 40, null, null, 1);
+        List<Long> candidateIds = candidates.stream().map(EmbeddingMatrix.ScoredDocument::getDocumentId).toList();
+        for (EmbeddingMatrix.ScoredDocument expected : exact.topK(query, 10, null, null, 1)) {
+            assertTrue(candidateIds.contains(expected.getDocumentId()));
+        }
+        assertEquals(exact.topK(query, 1, null, null, 1).get(0).getSimilarity(), candidates.get(0).getSimilarity(), 0.02);
+        
+        assertTrue(quantized.isQuantized());
+        assertTrue(quantized.getMemoryBytes() * 3 < exact.getMemoryBytes());
+    }
+    
+    @Test
+    void testInt8ScorersAgree() {
+        Random random = new Random(5);
+        byte[] a = new byte[DIMENSION];
+        byte[] block = new byte[DIMENSION * 2];
+        random.nextBytes(a);
+        random.nextBytes(block);
+        a[0] = -128;
+        block[DIMENSION] = -128;
+        
+        assertEquals(new ScalarVectorScorer().dotProduct(a, block, DIMENSION, DIMENSION),
+            VectorScorer.create(true).dotProduct(a, block, DIMENSION, DIMENSION));
+    }
+    
+    @Test
+    void testScorersAgree() {
+        Random random = new Random(3);
+        float[] a = randomVector(random);
+        float[] block = new float[DIMENSION * 2];
+        System.arraycopy(randomVector(random), 0, block, DIMENSION, DIMENSION);
+        
+        float scalar = new ScalarVectorScorer().dotProduct(a, block, DIMENSION, DIMENSION);
+        float best = VectorScorer.create(true).dotProduct(a, block, DIMENSION, DIMENSION);
+        assertEquals(scalar, best, 1e-3);
+    }
+    
+    @Test
+    void testVectorApiScorerIsPickedAndAgreesWithScalar() {
+        // Surefire runs the tests with --add-modules jdk.incubator.vector
+        VectorScorer vectorApi = VectorScorer.create(true);
+        VectorScorer scalar = new ScalarVectorScorer();
+        assertTrue(vectorApi.getName().startsWith("vector-api-"), vectorApi.getName());
+        assertEquals("scalar", VectorScorer.create(false).getName());
+        
+        // Lengths on both sides of every SIMD width, so the tail loops are covered too
+        Random random = new Random(13);
+        for (int length = 0; length <= 70; length++) {
+            float[] a = new float[length];
+            float[] block = new float[length + 5];
+            byte[] qa = new byte[length];
+            byte[] qblock = new byte[length + 5];
+            for (int i = 0; i < length; i++) {
+                a[i] = (float) random.nextGaussian();
+                block[i + 5] = (float) random.nextGaussian();
+            }
+            random.nextBytes(qa);
+            random.nextBytes(qblock);
+            
+            assertEquals(scalar.dotProduct(a, block, 5, length), vectorApi.dotProduct(a, block, 5, length), 1e-3);
+            assertEquals(scalar.dotProduct(qa, qblock, 5, length), vectorApi.dotProduct(qa, qblock, 5, length));
+        }
+    }
+    
+    private float[] randomVector(Random random) {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+    
+    private double cosine(float[] a, float[] b) {
+        double dot = 0;
+        double normA = 0;
+        double normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        return dot / (Math.sqrt(normA) * Math.sqrt(normB));
+    }
+}
@@ -0,0 +1,110 @@
+package com.docmgmt.search;
+
+import com.docmgmt.model.Report;
+import com.docmgmt.service.DocumentService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+    "docmgmt.outbox.enabled=true",
+    "docmgmt.outbox.poll-interval-ms=100"
+})
+public class IndexOutboxServiceTest {
+    
+    @Autowired
+    private IndexOutboxService outboxService;
+    
+    @Autowired
+    private LuceneIndexService searchService;
+    
+    @Autowired
+    private DocumentService documentService;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Test
+    void testSavedDocumentIsIndexedByDispatcher() throws Exception {
+        Report doc = (Report) documentService.save(Report.builder()
+                .name("Outbox Dispatched")
+                .description("outboxdispatched document")
+                .build());
+        
+        awaitCondition(() -> pending() == 0);
+        searchService.flush();
+        searchService.refreshSearcher();
+        assertEquals(1, searchService.search("outboxdispatched", 10).getTotalHits());
+        
+        documentService.delete(doc.getId());
+        awaitCondition(() -> pending() == 0);
+        searchService.flush();
+        searchService.refreshSearcher();
+        assertEquals(0, searchService.search("outboxdispatched", 10).getTotalHits());
+    }
+    
+    @Test
+    void testRepeatedEventsForDocumentAreCoalesced() throws Exception {
+        Report doc = (Report) documentService.save(Report.builder()
+                .name("Outbox Coalesced")
+                .build());
+        awaitCondition(() -> pending() == 0);
+        
+        long documentsBefore = (Long) outboxService.getStats().get("dispatchedDocuments");
+        long eventsBefore = (Long) outboxService.getStats().get("dispatchedEvents");
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < 5; i++) {
+                outboxService.record(doc.getId(), IndexOutboxService.EVENT_UPSERT);
+            }
+        });
+        awaitCondition(() -> pending() == 0);
+        
+        Map<String, Object> stats = outboxService.getStats();
+        assertEquals(documentsBefore + 1, stats.get("dispatchedDocuments"));
+        assertEquals(eventsBefore + 5, stats.get("dispatchedEvents"));
+        
+        documentService.delete(doc.getId());
+    }
+    
+    @Test
+    void testRolledBackChangeLeavesNoEvent() {
+        awaitCondition(() -> pending() == 0);
+        long recordedBefore = (Long) outboxService.getStats().get("recorded");
+        
+        transactionTemplate.executeWithoutResult(status -> {
+            outboxService.record(Long.MAX_VALUE, IndexOutboxService.EVENT_UPSERT);
+            assertEquals(1L, pending());
+            status.setRollbackOnly();
+        });
+        
+        assertEquals(recordedBefore + 1, outboxService.getStats().get("recorded"));
+        assertEquals(0L, pending());
+    }
+    
+    private long pending() {
+        return (Long) outboxService.getStats().get("pending");
+    }
+    
+    private void awaitCondition(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        assertTrue(condition.getAsBoolean(), "Condition not met within 5 seconds");
+    }
+}
@@ -0,0 +1,77 @@
+package com.docmgmt.search;
+
+import com.docmgmt.model.Content;
+import com.docmgmt.model.Report;
+import com.docmgmt.service.ContentService;
+import com.docmgmt.service.DocumentService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+public class IndexReconciliationServiceTest {
+    
+    @Autowired
+    private IndexReconciliationService reconciliationService;
+    
+    @Autowired
+    private LuceneIndexService searchService;
+    
+    @Autowired
+    private DocumentService documentService;
+    
+    @Autowired
+    private ContentService contentService;
+    
+    @Test
+    void testMissingDocumentIsReportedAndRepaired() throws Exception {
+        Report doc = (Report) documentService.save(Report.builder()
+                .name("Reconciliation Missing")
+                .description("Document dropped from the index")
+                .build());
+        searchService.removeDocument(doc.getId());
+        
+        IndexReconciliationReport dryRun = reconciliationService.reconcile(true);
+        assertTrue(dryRun.getMissingIds().contains(doc.getId()));
+        assertEquals(0, dryRun.getRepairedCount());
+        
+        IndexReconciliationReport repaired = reconciliationService.reconcile(false);
+        assertTrue(repaired.getRepairedCount() > 0);
+        
+        IndexReconciliationReport after = reconciliationService.reconcile(true);
+        assertFalse(after.getMissingIds().contains(doc.getId()));
+        assertFalse(after.getStaleIds().contains(doc.getId()));
+    }
+    
+    @Test
+    void testContentAddedOutsideIndexIsStale() throws Exception {
+        Report doc = (Report) documentService.save(Report.builder()
+                .name("Reconciliation Stale")
+                .description("Content added without reindexing")
+                .build());
+        searchService.indexDocument(doc);
+        
+        // Saving content does not reindex the owning document
+        contentService.save(Content.builder()
+                .name("stale.txt")
+                .contentType("text/plain")
+                .content("quasar nebula".getBytes(StandardCharsets.UTF_8))
+                .sysObject(doc)
+                .isPrimary(true)
+                .isIndexable(true)
+                .build());
+        
+        IndexReconciliationReport report = reconciliationService.reconcile(false);
+        assertTrue(report.getStaleIds().contains(doc.getId()));
+        assertTrue(searchService.search("quasar", 10).getResults().stream()
+                .anyMatch(r -> r.getDocumentId().equals(doc.getId())));
+    }
+}
@@ -1,9 +1,11 @@
 package com.docmgmt.search;
 
 import com.docmgmt.model.Content;
+import com.docmgmt.model.Folder;
 import com.docmgmt.model.Report;
 import com.docmgmt.service.ContentService;
 import com.docmgmt.service.DocumentService;
+import com.docmgmt.service.FolderService;
 import org.apache.lucene.queryparser.classic.ParseException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -35,6 +37,9 @@ public class LuceneSearchIntegrationTest {
     @Autowired
     private ContentService contentService;
     
+    @Autowired
+    private FolderService folderService;
+    
     private Report testDoc1;
     private Report testDoc2;
     private Report testDoc3;
@@ -294,4 +299,201 @@ public class LuceneSearchIntegrationTest {
         assertFalse(results.isEmpty());
         assertEquals(testDoc1.getId(), results.get(0).getDocumentId());
     }
+    
+    @Test
+    void testResultsReadDisplayFieldsFromDocValues() throws IOException, ParseException {
+        SearchResultsWrapper wrapper = searchService.search("comprehensive", 10);
+        SearchResult result = wrapper.getResults().get(0);
+        
+        assertEquals(testDoc1.getId(), result.getDocumentId());
+        assertEquals("Spring Framework Guide", result.getName());
+        assertEquals("Comprehensive guide to Spring Boot applications", result.getDescription());
+        assertEquals("spring boot java framework", result.getKeywords());
+        assertTrue(result.getTags().contains("tutorial"));
+    }
+    
+    @Test
+    void testIdsOnlySearch() throws IOException, ParseException {
+        SearchResultsWrapper full = searchService.search("tutorial", 10);
+        SearchResultsWrapper idsOnly = searchService.search("tutorial", 10, true);
+        
+        assertEquals(full.getTotalHits(), idsOnly.getTotalHits());
+        assertEquals(full.getResults().stream().map(SearchResult::getDocumentId).toList(),
+                idsOnly.getResults().stream().map(SearchResult::getDocumentId).toList());
+        for (SearchResult result : idsOnly.getResults()) {
+            assertTrue(result.getScore() > 0);
+            assertNull(result.getName());
+            assertNull(result.getDescription());
+        }
+    }
+    
+    @Test
+    void testSearchAfterPagesThroughAllResults() throws IOException, ParseException {
+        SearchResultsWrapper all = searchService.searchAfter("tutorial OR database", 10, null, false);
+        assertEquals(3, all.getResultCount());
+        assertNull(all.getNextCursor());
+        
+        List<Long> paged = new java.util.ArrayList<>();
+        String cursor = null;
+        do {
+            SearchResultsWrapper page = searchService.searchAfter("tutorial OR database", 1, cursor, false);
+            assertTrue(page.getResultCount() <= 1);
+            page.getResults().forEach(r -> paged.add(r.getDocumentId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        
+        assertEquals(all.getResults().stream().map(SearchResult::getDocumentId).toList(), paged);
+    }
+    
+    @Test
+    void testSearchAfterCursorSurvivesRefresh() throws IOException, ParseException {
+        SearchResultsWrapper first = searchService.searchAfter("tutorial OR database", 1, null, false);
+        assertNotNull(first.getNextCursor());
+        
+        // Rebuilding in reverse order gives every document a different doc number
+        searchService.rebuildIndex(List.of(testDoc3, testDoc2, testDoc1));
+        
+        SearchResultsWrapper rest = searchService.searchAfter("tutorial OR database", 10, first.getNextCursor(), false);
+        assertEquals(2, rest.getResultCount());
+        assertFalse(rest.getResults().stream()
+                .anyMatch(r -> r.getDocumentId().equals(first.getResults().get(0).getDocumentId())));
+    }
+    
+    @Test
+    void testFacetCountsReturnedWithResults() throws IOException, ParseException {
+        SearchResultsWrapper wrapper = searchService.facetedSearch("tutorial OR database", Map.of(), 10, null, 10, false);
+        
+        assertEquals(3, wrapper.getResultCount());
+        Map<String, Long> tags = facetValues(wrapper, LuceneIndexService.FACET_TAGS);
+        assertEquals(2L, tags.get("tutorial"));
+        assertEquals(1L, tags.get("python"));
+        assertEquals(1L, tags.get("database"));
+        assertEquals(3L, facetValues(wrapper, LuceneIndexService.FACET_MAJOR_VERSION).get("1"));
+    }
+    
+    @Test
+    void testDrillDownKeepsSidewaysCounts() throws IOException, ParseException {
+        SearchResultsWrapper wrapper = searchService.facetedSearch("tutorial OR database", 
+                Map.of(LuceneIndexService.FACET_TAGS, List.of("python")), 10, null, 10, false);
+        
+        assertEquals(1, wrapper.getResultCount());
+        assertEquals(testDoc2.getId(), wrapper.getResults().get(0).getDocumentId());
+        // The drilled dimension is counted as if its own drill-down were absent
+        Map<String, Long> tags = facetValues(wrapper, LuceneIndexService.FACET_TAGS);
+        assertEquals(2L, tags.get("tutorial"));
+        assertEquals(1L, tags.get("database"));
+        // Other dimensions are counted over the drilled-down hits
+        assertEquals(1L, facetValues(wrapper, LuceneIndexService.FACET_MAJOR_VERSION).get("1"));
+    }
+    
+    @Test
+    void testUnknownFacetDimensionIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> searchService.facetedSearch("spring", 
+                Map.of("color", List.of("red")), 10, null, 10, false));
+    }
+    
+    @Test
+    void testLatestOnlyFilterExcludesSupersededVersions() throws IOException, ParseException {
+        com.docmgmt.model.Document newVersion = documentService.createMajorVersion(testDoc1.getId());
+        searchService.indexDocument(newVersion);
+        searchService.markSuperseded(testDoc1.getId());
+        
+        SearchResultsWrapper all = searchService.searchAfter("framework", 10, null, false, SearchFilters.none());
+        assertEquals(2, all.getResultCount());
+        
+        SearchResultsWrapper latest = searchService.searchAfter("framework", 10, null, false, 
+                SearchFilters.builder().latestOnly(true).build());
+        assertEquals(1, latest.getResultCount());
+        assertEquals(newVersion.getId(), latest.getResults().get(0).getDocumentId());
+        // The filter does not take part in scoring
+        float allScore = all.getResults().stream()
+                .filter(r -> r.getDocumentId().equals(newVersion.getId()))
+                .findFirst().orElseThrow().getScore();
+        assertEquals(allScore, latest.getResults().get(0).getScore(), 0.0001f);
+    }
+    
+    @Test
+    void testReindexedVersionKeepsLatestFlagFromDatabase() throws IOException, ParseException {
+        com.docmgmt.model.Document newVersion = documentService.createMajorVersion(testDoc1.getId());
+        searchService.indexDocument(newVersion);
+        // A full reindex of the old version reads is_latest from its version relationship
+        searchService.indexDocument(testDoc1);
+        
+        SearchResultsWrapper latest = searchService.searchAfter("framework", 10, null, false, 
+                SearchFilters.builder().latestOnly(true).build());
+        assertEquals(1, latest.getResultCount());
+        assertEquals(newVersion.getId(), latest.getResults().get(0).getDocumentId());
+    }
+    
+    @Test
+    void testFolderScopeIncludesSubfolders() throws IOException, ParseException {
+        Folder root = folderService.save(Folder.builder().name("Search Scope Root").build());
+        Folder child = folderService.save(Folder.builder().name("Search Scope Child").build());
+        Folder other = folderService.save(Folder.builder().name("Search Scope Other").build());
+        folderService.addChildFolder(root.getId(), child);
+        folderService.addItemToFolder(child.getId(), testDoc2);
+        folderService.addItemToFolder(other.getId(), testDoc1);
+        searchService.indexDocument(testDoc1);
+        searchService.indexDocument(testDoc2);
+        
+        SearchResultsWrapper underRoot = searchService.searchAfter("tutorial", 10, null, false,
+                SearchFilters.builder().folderId(root.getId()).build());
+        assertEquals(1, underRoot.getResultCount());
+        assertEquals(testDoc2.getId(), underRoot.getResults().get(0).getDocumentId());
+        
+        SearchResultsWrapper underOther = searchService.searchAfter("tutorial", 10, null, false,
+                SearchFilters.builder().folderId(other.getId()).build());
+        assertEquals(1, underOther.getResultCount());
+        assertEquals(testDoc1.getId(), underOther.getResults().get(0).getDocumentId());
+    }
+    
+    @Test
+    void testFolderScopeFollowsSubtreeMove() throws IOException, ParseException {
+        Folder root = folderService.save(Folder.builder().name("Move Source Root").build());
+        Folder target = folderService.save(Folder.builder().name("Move Target Root").build());
+        Folder child = folderService.save(Folder.builder().name("Moved Child").build());
+        folderService.addChildFolder(root.getId(), child);
+        folderService.addItemToFolder(child.getId(), testDoc2);
+        searchService.indexDocument(testDoc2);
+        
+        folderService.linkFoldersToParent(target.getId(), List.of(child.getId()));
+        searchService.indexDocument(testDoc2);
+        
+        assertEquals(0, searchService.searchAfter("python", 10, null, false,
+                SearchFilters.builder().folderId(root.getId()).build()).getResultCount());
+        assertEquals(1, searchService.searchAfter("python", 10, null, false,
+                SearchFilters.builder().folderId(target.getId()).build()).getResultCount());
+    }
+    
+    @Test
+    void testUnknownFolderScopeIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> searchService.searchAfter("python", 10, null, false,
+                SearchFilters.builder().folderId(-1L).build()));
+    }
+    
+    @Test
+    void testSuggestNamesTagsAndKeywords() throws IOException {
+        List<String> suggestions = searchService.suggest("pyth", 10);
+        assertTrue(suggestions.contains("Python Programming"));
+        assertTrue(suggestions.contains("python"));
+        
+        assertEquals(List.of("Spring Framework Guide"), searchService.suggest("spring gu", 10));
+    }
+    
+    @Test
+    void testSuggestionsFollowIndexChanges() throws IOException {
+        testDoc3.setName("Relational Schema Design");
+        searchService.indexDocument(testDoc3);
+        assertTrue(searchService.suggest("relat", 10).contains("Relational Schema Design"));
+        assertFalse(searchService.suggest("database des", 10).contains("Database Design"));
+        
+        searchService.removeDocument(testDoc3.getId());
+        assertTrue(searchService.suggest("relat", 10).isEmpty());
+    }
+    
+    private static Map<String, Long> facetValues(SearchResultsWrapper wrapper, String dimension) {
+        Map<String, Long> values = new HashMap<>();
+        wrapper.getFacets().get(dimension).forEach(count -> values.put(count.getValue(), count.getCount()));
+        return values;
+    }
 }
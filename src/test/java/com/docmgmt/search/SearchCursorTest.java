@@ -0,0 +1,32 @@
+package com.docmgmt.search;
+
+import org.apache.lucene.search.FieldDoc;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchCursorTest {
+    
+    @Test
+    void testRoundTrip() {
+        String cursor = SearchCursor.encode(1.25f, 42L);
+        FieldDoc after = SearchCursor.decode(cursor);
+        
+        assertEquals(1.25f, after.score);
+        assertEquals(1.25f, after.fields[0]);
+        assertEquals(42L, after.fields[1]);
+        assertEquals(Integer.MAX_VALUE, after.doc);
+    }
+    
+    @Test
+    void testCursorIsUrlSafe() {
+        String cursor = SearchCursor.encode(Float.MAX_VALUE, Long.MAX_VALUE);
+        assertTrue(cursor.matches("[A-Za-z0-9_-]+"));
+    }
+    
+    @Test
+    void testMalformedCursorIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> SearchCursor.decode("not a cursor!"));
+        assertThrows(IllegalArgumentException.class, () -> SearchCursor.decode("AAAA"));
+    }
+}
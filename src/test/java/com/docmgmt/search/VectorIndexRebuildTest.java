@@ -0,0 +1,91 @@
+package com.docmgmt.search;
+
+import com.docmgmt.model.DocumentEmbedding;
+import com.docmgmt.repository.DocumentEmbeddingRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class VectorIndexRebuildTest {
+    
+    private static final int DIMENSIONS = 8;
+    
+    @Mock
+    private DocumentEmbeddingRepository embeddingRepository;
+    
+    @TempDir
+    Path indexDirectory;
+    
+    private VectorIndexService vectorIndexService;
+    
+    @BeforeEach
+    void setUp() throws Exception {
+        vectorIndexService = new VectorIndexService(embeddingRepository, new ObjectMapper());
+        ReflectionTestUtils.setField(vectorIndexService, "vectorDirectoryPath", indexDirectory.toString());
+        ReflectionTestUtils.setField(vectorIndexService, "maxConn", 16);
+        ReflectionTestUtils.setField(vectorIndexService, "beamWidth", 100);
+        ReflectionTestUtils.setField(vectorIndexService, "numCandidates", 100);
+        ReflectionTestUtils.setField(vectorIndexService, "pageSize", 10);
+        vectorIndexService.initialize();
+    }
+    
+    @AfterEach
+    void tearDown() throws Exception {
+        vectorIndexService.shutdown();
+    }
+    
+    @Test
+    void rebuild_shouldKeepWritesMadeWhileItRuns() throws Exception {
+        // Rows read before the concurrent writes: document 1 is then removed, document 2 updated
+        List<Object[]> page = new ArrayList<>();
+        page.add(row(1L, vector(1.0f, 0.0f)));
+        page.add(row(2L, vector(1.0f, 0.0f)));
+        page.add(row(3L, vector(0.0f, 1.0f)));
+        when(embeddingRepository.findEmbeddingPageAfterId(anyLong(), any(Pageable.class))).thenAnswer(invocation -> {
+            if ((Long) invocation.getArgument(0) > 0L) {
+                return List.of();
+            }
+            vectorIndexService.removeVector(1L);
+            vectorIndexService.indexVector(2L, vector(0.0f, 1.0f));
+            return page;
+        });
+        
+        vectorIndexService.rebuild();
+        
+        assertEquals(2, vectorIndexService.getIndexedCount());
+        List<VectorIndexService.VectorHit> hits = vectorIndexService.search(vector(1.0f, 0.0f), 3, null);
+        assertTrue(hits.stream().noneMatch(hit -> hit.getDocumentId().equals(1L)));
+        VectorIndexService.VectorHit updated = hits.stream()
+            .filter(hit -> hit.getDocumentId().equals(2L)).findFirst().orElseThrow();
+        assertTrue(updated.getSimilarity() < 0.5, "Rebuild replaced the newer vector of document 2");
+    }
+    
+    private Object[] row(Long documentId, float[] vector) {
+        return new Object[] { documentId, documentId, DocumentEmbedding.toBytes(vector), null };
+    }
+    
+    private float[] vector(float x, float y) {
+        float[] vector = new float[DIMENSIONS];
+        vector[0] = x;
+        vector[1] = y;
+        vector[DIMENSIONS - 1] = 0.01f;
+        return vector;
+    }
+}
@@ -0,0 +1,55 @@
+package com.docmgmt.search;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class VectorIndexServiceTest {
+    
+    // Above Lucene's default 1024-dimension limit, like llama3.2 embeddings
+    private static final int DIMENSIONS = 3072;
+    
+    @Autowired
+    private VectorIndexService vectorIndexService;
+    
+    @Test
+    void testNearestNeighboursAreOrderedBySimilarity() throws Exception {
+        vectorIndexService.indexVector(900001L, vector(1.0f, 0.0f));
+        vectorIndexService.indexVector(900002L, vector(0.9f, 0.1f));
+        vectorIndexService.indexVector(900003L, vector(0.0f, 1.0f));
+        vectorIndexService.refreshSearcher();
+        
+        List<VectorIndexService.VectorHit> hits = vectorIndexService.search(vector(1.0f, 0.0f), 3, null);
+        
+        assertEquals(900001L, hits.get(0).getDocumentId());
+        assertEquals(1.0, hits.get(0).getSimilarity(), 1e-4);
+        assertEquals(900002L, hits.get(1).getDocumentId());
+        
+        List<VectorIndexService.VectorHit> excluding = vectorIndexService.search(vector(1.0f, 0.0f), 1, 900001L);
+        assertEquals(1, excluding.size());
+        assertEquals(900002L, excluding.get(0).getDocumentId());
+        
+        vectorIndexService.removeVector(900002L);
+        vectorIndexService.refreshSearcher();
+        assertTrue(vectorIndexService.search(vector(1.0f, 0.0f), 10, null).stream()
+                .noneMatch(hit -> hit.getDocumentId().equals(900002L)));
+        
+        vectorIndexService.removeVector(900001L);
+        vectorIndexService.removeVector(900003L);
+    }
+    
+    private float[] vector(float x, float y) {
+        float[] vector = new float[DIMENSIONS];
+        vector[0] = x;
+        vector[1] = y;
+        vector[DIMENSIONS - 1] = 0.01f;
+        return vector;
+    }
+}
@@ -0,0 +1,76 @@
+package com.docmgmt.service;
+
+import com.docmgmt.model.Content;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class ContentDataMigrationServiceTest {
+    
+    @Autowired
+    private ContentDataMigrationService migrationService;
+    
+    @Autowired
+    private ContentService contentService;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Test
+    void testLegacyContentBytesAreMovedToContentData() throws Exception {
+        byte[] bytes = "legacy database content".getBytes(StandardCharsets.UTF_8);
+        // Recreate the column bytes were stored in before content_data existed
+        jdbcTemplate.execute("ALTER TABLE content ADD COLUMN IF NOT EXISTS content BLOB");
+        jdbcTemplate.update(
+            "INSERT INTO content (name, content_type, is_primary, is_indexable, created_at, modified_at, content) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)",
+            "legacy.txt", "text/plain", true, false, LocalDateTime.now(), LocalDateTime.now(), bytes);
+        Long id = jdbcTemplate.queryForObject("SELECT MAX(id) FROM content WHERE name = 'legacy.txt'", Long.class);
+        
+        assertTrue(migrationService.hasLegacyColumn());
+        assertEquals(1, migrationService.migrateLegacyContent());
+        // The emptied column is only dropped on request
+        assertTrue(migrationService.hasLegacyColumn());
+        assertTrue(migrationService.dropLegacyColumn());
+        assertFalse(migrationService.hasLegacyColumn());
+        
+        assertArrayEquals(bytes, contentService.getContentBytes(id));
+        Content migrated = contentService.findById(id);
+        assertEquals((long) bytes.length, migrated.getSizeBytes());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        contentService.writeContent(migrated, 7, 8, out);
+        assertEquals("database", out.toString(StandardCharsets.UTF_8));
+        
+        contentService.delete(id);
+    }
+    
+    @Test
+    void testLegacyColumnIsNotDroppedWhileItHoldsBytes() {
+        jdbcTemplate.execute("ALTER TABLE content ADD COLUMN IF NOT EXISTS content BLOB");
+        jdbcTemplate.update(
+            "INSERT INTO content (name, content_type, is_primary, is_indexable, created_at, modified_at, content) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)",
+            "unmoved.txt", "text/plain", true, false, LocalDateTime.now(), LocalDateTime.now(),
+            "not yet moved".getBytes(StandardCharsets.UTF_8));
+        Long id = jdbcTemplate.queryForObject("SELECT MAX(id) FROM content WHERE name = 'unmoved.txt'", Long.class);
+        
+        assertThrows(IllegalStateException.class, () -> migrationService.dropLegacyColumn());
+        assertTrue(migrationService.hasLegacyColumn());
+        
+        assertEquals(1, migrationService.migrateLegacyContent());
+        assertTrue(migrationService.dropLegacyColumn());
+        assertFalse(migrationService.hasLegacyColumn());
+        
+        contentService.delete(id);
+    }
+}
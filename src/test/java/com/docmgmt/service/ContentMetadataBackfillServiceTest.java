@@ -0,0 +1,84 @@
+package com.docmgmt.service;
+
+import com.docmgmt.model.Content;
+import com.docmgmt.model.FileStore;
+import com.docmgmt.model.Report;
+import com.docmgmt.repository.FileStoreRepository;
+import com.docmgmt.util.TestDataBuilder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class ContentMetadataBackfillServiceTest {
+    
+    @Autowired
+    private ContentMetadataBackfillService backfillService;
+    
+    @Autowired
+    private ContentService contentService;
+    
+    @Autowired
+    private DocumentService documentService;
+    
+    @Autowired
+    private FileStoreRepository fileStoreRepository;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @TempDir
+    Path tempDir;
+    
+    @Test
+    void testMissingMetadataIsRecordedWithoutChangingModificationTime() throws Exception {
+        Report doc = (Report) documentService.save(Report.builder()
+                .name("Backfill Metadata")
+                .build());
+        FileStore fileStore = fileStoreRepository.save(
+            TestDataBuilder.createFileStore(null, "Backfill Store", tempDir.toString(), FileStore.Status.ACTIVE));
+        
+        byte[] pdfBytes = "%PDF-1.4\nnot really a pdf".getBytes(StandardCharsets.US_ASCII);
+        Content fileContent = contentService.createContentInFileStore(
+            new ByteArrayInputStream(pdfBytes), "scan.pdf", "application/pdf", doc, fileStore.getId());
+        Content databaseContent = contentService.createContentInDatabase(
+            new MockMultipartFile("file", "notes.md", "text/markdown", "# Notes".getBytes(StandardCharsets.UTF_8)), doc);
+        
+        // Simulate content written before metadata was recorded
+        jdbcTemplate.update("UPDATE content SET size_bytes = NULL, sha256 = NULL, mime_type = NULL WHERE id IN (?, ?)",
+            fileContent.getId(), databaseContent.getId());
+        Object modifiedAt = jdbcTemplate.queryForObject(
+            "SELECT modified_at FROM content WHERE id = ?", Object.class, fileContent.getId());
+        assertTrue(backfillService.countMissingMetadata() >= 2);
+        
+        assertTrue(backfillService.backfillMetadata() >= 2);
+        
+        Content backfilledFile = contentService.findById(fileContent.getId());
+        assertEquals((long) pdfBytes.length, backfilledFile.getSizeBytes());
+        assertEquals(fileContent.getSha256(), backfilledFile.getSha256());
+        assertEquals("application/pdf", backfilledFile.getMimeType());
+        assertEquals(modifiedAt, jdbcTemplate.queryForObject(
+            "SELECT modified_at FROM content WHERE id = ?", Object.class, fileContent.getId()));
+        
+        Content backfilledDatabase = contentService.findById(databaseContent.getId());
+        assertEquals(7L, backfilledDatabase.getSizeBytes());
+        assertEquals(databaseContent.getSha256(), backfilledDatabase.getSha256());
+        assertEquals("text/markdown", backfilledDatabase.getMimeType());
+        
+        contentService.delete(fileContent.getId());
+        contentService.delete(databaseContent.getId());
+        documentService.delete(doc.getId());
+        fileStoreRepository.deleteById(fileStore.getId());
+    }
+}
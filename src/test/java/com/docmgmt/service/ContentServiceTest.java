@@ -19,12 +19,14 @@ import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Optional;
 
@@ -197,6 +199,30 @@ public class ContentServiceTest {
         assertThat(Files.exists(filePath)).isFalse();
     }
 
+    @Test
+    void delete_whenFileSharedWithOtherContent_shouldKeepFile() throws IOException {
+        // Arrange
+        Long id = 1L;
+        FileStore realFileStore = TestDataBuilder.createFileStore(1L, "Test FileStore", tempDir.toString(), FileStore.Status.ACTIVE);
+        Content content = TestDataBuilder.createFileStoreContent(id, "test-content", "text/plain", testDocument, realFileStore);
+
+        Path filePath = Paths.get(realFileStore.getFullPath(content.getStoragePath()));
+        Files.createDirectories(filePath.getParent());
+        Files.write(filePath, testData);
+
+        when(contentRepository.findByIdWithAssociations(id)).thenReturn(Optional.of(content));
+        // Another version still references the file
+        when(contentRepository.countByFileStoreAndStoragePathAndIdNot(realFileStore, content.getStoragePath(), id))
+                .thenReturn(1L);
+
+        // Act
+        contentService.delete(id);
+
+        // Assert
+        verify(contentRepository, times(1)).delete(content);
+        assertThat(Files.readAllBytes(filePath)).isEqualTo(testData);
+    }
+
     // ----- DATABASE CONTENT TESTS -----
 
     @Test
@@ -247,6 +273,102 @@ public class ContentServiceTest {
         verify(contentRepository, times(1)).save(any(Content.class));
     }
 
+    @Test
+    void createContentInFileStore_shouldStreamIntoStoragePathAndRecordHash() throws IOException {
+        // Arrange
+        MockMultipartFile file = new MockMultipartFile("file", "stream.txt", "text/plain", testData);
+        when(contentRepository.save(any(Content.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        Content result = contentService.createContentInFileStore(file, testDocument, testFileStore.getId());
+
+        // Assert
+        Path storedFile = Paths.get(testFileStore.getFullPath(result.getStoragePath()));
+        assertThat(Files.readAllBytes(storedFile)).isEqualTo(testData);
+        assertThat(result.getSizeBytes()).isEqualTo((long) testData.length);
+        assertThat(result.getSha256()).isEqualTo(HexFormat.of().formatHex(Content.newSha256Digest().digest(testData)));
+        // Nothing is left behind in the upload temp directory after the rename
+        try (var leftovers = Files.list(tempDir.resolve(".uploads"))) {
+            assertThat(leftovers).isEmpty();
+        }
+    }
+
+    @Test
+    void createContentInFileStore_contentAddressable_shouldStoreIdenticalBytesOnce() throws IOException {
+        // Arrange
+        ReflectionTestUtils.setField(contentService, "contentAddressable", true);
+        when(contentRepository.save(any(Content.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        Content first = contentService.createContentInFileStore(
+                new MockMultipartFile("file", "first.txt", "text/plain", testData), testDocument, testFileStore.getId());
+        Content second = contentService.createContentInFileStore(
+                new MockMultipartFile("file", "second.txt", "text/plain", testData), testDocument, testFileStore.getId());
+
+        // Assert
+        String sha256 = HexFormat.of().formatHex(Content.newSha256Digest().digest(testData));
+        assertThat(first.getStoragePath()).startsWith("cas/").endsWith(sha256);
+        assertThat(second.getStoragePath()).isEqualTo(first.getStoragePath());
+        assertThat(Files.readAllBytes(Paths.get(testFileStore.getFullPath(first.getStoragePath())))).isEqualTo(testData);
+        try (var stored = Files.walk(tempDir.resolve("cas"))) {
+            assertThat(stored.filter(Files::isRegularFile)).hasSize(1);
+        }
+        try (var leftovers = Files.list(tempDir.resolve(".uploads"))) {
+            assertThat(leftovers).isEmpty();
+        }
+    }
+
+    @Test
+    void createContent_withFileStore_shouldUseServiceLayoutAndKeepFlags() throws IOException {
+        // Arrange
+        ReflectionTestUtils.setField(contentService, "contentAddressable", true);
+        when(contentRepository.save(any(Content.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        Content content = Content.builder()
+                .name("imported.txt")
+                .contentType("text/plain")
+                .isIndexable(true)
+                .sysObject(testDocument)
+                .fileStore(testFileStore)
+                .build();
+
+        // Act
+        Content created = contentService.createContent(content, new ByteArrayInputStream(testData));
+
+        // Assert
+        String sha256 = HexFormat.of().formatHex(Content.newSha256Digest().digest(testData));
+        assertThat(created.getStoragePath()).isEqualTo("cas/" + sha256.substring(0, 2) + "/" + sha256.substring(2, 4) + "/" + sha256);
+        assertThat(created.getSha256()).isEqualTo(sha256);
+        assertThat(created.getSizeBytes()).isEqualTo((long) testData.length);
+        assertThat(created.isIndexable()).isTrue();
+        assertThat(Files.readAllBytes(Paths.get(testFileStore.getFullPath(created.getStoragePath())))).isEqualTo(testData);
+    }
+
+    @Test
+    void createContent_withoutFileStore_shouldStoreBytesBeforeSaving() throws IOException {
+        // Arrange
+        when(contentRepository.save(any(Content.class))).thenAnswer(invocation -> {
+            Content saved = invocation.getArgument(0);
+            // The metadata must already be set when the row is written
+            assertThat(saved.getSizeBytes()).isEqualTo((long) testData.length);
+            assertThat(saved.getSha256()).isNotNull();
+            assertThat(saved.getMimeType()).isNotNull();
+            return saved;
+        });
+        Content content = Content.builder()
+                .name("imported.txt")
+                .contentType("text/plain")
+                .sysObject(testDocument)
+                .build();
+
+        // Act
+        Content created = contentService.createContent(content, new ByteArrayInputStream(testData));
+
+        // Assert
+        assertThat(created.isStoredInDatabase()).isTrue();
+        assertThat(created.getContent()).isEqualTo(testData);
+        verify(contentRepository, times(1)).save(content);
+    }
+
     @Test
     void createContentInFileStore_withInactiveFileStore_shouldThrowException() throws IOException {
         // Arrange
@@ -0,0 +1,62 @@
+package com.docmgmt.service;
+
+import com.docmgmt.model.Document;
+import com.docmgmt.model.DocumentEmbedding;
+import com.docmgmt.model.Report;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+    "docmgmt.similarity.auto-generate-embeddings=false",
+    "docmgmt.similarity.exact.quantized=true"
+})
+public class DocumentSimilarityRerankTest {
+    
+    @Autowired
+    private DocumentSimilarityService similarityService;
+    
+    @Autowired
+    private DocumentService documentService;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Test
+    void testRerankScoresLegacyJsonEmbeddings() {
+        Document target = documentService.save(Report.builder().name("Rerank target").build());
+        Document legacy = documentService.save(Report.builder().name("Rerank legacy").build());
+        Document binary = documentService.save(Report.builder().name("Rerank binary").build());
+        insertBinary(target, new float[] {0f, 0f, 1f});
+        jdbcTemplate.update(
+            "INSERT INTO document_embeddings (document_id, embedding, content_hash, created_at) VALUES (?, ?, ?, ?)",
+            legacy.getId(), "[0.0,0.1,0.9]", "hash", LocalDateTime.now());
+        insertBinary(binary, new float[] {1f, 0f, 0.2f});
+        
+        List<DocumentSimilarityService.SimilarityResult> results = similarityService.findSimilar(
+            target.getId(), 2, DocumentSimilarityService.SearchMode.EXACT);
+        
+        // The legacy row is re-ranked with its exact score rather than dropped
+        assertFalse(results.isEmpty());
+        assertEquals(legacy.getId(), results.get(0).getDocument().getId());
+        assertEquals(0.9 / Math.sqrt(0.82), results.get(0).getSimilarity(), 1e-4);
+        
+        List.of(target, legacy, binary).forEach(document -> documentService.delete(document.getId()));
+    }
+    
+    private void insertBinary(Document document, float[] vector) {
+        jdbcTemplate.update(
+            "INSERT INTO document_embeddings (document_id, vector, dimension, content_hash, created_at) VALUES (?, ?, ?, ?, ?)",
+            document.getId(), DocumentEmbedding.toBytes(vector), vector.length, "hash", LocalDateTime.now());
+    }
+}
@@ -0,0 +1,112 @@
+package com.docmgmt.service;
+
+import com.docmgmt.model.Document;
+import com.docmgmt.model.DocumentEmbedding;
+import com.docmgmt.model.Report;
+import com.docmgmt.repository.DocumentEmbeddingRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+    "docmgmt.similarity.auto-generate-embeddings=false",
+    "docmgmt.similarity.batch.size=2",
+    "docmgmt.similarity.batch.concurrency=2",
+    "docmgmt.similarity.batch.page-size=3"
+})
+public class DocumentSimilarityServiceBatchTest {
+    
+    @MockBean
+    private EmbeddingModel embeddingModel;
+    
+    @Autowired
+    private DocumentSimilarityService similarityService;
+    
+    @Autowired
+    private DocumentService documentService;
+    
+    @Autowired
+    private DocumentEmbeddingRepository embeddingRepository;
+    
+    @Test
+    void testRebuildSendsBatchedRequestsAndSkipsUpToDateDocuments() {
+        when(embeddingModel.call(any(EmbeddingRequest.class))).thenAnswer(invocation -> {
+            EmbeddingRequest request = invocation.getArgument(0);
+            List<Embedding> results = new ArrayList<>();
+            // Answer in reverse order to check results are matched by index
+            for (int i = request.getInstructions().size() - 1; i >= 0; i--) {
+                String text = request.getInstructions().get(i);
+                results.add(new Embedding(new float[] {text.length(), 1f, 0f}, i));
+            }
+            return new EmbeddingResponse(results);
+        });
+        
+        List<Document> documents = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            documents.add(documentService.save(Report.builder()
+                    .name("Batch document " + "x".repeat(i))
+                    .build()));
+        }
+        
+        DocumentSimilarityService.EmbeddingBatchResult first = similarityService.rebuildEmbeddings(documents);
+        assertEquals(5, first.getGenerated());
+        assertEquals(0, first.getFailed());
+        // Pages of 3 and 2 documents, split into batches of at most 2 texts
+        verify(embeddingModel, times(3)).call(any(EmbeddingRequest.class));
+        
+        for (Document document : documents) {
+            DocumentEmbedding embedding = embeddingRepository.findByDocumentId(document.getId()).orElseThrow();
+            assertEquals(document.getName().length(), embedding.getVectorArray()[0], 0.0f);
+        }
+        
+        DocumentSimilarityService.EmbeddingBatchResult second = similarityService.rebuildEmbeddings(documents);
+        assertEquals(0, second.getGenerated());
+        assertEquals(5, second.getUpToDate());
+        verify(embeddingModel, times(3)).call(any(EmbeddingRequest.class));
+        
+        documents.forEach(document -> documentService.delete(document.getId()));
+    }
+    
+    @Test
+    void testRebuildContinuesPastPageOfDeletedDocuments() {
+        when(embeddingModel.call(any(EmbeddingRequest.class))).thenAnswer(invocation -> {
+            EmbeddingRequest request = invocation.getArgument(0);
+            List<Embedding> results = new ArrayList<>();
+            for (int i = 0; i < request.getInstructions().size(); i++) {
+                results.add(new Embedding(new float[] {1f, 0f, 0f}, i));
+            }
+            return new EmbeddingResponse(results);
+        });
+        
+        List<Document> documents = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            documents.add(documentService.save(Report.builder()
+                    .name("Deleted page document " + i)
+                    .build()));
+        }
+        // The whole first page of 3 is gone by the time the rebuild reads it
+        documents.subList(0, 3).forEach(document -> documentService.delete(document.getId()));
+        
+        DocumentSimilarityService.EmbeddingBatchResult result = similarityService.rebuildEmbeddings(documents);
+        assertEquals(2, result.getGenerated());
+        assertTrue(embeddingRepository.findByDocumentId(documents.get(4).getId()).isPresent());
+        
+        documents.subList(3, 5).forEach(document -> documentService.delete(document.getId()));
+    }
+}
@@ -0,0 +1,52 @@
+package com.docmgmt.service;
+
+import com.docmgmt.model.DocumentEmbedding;
+import com.docmgmt.model.Report;
+import com.docmgmt.repository.DocumentEmbeddingRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class EmbeddingMigrationServiceTest {
+    
+    @Autowired
+    private EmbeddingMigrationService migrationService;
+    
+    @Autowired
+    private DocumentService documentService;
+    
+    @Autowired
+    private DocumentEmbeddingRepository embeddingRepository;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Test
+    void testLegacyJsonEmbeddingIsConvertedToBinary() {
+        Report doc = (Report) documentService.save(Report.builder()
+                .name("Legacy Embedding")
+                .build());
+        jdbcTemplate.update(
+            "INSERT INTO document_embeddings (document_id, embedding, content_hash, created_at) VALUES (?, ?, ?, ?)",
+            doc.getId(), "[0.25,-1.5,2.0]", "hash", LocalDateTime.now());
+        
+        assertTrue(migrationService.countLegacyEmbeddings() > 0);
+        assertTrue(migrationService.migrateLegacyEmbeddings() > 0);
+        assertEquals(0, migrationService.countLegacyEmbeddings());
+        
+        DocumentEmbedding migrated = embeddingRepository.findByDocumentId(doc.getId()).orElseThrow();
+        assertNull(migrated.getEmbedding());
+        assertEquals(3, migrated.getDimension());
+        assertArrayEquals(new float[] {0.25f, -1.5f, 2.0f}, migrated.getVectorArray());
+        
+        documentService.delete(doc.getId());
+    }
+}
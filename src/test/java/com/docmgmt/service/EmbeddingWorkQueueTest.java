@@ -0,0 +1,111 @@
+package com.docmgmt.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class EmbeddingWorkQueueTest {
+
+    @Mock
+    private DocumentSimilarityService similarityService;
+
+    private EmbeddingWorkQueue workQueue;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    public void setUp() {
+        workQueue = new EmbeddingWorkQueue(similarityService);
+        ReflectionTestUtils.setField(workQueue, "capacity", 2);
+        ReflectionTestUtils.setField(workQueue, "workerCount", 1);
+        ReflectionTestUtils.setField(workQueue, "virtualThreads", false);
+        ReflectionTestUtils.setField(workQueue, "overflowPolicy", EmbeddingWorkQueue.OverflowPolicy.DROP_OLDEST);
+
+        // The single worker blocks on document 1 until released, so later offers stay queued
+        lenient().when(similarityService.refreshEmbedding(anyLong())).thenAnswer(invocation -> {
+            Long id = invocation.getArgument(0);
+            if (id == 1L) {
+                release.await(5, TimeUnit.SECONDS);
+            }
+            return new DocumentSimilarityService.EmbeddingBatchResult();
+        });
+        workQueue.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        release.countDown();
+        workQueue.stop();
+    }
+
+    @Test
+    void offer_duplicateWhileWaiting_shouldCoalesce() throws Exception {
+        workQueue.offer(1L);
+        awaitStat("inFlight", 1);
+
+        workQueue.offer(2L);
+        workQueue.offer(2L);
+
+        Map<String, Object> stats = workQueue.getStats();
+        assertThat(stats.get("queueDepth")).isEqualTo(1);
+        assertThat(stats.get("coalesced")).isEqualTo(1L);
+
+        release.countDown();
+        awaitStat("completed", 2L);
+        verify(similarityService, times(2)).refreshEmbedding(anyLong());
+    }
+
+    @Test
+    void offer_whenFull_shouldDropOldestWaitingDocument() throws Exception {
+        workQueue.offer(1L);
+        awaitStat("inFlight", 1);
+
+        workQueue.offer(2L);
+        workQueue.offer(3L);
+        workQueue.offer(4L);
+
+        Map<String, Object> stats = workQueue.getStats();
+        assertThat(stats.get("queueDepth")).isEqualTo(2);
+        assertThat(stats.get("dropped")).isEqualTo(1L);
+
+        release.countDown();
+        awaitStat("completed", 3L);
+        verify(similarityService, never()).refreshEmbedding(2L);
+        verify(similarityService).refreshEmbedding(4L);
+    }
+
+    @Test
+    void offer_whenFullAndDropNewest_shouldRejectNewDocument() throws Exception {
+        ReflectionTestUtils.setField(workQueue, "overflowPolicy", EmbeddingWorkQueue.OverflowPolicy.DROP_NEWEST);
+        workQueue.offer(1L);
+        awaitStat("inFlight", 1);
+
+        assertThat(workQueue.offer(2L)).isTrue();
+        assertThat(workQueue.offer(3L)).isTrue();
+        assertThat(workQueue.offer(4L)).isFalse();
+        assertThat(workQueue.getQueueDepth()).isEqualTo(2);
+    }
+
+    private void awaitStat(String name, Object expected) throws InterruptedException {
+        Supplier<Object> value = () -> workQueue.getStats().get(name);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!expected.equals(value.get()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(value.get()).isEqualTo(expected);
+    }
+}
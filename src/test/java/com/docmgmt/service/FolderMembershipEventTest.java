@@ -0,0 +1,88 @@
+package com.docmgmt.service;
+
+import com.docmgmt.model.Folder;
+import com.docmgmt.repository.FolderRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the folder membership events FolderService publishes for reindexing
+ */
+@ExtendWith(MockitoExtension.class)
+public class FolderMembershipEventTest {
+
+    @Mock
+    private FolderRepository folderRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private FolderService folderService;
+
+    @BeforeEach
+    void setUp() {
+        folderService = new FolderService(folderRepository, eventPublisher);
+    }
+
+    @Test
+    void testDeleteFolder_PublishesDocumentsBelowIt() {
+        when(folderRepository.existsById(1L)).thenReturn(true);
+        when(folderRepository.findDocumentIdsInSubtrees(List.of(1L))).thenReturn(List.of(10L, 11L));
+
+        folderService.delete(1L);
+
+        ArgumentCaptor<FolderMembershipChangedEvent> captor = ArgumentCaptor.forClass(FolderMembershipChangedEvent.class);
+        verify(eventPublisher).publishEvent(captor.capture());
+        assertEquals(Set.of(10L, 11L), captor.getValue().getDocumentIds());
+        assertTrue(captor.getValue().getFolderIds().isEmpty());
+        verify(folderRepository).deleteById(1L);
+    }
+
+    @Test
+    void testDeleteEmptyFolder_PublishesNothing() {
+        when(folderRepository.existsById(1L)).thenReturn(true);
+        when(folderRepository.findDocumentIdsInSubtrees(List.of(1L))).thenReturn(List.of());
+
+        folderService.delete(1L);
+
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void testRenameRootFolder_PublishesItsSubtree() {
+        Folder root = Folder.builder().id(1L).name("Old Root").build();
+        when(folderRepository.findById(1L)).thenReturn(Optional.of(root));
+        when(folderRepository.save(any(Folder.class))).thenAnswer(i -> i.getArguments()[0]);
+
+        folderService.updateFolder(1L, "New Root", null, null, null, null, null, null);
+
+        ArgumentCaptor<FolderMembershipChangedEvent> captor = ArgumentCaptor.forClass(FolderMembershipChangedEvent.class);
+        verify(eventPublisher).publishEvent(captor.capture());
+        assertEquals(Set.of(1L), captor.getValue().getFolderIds());
+    }
+
+    @Test
+    void testRenameChildFolder_PublishesNothing() {
+        Folder root = Folder.builder().id(1L).name("Root").build();
+        Folder child = Folder.builder().id(2L).name("Old Child").parentFolder(root).build();
+        when(folderRepository.findById(2L)).thenReturn(Optional.of(child));
+        when(folderRepository.save(any(Folder.class))).thenAnswer(i -> i.getArguments()[0]);
+
+        folderService.updateFolder(2L, "New Child", null, null, null, null, null, null);
+
+        verifyNoInteractions(eventPublisher);
+    }
+}